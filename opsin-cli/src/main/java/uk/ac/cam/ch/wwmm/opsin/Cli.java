@@ -85,6 +85,9 @@ public class Cli {
 			String outputType = cmd.getOptionValue("o", "smi");
 			boolean outputName = cmd.hasOption("n");
 			int threads = parseThreadCount(cmd);
+			if (n2sconfig.isDetailedFailureAnalysis()) {
+				NameToStructure.getInstance().initialiseDetailedFailureAnalysis();
+			}
 			if (outputType.equalsIgnoreCase("cml")) {
 				interactiveCmlOutput(input, output, n2sconfig);
 			} else if (outputType.equalsIgnoreCase("smi") || outputType.equalsIgnoreCase("smiles")) {
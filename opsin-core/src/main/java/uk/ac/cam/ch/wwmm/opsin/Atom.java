@@ -1,10 +1,13 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.regex.Matcher;
 
@@ -27,8 +30,16 @@ class Atom {
 	/**The chemical element of the atom. */
 	private ChemEl chemEl;
 
-	/**The locants that pertain to the atom.*/
-	private final List<String> locants = new ArrayList<>(2);
+	private static final String[] NO_LOCANTS = new String[0];
+
+	/**The locants that pertain to the atom. Replaced, rather than modified, when locants are added or removed*/
+	private String[] locants = NO_LOCANTS;
+
+	/**Whether any of the locants are numeric e.g. 1, 2a, 3'. Maintained as locants are added and removed*/
+	private boolean hasNumericLocant = false;
+
+	/**Whether any of the locants are not element symbol locants e.g. 1, alpha but not N, O'. Maintained as locants are added and removed*/
+	private boolean hasNonElementSymbolLocant = false;
 
 	/**The formal charge on the atom.*/
 	private int charge = 0;
@@ -42,12 +53,18 @@ class Atom {
 	 */
 	private AtomParity atomParity = null;
 
-	/**The bonds that involve the atom*/
-	private final List<Bond> bonds = new ArrayList<>(4);
+	private static final Bond[] NO_BONDS = new Bond[0];
+
+	/**The bonds that involve the atom, the first bondCount elements are used. Most atoms have at most 4 bonds, so this is allocated with room for 4 on the first bond being added*/
+	private Bond[] bonds = NO_BONDS;
+
+	private int bondCount = 0;
+	/**Incremented whenever a bond is added or removed, such that modification during iteration of {@link #getBonds()} is detected*/
+	private int bondModCount = 0;
 
-	/**A map between PropertyKey s as declared here and useful atom properties, usually relating to some kind of special case. */
-	@SuppressWarnings("rawtypes")
-	private final Map<PropertyKey, Object> properties = new HashMap<>();
+	/**The values of the PropertyKey s declared here, indexed by the key's ordinal. These are useful atom properties, usually relating to some kind of special case.
+	 * Null until a property is set*/
+	private Object[] properties = null;
 	/** A set of atoms that were equally plausible to perform functional replacement on */
 	static final PropertyKey<Set<Atom>> AMBIGUOUS_ELEMENT_ASSIGNMENT = new PropertyKey<>("ambiguousElementAssignment");
 	/** The atom class which will be output when serialised to SMILES. Useful for distinguishing attachment points */
@@ -64,14 +81,15 @@ class Atom {
 	static final PropertyKey<Boolean> ISALDEHYDE = new PropertyKey<>("isAldehyde");
 	/** Indicates that this atom is an anomeric atom in a cyclised carbohydrate*/
 	static final PropertyKey<Boolean> ISANOMERIC = new PropertyKey<>("isAnomeric");
-	/** Transient integer used to indicate traversal of fragments*/
-	static final PropertyKey<Integer> VISITED = new PropertyKey<>("visited");
 	
 	private static final StereoGroup UNKNOWN_STEREOGROUP = new StereoGroup(StereoGroupType.Unk);
 
 	/**The fragment to which the atom belongs.*/
 	private Fragment frag;
 
+	/**The index of this atom in the atoms of frag, maintained by the fragment. Only valid if frag is unchanged since it was set*/
+	private int indexInFragment = -1;
+
 	/** Whether an atom is part of a delocalised set of double bonds. A double bond in a kekule structure
 	 * can be mapped to a single bond with this attribute set to true on both atoms that were in the double bond
 	 * For example, benzene could be temporarily represented by six singly-bonded atoms, each with a set
@@ -193,7 +211,15 @@ class Atom {
 	 * @param locant The new locant
 	 */
 	void addLocant(String locant) {
-		locants.add(locant);
+		String[] newLocants = Arrays.copyOf(locants, locants.length + 1);
+		newLocants[locants.length] = locant;
+		locants = newLocants;
+		if (!hasNumericLocant && MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
+			hasNumericLocant = true;
+		}
+		if (!hasNonElementSymbolLocant && !MATCH_ELEMENT_SYMBOL_LOCANT.matcher(locant).matches()) {
+			hasNonElementSymbolLocant = true;
+		}
 		frag.addMappingToAtomLocantMap(locant, this);
 	}
 
@@ -207,34 +233,59 @@ class Atom {
 	}
 
 	void removeLocant(String locantToRemove) {
-		int locantArraySize = locants.size();
+		int locantArraySize = locants.length;
 		for (int i = locantArraySize -1; i >=0 ; i--) {
-			if (locants.get(i).equals(locantToRemove)){
-				locants.remove(i);
+			if (locants[i].equals(locantToRemove)){
+				removeLocant(i);
 				frag.removeMappingFromAtomLocantMap(locantToRemove);
 			}
 		}
 	}
 
+	private void removeLocant(int index) {
+		if (locants.length == 1) {
+			locants = NO_LOCANTS;
+			hasNumericLocant = false;
+			hasNonElementSymbolLocant = false;
+			return;
+		}
+		String[] newLocants = new String[locants.length - 1];
+		System.arraycopy(locants, 0, newLocants, 0, index);
+		System.arraycopy(locants, index + 1, newLocants, index, newLocants.length - index);
+		locants = newLocants;
+		hasNumericLocant = false;
+		hasNonElementSymbolLocant = false;
+		for (String locant : locants) {
+			if (MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
+				hasNumericLocant = true;
+			}
+			if (!MATCH_ELEMENT_SYMBOL_LOCANT.matcher(locant).matches()) {
+				hasNonElementSymbolLocant = true;
+			}
+		}
+	}
+
 	/**Removes all locants from the Atom.
 	 *
 	 */
 	void clearLocants() {
-		for (int i = 0, l = locants.size(); i < l; i++) {
-			frag.removeMappingFromAtomLocantMap(locants.get(i));
+		for (String locant : locants) {
+			frag.removeMappingFromAtomLocantMap(locant);
 		}
-		locants.clear();
+		locants = NO_LOCANTS;
+		hasNumericLocant = false;
+		hasNonElementSymbolLocant = false;
 	}
 
 	/**
 	 * Removes only elementSymbolLocants: e.g. N, S', Se
 	 */
 	void removeElementSymbolLocants() {
-		for (int i = locants.size() - 1; i >= 0; i--) {
-			String locant = locants.get(i);
+		for (int i = locants.length - 1; i >= 0; i--) {
+			String locant = locants[i];
 			if (MATCH_ELEMENT_SYMBOL_LOCANT.matcher(locant).matches()){
 				frag.removeMappingFromAtomLocantMap(locant);
-				locants.remove(i);
+				removeLocant(i);
 			}
 		}
 	}
@@ -244,11 +295,11 @@ class Atom {
 	 * Hence removes numeric locants and greek locants
 	 */
 	void removeLocantsOtherThanElementSymbolLocants() {
-		for (int i = locants.size() - 1; i >= 0; i--) {
-			String locant = locants.get(i);
+		for (int i = locants.length - 1; i >= 0; i--) {
+			String locant = locants[i];
 			if (!MATCH_ELEMENT_SYMBOL_LOCANT.matcher(locant).matches()){
 				frag.removeMappingFromAtomLocantMap(locant);
-				locants.remove(i);
+				removeLocant(i);
 			}
 		}
 	}
@@ -259,8 +310,10 @@ class Atom {
 	 * @return true if it has, false if not
 	 */
 	boolean hasLocant(String locant) {
-		if (locants.contains(locant)) {
-			return true;
+		for (String l : locants) {
+			if (l.equals(locant)) {
+				return true;
+			}
 		}
 		Matcher m = MATCH_AMINOACID_STYLE_LOCANT.matcher(locant);
 		if (m.matches()){//e.g. N'5
@@ -283,7 +336,7 @@ class Atom {
 	 * @return The locant, or null if there is no locant
 	 */
 	String getFirstLocant() {
-		return locants.size() > 0 ? locants.get(0) : null;
+		return locants.length > 0 ? locants[0] : null;
 	}
 
 	/**Returns the array of locants containing all locants associated with the atom
@@ -291,7 +344,23 @@ class Atom {
 	 * @return The list of locants (may be empty)
 	 */
 	List<String> getLocants() {
-		return Collections.unmodifiableList(locants);
+		return locants.length > 0 ? Collections.unmodifiableList(Arrays.asList(locants)) : Collections.<String>emptyList();
+	}
+
+	/**
+	 * Does the atom have a numeric locant e.g. 1, 2a, 3'
+	 * @return
+	 */
+	boolean hasNumericLocant() {
+		return hasNumericLocant;
+	}
+
+	/**
+	 * Does the atom have a locant that is not an element symbol locant e.g. 1, alpha, but not N, O'
+	 * @return
+	 */
+	boolean hasNonElementSymbolLocant() {
+		return hasNonElementSymbolLocant;
 	}
 
 	/**Returns the subset of the locants which are element symbol locants e.g. N, S', Se
@@ -300,8 +369,7 @@ class Atom {
 	 */
 	List<String> getElementSymbolLocants() {
 		List<String> elementSymbolLocants = new ArrayList<>(1);
-		for (int i = 0, l = locants.size(); i < l; i++) {
-			String locant = locants.get(i);
+		for (String locant : locants) {
             if (MATCH_ELEMENT_SYMBOL_LOCANT.matcher(locant).matches()) {
                 elementSymbolLocants.add(locant);
             }
@@ -317,6 +385,18 @@ class Atom {
 		return frag;
 	}
 
+	/**
+	 * The index of this atom in its fragment, as last set by a fragment. Use {@link Fragment#getAtomIndex(Atom)} to get a validated index
+	 * @return
+	 */
+	int getIndexInFragment() {
+		return indexInFragment;
+	}
+
+	void setIndexInFragment(int indexInFragment) {
+		this.indexInFragment = indexInFragment;
+	}
+
 	/**Gets the ID of the atom.
 	 *
 	 * @return The ID of the atom
@@ -402,10 +482,14 @@ class Atom {
 	 * @param b The bond to be added
 	 */
 	void addBond(Bond b) {
-		if (bonds.contains(b)){
+		if (indexOfBond(b) >= 0){
 			throw new IllegalArgumentException("Atom already has given bond (This is not allowed as this would give two bonds between the same atoms!)");
 		}
-		bonds.add(b);
+		if (bondCount == bonds.length) {
+			bonds = Arrays.copyOf(bonds, bondCount == 0 ? 4 : bondCount * 2);
+		}
+		bonds[bondCount++] = b;
+		bondModCount++;
 	}
 
 	/**Removes a bond to the atom
@@ -414,7 +498,23 @@ class Atom {
      * @return whether bond was present
 	 */
 	boolean removeBond(Bond b) {
-		return bonds.remove(b);
+		int index = indexOfBond(b);
+		if (index < 0) {
+			return false;
+		}
+		System.arraycopy(bonds, index + 1, bonds, index, bondCount - index - 1);
+		bonds[--bondCount] = null;
+		bondModCount++;
+		return true;
+	}
+
+	private int indexOfBond(Bond b) {
+		for (int i = 0; i < bondCount; i++) {
+			if (bonds[i].equals(b)) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	/**Calculates the number of bonds connecting to the atom, excluding bonds to implicit
@@ -425,8 +525,8 @@ class Atom {
 	 */
 	int getIncomingValency() {
 		int v = 0;
-		for (int i = 0, len = bonds.size(); i < len; i++) {
-			v += bonds.get(i).getOrder();
+		for (int i = 0; i < bondCount; i++) {
+			v += bonds[i].getOrder();
 		}
 		return v;
 	}
@@ -471,12 +571,17 @@ class Atom {
 		outValency += outV;
 	}
 
+	/**
+	 * Returns an unmodifiable view of the bonds of this atom.
+	 * As with the collections in java.util, modification of the atom's bonds during iteration is detected
+	 * @return
+	 */
 	List<Bond> getBonds() {
-		return Collections.unmodifiableList(bonds);
+		return new BondList();
 	}
 	
 	int getBondCount() {
-		return bonds.size();
+		return bondCount;
 	}
 
 	/**Gets a list of atoms that connect to the atom
@@ -484,10 +589,9 @@ class Atom {
 	 * @return The list of atoms connected to the atom
 	 */
 	List<Atom> getAtomNeighbours(){
-		int bondCount = bonds.size();
 		List<Atom> results = new ArrayList<>(bondCount);
 		for (int i = 0; i < bondCount; i++) {
-			results.add(bonds.get(i).getOtherAtom(this));
+			results.add(bonds[i].getOtherAtom(this));
 		}
 		return results;
 	}
@@ -550,11 +654,22 @@ class Atom {
 
     @SuppressWarnings("unchecked")
 	<T> T getProperty(PropertyKey<T> propertyKey) {
-        return (T) properties.get(propertyKey);
+		int ordinal = propertyKey.getOrdinal();
+		if (properties == null || ordinal >= properties.length) {
+			return null;
+		}
+        return (T) properties[ordinal];
     }
 
 	<T> void setProperty(PropertyKey<T> propertyKey, T value) {
-		properties.put(propertyKey, value);
+		int ordinal = propertyKey.getOrdinal();
+		if (properties == null || ordinal >= properties.length) {
+			if (value == null) {
+				return;
+			}
+			properties = properties == null ? new Object[PropertyKey.getKeyCount()] : Arrays.copyOf(properties, PropertyKey.getKeyCount());
+		}
+		properties[ordinal] = value;
 	}
 
 	/**
@@ -595,8 +710,8 @@ class Atom {
 	 * @return
 	 */
 	Bond getFirstBond() {
-		if (bonds.size() > 0){
-			return bonds.get(0);
+		if (bondCount > 0){
+			return bonds[0];
 		}
 		return null;
 	}
@@ -607,8 +722,8 @@ class Atom {
 	 * @return The bond, or null if there is no bond
 	 */
 	Bond getBondToAtom(Atom a) {
-		for (int i = 0, l = bonds.size(); i < l; i++) {
-			Bond b = bonds.get(i);
+		for (int i = 0; i < bondCount; i++) {
+			Bond b = bonds[i];
 			if(b.getOtherAtom(this) == a){
 				return b;
 			}
@@ -647,4 +762,51 @@ class Atom {
 	StereoGroup getStereoGroup() {
 		return atomParity != null ? atomParity.getStereoGroup() : UNKNOWN_STEREOGROUP;
 	}
+
+	private class BondList extends AbstractList<Bond> {
+
+		@Override
+		public Bond get(int index) {
+			if (index >= bondCount) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bondCount);
+			}
+			return bonds[index];
+		}
+
+		@Override
+		public int size() {
+			return bondCount;
+		}
+
+		@Override
+		public Iterator<Bond> iterator() {
+			return new BondIterator();
+		}
+	}
+
+	private class BondIterator implements Iterator<Bond> {
+		private final int expectedModCount = bondModCount;
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return next < bondCount;
+		}
+
+		@Override
+		public Bond next() {
+			if (bondModCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= bondCount) {
+				throw new NoSuchElementException();
+			}
+			return bonds[next++];
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
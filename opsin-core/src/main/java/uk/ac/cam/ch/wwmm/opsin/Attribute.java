@@ -3,10 +3,13 @@ package uk.ac.cam.ch.wwmm.opsin;
 class Attribute {
 
 	private final String name;
+	/**The ordinal of name from {@link XmlSymbols#getAttributeSlot(String)}*/
+	private final int slot;
 	private String value;
 
 	Attribute(String name, String value) {
 		this.name = name;
+		this.slot = XmlSymbols.getAttributeSlot(name);
 		this.value = value;
 	}
 
@@ -16,6 +19,7 @@ class Attribute {
 	 */
 	Attribute(Attribute attribute) {
 		this.name = attribute.getName();
+		this.slot = attribute.slot;
 		this.value = attribute.getValue();
 	}
 
@@ -26,6 +30,10 @@ class Attribute {
 	String getName() {
 		return name;
 	}
+
+	int getSlot() {
+		return slot;
+	}
 	
 	void setValue(String value) {
 		this.value = value;
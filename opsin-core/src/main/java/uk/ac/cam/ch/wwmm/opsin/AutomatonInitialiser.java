@@ -1,10 +1,14 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,85 +25,107 @@ import dk.brics.automaton.SpecialOperations;
  *
  */
 class AutomatonInitialiser {
-	
+
 	private static final Logger LOG = LogManager.getLogger(AutomatonInitialiser.class);
+
+	/**If this system property is true, automata that had to be built from scratch are written to the working directory for reuse.
+	 * By default nothing is written, hence read-only deployments never attempt to write to disk*/
+	static final String WRITE_AUTOMATA_PROPERTY = "opsin.writeAutomata";
+
+	static final String AUTOMATON_FILE_SUFFIX = ".automaton";
+
+	private static final int MAGIC_NUMBER = 0x4F505341;//OPSA
+	/**Must be incremented whenever the layout of the automaton file changes*/
+	private static final int FORMAT_VERSION = 1;
+
 	private final ResourceGetter resourceGetter;
-	
+
 	AutomatonInitialiser(String resourcePath) {
 		resourceGetter = new ResourceGetter(resourcePath);
 	}
 
 	/**
-	 * In preference serialised automata and their hashes will be looked for in the resource folder in your working directory
+	 * In preference stored automata will be looked for in the resource folder in your working directory
 	 * If it cannot be found there then these files will be looked for in the standard resource folder
-	 * (this is actually the standard behaviour of the resourceGetter but I'm reiterating it here as if the stored hash doesn't match
-	 * the current hash then the creation of an updated serialised automaton and hash will occur in the working directory resource folder as the standard
-	 * resource folder will not typically be writable)
+	 * (this is the standard behaviour of the resourceGetter)<br>
+	 * Each stored automaton includes a SHA-256 hash of the regex it was built from; if this doesn't match
+	 * the current regex the automaton is built from scratch. If the system property {@value #WRITE_AUTOMATA_PROPERTY} is true
+	 * the updated automaton is then written to the working directory resource folder (the standard resource folder will not typically be writable)
 	 * @param automatonName : A name for the automaton so that it can it can be saved/loaded from disk
-	 * @param regex : the regex from which to build the RunAutomaton
+	 * @param regex : the regex from which to build the automaton
 	 * @param reverseAutomaton : should the automaton be reversed
-	 * @param tableize: if true, a transition table is created which makes the run method faster in return of a higher memory usage (adds ~256kb)
-	 * @return A RunAutomaton, may have been built from scratch or loaded from a file
+	 * @return An OpsinAutomaton, may have been built from scratch or loaded from a file
 	 */
-	RunAutomaton loadAutomaton(String automatonName, String regex, boolean tableize, boolean reverseAutomaton) {
+	OpsinAutomaton loadAutomaton(String automatonName, String regex, boolean reverseAutomaton) {
 		if (reverseAutomaton){
-			automatonName+="_reversed_";
+			automatonName += "_reversed";
 		}
-		try{
-			if (isAutomatonCached(automatonName, regex)) {
-				return loadCachedAutomaton(automatonName);
+		String fileName = automatonName + AUTOMATON_FILE_SUFFIX;
+		byte[] regexHash = getRegexHash(regex);
+		try {
+			ByteBuffer buffer = resourceGetter.getByteBuffer(fileName);
+			OpsinAutomaton automaton = readAutomaton(buffer, regexHash);
+			if (automaton != null) {
+				return automaton;
 			}
 		}
 		catch (IOException e) {
-			LOG.warn("Error loading cached automaton: "+automatonName, e);
+			LOG.debug("No stored automaton available for: " + automatonName);
+		}
+		catch (BufferUnderflowException e) {
+			LOG.warn("Stored automaton was truncated: " + automatonName);
+		}
+		LOG.debug("Building automaton: " + automatonName);
+		OpsinAutomaton automaton = createAutomaton(regex, reverseAutomaton);
+		if (Boolean.getBoolean(WRITE_AUTOMATA_PROPERTY)) {
+			writeAutomaton(fileName, automaton, regexHash);
 		}
-		RunAutomaton automaton = createAutomaton(regex, tableize, reverseAutomaton);
-		cacheAutomaton(automatonName, automaton, regex);
 		return automaton;
 	}
-	
-	private boolean isAutomatonCached(String automatonName, String regex) {
-		String currentRegexHash = getRegexHash(regex);
-		String cachedRegexHash = getCachedRegexHash(automatonName);
-		return currentRegexHash.equals(cachedRegexHash);
-	}
-	
-	private String getRegexHash(String regex) {
-		return Integer.toString(regex.hashCode());
-	}
 
-	private String getCachedRegexHash(String automatonName) {
-		/*This file contains the hashcode of the regex which was used to generate the automaton on the disk */
-		return resourceGetter.getFileContentsAsString(automatonName + "RegexHash.txt");
+	/**
+	 * Reads the automaton from the buffer, or returns null if it was not built from a regex with the given hash
+	 * @param buffer
+	 * @param regexHash
+	 * @return
+	 */
+	private static OpsinAutomaton readAutomaton(ByteBuffer buffer, byte[] regexHash) {
+		if (buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION) {
+			return null;
+		}
+		byte[] storedRegexHash = new byte[regexHash.length];
+		buffer.get(storedRegexHash);
+		if (!Arrays.equals(regexHash, storedRegexHash)) {
+			return null;
+		}
+		return OpsinAutomaton.read(buffer);
 	}
-	
-	private RunAutomaton loadCachedAutomaton(String automatonName) throws IOException{
-		try (InputStream automatonInput = resourceGetter.getInputstreamFromFileName(automatonName +"SerialisedAutomaton.aut")){
-			return RunAutomaton.load(new BufferedInputStream(automatonInput));
-		} catch (Exception e) {
-			IOException ioe = new IOException("Error loading automaton");
-			ioe.initCause(e);
-			throw ioe;
+
+	static byte[] getRegexHash(String regex) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(regex.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is unavailable", e);
 		}
 	}
-	
-	private static RunAutomaton createAutomaton(String regex, boolean tableize, boolean reverseAutomaton) {
+
+	private static OpsinAutomaton createAutomaton(String regex, boolean reverseAutomaton) {
 		Automaton a = new RegExp(regex).toAutomaton();
 		if (reverseAutomaton){
 			SpecialOperations.reverse(a);
 		}
-		return new RunAutomaton(a, tableize);
+		return OpsinAutomaton.fromRunAutomaton(new RunAutomaton(a, false));
 	}
 
-	private void cacheAutomaton(String automatonName, RunAutomaton automaton, String regex) {
-		try (OutputStream regexHashOutputStream = resourceGetter.getOutputStream(automatonName + "RegexHash.txt")) {
-			regexHashOutputStream.write(getRegexHash(regex).getBytes(StandardCharsets.UTF_8));
-			try (OutputStream automatonOutputStream = resourceGetter.getOutputStream(automatonName + "SerialisedAutomaton.aut")) {
-				automaton.store(automatonOutputStream);
-			}
+	private void writeAutomaton(String fileName, OpsinAutomaton automaton, byte[] regexHash) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(resourceGetter.getOutputStream(fileName)))) {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			out.write(regexHash);
+			automaton.write(out);
 		} catch (IOException e) {
-			LOG.warn("Error serialising automaton: "+automatonName, e);
+			LOG.warn("Error writing automaton: " + fileName, e);
 		}
 	}
-	
+
 }
@@ -34,6 +34,9 @@ class Bond {
 	 */
 	private BondStereo bondStereo = null;
 
+	/**The index of this bond in the bonds of the fragment it was last added to, maintained by the fragment*/
+	private int indexInFragment = -1;
+
 	/** DO NOT CALL DIRECTLY EXCEPT FOR TESTING
 	 * Creates a new Bond.
 	 *
@@ -127,6 +130,18 @@ class Bond {
 		return bondStereo;
 	}
 
+	/**
+	 * The index of this bond in the fragment it was last added to. This may be out of date if the bond has since been removed
+	 * @return
+	 */
+	int getIndexInFragment() {
+		return indexInFragment;
+	}
+
+	void setIndexInFragment(int indexInFragment) {
+		this.indexInFragment = indexInFragment;
+	}
+
 	void setBondStereo(BondStereo bondStereo) {
 		this.bondStereo = bondStereo;
 	}
@@ -0,0 +1,131 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe, size-bounded, least recently used cache.
+ * The cache is split into independently locked segments so that concurrent lookups of different keys rarely contend.
+ * Eviction is least recently used within a segment, hence the cache as a whole is approximately LRU.
+ * Null keys and values are not supported.
+ */
+class BoundedCache<K, V> {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment<K, V>[] segments;
+	private final int segmentMask;
+	private final int maximumSize;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache that will hold approximately at most maximumSize entries
+	 * @param maximumSize
+	 */
+	@SuppressWarnings("unchecked")
+	BoundedCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive but was: " + maximumSize);
+		}
+		int segmentCount = 1;
+		while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * 8 <= maximumSize) {
+			//only segment larger caches so that each segment has a reasonable number of entries
+			segmentCount *= 2;
+		}
+		int segmentSize = (maximumSize + segmentCount - 1) / segmentCount;
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<>(segmentSize, evictions);
+		}
+		segmentMask = segmentCount - 1;
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Returns the value associated with the given key, or null if the key is not in the cache
+	 * @param key
+	 * @return
+	 */
+	V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value != null) {
+			hits.increment();
+		}
+		else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Associates the given value with the given key, potentially evicting the least recently used entry
+	 * @param key
+	 * @param value
+	 */
+	void put(K key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values cannot be cached");
+		}
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	CacheStatistics getStatistics() {
+		return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size(), maximumSize);
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -46,7 +46,7 @@ class CASTools {
 			for (int i = 1; i < parentNameParts.length; i++) {
 				if (!matchAcid.matcher(parentNameParts[i]).matches()) {
 					ParseRulesResults results = parseRules.getParses(parentNameParts[i]);
-					List<ParseTokens> parseTokens = results.getParseTokensList();
+					List<ParseTokens> parseTokens = results.getBoundedParseTokensList();
 					if (parseTokens.isEmpty()) {
 						throw new ParsingException("Invalid CAS name. Parent compound was followed by an unexpected term");
 					}
@@ -82,7 +82,7 @@ class CASTools {
 					substituents.add(component);
 				} else {
 					ParseRulesResults results = parseRules.getParses(component);
-					List<ParseTokens> parseTokens = results.getParseTokensList();
+					List<ParseTokens> parseTokens = results.getBoundedParseTokensList();
 					if (parseTokens.size() > 0) {
 						List<ParseWord> parseWords = WordTools.splitIntoParseWords(parseTokens, component);
 
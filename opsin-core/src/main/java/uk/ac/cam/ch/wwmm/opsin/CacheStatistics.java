@@ -0,0 +1,73 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+/**
+ * An immutable snapshot of the usage of one of OPSIN's caches
+ */
+public final class CacheStatistics {
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final int size;
+	private final int maximumSize;
+
+	CacheStatistics(long hitCount, long missCount, long evictionCount, int size, int maximumSize) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * The number of lookups that found a cached value
+	 * @return
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * The number of lookups that did not find a cached value
+	 * @return
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * The number of entries that have been removed to keep the cache within its maximum size
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * The number of entries in the cache when these statistics were taken
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * The (approximate) maximum number of entries the cache will hold
+	 * @return
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * The proportion of lookups that found a cached value, or 0 if there have been no lookups
+	 * @return
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	public String toString() {
+		return "hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + ", size=" + size + "/" + maximumSize;
+	}
+}
@@ -225,7 +225,7 @@ class ComponentGenerator {
 		Element group = subOrRoot.getFirstChildElement(GROUP_EL);
 		if (group != null && group.getValue().equals("then")) {
 			Element precedingEl = OpsinTools.getPrevious(group);
-			if (precedingEl != null && precedingEl.getName().equals(SUFFIX_EL) && precedingEl.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null) {
+			if (precedingEl != null && precedingEl.getName().equals(SUFFIX_EL) && precedingEl.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null) {
 				if (precedingEl.getValue().equals("ylidene") || precedingEl.getValue().equals("ylidyne")) {
 					throw new ComponentGenerationException("Group should be ethenyl, not thenyl");
 				}
@@ -278,7 +278,7 @@ class ComponentGenerator {
 									addedHydrogenElement.addAttribute(new Attribute(LOCANT_ATR, hydrogenLocant));
 									OpsinTools.insertBefore(locantEl, addedHydrogenElement);
 								}
-								if (locantEl.getAttribute(TYPE_ATR) == null){
+								if (locantEl.getAttributeValue(TYPE_ATR) == null){
 									locantEl.addAttribute(new Attribute(TYPE_ATR, ADDEDHYDROGENLOCANT_TYPE_VAL));//this locant must not be used as an indirect locant
 								}
 							}
@@ -562,7 +562,7 @@ class ComponentGenerator {
 		for (Element alkaneStemModifier : alkaneStemModifiers) {
 			Element alkane = OpsinTools.getNextSibling(alkaneStemModifier);
 			String type;
-			if (alkaneStemModifier.getAttribute(VALUE_ATR)!=null){
+			if (alkaneStemModifier.getAttributeValue(VALUE_ATR)!=null){
 				type = alkaneStemModifier.getAttributeValue(VALUE_ATR);//identified by token;
 			}
 			else{
@@ -686,7 +686,7 @@ class ComponentGenerator {
 			Element multipliedElem = OpsinTools.getNextSibling(m);
 
 			if(multipliedElem.getName().equals(GROUP_EL) &&
-					multipliedElem.getAttribute(SUBTYPE_ATR)!=null &&
+					multipliedElem.getAttributeValue(SUBTYPE_ATR)!=null &&
 					multipliedElem.getAttributeValue(SUBTYPE_ATR).equals(HETEROSTEM_SUBTYPE_VAL)) {
 				int mvalue = Integer.parseInt(m.getAttributeValue(VALUE_ATR));
 
@@ -1354,7 +1354,7 @@ class ComponentGenerator {
 				throw new ComponentGenerationException("No suffix found next next to infix: "+ infix.getValue());
 			}
 			List<String> currentInfixInformation;
-			if (suffix.getAttribute(INFIX_ATR)==null){
+			if (suffix.getAttributeValue(INFIX_ATR)==null){
 				suffix.addAttribute(new Attribute(INFIX_ATR, ""));
 				currentInfixInformation = new ArrayList<>();
 			}
@@ -1850,7 +1850,7 @@ class ComponentGenerator {
 				suffix.removeAttribute(suffix.getAttribute(ADDITIONALVALUE_ATR));
 				suffix.setValue("yl");
 				Element alk = OpsinTools.getPreviousSibling(suffix, GROUP_EL);
-				if (alk.getAttribute(USABLEASJOINER_ATR)!=null){
+				if (alk.getAttributeValue(USABLEASJOINER_ATR)!=null){
 					alk.removeAttribute(alk.getAttribute(USABLEASJOINER_ATR));
 				}
 				Element multiplier = new TokenEl(MULTIPLIER_EL, "di");
@@ -1859,8 +1859,8 @@ class ComponentGenerator {
 			}
 			else if (suffixValue.equals("ylium") &&//disambiguate between ylium the charge modifying suffix and ylium the acylium suffix
 					"acylium".equals(suffix.getAttributeValue(VALUE_ATR)) &&
-					suffix.getAttribute(SUFFIXPREFIX_ATR)==null &&
-					suffix.getAttribute(INFIX_ATR)==null){
+					suffix.getAttributeValue(SUFFIXPREFIX_ATR)==null &&
+					suffix.getAttributeValue(INFIX_ATR)==null){
 				Element group = OpsinTools.getPreviousSibling(suffix, GROUP_EL);
 				if (group==null || (!ACIDSTEM_TYPE_VAL.equals(group.getAttributeValue(TYPE_ATR)) &&
 						!CHALCOGENACIDSTEM_TYPE_VAL.equals(group.getAttributeValue(TYPE_ATR)) &&
@@ -2058,7 +2058,7 @@ class ComponentGenerator {
 		}
 		chainGroup.getAttribute(VALUE_ATR).setValue(smiles);
 		chainGroup.getAttribute(TYPE_ATR).setValue(RING_TYPE_VAL);
-		if (chainGroup.getAttribute(USABLEASJOINER_ATR) != null) {
+		if (chainGroup.getAttributeValue(USABLEASJOINER_ATR) != null) {
 			chainGroup.removeAttribute(chainGroup.getAttribute(USABLEASJOINER_ATR));
 		}
 		spiroEl.detach();
@@ -2374,7 +2374,7 @@ class ComponentGenerator {
 
 		chainEl.getAttribute(VALUE_ATR).setValue(smilesSB.toString());
 		chainEl.getAttribute(TYPE_ATR).setValue(RING_TYPE_VAL);
-		if (chainEl.getAttribute(USABLEASJOINER_ATR) !=null){
+		if (chainEl.getAttributeValue(USABLEASJOINER_ATR) !=null){
 			chainEl.removeAttribute(chainEl.getAttribute(USABLEASJOINER_ATR));
 		}
 		vonBaeyerBracketEl.detach();
@@ -2413,7 +2413,7 @@ class ComponentGenerator {
 		}
 		chainGroup.getAttribute(VALUE_ATR).setValue(smiles);
 		if (chainlen==6){//6 membered rings have ortho/meta/para positions
-			if (chainGroup.getAttribute(LABELS_ATR)!=null){
+			if (chainGroup.getAttributeValue(LABELS_ATR)!=null){
 				chainGroup.getAttribute(LABELS_ATR).setValue("1/2,ortho/3,meta/4,para/5/6");
 			}
 			else{
@@ -2421,7 +2421,7 @@ class ComponentGenerator {
 			}
 		}
 		chainGroup.getAttribute(TYPE_ATR).setValue(RING_TYPE_VAL);
-		if (chainGroup.getAttribute(USABLEASJOINER_ATR) !=null){
+		if (chainGroup.getAttributeValue(USABLEASJOINER_ATR) !=null){
 			chainGroup.removeAttribute(chainGroup.getAttribute(USABLEASJOINER_ATR));
 		}
 		cycloEl.detach();
@@ -2436,7 +2436,7 @@ class ComponentGenerator {
 		String groupValue =group.getValue();
 
 		if (!buildState.n2sConfig.allowInterpretationOfAcidsWithoutTheWordAcid()) {
-			if (group.getAttribute(FUNCTIONALIDS_ATR) !=null && (groupValue.endsWith("ic") || groupValue.endsWith("ous"))){
+			if (group.getAttributeValue(FUNCTIONALIDS_ATR) !=null && (groupValue.endsWith("ic") || groupValue.endsWith("ous"))){
 				Element next = OpsinTools.getNext(group);
 				if (next == null){
 					throw new ComponentGenerationException("\"acid\" not found after " +groupValue);
@@ -2485,7 +2485,7 @@ class ComponentGenerator {
 					group.getAttribute(VALUE_ATR).setValue("C(O)O");
 					group.getAttribute(OUTIDS_ATR).setValue("2,3");
 					group.getAttribute(SUBTYPE_ATR).setValue(EPOXYLIKE_SUBTYPE_VAL);
-					if (group.getAttribute(LABELS_ATR)!=null){
+					if (group.getAttributeValue(LABELS_ATR)!=null){
 						group.getAttribute(LABELS_ATR).setValue(NONE_LABELS_VAL);
 					}
 					else{
@@ -2512,7 +2512,7 @@ class ComponentGenerator {
 					group.getAttribute(OUTIDS_ATR).setValue("1," +Integer.toString(3*(multiplierValue-1) +2));
 					group.getAttribute(VALUE_ATR).setValue(smiles.toString());
 					previous.detach();
-					if (group.getAttribute(LABELS_ATR)!=null){//use numeric numbering
+					if (group.getAttributeValue(LABELS_ATR)!=null){//use numeric numbering
 						group.getAttribute(LABELS_ATR).setValue(NUMERIC_LABELS_VAL);
 					}
 					else{
@@ -2538,7 +2538,7 @@ class ComponentGenerator {
 							previous.detach();
 							possibleRoot.detach();
 							group.getParent().setName(ROOT_EL);
-							if (group.getAttribute(LABELS_ATR)!=null){//use numeric numbering
+							if (group.getAttributeValue(LABELS_ATR)!=null){//use numeric numbering
 								group.getAttribute(LABELS_ATR).setValue(NUMERIC_LABELS_VAL);
 							}
 							else{
@@ -2557,7 +2557,7 @@ class ComponentGenerator {
 						group.getAttribute(VALUE_ATR).setValue("C(O)CO");
 						group.getAttribute(OUTIDS_ATR).setValue("2,4");
 						group.getAttribute(SUBTYPE_ATR).setValue(EPOXYLIKE_SUBTYPE_VAL);
-						if (group.getAttribute(LABELS_ATR)!=null){
+						if (group.getAttributeValue(LABELS_ATR)!=null){
 							group.getAttribute(LABELS_ATR).setValue(NONE_LABELS_VAL);
 						}
 						else{
@@ -2584,7 +2584,7 @@ class ComponentGenerator {
 					}
 					group.getAttribute(OUTIDS_ATR).setValue("2," +Integer.toString(4*(multiplierValue-1) +3));
 					group.getAttribute(VALUE_ATR).setValue(smiles.toString());
-					if (group.getAttribute(LABELS_ATR)!=null){
+					if (group.getAttributeValue(LABELS_ATR)!=null){
 						group.getAttribute(LABELS_ATR).setValue(NONE_LABELS_VAL);
 					}
 					else{
@@ -2697,9 +2697,9 @@ class ComponentGenerator {
 				if (groups.size() > 0){
 					Element possibleAcid = groups.get(groups.size() - 1);
 					if (ACIDSTEM_TYPE_VAL.equals(possibleAcid.getAttributeValue(TYPE_ATR))){
-						if (possibleAcid.getAttribute(SUFFIXAPPLIESTO_ATR) != null && possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR).split(",").length > 1){//multi acid. yl should be one oyl and the rest carboxylic acids
+						if (possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR) != null && possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR).split(",").length > 1){//multi acid. yl should be one oyl and the rest carboxylic acids
 							Element suffix = OpsinTools.getNextSibling(possibleAcid, SUFFIX_EL);
-							if (suffix.getAttribute(ADDITIONALVALUE_ATR) == null){
+							if (suffix.getAttributeValue(ADDITIONALVALUE_ATR) == null){
 								suffix.addAttribute(new Attribute(ADDITIONALVALUE_ATR, "ic"));
 							}
 						}
@@ -2744,9 +2744,9 @@ class ComponentGenerator {
 		}
 		else if (groupValue.equals("sel")){
 			//check that it is not "selenium"
-			if (HETEROSTEM_SUBTYPE_VAL.equals(groupSubType) && group.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) ==null){
+			if (HETEROSTEM_SUBTYPE_VAL.equals(groupSubType) && group.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) ==null){
 				Element unsaturator = OpsinTools.getNextSibling(group);
-				if (unsaturator !=null && unsaturator.getName().equals(UNSATURATOR_EL) && unsaturator.getValue().equals("en") && group.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) ==null){
+				if (unsaturator !=null && unsaturator.getName().equals(UNSATURATOR_EL) && unsaturator.getValue().equals("en") && group.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) ==null){
 					Element ium = OpsinTools.getNextSibling(unsaturator);
 					if (ium !=null && ium.getName().equals(SUFFIX_EL) && ium.getValue().equals("ium")){
 						throw new ComponentGenerationException("<multiplier>selenium does not indicate a chain of selenium atoms with a double bond and a positive charge");
@@ -2829,7 +2829,7 @@ class ComponentGenerator {
 			else{
 				suffix = OpsinTools.getNextSibling(group);
 				if (suffix != null && suffix.getName().equals(SUFFIX_EL) &&
-						suffix.getAttribute(INFIX_ATR) == null && OpsinTools.getNext(suffix) == null){
+						suffix.getAttributeValue(INFIX_ATR) == null && OpsinTools.getNext(suffix) == null){
 					String suffixValue = suffix.getAttributeValue(VALUE_ATR);
 					if (suffixValue.equals("ic")){
 						isAcid = true;
@@ -2931,7 +2931,7 @@ class ComponentGenerator {
 			if (suffixAppliesTo.length == 2) {
 				Element yl = OpsinTools.getNextSibling(group);
 				if (yl.getAttributeValue(VALUE_ATR).equals("yl")) {
-					if (yl.getAttribute(ADDITIONALVALUE_ATR) == null){
+					if (yl.getAttributeValue(ADDITIONALVALUE_ATR) == null){
 						yl.addAttribute(new Attribute(ADDITIONALVALUE_ATR, "ic"));
 					}
 				}
@@ -3020,9 +3020,9 @@ class ComponentGenerator {
 				if (groups.size() > 0) {
 					Element possibleAcid = groups.get(groups.size() - 1);
 					if (ACIDSTEM_TYPE_VAL.equals(possibleAcid.getAttributeValue(TYPE_ATR))) {
-						if (possibleAcid.getAttribute(SUFFIXAPPLIESTO_ATR) != null && possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR).split(",").length > 1) {//multi acid. yl should be one oyl and the rest carboxylic acids
+						if (possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR) != null && possibleAcid.getAttributeValue(SUFFIXAPPLIESTO_ATR).split(",").length > 1) {//multi acid. yl should be one oyl and the rest carboxylic acids
 							Element suffix = OpsinTools.getNextSibling(possibleAcid, SUFFIX_EL);
-							if (suffix.getAttribute(ADDITIONALVALUE_ATR) == null) {
+							if (suffix.getAttributeValue(ADDITIONALVALUE_ATR) == null) {
 								suffix.addAttribute(new Attribute(ADDITIONALVALUE_ATR, "ic"));
 							}
 						}
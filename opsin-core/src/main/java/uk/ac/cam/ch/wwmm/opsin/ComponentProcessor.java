@@ -351,7 +351,7 @@ class ComponentProcessor {
 	private static void processXyleneLikeNomenclature(BuildState state, Element group, Fragment parentFrag) throws StructureBuildingException, ComponentGenerationException {
 		boolean ambiguous = false;
 		
-		if(group.getAttribute(ADDGROUP_ATR) != null) {
+		if(group.getAttributeValue(ADDGROUP_ATR) != null) {
 			String addGroupInformation = group.getAttributeValue(ADDGROUP_ATR);
 			List<AddGroup> groupsToBeAdded = new ArrayList<>();
 			////typically only one, but 2 in the case of xylene and quinones
@@ -581,7 +581,7 @@ class ComponentProcessor {
 	 * @return
 	 */
 	private static boolean locantAreAcceptableForXyleneLikeNomenclatures(List<String> locantValues, Element group) {
-		if (group.getAttribute(FRONTLOCANTSEXPECTED_ATR) == null){
+		if (group.getAttributeValue(FRONTLOCANTSEXPECTED_ATR) == null){
 			throw new IllegalArgumentException("Group must have frontLocantsExpected to implement xylene-like nomenclature");
 		}
 		List<String> allowedLocants = Arrays.asList(group.getAttributeValue(FRONTLOCANTSEXPECTED_ATR).split(","));
@@ -619,7 +619,7 @@ class ComponentProcessor {
 	 * @throws StructureBuildingException
 	 */
 	private static void setFragmentFunctionalAtomsIfSpecified(Element group, Fragment thisFrag) throws StructureBuildingException {
-		if (group.getAttribute(FUNCTIONALIDS_ATR)!=null){
+		if (group.getAttributeValue(FUNCTIONALIDS_ATR)!=null){
 			String[] functionalIDs = group.getAttributeValue(FUNCTIONALIDS_ATR).split(",");
 			for (String functionalID : functionalIDs) {
 				thisFrag.addFunctionalAtom(thisFrag.getAtomByIDOrThrow(thisFrag.getIdOfFirstAtom() + Integer.parseInt(functionalID) - 1));
@@ -633,7 +633,7 @@ class ComponentProcessor {
 		if (groupType.equals(ACIDSTEM_TYPE_VAL)){
 			List<Atom> atomList = thisFrag.getAtomList();
 			Atom startingAtom = thisFrag.getFirstAtom();
-			if (group.getAttribute(SUFFIXAPPLIESTO_ATR) != null){
+			if (group.getAttributeValue(SUFFIXAPPLIESTO_ATR) != null){
 				String suffixAppliesTo = group.getAttributeValue(SUFFIXAPPLIESTO_ATR);
 				String suffixAppliesToArr[] = suffixAppliesTo.split(",");
 				if (suffixAppliesToArr.length != 1){
@@ -679,7 +679,7 @@ class ComponentProcessor {
 			}
 			Element possibleSuffix = OpsinTools.getNextSibling(group, SUFFIX_EL);
 			Boolean terminalSuffixWithNoSuffixPrefixPresent = false;
-			if (possibleSuffix!=null && TERMINAL_SUBTYPE_VAL.equals(possibleSuffix.getAttributeValue(SUBTYPE_ATR)) && possibleSuffix.getAttribute(SUFFIXPREFIX_ATR) == null){
+			if (possibleSuffix!=null && TERMINAL_SUBTYPE_VAL.equals(possibleSuffix.getAttributeValue(SUBTYPE_ATR)) && possibleSuffix.getAttributeValue(SUFFIXPREFIX_ATR) == null){
 				terminalSuffixWithNoSuffixPrefixPresent = true;
 			}
 			for (Atom atom : atomList) {
@@ -768,7 +768,7 @@ class ComponentProcessor {
 				else{
 					Element possibleLocantInFrontOfRing = OpsinTools.getPreviousSibling(potentialRing, LOCANT_EL);
 					if (possibleLocantInFrontOfRing != null) {
-						if (potentialRing.getAttribute(FRONTLOCANTSEXPECTED_ATR) != null) {//check whether the group was expecting a locant e.g. 2-furyl
+						if (potentialRing.getAttributeValue(FRONTLOCANTSEXPECTED_ATR) != null) {//check whether the group was expecting a locant e.g. 2-furyl
 							String locantValue = possibleLocantInFrontOfRing.getValue();
 							String[] expectedLocants = potentialRing.getAttributeValue(FRONTLOCANTSEXPECTED_ATR).split(",");
 							for (String expectedLocant : expectedLocants) {
@@ -1087,7 +1087,7 @@ class ComponentProcessor {
 						// number of locants and multiplier agree
 						boolean locantModified = false;//did determineLocantMeaning do something?
 						if (locantValues[locantValues.length-1].endsWith("'") && group!=null && subOrBracketOrRoot.indexOf(group) > subOrBracketOrRoot.indexOf(locant)){//quite possible that this is referring to a multiplied root
-							if (group.getAttribute(OUTIDS_ATR)!=null && group.getAttributeValue(OUTIDS_ATR).split(",").length>1){
+							if (group.getAttributeValue(OUTIDS_ATR)!=null && group.getAttributeValue(OUTIDS_ATR).split(",").length>1){
 								locantModified = checkSpecialLocantUses(locant, locantValues, finalSubOrRootInWord);
 							}
 							else{
@@ -1166,7 +1166,7 @@ class ComponentProcessor {
 					return false;//there is a case where locants don't apply to heteroatoms in a HW system, but in that case only one locant is expected so this function would not be called
 				}
 			}
-			if (heteroCount == 0 && currentElem.getAttribute(OUTIDS_ATR) != null ) {//e.g. 1,4-phenylene
+			if (heteroCount == 0 && currentElem.getAttributeValue(OUTIDS_ATR) != null ) {//e.g. 1,4-phenylene
 				String[] outIDs = currentElem.getAttributeValue(OUTIDS_ATR).split(",", -1);
 				Fragment groupFragment = currentElem.getFrag();
 				if (count ==outIDs.length && groupFragment.getAtomCount() > 1){//things like oxy do not need to have their outIDs specified
@@ -2119,7 +2119,7 @@ class ComponentProcessor {
 		List<Element> groups = subOrRoot.getChildElements(GROUP_EL);
 		for (Element group : groups) {
 			if (group.getAttributeValue(SUBTYPE_ATR).equals(HANTZSCHWIDMAN_SUBTYPE_VAL)){//handle Hantzch-widman systems
-				if (group.getAttribute(ADDBOND_ATR)!=null){//special case for partunsatring
+				if (group.getAttributeValue(ADDBOND_ATR)!=null){//special case for partunsatring
 					//exception for where a locant is supposed to indicate the location of a double bond...
 					List<Element> deltas = subOrRoot.getChildElements(DELTA_EL);
 					if (deltas.isEmpty()){
@@ -2150,7 +2150,7 @@ class ComponentProcessor {
 						else if(elName.equals(HETEROATOM_EL)){
 							Element heteroAtom = subOrRoot.getChild(j);
 							heteroAtoms.add(heteroAtom);
-							if (heteroAtom.getAttribute(LOCANT_ATR)!=null){//locants already assigned, assumedly by process multipliers
+							if (heteroAtom.getAttributeValue(LOCANT_ATR)!=null){//locants already assigned, assumedly by process multipliers
 								break;
 							}
 						}
@@ -2207,7 +2207,7 @@ class ComponentProcessor {
 					refName = referent.getName();
 				}
 				//Only assigning locants to elements that were not created by a multiplier
-				if(referent.getAttribute(LOCANT_ATR) == null && referent.getAttribute(MULTIPLIED_ATR) == null && (refName.equals(UNSATURATOR_EL) ||
+				if(referent.getAttributeValue(LOCANT_ATR) == null && referent.getAttributeValue(MULTIPLIED_ATR) == null && (refName.equals(UNSATURATOR_EL) ||
 						refName.equals(SUFFIX_EL) ||
 						refName.equals(HETEROATOM_EL) ||
 						refName.equals(CONJUNCTIVESUFFIXGROUP_EL) ||
@@ -2232,12 +2232,12 @@ class ComponentProcessor {
 	private void preliminaryProcessSuffixes(Element group, List<Element> suffixes) throws ComponentGenerationException, StructureBuildingException{
 		Fragment suffixableFragment = group.getFrag();
 
-		if (group.getAttribute(SUFFIXAPPLIESTO_ATR)!=null){//typically a trivial polyAcid or aminoAcid
+		if (group.getAttributeValue(SUFFIXAPPLIESTO_ATR)!=null){//typically a trivial polyAcid or aminoAcid
 			processSuffixAppliesTo(group, suffixes,suffixableFragment);
 		}
 		else{
 			for (Element suffix : suffixes) {
-				if (suffix.getAttribute(ADDITIONALVALUE_ATR)!=null){
+				if (suffix.getAttributeValue(ADDITIONALVALUE_ATR)!=null){
 					throw new ComponentGenerationException("suffix: " + suffix.getValue() + " used on an inappropriate group");
 				}
 			}
@@ -2267,7 +2267,7 @@ class ComponentProcessor {
 				suffix.detach();
 			}
 		}
-		if (group.getAttribute(NUMBEROFFUNCTIONALATOMSTOREMOVE_ATR)!=null){
+		if (group.getAttributeValue(NUMBEROFFUNCTIONALATOMSTOREMOVE_ATR)!=null){
 			int numberToRemove = Integer.parseInt(group.getAttributeValue(NUMBEROFFUNCTIONALATOMSTOREMOVE_ATR));
 			if (numberToRemove > suffixableFragment.getFunctionalAtomCount()){
 				throw new ComponentGenerationException("Too many hydrogen for the number of positions on non carboxylic acid");
@@ -2336,14 +2336,14 @@ class ComponentProcessor {
 				return;
 			}
 			boolean symmetricSuffixes =true;
-			if (suffix.getAttribute(ADDITIONALVALUE_ATR)!=null){//handles amic, aldehydic, anilic and amoyl suffixes properly
+			if (suffix.getAttributeValue(ADDITIONALVALUE_ATR)!=null){//handles amic, aldehydic, anilic and amoyl suffixes properly
 				if (suffixInstructions.length < 2){
 					throw new ComponentGenerationException("suffix: " + suffix.getValue() + " used on an inappropriate group");
 				}
 				symmetricSuffixes = false;
 			}
 
-			if (suffix.getAttribute(LOCANT_ATR)==null){
+			if (suffix.getAttributeValue(LOCANT_ATR)==null){
 				suffix.addAttribute(new Attribute(LOCANTID_ATR, Integer.toString(firstIdInFragment + Integer.parseInt(suffixInstructions[0]) -1)));
 			}
 			for (int i = 1; i < suffixInstructions.length; i++) {
@@ -2351,10 +2351,10 @@ class ComponentProcessor {
 				if (symmetricSuffixes){
 					newSuffix.addAttribute(new Attribute(VALUE_ATR, suffix.getAttributeValue(VALUE_ATR)));
 					newSuffix.addAttribute(new Attribute(TYPE_ATR,  suffix.getAttributeValue(TYPE_ATR)));
-					if (suffix.getAttribute(SUBTYPE_ATR)!=null){
+					if (suffix.getAttributeValue(SUBTYPE_ATR)!=null){
 						newSuffix.addAttribute(new Attribute(SUBTYPE_ATR,  suffix.getAttributeValue(SUBTYPE_ATR)));
 					}
-					if (suffix.getAttribute(INFIX_ATR)!=null && suffix.getAttributeValue(INFIX_ATR).startsWith("=")){//clone infixes that effect double bonds but not single bonds e.g. maleamidate still should have one functional atom
+					if (suffix.getAttributeValue(INFIX_ATR)!=null && suffix.getAttributeValue(INFIX_ATR).startsWith("=")){//clone infixes that effect double bonds but not single bonds e.g. maleamidate still should have one functional atom
 						newSuffix.addAttribute(new Attribute(INFIX_ATR,  suffix.getAttributeValue(INFIX_ATR)));
 					}
 				}
@@ -2450,7 +2450,7 @@ class ComponentProcessor {
 					}
 					break;
 				case addSuffixPrefixIfNonePresentAndCyclic:
-					if (cyclic && suffix.getAttribute(SUFFIXPREFIX_ATR)==null){
+					if (cyclic && suffix.getAttributeValue(SUFFIXPREFIX_ATR)==null){
 						suffix.addAttribute(new Attribute(SUFFIXPREFIX_ATR, suffixRule.getAttributeValue(SUFFIXRULES_SMILES_ATR)));
 					}
 					break;
@@ -2591,7 +2591,7 @@ class ComponentProcessor {
 	 */
 	private void processSuffixPrefixes(List<Element> suffixes) throws StructureBuildingException{
 		for (Element suffix : suffixes) {
-			if (suffix.getAttribute(SUFFIXPREFIX_ATR)!=null){
+			if (suffix.getAttributeValue(SUFFIXPREFIX_ATR)!=null){
 				Fragment suffixPrefixFrag = state.fragManager.buildSMILES(suffix.getAttributeValue(SUFFIXPREFIX_ATR), SUFFIX_TYPE_VAL, NONE_LABELS_VAL);
 				addFunctionalAtomsToHydroxyGroups(suffixPrefixFrag.getFirstAtom());
 				if (suffix.getValue().endsWith("ate") || suffix.getValue().endsWith("at")){
@@ -2641,7 +2641,7 @@ class ComponentProcessor {
 					continue;
 				}
 				if (bracketOrSub.getName().equals(BRACKET_EL)){//only want to consider implicit brackets, not proper brackets
-					if (bracketOrSub.getAttribute(TYPE_ATR)==null){
+					if (bracketOrSub.getAttributeValue(TYPE_ATR)==null){
 						continue;
 					}
 					s.add(bracketOrSub.getChild(0));
@@ -2760,7 +2760,7 @@ class ComponentProcessor {
 				Element previous = OpsinTools.getPreviousSibling(group);
 				if (previous != null && previous.getName().equals(SUBTRACTIVEPREFIX_EL) && 
 						previous.getAttributeValue(TYPE_ATR).equals(DEOXY_TYPE_VAL) && previous.getAttributeValue(VALUE_ATR).equals("O")
-						&& previous.getAttribute(LOCANT_ATR) == null) {
+						&& previous.getAttributeValue(LOCANT_ATR) == null) {
 					Element prev2 = OpsinTools.getPrevious(previous);
 					if (prev2 == null || !prev2.getName().equals(SUBTRACTIVEPREFIX_EL)) {
 						Fragment frag = group.getFrag();
@@ -2781,8 +2781,8 @@ class ComponentProcessor {
 			}
 
 			if ("yes".equals(group.getAttributeValue(USABLEASJOINER_ATR)) 
-					&& group.getAttribute(DEFAULTINID_ATR) == null
-					&& group.getAttribute(DEFAULTINLOCANT_ATR) == null) {
+					&& group.getAttributeValue(DEFAULTINID_ATR) == null
+					&& group.getAttributeValue(DEFAULTINLOCANT_ATR) == null) {
 				//makes linkers by default attach end to end
 				Fragment frag = group.getFrag();
 				int chainLength = frag.getChainLength();
@@ -2835,7 +2835,7 @@ class ComponentProcessor {
 			Element prev = OpsinTools.getPreviousSibling(group);
 			while(prev != null && prev.getName().equals(HETEROATOM_EL)) {
 				prevs.add(prev);
-				if(prev.getAttribute(LOCANT_ATR) != null) {
+				if(prev.getAttributeValue(LOCANT_ATR) != null) {
 					noLocants = false;
 				}
 				prev = OpsinTools.getPreviousSibling(prev);
@@ -2899,17 +2899,17 @@ class ComponentProcessor {
 						}
 						break;
 					case NOT_IC_ACID:
-						if (group.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null){
+						if (group.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null){
 							Element nextEl = OpsinTools.getNextSibling(group);
-							if (nextEl != null && nextEl.getName().equals(SUFFIX_EL) && nextEl.getAttribute(LOCANT_ATR) == null && nextEl.getAttributeValue(VALUE_ATR).equals("ic")){
+							if (nextEl != null && nextEl.getName().equals(SUFFIX_EL) && nextEl.getAttributeValue(LOCANT_ATR) == null && nextEl.getAttributeValue(VALUE_ATR).equals("ic")){
 								throw new ComponentGenerationException(name + nextEl.getValue() +" appears to be a generic class name, not a Hantzsch-Widman ring");
 							}
 						}
 						break;
 					case NOT_NOTHING_OR_OLATE:
-						if (group.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null){
+						if (group.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) == null){
 							Element nextEl = OpsinTools.getNextSibling(group);
-							if (nextEl==null || (nextEl!=null && nextEl.getName().equals(SUFFIX_EL) && nextEl.getAttribute(LOCANT_ATR)==null && nextEl.getAttributeValue(VALUE_ATR).equals("ate"))){
+							if (nextEl==null || (nextEl!=null && nextEl.getName().equals(SUFFIX_EL) && nextEl.getAttributeValue(LOCANT_ATR)==null && nextEl.getAttributeValue(VALUE_ATR).equals("ate"))){
 								throw new ComponentGenerationException(name +" has the syntax for a Hantzsch-Widman ring but probably does not mean that in this context");
 							}
 						}
@@ -2956,7 +2956,7 @@ class ComponentProcessor {
 					throw new ComponentGenerationException("Duplicate locants present in Hantzsch-Widman system");
 				}
 				a.setElement(ChemEl.valueOf(elementReplacement));
-				if (heteroatom.getAttribute(LAMBDA_ATR) != null){
+				if (heteroatom.getAttributeValue(LAMBDA_ATR) != null){
 					a.setLambdaConventionValency(Integer.parseInt(heteroatom.getAttributeValue(LAMBDA_ATR)));
 				}
 				heteroatom.detach();
@@ -3010,7 +3010,7 @@ class ComponentProcessor {
 					elementReplacement = m.group();
 					Atom a = carbonAtomsInRing.get(i);
 					a.setElement(ChemEl.valueOf(elementReplacement));
-					if (heteroatom.getAttribute(LAMBDA_ATR)!=null){
+					if (heteroatom.getAttributeValue(LAMBDA_ATR)!=null){
 						a.setLambdaConventionValency(Integer.parseInt(heteroatom.getAttributeValue(LAMBDA_ATR)));
 					}
 					heteroatom.detach();
@@ -3019,7 +3019,7 @@ class ComponentProcessor {
 			if(name.equals("thithiazol")) {
 				//Dithiazolium implicitly has the charge on a sulfur, not a nitrogen
 				Element suffix = OpsinTools.getNextSibling(group);
-				if (suffix != null && CHARGE_TYPE_VAL.equals(suffix.getAttributeValue(TYPE_ATR)) && suffix.getAttribute(LOCANT_ATR) == null) {
+				if (suffix != null && CHARGE_TYPE_VAL.equals(suffix.getAttributeValue(TYPE_ATR)) && suffix.getAttributeValue(LOCANT_ATR) == null) {
 					String locant = null;
 					for (Atom atom : hwRing) {
 						if (atom.getElement() == ChemEl.S) {
@@ -3257,12 +3257,12 @@ class ComponentProcessor {
 			else {
 				if (currentEl.getName().equals(SUFFIX_EL)) {
 					String suffixType = currentEl.getAttributeValue(TYPE_ATR);
-					if (suffixType.equals(CHARGE_TYPE_VAL) && currentEl.getAttribute(LOCANT_ATR) == null) {
+					if (suffixType.equals(CHARGE_TYPE_VAL) && currentEl.getAttributeValue(LOCANT_ATR) == null) {
 						currentEl.detach();
 						elementToResolve.addChild(currentEl);
 					}
 					else if (!inlineSuffixSeen && suffixType.equals(INLINE_TYPE_VAL) && currentEl.getAttributeValue(MULTIPLIED_ATR) == null
-							&& (currentEl.getAttribute(LOCANT_ATR) == null || ("2".equals(multiplier.getAttributeValue(VALUE_ATR)) && ringJoiningLocants == 0)) && currentEl.getFrag() == null){
+							&& (currentEl.getAttributeValue(LOCANT_ATR) == null || ("2".equals(multiplier.getAttributeValue(VALUE_ATR)) && ringJoiningLocants == 0)) && currentEl.getFrag() == null){
 						inlineSuffixSeen = true;
 						currentEl.detach();
 						elementToResolve.addChild(currentEl);
@@ -3271,7 +3271,7 @@ class ComponentProcessor {
 						break;
 					}
 				}
-				else if (currentEl.getName().equals(UNSATURATOR_EL) && currentEl.getAttribute(LOCANT_ATR) == null) {
+				else if (currentEl.getName().equals(UNSATURATOR_EL) && currentEl.getAttributeValue(LOCANT_ATR) == null) {
 					currentEl.detach();
 					elementToResolve.addChild(currentEl);
 				}
@@ -3933,7 +3933,7 @@ class ComponentProcessor {
 		List<Element> lambdaConventionEls = subOrRoot.getChildElements(LAMBDACONVENTION_EL);
 		for (Element lambdaConventionEl : lambdaConventionEls) {
 			Fragment frag = subOrRoot.getFirstChildElement(GROUP_EL).getFrag();
-			if (lambdaConventionEl.getAttribute(LOCANT_ATR)!=null){
+			if (lambdaConventionEl.getAttributeValue(LOCANT_ATR)!=null){
 				frag.getAtomByLocantOrThrow(lambdaConventionEl.getAttributeValue(LOCANT_ATR)).setLambdaConventionValency(Integer.parseInt(lambdaConventionEl.getAttributeValue(LAMBDA_ATR)));
 			}
 			else{
@@ -4018,7 +4018,7 @@ class ComponentProcessor {
 					group.getAttribute(OUTIDS_ATR).setValue("1,"+Integer.parseInt(beforeGroup.getAttributeValue(VALUE_ATR)));
 					group.setValue(beforeGroup.getValue() + groupValue);
 					beforeGroup.detach();
-					if (group.getAttribute(LABELS_ATR)!=null){//use numeric numbering
+					if (group.getAttributeValue(LABELS_ATR)!=null){//use numeric numbering
 						group.getAttribute(LABELS_ATR).setValue(NUMERIC_LABELS_VAL);
 					}
 					else{
@@ -4031,7 +4031,7 @@ class ComponentProcessor {
 			}
 		}
 
-		if (group.getAttribute(OUTIDS_ATR)!=null){//adds outIDs at the specified atoms
+		if (group.getAttributeValue(OUTIDS_ATR)!=null){//adds outIDs at the specified atoms
 			String[] radicalPositions = group.getAttributeValue(OUTIDS_ATR).split(",");
 			int firstIdInFrag =thisFrag.getIdOfFirstAtom();
 			for (String radicalID : radicalPositions) {
@@ -4089,7 +4089,7 @@ class ComponentProcessor {
 	private boolean unsuitableForFormingChainMultiradical(Element group, Element multiplierBeforeGroup) {
 		Element previousGroup = OpsinTools.getPreviousGroup(group);
 		if (previousGroup!=null){
-			if (previousGroup.getAttribute(ISAMULTIRADICAL_ATR)!=null){
+			if (previousGroup.getAttributeValue(ISAMULTIRADICAL_ATR)!=null){
 				if (previousGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR)!=null && OpsinTools.getPreviousSibling(previousGroup.getParent())!=null){
 					return false;
 				}
@@ -4230,7 +4230,7 @@ class ComponentProcessor {
 
 		Element substituentGroup = substituent.getFirstChildElement(GROUP_EL);
 		//Only some substituents are valid joiners (e.g. no rings are valid joiners). Need to be atleast bivalent.
-		if (substituentGroup.getAttribute(USABLEASJOINER_ATR) == null){
+		if (substituentGroup.getAttributeValue(USABLEASJOINER_ATR) == null){
 			return;
 		}
 
@@ -4288,11 +4288,11 @@ class ComponentProcessor {
 		}
 
 		//prevent bracketing to multi radicals unless through substitution they are likely to cease being multiradicals
-		if (lastGroupOfElementBeforeSub.getAttribute(ISAMULTIRADICAL_ATR) != null && lastGroupOfElementBeforeSub.getAttribute(ACCEPTSADDITIVEBONDS_ATR) == null && lastGroupOfElementBeforeSub.getAttribute(IMINOLIKE_ATR) == null) {
+		if (lastGroupOfElementBeforeSub.getAttributeValue(ISAMULTIRADICAL_ATR) != null && lastGroupOfElementBeforeSub.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) == null && lastGroupOfElementBeforeSub.getAttributeValue(IMINOLIKE_ATR) == null) {
 			return;
 		}
-		if (substituentGroup.getAttribute(ISAMULTIRADICAL_ATR) != null) {
-			if (substituentGroup.getAttribute(ACCEPTSADDITIVEBONDS_ATR) == null && substituentGroup.getAttribute(IMINOLIKE_ATR) == null) {
+		if (substituentGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null) {
+			if (substituentGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) == null && substituentGroup.getAttributeValue(IMINOLIKE_ATR) == null) {
 				//after implicit bracketting the substituent should no longer be a multi-radical. If neither of the above attributes apply this can't happen
 				return;
 			}
@@ -4314,7 +4314,7 @@ class ComponentProcessor {
 					else if (elType.equals(SUBSTITUENT_EL)) {
 						List<Element> groups = OpsinTools.getDescendantElementsWithTagName(elementAftersubstituent, GROUP_EL);
 						for (Element group : groups) {
-							if (group.getAttribute(ISAMULTIRADICAL_ATR) != null){
+							if (group.getAttributeValue(ISAMULTIRADICAL_ATR) != null){
 								return ;//a multi radical
 							}
 						}
@@ -4325,7 +4325,7 @@ class ComponentProcessor {
 				}
 			}
 		}
-		if (lastGroupOfElementBeforeSub.getAttribute(IMINOLIKE_ATR) != null && substituentGroup.getAttribute(IMINOLIKE_ATR) != null){
+		if (lastGroupOfElementBeforeSub.getAttributeValue(IMINOLIKE_ATR) != null && substituentGroup.getAttributeValue(IMINOLIKE_ATR) != null){
 			return;//possibly a multiplicative additive operation
 		}
 		if (implicitBracketWouldPreventAdditiveBonding(elementBeforeSubstituent, elementAftersubstituent)) {
@@ -4586,7 +4586,7 @@ class ComponentProcessor {
 	private boolean implicitBracketWouldPreventAdditiveBonding(Element elementBeforeSubstituent, Element elementAftersubstituent) {
 		if (elementAftersubstituent != null && elementAftersubstituent.getName().equals(SUBSTITUENT_EL)) {
 			Element groupAfterSubstituent = elementAftersubstituent.getFirstChildElement(GROUP_EL);
-			if (groupAfterSubstituent.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null &&
+			if (groupAfterSubstituent.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null &&
 				!isSubBracketOrRoot(OpsinTools.getNextSibling(elementAftersubstituent))) {
 				if (elementBeforeSubstituent.getChild(0).getName().equals(LOCANT_EL)) {
 					Fragment additiveAcceptingFrag = groupAfterSubstituent.getFrag();
@@ -4691,12 +4691,12 @@ class ComponentProcessor {
 			Element group =subOrRoot.getFirstChildElement(GROUP_EL);
 			Element lastLocant = locantEls.get(locantEls.size()-1);//the locant that may apply to an unsaturator/suffix
 			String[] locantValues = lastLocant.getValue().split(",");
-			if (locantValues.length==1 && group.getAttribute(FRONTLOCANTSEXPECTED_ATR)!=null){//some trivial retained names like 2-furyl expect locants to be in front of them. For these the indirect intepretation will always be used rather than checking whether 2-(furyl) even makes sense
+			if (locantValues.length==1 && group.getAttributeValue(FRONTLOCANTSEXPECTED_ATR)!=null){//some trivial retained names like 2-furyl expect locants to be in front of them. For these the indirect intepretation will always be used rather than checking whether 2-(furyl) even makes sense
 				String[] allowedLocants = group.getAttributeValue(FRONTLOCANTSEXPECTED_ATR).split(",");
 				for (String allowedLocant : allowedLocants) {
 					if (locantValues[0].equals(allowedLocant)){
 						Element expectedSuffix = OpsinTools.getNextSibling(group);
-						if (expectedSuffix!=null && expectedSuffix.getName().equals(SUFFIX_EL) && expectedSuffix.getAttribute(LOCANT_ATR)==null){
+						if (expectedSuffix!=null && expectedSuffix.getName().equals(SUFFIX_EL) && expectedSuffix.getAttributeValue(LOCANT_ATR)==null){
 							expectedSuffix.addAttribute(new Attribute(LOCANT_ATR, locantValues[0]));
 							lastLocant.detach();
 							return;
@@ -4722,7 +4722,7 @@ class ComponentProcessor {
 				/* The first locant is most likely a locant indicating where this subsituent should be attached.
 				 * If the locant cannot be found on a potential root this cannot be the case though (assuming the name is valid of course)
 				 */
-				if (!ADDEDHYDROGENLOCANT_TYPE_VAL.equals(lastLocant.getAttributeValue(TYPE_ATR)) && locantEls.size() ==1 && group.getAttribute(ISAMULTIRADICAL_ATR)==null &&
+				if (!ADDEDHYDROGENLOCANT_TYPE_VAL.equals(lastLocant.getAttributeValue(TYPE_ATR)) && locantEls.size() ==1 && group.getAttributeValue(ISAMULTIRADICAL_ATR)==null &&
 						locantValues.length == 1 && checkLocantPresentOnPotentialRoot(state, subOrRoot, locantValues[0]) && OpsinTools.getPreviousSibling(lastLocant, LOCANT_EL)==null){
 					return;
 				}
@@ -4818,7 +4818,7 @@ class ComponentProcessor {
 		for (Element el : childrenOfSubOrBracketOrRoot) {
 			String name =el.getName();
 			if (name.equals(SUFFIX_EL) || name.equals(UNSATURATOR_EL) || name.equals(CONJUNCTIVESUFFIXGROUP_EL)){
-				if (el.getAttribute(LOCANT_ATR) ==null && el.getAttribute(LOCANTID_ATR) ==null && el.getAttribute(MULTIPLIED_ATR)==null){// shouldn't already have a locant or be multiplied (should of already had locants assignd to it if that were the case)
+				if (el.getAttributeValue(LOCANT_ATR) ==null && el.getAttributeValue(LOCANTID_ATR) ==null && el.getAttributeValue(MULTIPLIED_ATR)==null){// shouldn't already have a locant or be multiplied (should of already had locants assignd to it if that were the case)
 					if (subOrRoot.indexOf(el)>subOrRoot.indexOf(locantEl)){
 						if (name.equals(SUFFIX_EL)){//check a few special cases that must not be locanted
 							Element group = OpsinTools.getPreviousSibling(el, GROUP_EL);
@@ -4870,7 +4870,7 @@ class ComponentProcessor {
 	 */
 	private boolean isATerminalSuffix(Element suffix){
 		return suffix.getName().equals(SUFFIX_EL) &&
-				suffix.getAttribute(LOCANT_ATR) == null &&
+				suffix.getAttributeValue(LOCANT_ATR) == null &&
 				(suffix.getAttributeValue(TYPE_ATR).equals(INLINE_TYPE_VAL) || TERMINAL_SUBTYPE_VAL.equals(suffix.getAttributeValue(SUBTYPE_ATR)));
 		}
 
@@ -4968,7 +4968,7 @@ class ComponentProcessor {
 						parent.insertChild(bracket, indexToInsertAt);
 						brackets.add(bracket);
 						bracketAdded = true;
-						if (substituent.getAttribute(LOCANT_ATR) != null) {
+						if (substituent.getAttributeValue(LOCANT_ATR) != null) {
 							throw new StructureBuildingException("Substituent with biochemical linkage descriptor should not also have a locant: " + substituent.getAttributeValue(LOCANT_ATR));
 						}
 					}
@@ -4982,7 +4982,7 @@ class ComponentProcessor {
 					else{
 						elToAddAtrTo = substituent;
 					}
-					if (elToAddAtrTo.getAttribute(LOCANT_ATR) !=null) {
+					if (elToAddAtrTo.getAttributeValue(LOCANT_ATR) !=null) {
 						throw new StructureBuildingException("Substituent with biochemical linkage descriptor should not also have a locant: " + elToAddAtrTo.getAttributeValue(LOCANT_ATR));
 					}
 					elToAddAtrTo.addAttribute(locantAtr);
@@ -5007,7 +5007,7 @@ class ComponentProcessor {
 				checkAndApplyFirstLocantOfBiochemicalLinkage(substituent, bioLinkLocantStr);
 				int secondLocantStartPos = Math.max(bioLinkLocantStr.lastIndexOf('>'), bioLinkLocantStr.lastIndexOf('-')) + 1;
 				String locantToConnectTo = bioLinkLocantStr.substring(secondLocantStartPos);
-				if (bracket.getAttribute(LOCANT_ATR) !=null){
+				if (bracket.getAttributeValue(LOCANT_ATR) !=null){
 					throw new StructureBuildingException("Substituent with biochemical linkage descriptor should not also have a locant: " + bracket.getAttributeValue(LOCANT_ATR));
 				}
 				bracket.addAttribute(new Attribute(LOCANT_ATR, "O" + locantToConnectTo));
@@ -5061,7 +5061,7 @@ class ComponentProcessor {
 	private void moveSubstituentDetachableHetAtomRepl(Element substituent) throws ComponentGenerationException {
 		Element child = substituent.getChild(0);
 		List<Element> locantededHeteroAtomRepls = new ArrayList<>();
-		while (child != null && child.getName().equals(HETEROATOM_EL) && child.getAttribute(LOCANT_ATR) != null) {
+		while (child != null && child.getName().equals(HETEROATOM_EL) && child.getAttributeValue(LOCANT_ATR) != null) {
 			locantededHeteroAtomRepls.add(child);
 			child = OpsinTools.getNextSibling(child);
 		}
@@ -2,9 +2,12 @@ package uk.ac.cam.ch.wwmm.opsin;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -14,31 +17,34 @@ import java.util.Set;
  */
 class CycleDetector {
 
+	private static final int UNVISITED = -1;
+
 	/**
 	 * Performs a depth first search for rings hence assigning whether atoms are in rings or not
 	 * This is necessary for deciding the applicability, and in some cases meaning, of suffixes and to determine what atoms are capable of having spare valency
 	 * Fragments made of disconnected sections are supported
+	 * The depth at which each atom was visited is recorded in {@link VisitedDepths} local to this method, hence atoms are not otherwise modified
 	 * @param frag
 	 */
 	static void assignWhetherAtomsAreInCycles(Fragment frag) {
 		List<Atom> atomList = frag.getAtomList();
 		for (Atom atom : atomList) {
 			atom.setAtomIsInACycle(false);
-			atom.setProperty(Atom.VISITED, null);
 		}
+		VisitedDepths visitedDepths = new VisitedDepths(frag);
 		for (Atom a : atomList) {//as OPSIN does not disallow disconnected sections within a single "fragment" (e.g. in suffixes) for vigorousness this for loop is required
-			if(a.getProperty(Atom.VISITED) == null){//true for only the first atom in a fully connected molecule
-				traverseRings(a, null, 0);
+			if(visitedDepths.get(a) == UNVISITED){//true for only the first atom in a fully connected molecule
+				traverseRings(a, null, 0, visitedDepths);
 			}
 		}
 	}
 	
-	private static int traverseRings(Atom currentAtom, Atom previousAtom, int depth){
-		Integer previouslyAssignedDepth = currentAtom.getProperty(Atom.VISITED);
-		if(previouslyAssignedDepth != null){
+	private static int traverseRings(Atom currentAtom, Atom previousAtom, int depth, VisitedDepths visitedDepths){
+		int previouslyAssignedDepth = visitedDepths.get(currentAtom);
+		if(previouslyAssignedDepth != UNVISITED){
 			return previouslyAssignedDepth;
 		}
-		currentAtom.setProperty(Atom.VISITED, depth);
+		visitedDepths.set(currentAtom, depth);
 		List<Atom> equivalentAtoms = new ArrayList<>();
 		equivalentAtoms.add(currentAtom);
 		
@@ -52,19 +58,19 @@ class CycleDetector {
 				break;
 			}
 			Atom nextAtom = neighbours.get(0);
-			if (nextAtom.getProperty(Atom.VISITED) != null) {
+			if (visitedDepths.get(nextAtom) != UNVISITED) {
 				//chain reached a previously visited atom, must be a ring
 				break;
 			}
 			previousAtom = currentAtom;
 			currentAtom = nextAtom;
 			equivalentAtoms.add(currentAtom);
-			currentAtom.setProperty(Atom.VISITED, ++depth);
+			visitedDepths.set(currentAtom, ++depth);
 		}
 
 		int result = depth + 1;
 		for (Atom neighbour : neighbours) {
-		  int temp = traverseRings(neighbour, currentAtom, depth + 1);
+		  int temp = traverseRings(neighbour, currentAtom, depth + 1, visitedDepths);
 		  result = Math.min(result, temp);
 		}
 		if (result < depth){
@@ -77,6 +83,45 @@ class CycleDetector {
 		return result;
 	}
 
+	/**
+	 * The depth at which each atom was visited, or UNVISITED.
+	 * Atoms of the fragment are held in an array indexed by {@link Fragment#getAtomIndex(Atom)}.
+	 * Atoms of other fragments are only reached through inter-fragment bonds e.g. when a bridge has just been formed, hence are held in a map
+	 */
+	private static class VisitedDepths {
+		private final Fragment frag;
+		private final int[] depths;
+		private Map<Atom, Integer> otherFragmentDepths;
+
+		VisitedDepths(Fragment frag) {
+			this.frag = frag;
+			this.depths = new int[frag.getAtomCount()];
+			Arrays.fill(depths, UNVISITED);
+		}
+
+		int get(Atom atom) {
+			int index = frag.getAtomIndex(atom);
+			if (index >= 0) {
+				return depths[index];
+			}
+			Integer depth = otherFragmentDepths != null ? otherFragmentDepths.get(atom) : null;
+			return depth != null ? depth : UNVISITED;
+		}
+
+		void set(Atom atom, int depth) {
+			int index = frag.getAtomIndex(atom);
+			if (index >= 0) {
+				depths[index] = depth;
+			}
+			else {
+				if (otherFragmentDepths == null) {
+					otherFragmentDepths = new HashMap<>();
+				}
+				otherFragmentDepths.put(atom, depth);
+			}
+		}
+	}
+
 	private static class PathSearchState{
 		final Atom currentAtom;
 		final List<Atom> orderAtomsVisited;
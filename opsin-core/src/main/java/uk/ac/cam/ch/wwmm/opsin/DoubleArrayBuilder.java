@@ -0,0 +1,121 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.Arrays;
+
+/**
+ * Lays out the nodes of a trie over the ASCII alphabet into double-array form:
+ * the child of node s for character c is at base[s] + c if check[base[s] + c] == s.
+ * Node 0 is the root. The children of each node are placed at the first offset where all their slots are free.
+ */
+class DoubleArrayBuilder {
+
+	static final int ALPHABET_SIZE = 128;
+
+	private int[] base;
+	private int[] check;
+	/**For each slot, a slot at or before the first free slot at or after it. Followed with path compression by {@link #findFree(int)}*/
+	private int[] nextFree;
+	private int capacity;
+	private int size = 1;
+
+	DoubleArrayBuilder() {
+		capacity = ALPHABET_SIZE * 2;
+		base = new int[capacity];
+		check = new int[capacity];
+		Arrays.fill(check, -1);
+		nextFree = new int[capacity];
+		for (int i = 0; i < capacity; i++) {
+			nextFree[i] = i;
+		}
+		nextFree[0] = 1;//the root
+	}
+
+	/**
+	 * Places the children of the given node, which must already have been placed (or be the root).
+	 * The index of each child is base[parent] + childChars[i]
+	 * @param parent
+	 * @param childChars The characters of the children in ascending order
+	 * @param childCount
+	 * @return The base of the parent
+	 */
+	int placeChildren(int parent, char[] childChars, int childCount) {
+		if (childCount == 0) {
+			return 0;
+		}
+		char firstChar = childChars[0];
+		int b;
+		//try each free slot for the first child in turn
+		for (int f = findFree(firstChar + 1);; f = findFree(f + 1)) {
+			b = f - firstChar;
+			ensureCapacity(b + childChars[childCount - 1] + 1);
+			boolean fits = true;
+			for (int i = 1; i < childCount; i++) {
+				if (check[b + childChars[i]] != -1) {
+					fits = false;
+					break;
+				}
+			}
+			if (fits) {
+				break;
+			}
+		}
+		base[parent] = b;
+		for (int i = 0; i < childCount; i++) {
+			int childIndex = b + childChars[i];
+			check[childIndex] = parent;
+			nextFree[childIndex] = childIndex + 1;
+			size = Math.max(size, childIndex + 1);
+		}
+		return b;
+	}
+
+	/**
+	 * Returns the first free slot at or after the given slot
+	 * @param slot
+	 * @return
+	 */
+	private int findFree(int slot) {
+		ensureCapacity(slot + 1);
+		int free = slot;
+		while (nextFree[free] != free) {
+			free = nextFree[free];
+			ensureCapacity(free + 1);
+		}
+		while (nextFree[slot] != slot) {
+			int next = nextFree[slot];
+			nextFree[slot] = free;
+			slot = next;
+		}
+		return free;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required > capacity) {
+			int newCapacity = Math.max(capacity * 2, required);
+			base = Arrays.copyOf(base, newCapacity);
+			check = Arrays.copyOf(check, newCapacity);
+			Arrays.fill(check, capacity, newCapacity, -1);
+			nextFree = Arrays.copyOf(nextFree, newCapacity);
+			for (int i = capacity; i < newCapacity; i++) {
+				nextFree[i] = i;
+			}
+			capacity = newCapacity;
+		}
+	}
+
+	/**
+	 * One more than the highest index that has been assigned to a node
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	int[] getBase() {
+		return Arrays.copyOf(base, size);
+	}
+
+	int[] getCheck() {
+		return Arrays.copyOf(check, size);
+	}
+}
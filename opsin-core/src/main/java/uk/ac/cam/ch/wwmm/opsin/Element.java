@@ -6,19 +6,114 @@ import java.util.List;
 abstract class Element {
 
 	protected String name;
+	/**The ordinal of name from {@link XmlSymbols#getElementKind(String)}*/
+	protected int kind;
 	protected Element parent = null;
-	protected final List<Attribute> attributes = new ArrayList<>();
+	protected List<Attribute> attributes;
+	/**A bit is set for the slot of each attribute with a declared name, hence declared attributes that are absent are found without a search*/
+	private long attributeSlots = 0;
+	/**Whether attributes is shared with other elements, in which case it is copied before it is modified or an Attribute is returned*/
+	private boolean attributesShared = false;
+	/**Whether an Attribute in attributes may be referenced from outside this element, in which case attributes cannot be shared*/
+	private boolean attributesExposed = false;
 
 	Element(String name) {
 		this.name = name;
+		this.kind = XmlSymbols.getElementKind(name);
+		this.attributes = new ArrayList<>();
+	}
+
+	/**
+	 * Creates an element with the name and attributes of the given element, but no parent.
+	 * If the original's attributes are shared, the copy shares them too until it modifies them, otherwise they are copied.
+	 * The original is not modified, hence shared templates may be copied concurrently
+	 * @param original
+	 */
+	Element(Element original) {
+		this.name = original.name;
+		this.kind = original.kind;
+		this.attributeSlots = original.attributeSlots;
+		if (original.attributesShared) {
+			this.attributes = original.attributes;
+			this.attributesShared = true;
+		}
+		else {
+			this.attributes = copyOf(original.attributes);
+		}
+	}
+
+	/**
+	 * Marks the attributes as shared, so that copies of this element share them rather than copying them.
+	 * This should be called once, before this element is published to other threads e.g. on templates when resources are loaded
+	 */
+	void shareAttributes() {
+		if (!attributesExposed) {
+			attributesShared = true;
+		}
+	}
+
+	private static List<Attribute> copyOf(List<Attribute> attributes) {
+		List<Attribute> copy = new ArrayList<>(attributes.size());
+		for (int i = 0, len = attributes.size(); i < len; i++) {
+			copy.add(new Attribute(attributes.get(i)));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the attributes, copying them first if they are shared
+	 * @return
+	 */
+	private List<Attribute> modifiableAttributes() {
+		if (attributesShared) {
+			attributes = copyOf(attributes);
+			attributesShared = false;
+			attributesExposed = false;
+		}
+		return attributes;
 	}
 
 	void addAttribute(Attribute attribute) {
-		attributes.add(attribute);
+		modifiableAttributes().add(attribute);
+		attributesExposed = true;
+		attributeSlots |= slotBit(attribute.getSlot());
 	}
 
 	void addAttribute(String atrName, String atrValue) {
-		attributes.add(new Attribute(atrName, atrValue));
+		Attribute attribute = new Attribute(atrName, atrValue);
+		modifiableAttributes().add(attribute);
+		attributeSlots |= slotBit(attribute.getSlot());
+	}
+
+	private static long slotBit(int slot) {
+		return slot != XmlSymbols.UNDECLARED ? 1L << slot : 0;
+	}
+
+	/**
+	 * Returns the index in attributes of the attribute with the given name, or -1 if it is absent
+	 * @param name
+	 * @return
+	 */
+	private int indexOfAttribute(String name) {
+		int slot = XmlSymbols.getAttributeSlot(name);
+		if (slot != XmlSymbols.UNDECLARED) {
+			if ((attributeSlots & (1L << slot)) == 0) {
+				return -1;
+			}
+			for (int i = 0, len = attributes.size(); i < len; i++) {
+				if (attributes.get(i).getSlot() == slot) {
+					return i;
+				}
+			}
+		}
+		else {
+			for (int i = 0, len = attributes.size(); i < len; i++) {
+				if (attributes.get(i).getName().equals(name)) {
+					return i;
+				}
+			}
+		}
+		return -1;
 	}
 
 	/**
@@ -40,23 +135,26 @@ abstract class Element {
 	}
 	
 	Attribute getAttribute(int index) {
-		return attributes.get(index);
+		Attribute a = modifiableAttributes().get(index);
+		attributesExposed = true;
+		return a;
 	}
 	
 	/**
 	 * Returns the attribute with the given name
-	 * or null if the attribute doesn't exist
+	 * or null if the attribute doesn't exist.
+	 * As the attribute may be modified, shared attributes are copied. Hence use {@link #getAttributeValue(String)} to just check for presence
 	 * @param name
 	 * @return
 	 */
 	Attribute getAttribute(String name) {
-		for (int i = 0, len = attributes.size(); i < len; i++) {
-			Attribute a = attributes.get(i);
-			if (a.getName().equals(name)) {
-				return a;
-			}
+		int index = indexOfAttribute(name);
+		if (index == -1) {
+			return null;
 		}
-		return null;
+		Attribute a = modifiableAttributes().get(index);
+		attributesExposed = true;
+		return a;
 	}
 
 	int getAttributeCount() {
@@ -70,11 +168,8 @@ abstract class Element {
 	 * @return
 	 */
 	String getAttributeValue(String name) {
-		Attribute attribute = getAttribute(name);
-		if (attribute != null) {
-			return attribute.getValue();
-		}
-		return null;
+		int index = indexOfAttribute(name);
+		return index != -1 ? attributes.get(index).getValue() : null;
 	}
 
 	/**
@@ -131,6 +226,14 @@ abstract class Element {
 		return name;
 	}
 
+	/**
+	 * The ordinal of this element's name, or {@link XmlSymbols#UNDECLARED}
+	 * @return
+	 */
+	int getKind() {
+		return kind;
+	}
+
 	Element getParent() {
 		return this.parent;
 	}
@@ -152,7 +255,16 @@ abstract class Element {
 	abstract void insertChild(Element child, int index);
 
 	boolean removeAttribute(Attribute attribute) {
-		return attributes.remove(attribute);
+		List<Attribute> attributes = modifiableAttributes();
+		if (!attributes.remove(attribute)) {
+			return false;
+		}
+		long slots = 0;
+		for (int i = 0, len = attributes.size(); i < len; i++) {
+			slots |= slotBit(attributes.get(i).getSlot());
+		}
+		attributeSlots = slots;
+		return true;
 	}
 
 	/**
@@ -183,9 +295,42 @@ abstract class Element {
 	void setFrag(Fragment frag) {
 		throw new UnsupportedOperationException("Only tokens can have associated fragments");
 	}
-
+
 	void setName(String name) {
+		int oldKind = this.kind;
 		this.name = name;
+		this.kind = XmlSymbols.getElementKind(name);
+		if (parent != null) {
+			parent.descendantRenamed(oldKind, kind);
+		}
+	}
+
+	/**
+	 * Called on the parent of an element when that element is renamed
+	 * @param oldKind
+	 * @param newKind
+	 */
+	void descendantRenamed(int oldKind, int newKind) {
+	}
+
+	/**
+	 * Returns false only if this element is known to have no descendant with the given name.
+	 * Hence a search for descendants with this name need not look below this element
+	 * @param name
+	 * @return
+	 */
+	boolean mayHaveDescendantWithName(String name) {
+		return mayHaveDescendantOfKind(XmlSymbols.getElementKind(name));
+	}
+
+	/**
+	 * Returns false only if this element is known to have no descendant of the given kind.
+	 * Descendants of kind {@link XmlSymbols#UNDECLARED} are never known to be absent
+	 * @param kind
+	 * @return
+	 */
+	boolean mayHaveDescendantOfKind(int kind) {
+		return getChildCount() > 0;
 	}
 
 	void setParent(Element newParentEl) {
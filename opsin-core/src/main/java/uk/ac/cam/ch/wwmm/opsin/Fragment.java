@@ -1,13 +1,15 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -23,17 +25,47 @@ import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
  */
 class Fragment implements Iterable<Atom> {
 
-	/**A mapping between IDs and the atoms in this fragment, by default is ordered by the order atoms are added to the fragment*/
-	private final Map<Integer, Atom> atomMapFromId = new LinkedHashMap<>();
+	/**A mapping between IDs and the atoms in this fragment*/
+	private final Map<Integer, Atom> atomMapFromId = new HashMap<>();
 
-	/**Equivalent to and synced to atomMapFromId.values() */
-	private final Collection<Atom> atomCollection = atomMapFromId.values();
+	/**The atoms in this fragment, by default in the order they were added to the fragment.
+	 * The index of an atom in this array is its index in the fragment, atoms are kept contiguous as atoms are removed*/
+	private Atom[] atoms = new Atom[8];
+
+	private int atomCount = 0;
 
 	/**A mapping between locants and the atoms in this fragment*/
 	private final Map<String, Atom> atomMapFromLocant = new HashMap<>();
 
-	/**The bonds in the fragment*/
-	private final Set<Bond> bondSet = new LinkedHashSet<>();
+	/**The bonds in the fragment, in the order they were added to the fragment.
+	 * The index of a bond in this array is its index in the fragment, bonds are kept contiguous as bonds are removed*/
+	private Bond[] bonds = new Bond[8];
+
+	private int bondCount = 0;
+
+	/**The bonds in the fragment, used to check whether a bond (or an equal bond) is already in the fragment*/
+	private final Set<Bond> bondSet = new HashSet<>();
+
+	/**Incremented whenever atoms or bonds are added, removed or reordered, so that iteration fails fast if this happens*/
+	private int modCount = 0;
+
+	/**An unmodifiable view of the bonds in the fragment, in the order of the bonds array*/
+	private final Set<Bond> bondSetView = new AbstractSet<Bond>() {
+		@Override
+		public Iterator<Bond> iterator() {
+			return new ArrayIterator<>(bonds, bondCount);
+		}
+
+		@Override
+		public int size() {
+			return bondCount;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return bondSet.contains(o);
+		}
+	};
 
 	/**The associated token element*/
 	private Element tokenEl;
@@ -77,13 +109,33 @@ class Fragment implements Iterable<Atom> {
 		this.tokenEl.addAttribute(TYPE_ATR, type);
 	}
 
-	/**Adds an atom to the fragment and associates it with this fragment*/
+	/**Adds an atom to the fragment and associates it with this fragment.
+	 * If the fragment already has a different atom with the same ID, the given atom takes its place*/
 	void addAtom(Atom atom) {
 		List<String> locants =atom.getLocants();
 		for (String locant: locants) {
 			atomMapFromLocant.put(locant, atom);
 		}
-		atomMapFromId.put(atom.getID(), atom);
+		Atom previous = atomMapFromId.put(atom.getID(), atom);
+		if (previous == null) {
+			if (atomCount == atoms.length) {
+				atoms = Arrays.copyOf(atoms, atomCount * 2);
+			}
+			atoms[atomCount] = atom;
+			atom.setIndexInFragment(atomCount++);
+			modCount++;
+		}
+		else {
+			int index = indexInAtomArray(previous);
+			if (index < 0) {
+				throw new RuntimeException("OPSIN Bug: Atom is in the ID map but not the atom array of the fragment");
+			}
+			if (previous != atom) {
+				atoms[index] = atom;
+				modCount++;
+			}
+			atom.setIndexInFragment(index);
+		}
 		atom.setFrag(this);
 	}
 	
@@ -92,7 +144,7 @@ class Fragment implements Iterable<Atom> {
 	 * @return
 	 */
 	int getAtomCount() {
-		return atomCollection.size();
+		return atomCount;
 	}
 
 	/**
@@ -100,28 +152,149 @@ class Fragment implements Iterable<Atom> {
 	 * @return
 	 */
 	List<Atom> getAtomList() {
-		return new ArrayList<>(atomCollection);
+		List<Atom> atomList = new ArrayList<>(atomCount);
+		for (int i = 0; i < atomCount; i++) {
+			atomList.add(atoms[i]);
+		}
+		return atomList;
+	}
+
+	/**
+	 * Returns the atom with the given index in the fragment
+	 * @param index 0 to {@link #getAtomCount()} - 1
+	 * @return
+	 */
+	Atom getAtom(int index) {
+		if (index >= atomCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Atom count: " + atomCount);
+		}
+		return atoms[index];
 	}
 
+	/**
+	 * Returns the index of the given atom in this fragment, or -1 if the atom is not in this fragment.
+	 * The indices of a fragment's atoms are 0 to {@link #getAtomCount()} - 1 and are only changed by the removal or reordering of atoms.
+	 * This is constant time for atoms whose fragment ({@link Atom#getFrag()}) is this fragment
+	 * @param atom
+	 * @return
+	 */
+	int getAtomIndex(Atom atom) {
+		int index = atom.getIndexInFragment();
+		if (index >= 0 && index < atomCount && atoms[index] == atom) {
+			return index;
+		}
+		if (atomMapFromId.get(atom.getID()) != atom) {
+			return -1;
+		}
+		index = indexInAtomArray(atom);
+		if (index < 0) {
+			throw new RuntimeException("OPSIN Bug: Atom is in the ID map but not the atom array of the fragment");
+		}
+		return index;
+	}
+
+	private int indexInAtomArray(Atom atom) {
+		int index = atom.getIndexInFragment();
+		if (index >= 0 && index < atomCount && atoms[index] == atom) {
+			return index;
+		}
+		for (int i = 0; i < atomCount; i++) {
+			if (atoms[i] == atom) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
 	/**
 	 * Adds a bond to the fragment.
+	 * Has no effect if the bond, or an equal bond, is already in the fragment
 	 * @param bond
 	 */
 	void addBond(Bond bond) {
-		bondSet.add(bond);
+		if (bondSet.add(bond)) {
+			if (bondCount == bonds.length) {
+				bonds = Arrays.copyOf(bonds, bondCount * 2);
+			}
+			bonds[bondCount] = bond;
+			bond.setIndexInFragment(bondCount++);
+			modCount++;
+		}
 	}
 	
 	/**Removes a bond to the fragment if it is present.
     * @param bond
     * @return*/
 	boolean removeBond(Bond bond) {
-		return bondSet.remove(bond);
+		if (!bondSet.remove(bond)) {
+			return false;
+		}
+		int index = bond.getIndexInFragment();
+		if (index < 0 || index >= bondCount || !bonds[index].equals(bond)) {
+			for (index = 0; index < bondCount; index++) {
+				if (bonds[index].equals(bond)) {
+					break;
+				}
+			}
+		}
+		bondCount--;
+		for (int i = index; i < bondCount; i++) {
+			Bond movedBond = bonds[i + 1];
+			bonds[i] = movedBond;
+			if (movedBond.getIndexInFragment() == i + 1) {
+				movedBond.setIndexInFragment(i);
+			}
+		}
+		bonds[bondCount] = null;
+		modCount++;
+		return true;
 	}
 
-	/**Gets bondSet.*/
+	/**Gets an unmodifiable view of the bonds, iterated in the order they were added to the fragment*/
 	Set<Bond> getBondSet() {
-		return Collections.unmodifiableSet(bondSet);
+		return bondSetView;
+	}
+
+	/**
+	 * Return the number of bonds in the fragment
+	 * @return
+	 */
+	int getBondCount() {
+		return bondCount;
+	}
+
+	/**
+	 * Returns the bond with the given index in the fragment
+	 * @param index 0 to {@link #getBondCount()} - 1
+	 * @return
+	 */
+	Bond getBond(int index) {
+		if (index >= bondCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Bond count: " + bondCount);
+		}
+		return bonds[index];
+	}
+
+	/**
+	 * Returns the index of the given bond in this fragment, or -1 if the bond is not in this fragment.
+	 * Bonds are compared by identity, not equality
+	 * @param bond
+	 * @return
+	 */
+	int getBondIndex(Bond bond) {
+		int index = bond.getIndexInFragment();
+		if (index >= 0 && index < bondCount && bonds[index] == bond) {
+			return index;
+		}
+		if (!bondSet.contains(bond)) {
+			return -1;
+		}
+		for (int i = 0; i < bondCount; i++) {
+			if (bonds[i] == bond) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	/**Gets the id of the atom in the fragment with the specified locant.
@@ -161,6 +334,9 @@ class Fragment implements Iterable<Atom> {
 		if (a != null){
 			return a;
 		}
+		if (locant.length() < 2 || locant.charAt(0) < 'A' || locant.charAt(0) > 'Z'){
+			return null;//cannot be an amino acid style locant e.g. a numeric locant
+		}
 		Matcher m =MATCH_AMINOACID_STYLE_LOCANT.matcher(locant);
 		if (m.matches()){//e.g. N5
 			Atom backboneAtom =atomMapFromLocant.get(m.group(3));//the atom corresponding to the numeric or greek component
@@ -499,7 +675,8 @@ class Fragment implements Iterable<Atom> {
 	 * @throws StructureBuildingException
 	 */
 	void checkValencies() throws StructureBuildingException {
-		for(Atom a : atomCollection) {
+		for (int i = 0; i < atomCount; i++) {
+			Atom a = atoms[i];
 			if(!ValencyChecker.checkValency(a)) {
 				throw new StructureBuildingException("Atom is in unphysical valency state! Element: " + a.getElement() + " valency: " + a.getIncomingValency());
 			}
@@ -511,8 +688,20 @@ class Fragment implements Iterable<Atom> {
 	 * @param atom
 	 */
 	void removeAtom(Atom atom) {
-		int atomID =atom.getID();
-		atomMapFromId.remove(atomID);
+		int index = getAtomIndex(atom);
+		if (index >= 0) {
+			atomMapFromId.remove(atom.getID());
+			atomCount--;
+			for (int i = index; i < atomCount; i++) {
+				Atom movedAtom = atoms[i + 1];
+				atoms[i] = movedAtom;
+				if (movedAtom.getFrag() == this) {
+					movedAtom.setIndexInFragment(i);
+				}
+			}
+			atoms[atomCount] = null;
+			modCount++;
+		}
 		for (String l : atom.getLocants()) {
 			atomMapFromLocant.remove(l);
 		}
@@ -526,8 +715,8 @@ class Fragment implements Iterable<Atom> {
 	 */
 	int getCharge() {
 		int charge=0;
-		for (Atom a : atomCollection) {
-			charge+=a.getCharge();
+		for (int i = 0; i < atomCount; i++) {
+			charge+=atoms[i].getCharge();
 		}
 		return charge;
 	}
@@ -602,26 +791,34 @@ class Fragment implements Iterable<Atom> {
 	 * @return firstAtom
 	 */
 	Atom getFirstAtom(){
-		Iterator<Atom> atomIterator =atomCollection.iterator();
-		if (atomIterator.hasNext()){
-			return atomIterator.next();
-		}
-		return null;
+		return atomCount > 0 ? atoms[0] : null;
 	}
 
 	/**
-	 * Clears and recreates atomMapFromId (and hence AtomCollection) using the order of the atoms in atomList
+	 * Clears and recreates atomMapFromId and the order of atoms (and hence their indices) using the order of the atoms in atomList
 	 * @param atomList
 	 * @throws StructureBuildingException
 	 */
 	void reorderAtomCollection(List<Atom> atomList) throws StructureBuildingException {
-		if (atomMapFromId.size() != atomList.size()){
+		if (atomCount != atomList.size()){
 			throw new StructureBuildingException("atom list is not the same size as the number of atoms in the fragment");
 		}
 		atomMapFromId.clear();
+		int previousAtomCount = atomCount;
+		atomCount = 0;
 		for (Atom atom : atomList) {
-			atomMapFromId.put(atom.getID(), atom);
+			if (atomMapFromId.put(atom.getID(), atom) == null) {
+				atoms[atomCount] = atom;
+				if (atom.getFrag() == this) {
+					atom.setIndexInFragment(atomCount);
+				}
+				atomCount++;
+			}
 		}
+		for (int i = atomCount; i < previousAtomCount; i++) {
+			atoms[i] = null;
+		}
+		modCount++;
 	}
 
 	/**
@@ -638,7 +835,44 @@ class Fragment implements Iterable<Atom> {
 
 	@Override
 	public Iterator<Atom> iterator() {
-		return atomCollection.iterator();
+		return new ArrayIterator<>(atoms, atomCount);
+	}
+
+	/**
+	 * Iterates over the first count elements of this fragment's atom or bond array.
+	 * As with the collections in java.util, modification of the fragment's atoms or bonds during iteration is detected
+	 */
+	private class ArrayIterator<T> implements Iterator<T> {
+		private final T[] array;
+		private final int count;
+		private final int expectedModCount = modCount;
+		private int next = 0;
+
+		ArrayIterator(T[] array, int count) {
+			this.array = array;
+			this.count = count;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < count;
+		}
+
+		@Override
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= count) {
+				throw new NoSuchElementException();
+			}
+			return array[next++];
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 	}
 }
 
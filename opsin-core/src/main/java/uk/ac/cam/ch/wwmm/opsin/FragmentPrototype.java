@@ -0,0 +1,217 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uk.ac.cam.ch.wwmm.opsin.BondStereo.BondStereoValue;
+
+/**
+ * An immutable record of a Fragment as built from SMILES by the {@link SMILESFragmentBuilder}.
+ * Atoms are referred to by their index in the fragment, hence the fragment can be recreated, with new atom IDs,
+ * without parsing the SMILES again. Only the state that the SMILESFragmentBuilder sets is recorded.
+ * The recreated atoms take their type from the fragment they are created in, as when building from SMILES.
+ */
+final class FragmentPrototype {
+
+	/**Used in atomRefs4 to indicate {@link AtomParity#hydrogen}*/
+	private static final int HYDROGEN_REF = -1;
+	/**Used in atomRefs4 to indicate {@link AtomParity#deoxyHydrogen}*/
+	private static final int DEOXYHYDROGEN_REF = -2;
+	private static final int NULL_REF = -3;
+
+	private final ChemEl[] chemEls;
+	private final String[][] locants;
+	private final int[] charges;
+	private final Integer[] isotopes;
+	private final boolean[] spareValencies;
+	private final int[] protonsExplicitlyAddedOrRemoved;
+	private final Integer[] lambdaConventionValencies;
+	private final Integer[] minimumValencies;
+	private final boolean[] atomsInACycle;
+	private final Integer[] smilesHydrogenCounts;
+	/**The atomRefs4 of each atom's atomParity, or null if the atom does not have an atomParity*/
+	private final int[][] atomParityRefs;
+	private final int[] parities;
+
+	private final int[] bondFromAtoms;
+	private final int[] bondToAtoms;
+	private final int[] bondOrders;
+	/**The atomRefs4 of each bond's bondStereo, or null if the bond does not have a bondStereo*/
+	private final int[][] bondStereoRefs;
+	private final BondStereoValue[] bondStereoValues;
+
+	private final int[] outAtoms;
+	private final int[] outAtomValencies;
+	private final boolean[] outAtomsSetExplicitly;
+	private final int[] indicatedHydrogen;
+
+	/**
+	 * Records the given fragment, which should have just been built by the {@link SMILESFragmentBuilder}
+	 * @param fragment
+	 */
+	FragmentPrototype(Fragment fragment) {
+		List<Atom> atomList = fragment.getAtomList();
+		int atomCount = atomList.size();
+		Map<Atom, Integer> atomToIndex = new HashMap<>();
+		for (int i = 0; i < atomCount; i++) {
+			atomToIndex.put(atomList.get(i), i);
+		}
+		chemEls = new ChemEl[atomCount];
+		locants = new String[atomCount][];
+		charges = new int[atomCount];
+		isotopes = new Integer[atomCount];
+		spareValencies = new boolean[atomCount];
+		protonsExplicitlyAddedOrRemoved = new int[atomCount];
+		lambdaConventionValencies = new Integer[atomCount];
+		minimumValencies = new Integer[atomCount];
+		atomsInACycle = new boolean[atomCount];
+		smilesHydrogenCounts = new Integer[atomCount];
+		atomParityRefs = new int[atomCount][];
+		parities = new int[atomCount];
+		for (int i = 0; i < atomCount; i++) {
+			Atom atom = atomList.get(i);
+			chemEls[i] = atom.getElement();
+			List<String> atomLocants = atom.getLocants();
+			locants[i] = atomLocants.toArray(new String[atomLocants.size()]);
+			charges[i] = atom.getCharge();
+			isotopes[i] = atom.getIsotope();
+			spareValencies[i] = atom.hasSpareValency();
+			protonsExplicitlyAddedOrRemoved[i] = atom.getProtonsExplicitlyAddedOrRemoved();
+			lambdaConventionValencies[i] = atom.getLambdaConventionValency();
+			minimumValencies[i] = atom.getMinimumValency();
+			atomsInACycle[i] = atom.getAtomIsInACycle();
+			smilesHydrogenCounts[i] = atom.getProperty(Atom.SMILES_HYDROGEN_COUNT);
+			AtomParity atomParity = atom.getAtomParity();
+			if (atomParity != null) {
+				atomParityRefs[i] = toIndices(atomParity.getAtomRefs4(), atomToIndex);
+				parities[i] = atomParity.getParity();
+			}
+		}
+
+		Set<Bond> bonds = fragment.getBondSet();
+		int bondCount = bonds.size();
+		bondFromAtoms = new int[bondCount];
+		bondToAtoms = new int[bondCount];
+		bondOrders = new int[bondCount];
+		bondStereoRefs = new int[bondCount][];
+		bondStereoValues = new BondStereoValue[bondCount];
+		int bondIndex = 0;
+		for (Bond bond : bonds) {
+			bondFromAtoms[bondIndex] = atomToIndex.get(bond.getFromAtom());
+			bondToAtoms[bondIndex] = atomToIndex.get(bond.getToAtom());
+			bondOrders[bondIndex] = bond.getOrder();
+			BondStereo bondStereo = bond.getBondStereo();
+			if (bondStereo != null) {
+				bondStereoRefs[bondIndex] = toIndices(bondStereo.getAtomRefs4(), atomToIndex);
+				bondStereoValues[bondIndex] = bondStereo.getBondStereoValue();
+			}
+			bondIndex++;
+		}
+
+		int outAtomCount = fragment.getOutAtomCount();
+		outAtoms = new int[outAtomCount];
+		outAtomValencies = new int[outAtomCount];
+		outAtomsSetExplicitly = new boolean[outAtomCount];
+		for (int i = 0; i < outAtomCount; i++) {
+			OutAtom outAtom = fragment.getOutAtom(i);
+			outAtoms[i] = atomToIndex.get(outAtom.getAtom());
+			outAtomValencies[i] = outAtom.getValency();
+			outAtomsSetExplicitly[i] = outAtom.isSetExplicitly();
+		}
+
+		List<Atom> indicatedHydrogenAtoms = fragment.getIndicatedHydrogen();
+		indicatedHydrogen = new int[indicatedHydrogenAtoms.size()];
+		for (int i = 0; i < indicatedHydrogen.length; i++) {
+			indicatedHydrogen[i] = atomToIndex.get(indicatedHydrogenAtoms.get(i));
+		}
+	}
+
+	private static int[] toIndices(Atom[] atomRefs4, Map<Atom, Integer> atomToIndex) {
+		int[] indices = new int[atomRefs4.length];
+		for (int i = 0; i < atomRefs4.length; i++) {
+			Atom atom = atomRefs4[i];
+			if (atom == null) {
+				indices[i] = NULL_REF;
+			}
+			else if (atom == AtomParity.hydrogen) {
+				indices[i] = HYDROGEN_REF;
+			}
+			else if (atom == AtomParity.deoxyHydrogen) {
+				indices[i] = DEOXYHYDROGEN_REF;
+			}
+			else {
+				indices[i] = atomToIndex.get(atom);
+			}
+		}
+		return indices;
+	}
+
+	private static Atom[] toAtoms(int[] indices, Atom[] atoms) {
+		Atom[] atomRefs4 = new Atom[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			int index = indices[i];
+			if (index == HYDROGEN_REF) {
+				atomRefs4[i] = AtomParity.hydrogen;
+			}
+			else if (index == DEOXYHYDROGEN_REF) {
+				atomRefs4[i] = AtomParity.deoxyHydrogen;
+			}
+			else if (index != NULL_REF) {
+				atomRefs4[i] = atoms[index];
+			}
+		}
+		return atomRefs4;
+	}
+
+	/**
+	 * Adds the recorded atoms, bonds, outAtoms and indicated hydrogen to the given empty fragment.
+	 * Atoms are given IDs from the idManager in the order the original atoms were created
+	 * @param fragment
+	 * @param idManager
+	 */
+	void populate(Fragment fragment, IDManager idManager) {
+		Atom[] atoms = new Atom[chemEls.length];
+		for (int i = 0; i < atoms.length; i++) {
+			Atom atom = new Atom(idManager.getNextID(), chemEls[i], fragment);
+			fragment.addAtom(atom);
+			for (String locant : locants[i]) {
+				atom.addLocant(locant);
+			}
+			atom.setCharge(charges[i]);
+			atom.setIsotope(isotopes[i]);
+			atom.setSpareValency(spareValencies[i]);
+			atom.setProtonsExplicitlyAddedOrRemoved(protonsExplicitlyAddedOrRemoved[i]);
+			atom.setLambdaConventionValency(lambdaConventionValencies[i]);
+			atom.setMinimumValency(minimumValencies[i]);
+			atom.setAtomIsInACycle(atomsInACycle[i]);
+			if (smilesHydrogenCounts[i] != null) {
+				atom.setProperty(Atom.SMILES_HYDROGEN_COUNT, smilesHydrogenCounts[i]);
+			}
+			atoms[i] = atom;
+		}
+		for (int i = 0; i < atoms.length; i++) {
+			if (atomParityRefs[i] != null) {
+				atoms[i].setAtomParity(toAtoms(atomParityRefs[i], atoms), parities[i]);
+			}
+		}
+		for (int i = 0; i < bondOrders.length; i++) {
+			Atom fromAtom = atoms[bondFromAtoms[i]];
+			Atom toAtom = atoms[bondToAtoms[i]];
+			Bond bond = new Bond(fromAtom, toAtom, bondOrders[i]);
+			fromAtom.addBond(bond);
+			toAtom.addBond(bond);
+			fragment.addBond(bond);
+			if (bondStereoRefs[i] != null) {
+				bond.setBondStereoElement(toAtoms(bondStereoRefs[i], atoms), bondStereoValues[i]);
+			}
+		}
+		for (int i = 0; i < outAtoms.length; i++) {
+			fragment.addOutAtom(atoms[outAtoms[i]], outAtomValencies[i], outAtomsSetExplicitly[i]);
+		}
+		for (int index : indicatedHydrogen) {
+			fragment.addIndicatedHydrogen(atoms[index]);
+		}
+	}
+}
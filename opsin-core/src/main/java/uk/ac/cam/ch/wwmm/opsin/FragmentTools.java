@@ -25,9 +25,27 @@ import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
  */
 class SortAtomsForElementSymbols implements Comparator<Atom> {
 
+	private final Atom from;
+
+	/**
+	 * @param from The atom from which the atoms to be sorted were reached, or null if each was reached from the first atom of its fragment
+	 */
+	SortAtomsForElementSymbols(Atom from) {
+		this.from = from;
+	}
+
+	/**
+	 * The order of the bond taken to reach the given atom
+	 * @param a
+	 * @return
+	 */
+	private int bondOrder(Atom a) {
+		return a.getBondToAtom(from != null ? from : a.getFrag().getFirstAtom()).getOrder();
+	}
+
 	public int compare(Atom a, Atom b){
-		int bondOrderA = a.getProperty(Atom.VISITED);
-		int bondOrderB = b.getProperty(Atom.VISITED);
+		int bondOrderA = bondOrder(a);
+		int bondOrderB = bondOrder(b);
     	if (bondOrderA > bondOrderB) {//lower order bond is preferred
     		return 1;
     	}
@@ -278,11 +296,11 @@ class FragmentTools {
 		Set<Atom> atomsVisited = new HashSet<>();
 		for (Fragment fragment : suffixFragments) {
 			Atom rAtom = fragment.getFirstAtom();
-			List<Atom> nextAtoms = getIntraFragmentNeighboursAndSetVisitedBondOrder(rAtom);
+			List<Atom> nextAtoms = getIntraFragmentNeighbours(rAtom);
 			atomsVisited.addAll(nextAtoms);
 			startingAtoms.addAll(nextAtoms);
 		}
-		Collections.sort(startingAtoms, new SortAtomsForElementSymbols());
+		Collections.sort(startingAtoms, new SortAtomsForElementSymbols(null));
 
 		Deque<Atom> atomsToConsider = new ArrayDeque<>(startingAtoms);
 		while (atomsToConsider.size() > 0){
@@ -293,9 +311,9 @@ class FragmentTools {
 	private static void processNonCarboxylicAcidLabelling(Fragment suffixableFragment, Map<String, Integer> elementCount, Set<Atom> atomsToIgnore) {
 		Set<Atom> atomsVisited = new HashSet<>();
 		Atom firstAtom = suffixableFragment.getFirstAtom();
-		List<Atom> startingAtoms = getIntraFragmentNeighboursAndSetVisitedBondOrder(firstAtom);
+		List<Atom> startingAtoms = getIntraFragmentNeighbours(firstAtom);
 		
-		Collections.sort(startingAtoms, new SortAtomsForElementSymbols());
+		Collections.sort(startingAtoms, new SortAtomsForElementSymbols(firstAtom));
 		atomsVisited.add(firstAtom);
 		Deque<Atom> atomsToConsider = new ArrayDeque<>(startingAtoms);
 		while (atomsToConsider.size() > 0){
@@ -313,9 +331,9 @@ class FragmentTools {
 		if (!atomsToIgnore.contains(atom)) {//assign locant
 			assignLocant(atom, elementCount);
 		}
-		List<Atom> atomsToExplore = getIntraFragmentNeighboursAndSetVisitedBondOrder(atom);
+		List<Atom> atomsToExplore = getIntraFragmentNeighbours(atom);
 		atomsToExplore.removeAll(atomsVisited);
-		Collections.sort(atomsToExplore, new SortAtomsForElementSymbols());
+		Collections.sort(atomsToExplore, new SortAtomsForElementSymbols(atom));
 		for (int i = atomsToExplore.size() - 1; i >= 0; i--) {
 			atomsToConsider.addFirst(atomsToExplore.get(i));
 		}
@@ -323,18 +341,16 @@ class FragmentTools {
 
 	/**
 	 * Gets the neighbours of an atom that claim to be within the same frag
-	 * The order of bond taken to get to the neighbour is set on the neighbours Atom.VISITED property
 	 * @param atom
 	 * @return
 	 */
-	private static List<Atom> getIntraFragmentNeighboursAndSetVisitedBondOrder(Atom atom) {
+	private static List<Atom> getIntraFragmentNeighbours(Atom atom) {
 		List<Atom> atomsToExplore = new ArrayList<>();
 		List<Bond> bonds = atom.getBonds();
 		for (Bond bond : bonds) {
 			Atom neighbour = bond.getOtherAtom(atom);
 			if (neighbour.getFrag().equals(atom.getFrag())) {
 				atomsToExplore.add(neighbour);
-				neighbour.setProperty(Atom.VISITED, bond.getOrder());
 			}
 		}
 		return atomsToExplore;
@@ -735,20 +751,16 @@ class FragmentTools {
 
 		List<Atom> startingAtoms = new ArrayList<>();
 		Set<Atom> atomsVisited = new HashSet<>();
-		List<Atom> neighbours = getIntraFragmentNeighboursAndSetVisitedBondOrder(backboneAtom);
-		mainLoop: for (Atom neighbour : neighbours) {
+		List<Atom> neighbours = getIntraFragmentNeighbours(backboneAtom);
+		for (Atom neighbour : neighbours) {
 			atomsVisited.add(neighbour);
-			if (!neighbour.getType().equals(SUFFIX_TYPE_VAL)){
-				for (String neighbourLocant : neighbour.getLocants()) {
-					if (MATCH_NUMERIC_LOCANT.matcher(neighbourLocant).matches()){//gone to an inappropriate atom
-						continue mainLoop;
-					}
-				}
+			if (!neighbour.getType().equals(SUFFIX_TYPE_VAL) && neighbour.hasNumericLocant()){//gone to an inappropriate atom
+				continue;
 			}
 			startingAtoms.add(neighbour);
 		}
 
-		Collections.sort(startingAtoms, new SortAtomsForElementSymbols());
+		Collections.sort(startingAtoms, new SortAtomsForElementSymbols(backboneAtom));
 		Map<String,Integer> elementCount = new HashMap<>();//keeps track of how many times each element has been seen
 	
 		Deque<Atom> atomsToConsider = new ArrayDeque<>(startingAtoms);
@@ -773,7 +785,7 @@ class FragmentTools {
 				hydrazoneSpecialCase =false;
 			}
 
-			List<Atom> atomNeighbours = getIntraFragmentNeighboursAndSetVisitedBondOrder(atom);
+			List<Atom> atomNeighbours = getIntraFragmentNeighbours(atom);
 			atomNeighbours.removeAll(atomsVisited);
 			for (int i = atomNeighbours.size() -1; i >=0; i--) {
 				Atom neighbour = atomNeighbours.get(i);
@@ -798,7 +810,7 @@ class FragmentTools {
 				}
 			}
 
-			Collections.sort(atomNeighbours, new SortAtomsForElementSymbols());
+			Collections.sort(atomNeighbours, new SortAtomsForElementSymbols(atom));
 			for (int i = atomNeighbours.size() - 1; i >= 0; i--) {
 				atomsToConsider.addFirst(atomNeighbours.get(i));
 			}
@@ -156,7 +156,7 @@ class FunctionalReplacement {
 						else{
 							possibleLocant = possibleMultiplier;
 						}
-						if (possibleLocant !=null && possibleLocant.getName().equals(LOCANT_EL) && possibleLocant.getAttribute(TYPE_ATR) == null) {
+						if (possibleLocant !=null && possibleLocant.getName().equals(LOCANT_EL) && possibleLocant.getAttributeValue(TYPE_ATR) == null) {
 							int numberOfLocants = possibleLocant.getValue().split(",").length;
 							if (numberOfLocants == numberOfAtomsToReplace){//locants and number of replacements agree
 								locantEl = possibleLocant;
@@ -279,7 +279,7 @@ class FunctionalReplacement {
 	void processInfixFunctionalReplacementNomenclature(List<Element> suffixes, List<Fragment> suffixFragments) throws StructureBuildingException, ComponentGenerationException {
 		for (int i = 0; i < suffixes.size(); i++) {
 			Element suffix = suffixes.get(i);
-			if (suffix.getAttribute(INFIX_ATR) != null){
+			if (suffix.getAttributeValue(INFIX_ATR) != null){
 				Fragment fragToApplyInfixTo = suffix.getFrag();
 				Element possibleAcidGroup = OpsinTools.getPreviousSiblingIgnoringCertainElements(suffix, new String[]{MULTIPLIER_EL, INFIX_EL, SUFFIX_EL});
 				if (possibleAcidGroup !=null && possibleAcidGroup.getName().equals(GROUP_EL) && 
@@ -299,7 +299,7 @@ class FusedRingBuilder {
                         throw new StructureBuildingException("Inappropriate group used in fusion nomenclature. Only groups composed entirely of atoms in cycles may be used. i.e. not: " + group.getValue());
                     }
                 }
-                if (group.getAttribute(FUSEDRINGNUMBERING_ATR) != null) {
+                if (group.getAttributeValue(FUSEDRINGNUMBERING_ATR) != null) {
                     String[] standardNumbering = group.getAttributeValue(FUSEDRINGNUMBERING_ATR).split("/", -1);
                     for (int j = 0; j < standardNumbering.length; j++) {
                         atomList.get(j).replaceLocants(standardNumbering[j]);
@@ -310,7 +310,7 @@ class FusedRingBuilder {
                 for (Atom atom : atomList) {
                     atom.clearLocants();//the parentRing does not have locants, letters are used to indicate the edges
                 }
-            } else if (group.getAttribute(FUSEDRINGNUMBERING_ATR) == null) {
+            } else if (group.getAttributeValue(FUSEDRINGNUMBERING_ATR) == null) {
                 ring.sortAtomListByLocant();//for those where the order the locants are in is sensible
             }
         }
@@ -323,11 +323,11 @@ class FusedRingBuilder {
 	 * @param ring
 	 */
 	private void processPartiallyUnsaturatedHWSystems(Element group, Fragment ring) {
-		if (HANTZSCHWIDMAN_SUBTYPE_VAL.equals(group.getAttributeValue(SUBTYPE_ATR)) && group.getAttribute(ADDBOND_ATR)!=null){
+		if (HANTZSCHWIDMAN_SUBTYPE_VAL.equals(group.getAttributeValue(SUBTYPE_ATR)) && group.getAttributeValue(ADDBOND_ATR)!=null){
 			List<Element> unsaturators = OpsinTools.getNextAdjacentSiblingsOfType(group, UNSATURATOR_EL);
 			if (unsaturators.size()>0){
 				Element unsaturator = unsaturators.get(0);
-				if (unsaturator.getAttribute(LOCANT_ATR)==null && unsaturator.getAttributeValue(VALUE_ATR).equals("2")){
+				if (unsaturator.getAttributeValue(LOCANT_ATR)==null && unsaturator.getAttributeValue(VALUE_ATR).equals("2")){
 					unsaturator.detach();
 					List<Bond> bondsToUnsaturate = StructureBuildingMethods.findBondsToUnSaturate(ring, 2, true);
 					if (bondsToUnsaturate.isEmpty()) {
@@ -362,7 +362,7 @@ class FusedRingBuilder {
 			if (value !=2){
 				conjugate =false;
 			}
-			else if (unsaturators.get(0).getAttribute(LOCANT_ATR)!=null){
+			else if (unsaturators.get(0).getAttributeValue(LOCANT_ATR)!=null){
 				conjugate =false;
 			}
 		}
@@ -373,7 +373,7 @@ class FusedRingBuilder {
 			}
 			else{
 				int value2 = Integer.parseInt(unsaturators.get(1).getAttributeValue(VALUE_ATR));
-				if (value2 !=2 || unsaturators.get(1).getAttribute(LOCANT_ATR)!=null){
+				if (value2 !=2 || unsaturators.get(1).getAttributeValue(LOCANT_ATR)!=null){
 					conjugate =false;
 				}
 			}
@@ -1009,7 +1009,7 @@ class FusedRingBuilder {
 		List<Element> suffixes = benzoEl.getParent().getChildElements(SUFFIX_EL);
 		int suffixesWithoutLocants = 0;
 		for (Element suffix : suffixes) {
-			if (suffix.getAttribute(LOCANT_ATR)==null){
+			if (suffix.getAttributeValue(LOCANT_ATR)==null){
 				suffixesWithoutLocants++;
 			}
 		}
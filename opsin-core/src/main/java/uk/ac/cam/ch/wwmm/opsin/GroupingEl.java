@@ -6,6 +6,8 @@ import java.util.List;
 class GroupingEl extends Element{
 	
 	private final List<Element> children = new ArrayList<>();
+	/**If not null, the number of descendants of each kind. Maintained as children are added, removed or renamed*/
+	private int[] descendantKindCounts = null;
 	
 	GroupingEl(String name) {
 		super(name);
@@ -15,6 +17,9 @@ class GroupingEl extends Element{
 	void addChild(Element child) {
 		child.setParent(this);
 		children.add(child);
+		if (descendantKindCounts != null) {
+			updateDescendantKindCounts(child, 1);
+		}
 	}
 	
 	@Override
@@ -95,18 +100,28 @@ class GroupingEl extends Element{
 	void insertChild(Element child, int index) {
 		child.setParent(this);
 		children.add(index, child);
+		if (descendantKindCounts != null) {
+			updateDescendantKindCounts(child, 1);
+		}
 	}
 
 	@Override
 	boolean removeChild(Element child) {
 		child.setParent(null);
-		return children.remove(child);
+		boolean removed = children.remove(child);
+		if (removed && descendantKindCounts != null) {
+			updateDescendantKindCounts(child, -1);
+		}
+		return removed;
 	}
 	
 	@Override
 	Element removeChild(int index) {
 		Element removed = children.remove(index);
 		removed.setParent(null);
+		if (descendantKindCounts != null) {
+			updateDescendantKindCounts(removed, -1);
+		}
 		return removed;
 	}
 	
@@ -124,4 +139,75 @@ class GroupingEl extends Element{
 		throw new UnsupportedOperationException("Token groups do not have a value");
 	}
 
+	/**
+	 * Indexes the names of the descendants of this element, so that searches for descendants with a given name
+	 * need only visit the subtrees that contain them. The index is maintained as elements are added, removed or renamed
+	 * and elements subsequently added to this element's subtree are indexed too.
+	 * A copy of this element is not indexed
+	 */
+	void indexDescendantNames() {
+		int[] counts = new int[XmlSymbols.getElementKindCount()];
+		for (Element child : children) {
+			if (child.kind != XmlSymbols.UNDECLARED) {
+				counts[child.kind]++;
+			}
+			if (child instanceof GroupingEl) {
+				GroupingEl groupingChild = (GroupingEl) child;
+				groupingChild.indexDescendantNames();
+				addCounts(counts, groupingChild.descendantKindCounts, 1);
+			}
+		}
+		descendantKindCounts = counts;
+	}
+
+	@Override
+	boolean mayHaveDescendantOfKind(int kind) {
+		if (descendantKindCounts == null || kind == XmlSymbols.UNDECLARED) {
+			return children.size() > 0;
+		}
+		return descendantKindCounts[kind] > 0;
+	}
+
+	@Override
+	void descendantRenamed(int oldKind, int newKind) {
+		for (GroupingEl el = this; el != null && el.descendantKindCounts != null; el = (GroupingEl) el.parent) {
+			if (oldKind != XmlSymbols.UNDECLARED) {
+				el.descendantKindCounts[oldKind]--;
+			}
+			if (newKind != XmlSymbols.UNDECLARED) {
+				el.descendantKindCounts[newKind]++;
+			}
+		}
+	}
+
+	/**
+	 * Adds (delta = 1) or removes (delta = -1) the given child and its descendants from the counts of this element and its indexed ancestors
+	 * @param child
+	 * @param delta
+	 */
+	private void updateDescendantKindCounts(Element child, int delta) {
+		int[] childCounts = null;
+		if (child instanceof GroupingEl) {
+			GroupingEl groupingChild = (GroupingEl) child;
+			if (groupingChild.descendantKindCounts == null) {
+				groupingChild.indexDescendantNames();
+			}
+			childCounts = groupingChild.descendantKindCounts;
+		}
+		for (GroupingEl el = this; el != null && el.descendantKindCounts != null; el = (GroupingEl) el.parent) {
+			if (child.kind != XmlSymbols.UNDECLARED) {
+				el.descendantKindCounts[child.kind] += delta;
+			}
+			if (childCounts != null) {
+				addCounts(el.descendantKindCounts, childCounts, delta);
+			}
+		}
+	}
+
+	private static void addCounts(int[] counts, int[] countsToAdd, int multiplier) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += multiplier * countsToAdd[i];
+		}
+	}
+
 }
@@ -0,0 +1,170 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.regex.Pattern;
+
+/**
+ * A precompiled matcher for regex tokens that are a single lookahead or lookbehind on one character
+ * e.g. (?&lt;![A-Za-z]) or (?![A-Za-z]). Such tokens cannot be compiled to a DFA, but unlike a {@link java.util.regex.Matcher}
+ * this does not backtrack, allocate or require a region to be set before each match.
+ * The match is zero width and, as with transparent bounds, the assertion may look outside of the part of the name being matched
+ */
+final class LookaroundMatcher {
+
+	private final boolean lookahead;
+	private final boolean negatedLookaround;
+	private final boolean negatedCharacterClass;
+	/**The inclusive ranges of the character class*/
+	private final char[] rangeStarts;
+	private final char[] rangeEnds;
+
+	private LookaroundMatcher(boolean lookahead, boolean negatedLookaround, boolean negatedCharacterClass, char[] rangeStarts, char[] rangeEnds) {
+		this.lookahead = lookahead;
+		this.negatedLookaround = negatedLookaround;
+		this.negatedCharacterClass = negatedCharacterClass;
+		this.rangeStarts = rangeStarts;
+		this.rangeEnds = rangeEnds;
+	}
+
+	/**
+	 * Compiles regexes of the form (?=X), (?!X), (?&lt;=X) or (?&lt;!X) where X is a literal character or
+	 * a character class of literal characters and ranges e.g. [A-Za-z] or [^0-9]
+	 * @param regex
+	 * @return The matcher, or null if the regex is not of a supported form
+	 */
+	static LookaroundMatcher compile(String regex) {
+		boolean lookahead;
+		int i;
+		if (regex.startsWith("(?=") || regex.startsWith("(?!")) {
+			lookahead = true;
+			i = 2;
+		}
+		else if (regex.startsWith("(?<=") || regex.startsWith("(?<!")) {
+			lookahead = false;
+			i = 3;
+		}
+		else {
+			return null;
+		}
+		boolean negatedLookaround = regex.charAt(i++) == '!';
+		if (!regex.endsWith(")") || regex.length() - 1 <= i) {
+			return null;
+		}
+		String characterClass = regex.substring(i, regex.length() - 1);
+		if (!characterClass.startsWith("[")) {
+			int[] literal = parseLiteral(characterClass, 0);
+			if (literal == null || literal[1] != characterClass.length()) {
+				return null;
+			}
+			return new LookaroundMatcher(lookahead, negatedLookaround, false, new char[]{(char) literal[0]}, new char[]{(char) literal[0]});
+		}
+		if (!characterClass.endsWith("]")) {
+			return null;
+		}
+		int end = characterClass.length() - 1;
+		int j = 1;
+		boolean negatedCharacterClass = false;
+		if (j < end && characterClass.charAt(j) == '^') {
+			negatedCharacterClass = true;
+			j++;
+		}
+		StringBuilder starts = new StringBuilder();
+		StringBuilder ends = new StringBuilder();
+		while (j < end) {
+			int[] rangeStart = parseLiteral(characterClass, j);
+			if (rangeStart == null || rangeStart[1] > end) {
+				return null;
+			}
+			j = rangeStart[1];
+			int rangeEnd = rangeStart[0];
+			if (j + 1 < end && characterClass.charAt(j) == '-') {
+				int[] literal = parseLiteral(characterClass, j + 1);
+				if (literal == null || literal[1] > end || literal[0] < rangeStart[0]) {
+					return null;
+				}
+				rangeEnd = literal[0];
+				j = literal[1];
+			}
+			starts.append((char) rangeStart[0]);
+			ends.append((char) rangeEnd);
+		}
+		if (starts.length() == 0) {
+			return null;
+		}
+		return new LookaroundMatcher(lookahead, negatedLookaround, negatedCharacterClass, starts.toString().toCharArray(), ends.toString().toCharArray());
+	}
+
+	/**
+	 * Compiles each of the given patterns that is a supported lookaround, these patterns are set to null in the given array.
+	 * The patterns may be anchored to the end of input by a trailing $, as the reversed regex tokens are
+	 * @param patterns Array of patterns, null entries are ignored
+	 * @param anchoredAtEnd Whether the patterns end with $
+	 * @return An array of the same length as patterns, with a matcher for each pattern that was compiled
+	 */
+	static LookaroundMatcher[] compileAndRemove(Pattern[] patterns, boolean anchoredAtEnd) {
+		LookaroundMatcher[] matchers = new LookaroundMatcher[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			if (patterns[i] != null) {
+				String regex = patterns[i].pattern();
+				if (anchoredAtEnd) {
+					if (!regex.endsWith("$")) {
+						continue;
+					}
+					regex = regex.substring(0, regex.length() - 1);
+				}
+				matchers[i] = compile(regex);
+				if (matchers[i] != null) {
+					patterns[i] = null;
+				}
+			}
+		}
+		return matchers;
+	}
+
+	/**
+	 * Parses the literal character at index i, which may be escaped with a backslash
+	 * @param str
+	 * @param i
+	 * @return The character and the index after it, or null if not a literal character
+	 */
+	private static int[] parseLiteral(String str, int i) {
+		if (i >= str.length()) {
+			return null;
+		}
+		char c = str.charAt(i);
+		if (c == '\\') {
+			if (i + 1 >= str.length()) {
+				return null;
+			}
+			char escaped = str.charAt(i + 1);
+			if (Character.isLetterOrDigit(escaped)) {//e.g. \d or A, not literal
+				return null;
+			}
+			return new int[]{escaped, i + 2};
+		}
+		if ("[]()|?*+{}^$.&".indexOf(c) >= 0) {
+			return null;
+		}
+		return new int[]{c, i + 1};
+	}
+
+	/**
+	 * Whether the assertion holds at the given position in the name
+	 * @param chemicalName
+	 * @param posInName
+	 * @return
+	 */
+	boolean matches(String chemicalName, int posInName) {
+		int i = lookahead ? posInName : posInName - 1;
+		boolean inClass = i >= 0 && i < chemicalName.length() && isInCharacterClass(chemicalName.charAt(i));
+		return inClass != negatedLookaround;
+	}
+
+	private boolean isInCharacterClass(char c) {
+		for (int i = 0; i < rangeStarts.length; i++) {
+			if (c >= rangeStarts[i] && c <= rangeEnds[i]) {
+				return !negatedCharacterClass;
+			}
+		}
+		return negatedCharacterClass;
+	}
+}
@@ -1,9 +1,24 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +43,9 @@ public class NameToStructure {
 	/**Which suffixes apply to what and what their effects are*/
 	private SuffixRules suffixRules;
 
+	/**Optional cache of results keyed on the preprocessed name and the options used to interpret it. Null if caching is disabled*/
+	private volatile BoundedCache<ResultCacheKey, OpsinResult> resultCache;
+
 	private static NameToStructure NTS_INSTANCE;
 
 	public static synchronized NameToStructure getInstance() {
@@ -75,6 +93,16 @@ public class NameToStructure {
 		LOG.debug("OPSIN initialised");
 	}
 
+	/**
+	 * Loads the right to left parser used by {@link NameToStructureConfig#setDetailedFailureAnalysis(boolean)}.
+	 * This is otherwise done the first time a name fails to parse with detailed failure analysis enabled;
+	 * calling this at startup avoids that one-off cost occurring whilst names are being processed.
+	 * The parser is shared, hence subsequent failure analysis requires no further initialisation
+	 */
+	public void initialiseDetailedFailureAnalysis() {
+		parser.initialiseReverseParseRules();
+	}
+
 	/**
 	 * Convenience method for converting a name to CML with OPSIN's default options
 	 * @param name The chemical name to parse.
@@ -131,66 +159,403 @@ public class NameToStructure {
 		}
 		n2sConfig = n2sConfig.clone();//avoid n2sconfig being modified mid name processing
 
-		List<Element> parses;
+		String modifiedName;
 		try {
 			LOG.debug(name);
-			String modifiedName = PreProcessor.preProcess(name);
-			parses = parser.parse(n2sConfig, modifiedName);
-			Collections.sort(parses, new SortParses());//fewer tokens preferred
+			modifiedName = PreProcessor.preProcess(name);
 		} catch (Exception e) {
-			if(LOG.isDebugEnabled()) {
-				LOG.debug(e.getMessage(), e);
-			}
-			String message = e.getMessage() != null ? e.getMessage() : "exception with null message";
-			return new OpsinResult(null, OPSIN_RESULT_STATUS.FAILURE, message, name);
+			return failureFromException(e, name);
 		}
-		String reasonForFailure = "";
-		Fragment fragGeneratedWithWarning = null;
-		List<OpsinWarning> warnings = Collections.emptyList();
-		for(Element parse : parses) {
-			try {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug(parse.toXML());
-				}
-				//Performs XML manipulation e.g. nesting bracketing, processing some nomenclatures
-				BuildState state = new BuildState(n2sConfig);
-				new ComponentGenerator(state).processParse(parse);
-				if (LOG.isDebugEnabled()) {
-					LOG.debug(parse.toXML());
-				}
-				//Converts the XML to fragments (handles many different nomenclatueres for describing structure). Assigns locants
-				new ComponentProcessor(state, new SuffixApplier(state, suffixRules)).processParse(parse);
-				if (LOG.isDebugEnabled()) {
-					LOG.debug(parse.toXML());
-				}
-				//Constructs a single fragment from the fragments generated by the ComponentProcessor. Applies stereochemistry
-				Fragment frag = new StructureBuilder(state).buildFragment(parse);
-				if (LOG.isDebugEnabled()) {
-					LOG.debug(parse.toXML());
+		BoundedCache<ResultCacheKey, OpsinResult> cache = resultCache;
+		if (cache == null) {
+			return interpretPreProcessedName(name, modifiedName, n2sConfig);
+		}
+		ResultCacheKey key = new ResultCacheKey(modifiedName, n2sConfig.getOptionFlags());
+		OpsinResult result = cache.get(key);
+		if (result != null) {
+			return result.withChemicalName(name);
+		}
+		result = interpretPreProcessedName(name, modifiedName, n2sConfig);
+		cache.put(key, result);
+		return result;
+	}
+
+	private OpsinResult interpretPreProcessedName(String name, String modifiedName, NameToStructureConfig n2sConfig) {
+		List<Element> parses;
+		try {
+			parses = parser.parse(n2sConfig, modifiedName);//sorted such that fewer tokens are preferred
+		} catch (Exception e) {
+			return failureFromException(e, name);
+		}
+		AtomicBoolean outcomeDecided = new AtomicBoolean();
+		List<FutureTask<StructureBuildingOutcome>> speculativeBuilds = startSpeculativeBuilds(parses, n2sConfig, outcomeDecided);
+		try {
+			String reasonForFailure = "";
+			Fragment fragGeneratedWithWarning = null;
+			List<OpsinWarning> warnings = Collections.emptyList();
+			for (int i = 0; i < parses.size(); i++) {
+				FutureTask<StructureBuildingOutcome> speculativeBuild = i < speculativeBuilds.size() ? speculativeBuilds.get(i) : null;
+				StructureBuildingOutcome outcome = speculativeBuild != null ? awaitOutcome(speculativeBuild) : buildStructure(parses.get(i), n2sConfig, outcomeDecided);
+				if (outcome.frag != null) {
+					if (outcome.warnings.isEmpty()) {
+						return new OpsinResult(outcome.frag, OPSIN_RESULT_STATUS.SUCCESS, "", name);
+					}
+					if (fragGeneratedWithWarning == null) {
+						//record first frag that had a warning but try other parses as they may work without a warning
+						fragGeneratedWithWarning = outcome.frag;
+						warnings = outcome.warnings;
+					}
 				}
-				if (state.getWarnings().isEmpty()) {
-					return new OpsinResult(frag, OPSIN_RESULT_STATUS.SUCCESS, "", name);
+				else if (reasonForFailure.length() == 0) {
+					reasonForFailure = outcome.reasonForFailure;
 				}
-				if (fragGeneratedWithWarning == null) {
-					//record first frag that had a warning but try other parses as they may work without a warning
-					fragGeneratedWithWarning = frag;
-					warnings = state.getWarnings();
+			}
+			if (fragGeneratedWithWarning != null) {
+				return new OpsinResult(fragGeneratedWithWarning, OPSIN_RESULT_STATUS.WARNING, warnings, name);
+			}
+			return new OpsinResult(null, OPSIN_RESULT_STATUS.FAILURE, reasonForFailure, name);
+		}
+		finally {
+			//speculative builds that are still running stop at their next stage
+			outcomeDecided.set(true);
+			for (FutureTask<StructureBuildingOutcome> speculativeBuild : speculativeBuilds) {
+				if (speculativeBuild != null) {
+					speculativeBuild.cancel(false);
 				}
-			} catch (Exception e) {
-				if (reasonForFailure.length() == 0) {
-					reasonForFailure = e.getMessage() != null ? e.getMessage() : "exception with null message";
+			}
+		}
+	}
+
+	/**
+	 * Converts a parse into a structure
+	 * @param parse
+	 * @param n2sConfig
+	 * @param outcomeDecided Set once the result of the name no longer depends on this build, in which case the build is abandoned between stages
+	 * @return The structure, or why a structure could not be built
+	 */
+	private StructureBuildingOutcome buildStructure(Element parse, NameToStructureConfig n2sConfig, AtomicBoolean outcomeDecided) {
+		try {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(parse.toXML());
+			}
+			//Performs XML manipulation e.g. nesting bracketing, processing some nomenclatures
+			BuildState state = new BuildState(n2sConfig);
+			new ComponentGenerator(state).processParse(parse);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(parse.toXML());
+			}
+			if (outcomeDecided.get()) {
+				return StructureBuildingOutcome.ABANDONED;
+			}
+			//Converts the XML to fragments (handles many different nomenclatueres for describing structure). Assigns locants
+			new ComponentProcessor(state, new SuffixApplier(state, suffixRules)).processParse(parse);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(parse.toXML());
+			}
+			if (outcomeDecided.get()) {
+				return StructureBuildingOutcome.ABANDONED;
+			}
+			//Constructs a single fragment from the fragments generated by the ComponentProcessor. Applies stereochemistry
+			Fragment frag = new StructureBuilder(state).buildFragment(parse);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(parse.toXML());
+			}
+			return new StructureBuildingOutcome(frag, state.getWarnings(), null);
+		} catch (Exception e) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(e.getMessage(), e);
+			}
+			return new StructureBuildingOutcome(null, null, e.getMessage() != null ? e.getMessage() : "exception with null message");
+		}
+	}
+
+	/**
+	 * If enabled by {@link NameToStructureConfig#setSpeculativeParseCount(int)}, starts building the structures of
+	 * the most preferred parses, other than the first, concurrently.
+	 * The returned list is indexed by parse, the first parse (which the calling thread builds) having a null entry
+	 * @param parses
+	 * @param n2sConfig
+	 * @param outcomeDecided Set by the caller once it no longer needs the speculative builds
+	 * @return
+	 */
+	private List<FutureTask<StructureBuildingOutcome>> startSpeculativeBuilds(List<Element> parses, final NameToStructureConfig n2sConfig, final AtomicBoolean outcomeDecided) {
+		int speculativeParses = Math.min(n2sConfig.getSpeculativeParseCount(), parses.size());
+		if (speculativeParses < 2) {
+			return Collections.emptyList();
+		}
+		List<FutureTask<StructureBuildingOutcome>> speculativeBuilds = new ArrayList<>(speculativeParses);
+		speculativeBuilds.add(null);
+		for (int i = 1; i < speculativeParses; i++) {
+			final Element parse = parses.get(i);
+			FutureTask<StructureBuildingOutcome> speculativeBuild = new FutureTask<>(new Callable<StructureBuildingOutcome>() {
+				public StructureBuildingOutcome call() {
+					return buildStructure(parse, n2sConfig, outcomeDecided);
 				}
-				if (LOG.isDebugEnabled()) {
-					LOG.debug(e.getMessage(), e);
+			});
+			speculativeBuilds.add(speculativeBuild);
+			DefaultAsyncExecutor.EXECUTOR.execute(speculativeBuild);
+		}
+		return speculativeBuilds;
+	}
+
+	/**
+	 * Waits for a speculative build to complete. If the build has not started, it is run on the calling thread,
+	 * hence a caller that is itself a pool thread never waits on work queued behind it
+	 * @param speculativeBuild
+	 * @return
+	 */
+	private static StructureBuildingOutcome awaitOutcome(FutureTask<StructureBuildingOutcome> speculativeBuild) {
+		speculativeBuild.run();//no-op if already started
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return speculativeBuild.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new RuntimeException(cause);
 				}
 			}
 		}
-		if (fragGeneratedWithWarning != null) {
-			return new OpsinResult(fragGeneratedWithWarning, OPSIN_RESULT_STATUS.WARNING, warnings, name);
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
-		return new OpsinResult(null, OPSIN_RESULT_STATUS.FAILURE, reasonForFailure, name);
 	}
-	
+
+	/**
+	 * The structure built from a parse, or the reason that the structure could not be built
+	 */
+	private static class StructureBuildingOutcome {
+		/**The outcome of a build that was stopped as its result was no longer required*/
+		static final StructureBuildingOutcome ABANDONED = new StructureBuildingOutcome(null, null, "structure building was abandoned");
+
+		final Fragment frag;
+		final List<OpsinWarning> warnings;
+		final String reasonForFailure;
+
+		StructureBuildingOutcome(Fragment frag, List<OpsinWarning> warnings, String reasonForFailure) {
+			this.frag = frag;
+			this.warnings = warnings;
+			this.reasonForFailure = reasonForFailure;
+		}
+	}
+
+	private OpsinResult failureFromException(Exception e, String name) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug(e.getMessage(), e);
+		}
+		String message = e.getMessage() != null ? e.getMessage() : "exception with null message";
+		return new OpsinResult(null, OPSIN_RESULT_STATUS.FAILURE, message, name);
+	}
+
+	/**
+	 * Enables caching of results, such that names that are repeatedly encountered are only interpreted once.
+	 * Results are cached on the basis of the name after normalisation (e.g. of whitespace and greek letters)
+	 * and the options that were used to interpret it. When more than approximately maximumSize results are cached
+	 * the least recently used results are discarded.<br>
+	 * Cached results are shared between callers, hence a result may be returned to, and its output generated on, multiple threads concurrently.<br>
+	 * Any previously cached results are discarded. A maximumSize of 0 disables caching (the default)
+	 * @param maximumSize The maximum number of results to cache, or 0 to disable the cache
+	 */
+	public void setResultCacheSize(int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("Cache size must not be negative but was: " + maximumSize);
+		}
+		resultCache = maximumSize > 0 ? new BoundedCache<ResultCacheKey, OpsinResult>(maximumSize) : null;
+	}
+
+	/**
+	 * Returns a snapshot of the hits, misses and evictions of the result cache
+	 * @return Statistics of the result cache or null if result caching is not enabled
+	 */
+	public CacheStatistics getResultCacheStatistics() {
+		BoundedCache<ResultCacheKey, OpsinResult> cache = resultCache;
+		return cache != null ? cache.getStatistics() : null;
+	}
+
+	/**
+	 * Discards all cached results. Has no effect if result caching is not enabled
+	 */
+	public void clearResultCache() {
+		BoundedCache<ResultCacheKey, OpsinResult> cache = resultCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	private static final class ResultCacheKey {
+		private final String preProcessedName;
+		private final int optionFlags;
+
+		ResultCacheKey(String preProcessedName, int optionFlags) {
+			this.preProcessedName = preProcessedName;
+			this.optionFlags = optionFlags;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * preProcessedName.hashCode() + optionFlags;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ResultCacheKey)) {
+				return false;
+			}
+			ResultCacheKey other = (ResultCacheKey) obj;
+			return optionFlags == other.optionFlags && preProcessedName.equals(other.preProcessedName);
+		}
+	}
+
+	/**Asynchronously parses a chemical name, returning a future that completes with the OpsinResult for the name.
+	 * On Java 21+ the name is interpreted on a virtual thread, otherwise the common fork-join pool is used.
+	 * The future only completes exceptionally in the same circumstances that {@link #parseChemicalName(String, NameToStructureConfig)} would throw
+	 *
+	 * @param name The chemical name to parse.
+	 * @param n2sConfig Options to control how OPSIN interprets the name.
+	 * @return CompletableFuture of the OpsinResult
+	 */
+	public CompletableFuture<OpsinResult> parseChemicalNameAsync(String name, NameToStructureConfig n2sConfig) {
+		return parseChemicalNameAsync(name, n2sConfig, DefaultAsyncExecutor.EXECUTOR);
+	}
+
+	/**Asynchronously parses a chemical name on the given executor, returning a future that completes with the OpsinResult for the name.
+	 * The future only completes exceptionally in the same circumstances that {@link #parseChemicalName(String, NameToStructureConfig)} would throw
+	 *
+	 * @param name The chemical name to parse.
+	 * @param n2sConfig Options to control how OPSIN interprets the name.
+	 * @param executor The executor on which the name is interpreted
+	 * @return CompletableFuture of the OpsinResult
+	 */
+	public CompletableFuture<OpsinResult> parseChemicalNameAsync(final String name, NameToStructureConfig n2sConfig, Executor executor) {
+		final NameToStructureConfig config = n2sConfig.clone();//changes to n2sConfig after this call should not affect the result
+		return CompletableFuture.supplyAsync(new Supplier<OpsinResult>() {
+			public OpsinResult get() {
+				return parseChemicalName(name, config);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Lazily chooses the executor used for asynchronous parsing.
+	 * Virtual threads are used when available (Java 21+); they are looked up reflectively as OPSIN targets Java 8
+	 */
+	private static class DefaultAsyncExecutor {
+		static final Executor EXECUTOR = createExecutor();
+
+		private static Executor createExecutor() {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			}
+			catch (Exception e) {
+				LOG.debug("Virtual threads unavailable, using common fork-join pool for asynchronous parsing");
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+
+	/**Parses a list of chemical names in parallel using the common fork-join pool.
+	 * The returned list contains one OpsinResult per input name, in the same order as the input.
+	 * A failure to interpret one name does not affect the interpretation of the other names.
+	 *
+	 * @param names The chemical names to parse.
+	 * @param n2sConfig Options to control how OPSIN interprets the names.
+	 * @return List of OpsinResult in input order
+	 */
+	public List<OpsinResult> parseChemicalNames(List<String> names, NameToStructureConfig n2sConfig) {
+		return parseChemicalNames(names, n2sConfig, ForkJoinPool.commonPool());
+	}
+
+	/**Parses a list of chemical names in parallel using the given fork-join pool.
+	 * The returned list contains one OpsinResult per input name, in the same order as the input.
+	 * A failure to interpret one name does not affect the interpretation of the other names.
+	 *
+	 * @param names The chemical names to parse.
+	 * @param n2sConfig Options to control how OPSIN interprets the names.
+	 * @param pool The pool on which names are interpreted
+	 * @return List of OpsinResult in input order
+	 */
+	public List<OpsinResult> parseChemicalNames(List<String> names, NameToStructureConfig n2sConfig, ForkJoinPool pool) {
+		if (names == null){
+			throw new IllegalArgumentException("List given for names was null");
+		}
+		String[] nameArray = names.toArray(new String[names.size()]);
+		OpsinResult[] results = new OpsinResult[nameArray.length];
+		if (nameArray.length > 0) {
+			pool.invoke(new BatchParseTask(this, n2sConfig.clone(), nameArray, results, 0, nameArray.length));
+		}
+		return Arrays.asList(results);
+	}
+
+	/**Lazily parses a stream of chemical names, returning a stream of the corresponding OpsinResults.
+	 * The returned stream is parallel and, if the input stream was ordered, preserves the encounter order of the input.
+	 * Names are only interpreted when the returned stream is consumed.
+	 *
+	 * @param names The chemical names to parse.
+	 * @param n2sConfig Options to control how OPSIN interprets the names.
+	 * @return Stream of OpsinResult
+	 */
+	public Stream<OpsinResult> parseChemicalNames(Stream<String> names, final NameToStructureConfig n2sConfig) {
+		if (names == null){
+			throw new IllegalArgumentException("Stream given for names was null");
+		}
+		final NameToStructureConfig config = n2sConfig.clone();
+		return names.parallel().map(new Function<String, OpsinResult>() {
+			public OpsinResult apply(String name) {
+				return parseChemicalName(name, config);
+			}
+		});
+	}
+
+	/**
+	 * Recursively splits a range of names until it is small enough to interpret directly.
+	 * Each result is written to the index of its name, hence input order is retained without further synchronisation
+	 */
+	private static class BatchParseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int SEQUENTIAL_THRESHOLD = 4;
+
+		private final NameToStructure nts;
+		private final NameToStructureConfig n2sConfig;
+		private final String[] names;
+		private final OpsinResult[] results;
+		private final int start;
+		private final int end;
+
+		BatchParseTask(NameToStructure nts, NameToStructureConfig n2sConfig, String[] names, OpsinResult[] results, int start, int end) {
+			this.nts = nts;
+			this.n2sConfig = n2sConfig;
+			this.names = names;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				for (int i = start; i < end; i++) {
+					results[i] = nts.parseChemicalName(names[i], n2sConfig);
+				}
+			}
+			else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new BatchParseTask(nts, n2sConfig, names, results, start, mid),
+						new BatchParseTask(nts, n2sConfig, names, results, mid, end));
+			}
+		}
+	}
+
 	/**
 	 * Returns an OPSIN parser
 	 * This can be used to determine whether a word can be interpreted as being part of a chemical name.
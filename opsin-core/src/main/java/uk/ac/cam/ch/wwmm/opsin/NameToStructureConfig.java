@@ -18,6 +18,7 @@ public class NameToStructureConfig implements Cloneable {
 	private boolean detailedFailureAnalysis = false;
 	private boolean interpretAcidsWithoutTheWordAcid = false;
 	private boolean warnRatherThanFailOnUninterpretableStereochemistry = false;
+	private int speculativeParseCount = 1;
 
 	/**
 	 * Constructs a NameToStructureConfig with default settings:
@@ -26,6 +27,7 @@ public class NameToStructureConfig implements Cloneable {
 	 * detailedFailureAnalysis = false
 	 * interpretAcidsWithoutTheWordAcid = false
 	 * warnRatherThanFailOnUninterpretableStereochemistry = false
+	 * speculativeParseCount = 1
 	 */
 	public NameToStructureConfig() {
 	}
@@ -115,6 +117,54 @@ public class NameToStructureConfig implements Cloneable {
 	}
 
 
+	/**
+	 * How many of the most preferred parses of a name have their structures built concurrently
+	 * @return the number of parses built concurrently, 1 if parses are built one at a time
+	 */
+	public int getSpeculativeParseCount() {
+		return speculativeParseCount;
+	}
+
+	/**
+	 * Sets how many of the most preferred parses of a name have their structures built concurrently (Default 1, i.e. one at a time).
+	 * Most names have a single parse, but when the preferred parse of an ambiguous name fails late in structure building,
+	 * building the alternatives concurrently reduces the time taken to interpret the name, at the cost of potentially wasted work.
+	 * The result is the same as if the parses were built one at a time
+	 * @param speculativeParseCount
+	 */
+	public void setSpeculativeParseCount(int speculativeParseCount) {
+		if (speculativeParseCount < 1) {
+			throw new IllegalArgumentException("Speculative parse count must be at least 1 but was: " + speculativeParseCount);
+		}
+		this.speculativeParseCount = speculativeParseCount;
+	}
+
+	/**
+	 * Encodes all options that can change the result of interpreting a name as a bitmask.
+	 * Used to key cached results, hence any new option must also be included here.
+	 * The speculative parse count does not change the result so is not included
+	 * @return
+	 */
+	int getOptionFlags() {
+		int flags = 0;
+		if (allowRadicals) {
+			flags |= 1;
+		}
+		if (outputRadicalsAsWildCardAtoms) {
+			flags |= 1 << 1;
+		}
+		if (detailedFailureAnalysis) {
+			flags |= 1 << 2;
+		}
+		if (interpretAcidsWithoutTheWordAcid) {
+			flags |= 1 << 3;
+		}
+		if (warnRatherThanFailOnUninterpretableStereochemistry) {
+			flags |= 1 << 4;
+		}
+		return flags;
+	}
+
 	/**
 	 * Constructs a NameToStructureConfig with default settings:
 	 * allowRadicals = false
@@ -122,6 +172,7 @@ public class NameToStructureConfig implements Cloneable {
 	 * detailedFailureAnalysis = false
 	 * interpretAcidsWithoutTheWordAcid = false
 	 * warnRatherThanFailOnUninterpretableStereochemistry = false
+	 * speculativeParseCount = 1
 	 */
 	public static NameToStructureConfig getDefaultConfigInstance() {
 		return new NameToStructureConfig();
@@ -0,0 +1,294 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import dk.brics.automaton.RunAutomaton;
+
+/**
+ * A deterministic finite automaton whose transitions are held in primitive arrays.
+ * Only the live transitions of each state are stored (in compressed sparse row form), which makes this far
+ * more compact than a tabulated RunAutomaton, and allows the automaton to be written to and read from
+ * a flat binary layout without any deserialisation overhead.
+ * The rows of states with many live transitions, which include most of the states visited when tokenising,
+ * are additionally held as a dense table indexed by character class, such that stepping from these states is a single array lookup.<br>
+ * Automata are built using dk.brics, see {@link #fromRunAutomaton(RunAutomaton)}
+ */
+class OpsinAutomaton {
+
+	/**The start of each interval of characters that are treated equivalently by the automaton, in ascending order*/
+	private final char[] points;
+	/**The index in points of each ASCII character*/
+	private final int[] asciiCharClass = new int[128];
+	private final boolean[] accept;
+	private final int initialState;
+
+	/* transitionRowStart[s]..transitionRowStart[s+1] indexes transitionSymbolIndex/transitionNextState
+	 * for the live transitions of state s, in ascending order of transitionSymbolIndex */
+	private final int[] transitionRowStart;
+	private final int[] transitionSymbolIndex;
+	private final int[] transitionNextState;
+
+	/**States with more live transitions than this have a dense row*/
+	private static final int MAX_SPARSE_ROW_WIDTH = 8;
+	/**For each state, the offset of its row in denseNextState, or -1 if it only has a sparse row*/
+	private final int[] denseRowOffset;
+	/**Dense rows of length points.length, giving the state reached on each character class or -1*/
+	private final int[] denseNextState;
+
+	private OpsinAutomaton(char[] points, boolean[] accept, int initialState, int[] transitionRowStart, int[] transitionSymbolIndex, int[] transitionNextState) {
+		this.points = points;
+		this.accept = accept;
+		this.initialState = initialState;
+		this.transitionRowStart = transitionRowStart;
+		this.transitionSymbolIndex = transitionSymbolIndex;
+		this.transitionNextState = transitionNextState;
+		for (char c = 0; c < 128; c++) {
+			asciiCharClass[c] = findCharClass(c);
+		}
+		int stateCount = accept.length;
+		this.denseRowOffset = new int[stateCount];
+		int denseRows = 0;
+		for (int s = 0; s < stateCount; s++) {
+			if (transitionRowStart[s + 1] - transitionRowStart[s] > MAX_SPARSE_ROW_WIDTH) {
+				denseRowOffset[s] = denseRows++ * points.length;
+			}
+			else {
+				denseRowOffset[s] = -1;
+			}
+		}
+		this.denseNextState = new int[denseRows * points.length];
+		Arrays.fill(denseNextState, -1);
+		for (int s = 0; s < stateCount; s++) {
+			int offset = denseRowOffset[s];
+			if (offset >= 0) {
+				for (int i = transitionRowStart[s], end = transitionRowStart[s + 1]; i < end; i++) {
+					denseNextState[offset + transitionSymbolIndex[i]] = transitionNextState[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates an OpsinAutomaton with the same states, transitions and character intervals as the given RunAutomaton
+	 * @param runAutomaton
+	 * @return
+	 */
+	static OpsinAutomaton fromRunAutomaton(RunAutomaton runAutomaton) {
+		char[] points = runAutomaton.getCharIntervals();
+		int stateCount = runAutomaton.getSize();
+		boolean[] accept = new boolean[stateCount];
+		int[] rowStart = new int[stateCount + 1];
+		int live = 0;
+		for (int s = 0; s < stateCount; s++) {
+			accept[s] = runAutomaton.isAccept(s);
+			rowStart[s] = live;
+			for (char point : points) {
+				if (runAutomaton.step(s, point) != -1) {
+					live++;
+				}
+			}
+		}
+		rowStart[stateCount] = live;
+		int[] symbolIndex = new int[live];
+		int[] nextState = new int[live];
+		int p = 0;
+		for (int s = 0; s < stateCount; s++) {
+			for (int i = 0; i < points.length; i++) {
+				int ns = runAutomaton.step(s, points[i]);
+				if (ns != -1) {
+					symbolIndex[p] = i;
+					nextState[p] = ns;
+					p++;
+				}
+			}
+		}
+		return new OpsinAutomaton(points, accept, runAutomaton.getInitialState(), rowStart, symbolIndex, nextState);
+	}
+
+	/**
+	 * Writes the automaton in the layout expected by {@link #read(ByteBuffer)}
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutput out) throws IOException {
+		int stateCount = accept.length;
+		out.writeInt(stateCount);
+		out.writeInt(initialState);
+		out.writeInt(points.length);
+		out.writeInt(transitionNextState.length);
+		for (char point : points) {
+			out.writeChar(point);
+		}
+		for (boolean b : accept) {
+			out.writeBoolean(b);
+		}
+		for (int rowStart : transitionRowStart) {
+			out.writeInt(rowStart);
+		}
+		for (int symbolIndex : transitionSymbolIndex) {
+			out.writeInt(symbolIndex);
+		}
+		for (int nextState : transitionNextState) {
+			out.writeInt(nextState);
+		}
+	}
+
+	/**
+	 * Reads an automaton that was written by {@link #write(DataOutput)} starting at the buffer's current position.
+	 * The arrays are bulk copied from the buffer, which will typically be memory mapped.
+	 * On return the buffer's position is after the automaton
+	 * @param buffer
+	 * @return
+	 */
+	static OpsinAutomaton read(ByteBuffer buffer) {
+		int stateCount = buffer.getInt();
+		int initialState = buffer.getInt();
+		int pointCount = buffer.getInt();
+		int transitionCount = buffer.getInt();
+		char[] points = new char[pointCount];
+		buffer.asCharBuffer().get(points);
+		buffer.position(buffer.position() + pointCount * 2);
+		boolean[] accept = new boolean[stateCount];
+		for (int i = 0; i < stateCount; i++) {
+			accept[i] = buffer.get() != 0;
+		}
+		int[] rowStart = readInts(buffer, stateCount + 1);
+		int[] symbolIndex = readInts(buffer, transitionCount);
+		int[] nextState = readInts(buffer, transitionCount);
+		return new OpsinAutomaton(points, accept, initialState, rowStart, symbolIndex, nextState);
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] ints = new int[count];
+		buffer.asIntBuffer().get(ints);
+		buffer.position(buffer.position() + count * 4);
+		return ints;
+	}
+
+	/**
+	 * The number of states in the automaton
+	 * @return
+	 */
+	int getSize() {
+		return accept.length;
+	}
+
+	int getInitialState() {
+		return initialState;
+	}
+
+	boolean isAccept(int state) {
+		return accept[state];
+	}
+
+	/**
+	 * Returns the start of each interval of characters that are treated equivalently by the automaton, in ascending order.
+	 * For OPSIN's grammar automata these correspond to the annotation symbols.
+	 * The returned array must not be modified
+	 * @return
+	 */
+	char[] getCharIntervals() {
+		return points;
+	}
+
+	/**
+	 * Returns the state reached by consuming the given character in the given state, or -1 if there is no such transition
+	 * @param state
+	 * @param c
+	 * @return
+	 */
+	int step(int state, char c) {
+		int charClass = c < 128 ? asciiCharClass[c] : findCharClass(c);
+		int denseOffset = denseRowOffset[state];
+		if (denseOffset >= 0) {
+			return denseNextState[denseOffset + charClass];
+		}
+		int low = transitionRowStart[state];
+		int high = transitionRowStart[state + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int symbolIndex = transitionSymbolIndex[mid];
+			if (symbolIndex < charClass) {
+				low = mid + 1;
+			}
+			else if (symbolIndex > charClass) {
+				high = mid - 1;
+			}
+			else {
+				return transitionNextState[mid];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the length of the longest accepted run of the given string starting at the given offset
+	 * @param s
+	 * @param offset
+	 * @return the length of the longest accepted run, -1 if no run is accepted
+	 */
+	int run(String s, int offset) {
+		int length = s.length();
+		int state = initialState;
+		int max = -1;
+		for (int r = 0; offset <= length; offset++, r++) {
+			if (accept[state]) {
+				max = r;
+			}
+			if (offset == length) {
+				break;
+			}
+			state = step(state, s.charAt(offset));
+			if (state == -1) {
+				break;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * For each state, the start index of that state's live transitions in {@link #getTransitionSymbolIndex()}/{@link #getTransitionNextState()}.
+	 * Has length {@link #getSize()} + 1. The returned array must not be modified
+	 * @return
+	 */
+	int[] getTransitionRowStart() {
+		return transitionRowStart;
+	}
+
+	/**
+	 * The index in {@link #getCharIntervals()} consumed by each live transition. The returned array must not be modified
+	 * @return
+	 */
+	int[] getTransitionSymbolIndex() {
+		return transitionSymbolIndex;
+	}
+
+	/**
+	 * The state reached by each live transition. The returned array must not be modified
+	 * @return
+	 */
+	int[] getTransitionNextState() {
+		return transitionNextState;
+	}
+
+	private int findCharClass(char c) {
+		int a = 0;
+		int b = points.length;
+		while (b - a > 1) {
+			int d = (a + b) >>> 1;
+			if (points[d] > c) {
+				b = d;
+			}
+			else if (points[d] < c) {
+				a = d;
+			}
+			else {
+				return d;
+			}
+		}
+		return a;
+	}
+}
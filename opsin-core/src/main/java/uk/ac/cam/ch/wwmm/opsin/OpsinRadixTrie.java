@@ -1,28 +1,91 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A black/white radix tree implementation.
- * A radix tree is a type of trie where common prefixes are merged together to save space 
- * This implementation employs short arrays rather than maps to exploit the fact that all OPSIN tokens are ASCII.
+ * A trie of ASCII tokens.
+ * Tokens are added to a black/white radix tree (a type of trie where common prefixes are merged together to save space).
+ * For matching, this is compiled into a double-array trie: each character-level node is an index into flat base/check arrays,
+ * the child of node s for character c is at base[s] + c if check[base[s] + c] == s.
+ * This avoids pointer chasing when matching and is far smaller than a graph of nodes.<br>
+ * Once {@link #compact()} has been called the radix tree is discarded and no further tokens may be added.
  * @author dl387
  *
  */
 class OpsinRadixTrie {
-	final OpsinTrieNode rootNode;
+
+	private static final int ALPHABET_SIZE = DoubleArrayBuilder.ALPHABET_SIZE;
+
+	/**The radix tree to which tokens are added. Null once compacted*/
+	private OpsinTrieNode rootNode;
+
+	/**The trie compiled from rootNode, built when first required*/
+	private volatile DoubleArray compiled;
 
 	OpsinRadixTrie() {
 		rootNode = new OpsinTrieNode("", false);
 	}
 
+	private OpsinRadixTrie(DoubleArray compiled) {
+		this.compiled = compiled;
+	}
+
+	/**
+	 * Writes the compiled form of the trie, such that {@link #read(DataInput)}
+	 * can recreate the trie without re-adding every token
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutput out) throws IOException {
+		DoubleArray da = getCompiled();
+		int size = da.base.length;
+		out.writeInt(size);
+		ByteBuffer buffer = ByteBuffer.allocate(size * 9);
+		buffer.asIntBuffer().put(da.base).put(da.check);
+		buffer.position(size * 8);
+		for (boolean endPoint : da.endPoint) {
+			buffer.put((byte) (endPoint ? 1 : 0));
+		}
+		out.write(buffer.array());
+	}
+
+	/**
+	 * Recreates a trie that was written using {@link #write(DataOutput)}.
+	 * The returned trie is compacted
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static OpsinRadixTrie read(DataInput in) throws IOException {
+		int size = in.readInt();
+		byte[] bytes = new byte[size * 9];
+		in.readFully(bytes);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int[] base = new int[size];
+		int[] check = new int[size];
+		buffer.asIntBuffer().get(base).get(check);
+		boolean[] endPoint = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			endPoint[i] = bytes[size * 8 + i] != 0;
+		}
+		return new OpsinRadixTrie(new DoubleArray(base, check, endPoint));
+	}
+
 	/**
 	 * Adds a string to the Trie.
 	 * This string should not contain any non ASCII characters
 	 * @param token
 	 */
 	void addToken(String token) {
+		if (rootNode == null) {
+			throw new IllegalStateException("Tokens cannot be added to a compacted trie");
+		}
 		int tokenLength =token.length();
 		String remaingStr =token;
 		OpsinTrieNode currentNode = rootNode;
@@ -33,6 +96,24 @@ class OpsinRadixTrie {
 			currentNode = currentNode.add(remaingStr, charsMatched);
 		}
 		currentNode.setIsEndPoint(true);
+		compiled = null;
+	}
+
+	/**
+	 * Compiles the trie (if not already done) and discards the radix tree from which it was compiled
+	 */
+	void compact() {
+		getCompiled();
+		rootNode = null;
+	}
+
+	private DoubleArray getCompiled() {
+		DoubleArray da = compiled;
+		if (da == null) {
+			da = DoubleArray.compile(rootNode);
+			compiled = da;
+		}
+		return da;
 	}
 
 	/**
@@ -45,34 +126,43 @@ class OpsinRadixTrie {
 	 * @return
 	 */
 	List<Integer> findMatches(String chemicalName, int posInName) {
-		int untokenisedChemicalNameLength = chemicalName.length();
-		List<Integer> indexes = null;
-		if (rootNode.isEndPoint()) {
-			indexes = new ArrayList<>();
-			indexes.add(posInName);
-		}
-		OpsinTrieNode node = rootNode;
-		for (int i = posInName; i < untokenisedChemicalNameLength; i++) {
-			node = node.getChild(chemicalName.charAt(i));
-			if (node == null) {
+		int[] matchEnds = new int[chemicalName.length() - posInName + 1];
+		return toList(matchEnds, findMatches(chemicalName, posInName, matchEnds));
+	}
+
+	/**
+	 * As {@link #findMatches(String, int)} but writes the index of the end of each match into matchEnds
+	 * rather than allocating a list. matchEnds must have a length of at least chemicalName.length() - posInName + 1
+	 * @param chemicalName
+	 * @param posInName The point at which to start matching
+	 * @param matchEnds Array to which match end indices are written, in ascending order
+	 * @return the number of matches written to matchEnds
+	 */
+	int findMatches(String chemicalName, int posInName, int[] matchEnds) {
+		DoubleArray da = getCompiled();
+		int[] base = da.base;
+		int[] check = da.check;
+		boolean[] endPoint = da.endPoint;
+		int matchCount = 0;
+		int node = 0;
+		if (endPoint[node]) {
+			matchEnds[matchCount++] = posInName;
+		}
+		for (int i = posInName, len = chemicalName.length(); i < len; i++) {
+			char c = chemicalName.charAt(i);
+			if (c >= ALPHABET_SIZE) {
 				break;
 			}
-			int nodeLength = node.getValue().length();
-			if (nodeLength > 1) {
-				int charsMatched = node.getNumberOfMatchingCharacters(chemicalName, i);
-				if (charsMatched != nodeLength) {
-					break;
-				}
-				i += (charsMatched - 1);
+			int child = base[node] + c;
+			if (child >= check.length || check[child] != node) {
+				break;
 			}
-			if (node.isEndPoint()) {
-				if (indexes == null) {
-					indexes = new ArrayList<>();
-				}
-				indexes.add(i + 1);
+			node = child;
+			if (endPoint[node]) {
+				matchEnds[matchCount++] = i + 1;
 			}
 		}
-		return indexes;
+		return matchCount;
 	}
 
 	/**
@@ -81,34 +171,166 @@ class OpsinRadixTrie {
 	 * @param posInName The index after the first character to start matching
 	 * @return
 	 */
-	List<Integer> findMatchesReadingStringRightToLeft(String chemicalName, int posInName ) {
-		List<Integer> indexes = null;
-		if (rootNode.isEndPoint()) {
-			indexes = new ArrayList<>();
-			indexes.add(posInName);
-		}
-		OpsinTrieNode node = rootNode;
-		for (int i = posInName - 1; i >=0; i--) {
-			node = node.getChild(chemicalName.charAt(i));
-			if (node == null) {
+	List<Integer> findMatchesReadingStringRightToLeft(String chemicalName, int posInName) {
+		int[] matchEnds = new int[posInName + 1];
+		return toList(matchEnds, findMatchesReadingStringRightToLeft(chemicalName, posInName, matchEnds));
+	}
+
+	/**
+	 * As {@link #findMatchesReadingStringRightToLeft(String, int)} but writes the index of the start of each match into matchStarts
+	 * rather than allocating a list. matchStarts must have a length of at least posInName + 1
+	 * @param chemicalName
+	 * @param posInName The index after the first character to start matching
+	 * @param matchStarts Array to which match start indices are written, in descending order
+	 * @return the number of matches written to matchStarts
+	 */
+	int findMatchesReadingStringRightToLeft(String chemicalName, int posInName, int[] matchStarts) {
+		DoubleArray da = getCompiled();
+		int[] base = da.base;
+		int[] check = da.check;
+		boolean[] endPoint = da.endPoint;
+		int matchCount = 0;
+		int node = 0;
+		if (endPoint[node]) {
+			matchStarts[matchCount++] = posInName;
+		}
+		for (int i = posInName - 1; i >= 0; i--) {
+			char c = chemicalName.charAt(i);
+			if (c >= ALPHABET_SIZE) {
 				break;
 			}
-			int nodeLength = node.getValue().length();
-			if (nodeLength > 1) {
-				int charsMatched = node.getNumberOfMatchingCharactersInReverse(chemicalName, i);
-				if (charsMatched != nodeLength) {
-					break;
-				}
-				i -= (charsMatched - 1);
+			int child = base[node] + c;
+			if (child >= check.length || check[child] != node) {
+				break;
 			}
-			if (node.isEndPoint()) {
-				if (indexes == null) {
-					indexes = new ArrayList<>();
+			node = child;
+			if (endPoint[node]) {
+				matchStarts[matchCount++] = i;
+			}
+		}
+		return matchCount;
+	}
+
+	/**
+	 * Writes the characters and indices of the children of the given node (node 0 is the root) into the given arrays,
+	 * in ascending order of character. The arrays must have a length of at least 128
+	 * @param node
+	 * @param childChars
+	 * @param childNodes
+	 * @return the number of children
+	 */
+	int getChildren(int node, char[] childChars, int[] childNodes) {
+		DoubleArray da = getCompiled();
+		int[] check = da.check;
+		int b = da.base[node];
+		int childCount = 0;
+		for (int c = 0, max = Math.min(ALPHABET_SIZE, check.length - b); c < max; c++) {
+			if (check[b + c] == node) {
+				childChars[childCount] = (char) c;
+				childNodes[childCount++] = b + c;
+			}
+		}
+		return childCount;
+	}
+
+	/**
+	 * Whether a token ends at the given node
+	 * @param node
+	 * @return
+	 */
+	boolean isEndPoint(int node) {
+		return getCompiled().endPoint[node];
+	}
+
+	private static List<Integer> toList(int[] indexes, int count) {
+		if (count == 0) {
+			return null;
+		}
+		List<Integer> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(indexes[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * The compiled, immutable, form of the trie. Node 0 is the root
+	 */
+	private static class DoubleArray {
+		final int[] base;
+		final int[] check;
+		final boolean[] endPoint;
+
+		DoubleArray(int[] base, int[] check, boolean[] endPoint) {
+			this.base = base;
+			this.check = check;
+			this.endPoint = endPoint;
+		}
+
+		/**
+		 * Lays out the character-level nodes of the given radix tree breadth first
+		 * @param rootNode
+		 * @return
+		 */
+		static DoubleArray compile(OpsinTrieNode rootNode) {
+			DoubleArrayBuilder builder = new DoubleArrayBuilder();
+			List<PendingNode> placed = new ArrayList<>();
+			char[] childChars = new char[ALPHABET_SIZE];
+			OpsinTrieNode[] childNodes = new OpsinTrieNode[ALPHABET_SIZE];
+			int[] childOffsets = new int[ALPHABET_SIZE];
+
+			ArrayDeque<PendingNode> queue = new ArrayDeque<>();
+			queue.add(new PendingNode(rootNode, 0, 0));
+			while (!queue.isEmpty()) {
+				PendingNode pending = queue.removeFirst();
+				placed.add(pending);
+				OpsinTrieNode radixNode = pending.radixNode;
+				String key = radixNode.getValue();
+				int childCount = 0;
+				if (pending.offset < key.length()) {
+					//part way through a radix node's key, hence only one child
+					childChars[0] = key.charAt(pending.offset);
+					childNodes[0] = radixNode;
+					childOffsets[0] = pending.offset + 1;
+					childCount = 1;
 				}
-				indexes.add(i);
+				else {
+					for (char c = 0; c < ALPHABET_SIZE; c++) {
+						OpsinTrieNode child = radixNode.getChild(c);
+						if (child != null) {
+							childChars[childCount] = c;
+							childNodes[childCount] = child;
+							childOffsets[childCount] = 1;
+							childCount++;
+						}
+					}
+				}
+				int b = builder.placeChildren(pending.index, childChars, childCount);
+				for (int i = 0; i < childCount; i++) {
+					queue.add(new PendingNode(childNodes[i], childOffsets[i], b + childChars[i]));
+				}
+			}
+			boolean[] endPoint = new boolean[builder.size()];
+			for (PendingNode node : placed) {
+				endPoint[node.index] = node.offset == node.radixNode.getValue().length() && node.radixNode.isEndPoint();
 			}
+			return new DoubleArray(builder.getBase(), builder.getCheck(), endPoint);
+		}
+	}
+
+	/**
+	 * A character-level node awaiting placement: the given number of characters into the given radix node's key
+	 */
+	private static class PendingNode {
+		final OpsinTrieNode radixNode;
+		final int offset;
+		final int index;
+
+		PendingNode(OpsinTrieNode radixNode, int offset, int index) {
+			this.radixNode = radixNode;
+			this.offset = offset;
+			this.index = index;
 		}
-		return indexes;
 	}
 }
 
@@ -126,7 +348,7 @@ class OpsinTrieNode {
 	String getValue() {
 		return key;
 	}
-	
+
 	boolean isEndPoint() {
 		return isEndPoint;
 	}
@@ -134,11 +356,11 @@ class OpsinTrieNode {
 	void setIsEndPoint(boolean isEndPoint) {
 		this.isEndPoint = isEndPoint;
 	}
-	
+
 	private void setChildren(OpsinTrieNode[] children) {
 		this.children = children;
 	}
-	
+
 	OpsinTrieNode add(String remaingStr, int charsMatched) {
 		if (charsMatched < key.length()){//need to split this Trie node
 			OpsinTrieNode newNode = new OpsinTrieNode(key.substring(charsMatched), isEndPoint);
@@ -167,16 +389,6 @@ class OpsinTrieNode {
 		}
 		return maxLength;
 	}
-	
-	int getNumberOfMatchingCharactersInReverse(String chemicalName, int posInName) {
-		int maxLength = Math.min(key.length(), posInName + 1);
-		for (int i = 0; i < maxLength; i++) {
-			if (key.charAt(i) != chemicalName.charAt(posInName - i)){
-				return i;
-			}
-		}
-		return maxLength;
-	}
 
 	OpsinTrieNode getChild(char c) {
 		return children[(int) c];
@@ -1,5 +1,6 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -11,6 +12,7 @@ import uk.ac.cam.ch.wwmm.opsin.OpsinWarning.OpsinWarningType;
 /**
  * Holds the structure OPSIN has generated from a name
  * Additionally holds a status code for whether name interpretation was successful
+ * Generating output does not modify the structure, hence a result may be shared between threads
  * @author dl387
  *
  */
@@ -64,11 +66,28 @@ public class OpsinResult {
 	}
 
 	OpsinResult(Fragment frag, OPSIN_RESULT_STATUS status, String message, String chemicalName) {
+		this(frag, status, message, chemicalName, Collections.<OpsinWarning>emptyList());
+	}
+
+	private OpsinResult(Fragment frag, OPSIN_RESULT_STATUS status, String message, String chemicalName, List<OpsinWarning> warnings) {
 		this.structure = frag;
 		this.status = status;
 		this.message = message;
 		this.chemicalName = chemicalName;
-		this.warnings = Collections.emptyList();
+		this.warnings = warnings;
+	}
+
+	/**
+	 * Returns a result with the same structure, status and warnings as this result but for the given chemical name.
+	 * Used when a cached result is returned for a name that only differs in its unprocessed form
+	 * @param chemicalName
+	 * @return
+	 */
+	OpsinResult withChemicalName(String chemicalName) {
+		if (chemicalName.equals(this.chemicalName)) {
+			return this;
+		}
+		return new OpsinResult(structure, status, message, chemicalName, warnings);
 	}
 
 	Fragment getStructure() {
@@ -175,6 +194,32 @@ public class OpsinResult {
 		return null;
 	}
 
+
+	/**
+	 * Writes the SMILES corresponding to the molecule described by the name to the given Appendable
+	 * e.g. a Writer or StringBuilder, without creating an intermediate String<br>
+	 * If name generation failed i.e. the OPSIN_RESULT_STATUS is FAILURE, or SMILES generation failed, nothing is written and false is returned
+	 * @param out the Appendable to write to
+	 * @param options binary flags of {@link SmilesOptions} (default: {@link SmilesOptions#DEFAULT}))
+	 * @return whether SMILES was written
+	 * @throws IOException if thrown by the Appendable
+	 * @see #getSmiles(int)
+	 */
+	public boolean writeSmiles(Appendable out, int options) throws IOException {
+		if (structure != null){
+			try{
+				SMILESWriter.generateSmiles(structure, options, out);
+				return true;
+			}
+			catch (IOException e) {
+				throw e;
+			}
+			catch (Exception e) {
+				LOG.debug("SMILES generation failed", e);
+			}
+		}
+		return false;
+	}
 	
 	/**
 	 * Experimental function that generates the extended SMILES corresponding to the molecule described by the name
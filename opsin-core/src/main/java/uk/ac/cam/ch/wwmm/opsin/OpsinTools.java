@@ -178,13 +178,10 @@ class OpsinTools {
 				if (atomsVisited.contains(neighbour)){//already visited
 					continue;
 				}
-				List<String> locants = new ArrayList<>(neighbour.getLocants());
-				locants.removeAll(neighbour.getElementSymbolLocants());
-
 				//A main group atom, would expect to only find one except in something strange like succinimide
-				//The locants.size() > 0 condition allows things like terephthalate to work which have an atom between the suffixes and main atoms that has no locant
-				if (locants.size() > 0 && !neighbour.getType().equals(SUFFIX_TYPE_VAL)){
-					if (locants.contains(targetLocant)){
+				//The hasNonElementSymbolLocant condition allows things like terephthalate to work which have an atom between the suffixes and main atoms that has no locant
+				if (neighbour.hasNonElementSymbolLocant() && !neighbour.getType().equals(SUFFIX_TYPE_VAL)){
+					if (neighbour.getLocants().contains(targetLocant) && !MATCH_ELEMENT_SYMBOL_LOCANT.matcher(targetLocant).matches()){
 						return neighbour;
 					}
 					continue;
@@ -213,11 +210,8 @@ class OpsinTools {
 				if (atomsVisited.contains(neighbour)){//already visited
 					continue;
 				}
-				List<String> locants = neighbour.getLocants();
-				for (String neighbourLocant : locants) {
-					if (MATCH_NUMERIC_LOCANT.matcher(neighbourLocant).matches()){
-						return neighbour;
-					}
+				if (neighbour.hasNumericLocant()){
+					return neighbour;
 				}
 				stack.add(neighbour);
 			}
@@ -548,6 +542,10 @@ class OpsinTools {
 	 */
 	static List<Element> getDescendantElementsWithTagName(Element startingElement, String elementName) {
 		List<Element> matchingElements = new ArrayList<>();
+		int kind = XmlSymbols.getElementKind(elementName);
+		if (!startingElement.mayHaveDescendantOfKind(kind)) {
+			return matchingElements;
+		}
 		Deque<Element> stack = new ArrayDeque<>();
 		for (int i = startingElement.getChildCount() - 1; i >= 0; i--) {
 			stack.add(startingElement.getChild(i));
@@ -557,8 +555,10 @@ class OpsinTools {
 			if (currentElement.getName().equals(elementName)){
 				matchingElements.add(currentElement);
 			}
-			for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
-				stack.add(currentElement.getChild(i));
+			if (currentElement.mayHaveDescendantOfKind(kind)) {
+				for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
+					stack.add(currentElement.getChild(i));
+				}
 			}
 		}
 		return matchingElements;
@@ -572,6 +572,13 @@ class OpsinTools {
 	 */
 	static List<Element> getDescendantElementsWithTagNames(Element startingElement, String[] elementNames) {
 		List<Element> matchingElements = new ArrayList<>();
+		int[] kinds = new int[elementNames.length];
+		for (int i = 0; i < elementNames.length; i++) {
+			kinds[i] = XmlSymbols.getElementKind(elementNames[i]);
+		}
+		if (!mayHaveDescendantOfKinds(startingElement, kinds)) {
+			return matchingElements;
+		}
 		Deque<Element> stack = new ArrayDeque<>();
 		for (int i = startingElement.getChildCount() - 1; i >= 0; i--) {
 			stack.add(startingElement.getChild(i));
@@ -585,13 +592,24 @@ class OpsinTools {
 					break;
 				}
 			}
-			for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
-				stack.add(currentElement.getChild(i));
+			if (mayHaveDescendantOfKinds(currentElement, kinds)) {
+				for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
+					stack.add(currentElement.getChild(i));
+				}
 			}
 		}
 		return matchingElements;
 	}
 
+	private static boolean mayHaveDescendantOfKinds(Element element, int[] kinds) {
+		for (int kind : kinds) {
+			if (element.mayHaveDescendantOfKind(kind)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Finds all child elements whose element name matches one of the strings in elementNames
 	 * @param startingElement
@@ -624,6 +642,10 @@ class OpsinTools {
 	 */
 	static List<Element> getDescendantElementsWithTagNameAndAttribute(Element startingElement, String elementName, String attributeName, String attributeValue) {
 		List<Element> matchingElements = new ArrayList<>();
+		int kind = XmlSymbols.getElementKind(elementName);
+		if (!startingElement.mayHaveDescendantOfKind(kind)) {
+			return matchingElements;
+		}
 		Deque<Element> stack = new ArrayDeque<>();
 		for (int i = startingElement.getChildCount() - 1; i >= 0; i--) {
 			stack.add(startingElement.getChild(i));
@@ -635,8 +657,10 @@ class OpsinTools {
 					matchingElements.add(currentElement);
 				}
 			}
-			for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
-				stack.add(currentElement.getChild(i));
+			if (currentElement.mayHaveDescendantOfKind(kind)) {
+				for (int i = currentElement.getChildCount() - 1; i >= 0; i--) {
+					stack.add(currentElement.getChild(i));
+				}
 			}
 		}
 		return matchingElements;
@@ -651,6 +675,10 @@ class OpsinTools {
 	 */
 	static List<Element> getChildElementsWithTagNameAndAttribute(Element startingElement, String elementName, String attributeName, String attributeValue) {
 		List<Element> matchingElements = new ArrayList<>();
+		int kind = XmlSymbols.getElementKind(elementName);
+		if (!startingElement.mayHaveDescendantOfKind(kind)) {
+			return matchingElements;
+		}
 		for (int i = 0, l = startingElement.getChildCount(); i < l; i++) {
 			Element child = startingElement.getChild(i);
 			if (child.getName().equals(elementName)){
@@ -0,0 +1,171 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The annotations of a chemical word found by {@link ParseRules}, held as a graph of (DFA state, position in name) nodes
+ * in which annotations sharing a prefix share nodes and edges.
+ * Each path from the root to a successful node is a parse; parses are only expanded to {@link ParseTokens} when requested.
+ * The parses are expanded in the order that a depth-first enumeration of the grammar would have found them.
+ */
+class ParseForest {
+
+	private final String chemicalWord;
+	private final int[] positions;
+	private final boolean[] successful;
+	private final int[] edgeStart;
+	private final int[] edgeCount;
+	private final int[] edgeTargets;
+	private final char[] edgeAnnotations;
+	private final boolean[] edgeCaseSensitive;
+	/**The number of parses reachable from each node, saturating at Integer.MAX_VALUE*/
+	private final int[] parseCounts;
+
+	/**
+	 * Copies the graph that was explored into the given workspace
+	 * @param ws
+	 * @param successfulPosition The position in the name at which accepting nodes are successful
+	 * @param acceptingNodes Which nodes are in an accepting state
+	 * @param chemicalWord
+	 */
+	ParseForest(TokenisationWorkspace ws, int successfulPosition, boolean[] acceptingNodes, String chemicalWord) {
+		this.chemicalWord = chemicalWord;
+		int nodeCount = ws.nodeCount;
+		int totalEdges = ws.totalEdges;
+		positions = Arrays.copyOf(ws.positions, nodeCount);
+		edgeStart = Arrays.copyOf(ws.edgeStart, nodeCount);
+		edgeCount = Arrays.copyOf(ws.edgeCount, nodeCount);
+		edgeTargets = Arrays.copyOf(ws.edgeTargets, totalEdges);
+		edgeAnnotations = Arrays.copyOf(ws.edgeAnnotations, totalEdges);
+		edgeCaseSensitive = Arrays.copyOf(ws.edgeCaseSensitive, totalEdges);
+		successful = new boolean[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			successful[n] = acceptingNodes[n] && positions[n] == successfulPosition;
+		}
+		parseCounts = countParses();
+	}
+
+	/**
+	 * Counts the parses from each node, visiting the nodes in post-order using an explicit stack
+	 * as the graph may be as deep as the word is long.
+	 * @return
+	 */
+	private int[] countParses() {
+		int nodeCount = positions.length;
+		int[] counts = new int[nodeCount];
+		if (nodeCount == 0) {
+			return counts;
+		}
+		byte[] visited = new byte[nodeCount];//0 = unvisited, 1 = in progress, 2 = counted
+		int[] stack = new int[nodeCount];
+		int[] nextEdge = new int[nodeCount];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		visited[0] = 1;
+		nextEdge[0] = 0;
+		while (stackSize > 0) {
+			int node = stack[stackSize - 1];
+			if (nextEdge[node] < edgeCount[node]) {
+				int target = edgeTargets[edgeStart[node] + nextEdge[node]++];
+				if (visited[target] == 0) {
+					visited[target] = 1;
+					nextEdge[target] = 0;
+					stack[stackSize++] = target;
+				}
+				continue;
+			}
+			long count = successful[node] ? 1 : 0;
+			for (int e = edgeStart[node], end = e + edgeCount[node]; e < end; e++) {
+				int target = edgeTargets[e];
+				if (visited[target] == 2) {//a cycle of empty tokens would be in progress; it contributes no parses
+					count += counts[target];
+				}
+			}
+			counts[node] = (int) Math.min(count, Integer.MAX_VALUE);
+			visited[node] = 2;
+			stackSize--;
+		}
+		return counts;
+	}
+
+	/**
+	 * The number of parses, saturating at Integer.MAX_VALUE
+	 * @return
+	 */
+	int getParseCount() {
+		return parseCounts.length > 0 ? parseCounts[0] : 0;
+	}
+
+	/**
+	 * Expands every parse into a ParseTokens
+	 * @return
+	 * @throws IllegalStateException If there are more parses than the parser would consider ({@link Parser#MAX_PARSE_COMBINATIONS})
+	 */
+	List<ParseTokens> expand() {
+		int parseCount = getParseCount();
+		if (parseCount == 0) {
+			return Collections.emptyList();
+		}
+		if (parseCount > Parser.MAX_PARSE_COMBINATIONS) {
+			throw new IllegalStateException(Parser.TOO_MANY_COMBINATIONS_MESSAGE);
+		}
+		List<ParseTokens> parses = new ArrayList<>(parseCount);
+		expand(0, new int[positions.length + edgeTargets.length], 0, parses);
+		return parses;
+	}
+
+	/**
+	 * Depth first, pre-order, expansion of the parses from the given node.
+	 * Edges are followed in the reverse of the order in which they were found, as a stack based exploration would
+	 * @param node
+	 * @param path The edges taken to reach node
+	 * @param pathLength
+	 * @param parses
+	 */
+	private void expand(int node, int[] path, int pathLength, List<ParseTokens> parses) {
+		if (successful[node]) {
+			parses.add(toParseTokens(path, pathLength));
+		}
+		for (int e = edgeStart[node] + edgeCount[node] - 1; e >= edgeStart[node]; e--) {
+			int target = edgeTargets[e];
+			if (parseCounts[target] > 0 && !onPath(target, path, pathLength)) {
+				path[pathLength] = e;
+				expand(target, path, pathLength + 1, parses);
+			}
+		}
+	}
+
+	private boolean onPath(int node, int[] path, int pathLength) {
+		if (node == 0) {
+			return true;
+		}
+		for (int i = 0; i < pathLength; i++) {
+			if (edgeTargets[path[i]] == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The tokens are offsets into the chemical word, their Strings are only created when used
+	 * @param path
+	 * @param pathLength
+	 * @return
+	 */
+	private ParseTokens toParseTokens(int[] path, int pathLength) {
+		int[] ends = new int[pathLength];
+		boolean[] caseSensitive = new boolean[pathLength];
+		Character[] annotations = new Character[pathLength];
+		for (int i = 0; i < pathLength; i++) {
+			int e = path[i];
+			ends[i] = positions[edgeTargets[e]];
+			caseSensitive[i] = edgeCaseSensitive[e];
+			annotations[i] = edgeAnnotations[e];
+		}
+		return new ParseTokens(new TokenList(chemicalWord, positions[0], ends, caseSensitive), Arrays.asList(annotations));
+	}
+}
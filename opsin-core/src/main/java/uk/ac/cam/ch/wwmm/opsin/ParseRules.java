@@ -1,14 +1,9 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import dk.brics.automaton.RunAutomaton;
-
 /**
  * Instantiate via NameToStructure.getOpsinParser()
  * 
@@ -27,17 +22,22 @@ import dk.brics.automaton.RunAutomaton;
 public class ParseRules {
 
 	/** A DFA encompassing the grammar of a chemical word. */
-	private final RunAutomaton chemAutomaton;
+	private final OpsinAutomaton chemAutomaton;
 	/** The allowed symbols in chemAutomaton */
 	private final char[] stateSymbols;
 	
-	private final OpsinRadixTrie[] symbolTokenNamesDict;
-	private final RunAutomaton[] symbolRegexAutomataDict;
+	/**The tokens of every symbol, labelled with their symbol*/
+	private final TokenUnionTrie symbolTokenUnionTrie;
+	private final OpsinAutomaton[] symbolRegexAutomataDict;
+	/**Regex tokens that are a lookahead/lookbehind on one character, which are matched without a java.util.regex.Matcher*/
+	private final LookaroundMatcher[] symbolLookaroundsDict;
+	/**The remaining regex tokens that could not be compiled into an automaton or a LookaroundMatcher*/
 	private final Pattern[] symbolRegexesDict;
 	
-	private final AnnotatorState initialState;
+	/**Scratch space for getParses, reused by each thread*/
+	private final ThreadLocal<TokenisationWorkspace> workspaces;
 
-	/* Sparse (CSR) copy of chemAutomaton's transition table, restricted to the
+	/* Sparse (CSR) transition table of chemAutomaton, restricted to the
 	 * stateSymbols alphabet. transitionRowStart[s]..transitionRowStart[s+1] indexes
 	 * transitionSymbolIndex/transitionNextState for the live transitions of state s. */
 	private final int[] transitionRowStart;
@@ -50,41 +50,21 @@ public class ParseRules {
 	 */
 	ParseRules(ResourceManager resourceManager){
 		this.chemAutomaton = resourceManager.getChemicalAutomaton();
-		this.symbolTokenNamesDict = resourceManager.getSymbolTokenNamesDict();
+		this.symbolTokenUnionTrie = resourceManager.getSymbolTokenUnionTrie();
 		this.symbolRegexAutomataDict = resourceManager.getSymbolRegexAutomataDict();
-		this.symbolRegexesDict = resourceManager.getSymbolRegexesDict();
+		this.symbolRegexesDict = resourceManager.getSymbolRegexesDict().clone();
+		this.symbolLookaroundsDict = LookaroundMatcher.compileAndRemove(symbolRegexesDict, false);
 		this.stateSymbols = chemAutomaton.getCharIntervals();
-		this.initialState = new AnnotatorState(chemAutomaton.getInitialState(), '\0', 0, true, null);
-
-		int nStates = chemAutomaton.getSize();
-		int nSymbols = stateSymbols.length;
-		int[] rowStart = new int[nStates + 1];
-		int live = 0;
-		for (int s = 0; s < nStates; s++) {
-			rowStart[s] = live;
-			for (int i = 0; i < nSymbols; i++) {
-				if (chemAutomaton.step(s, stateSymbols[i]) != -1) {
-					live++;
-				}
+		this.workspaces = new ThreadLocal<TokenisationWorkspace>() {
+			@Override
+			protected TokenisationWorkspace initialValue() {
+				return newWorkspace();
 			}
-		}
-		rowStart[nStates] = live;
-		int[] symIdx = new int[live];
-		int[] nextSt = new int[live];
-		int p = 0;
-		for (int s = 0; s < nStates; s++) {
-			for (int i = 0; i < nSymbols; i++) {
-				int ns = chemAutomaton.step(s, stateSymbols[i]);
-				if (ns != -1) {
-					symIdx[p] = i;
-					nextSt[p] = ns;
-					p++;
-				}
-			}
-		}
-		this.transitionRowStart = rowStart;
-		this.transitionSymbolIndex = symIdx;
-		this.transitionNextState = nextSt;
+		};
+
+		this.transitionRowStart = chemAutomaton.getTransitionRowStart();
+		this.transitionSymbolIndex = chemAutomaton.getTransitionSymbolIndex();
+		this.transitionNextState = chemAutomaton.getTransitionNextState();
 	}
 
 	/**Determines the possible annotations for a chemical word
@@ -98,103 +78,122 @@ public class ParseRules {
 	 * @throws ParsingException
 	 */
 	public ParseRulesResults getParses(String chemicalWord) throws ParsingException {
-		String chemicalWordLowerCase = StringTools.lowerCaseAsciiString(chemicalWord);
-		ArrayDeque<AnnotatorState> asStack = new ArrayDeque<>();
-		asStack.add(initialState);
+		TokenisationWorkspace ws = workspaces.get();
+		if (ws.inUse) {
+			ws = newWorkspace();
+		}
+		ws.inUse = true;
+		try {
+			return getParses(chemicalWord, ws);
+		}
+		finally {
+			ws.inUse = false;
+		}
+	}
+
+	private TokenisationWorkspace newWorkspace() {
+		return new TokenisationWorkspace(stateSymbols.length, symbolTokenUnionTrie.getMaxMatches());
+	}
 
+	private ParseRulesResults getParses(String chemicalWord, TokenisationWorkspace ws) {
+		int wordLength = chemicalWord.length();
+		ws.reset();
+		int[] matchSymbols = ws.matchSymbols;
+		int[] matchEnds = ws.matchEnds;
+		ws.getOrAddNode(chemAutomaton.getInitialState(), 0);
+
+		boolean anySuccessful = false;
 		int posInNameOfLastSuccessfulAnnotations = 0;
-		List<AnnotatorState> successfulAnnotations = new ArrayList<>();
-		AnnotatorState longestAnnotation = initialState;//this is the longest annotation. It does not necessarily end in an accept state
-		while (!asStack.isEmpty()) {
-			AnnotatorState as = asStack.removeLast();//depth-first avoids pathological memory consumption if parsing ambiguity is encountered
-			int posInName = as.getPosInName();
-			if (chemAutomaton.isAccept(as.getState())){
-				if (posInName >= posInNameOfLastSuccessfulAnnotations){//this annotation is worthy of consideration
-					if (posInName > posInNameOfLastSuccessfulAnnotations){//this annotation is longer than any previously found annotation
-						successfulAnnotations.clear();
-						posInNameOfLastSuccessfulAnnotations = posInName;
-					}
-					else if (successfulAnnotations.size() > 128){
-						throw new ParsingException("Ambiguity in OPSIN's chemical grammar has produced more than 128 annotations. Parsing has been aborted. Please report this as a bug");
-					}
-					successfulAnnotations.add(as);
-				}
+		int longestAnnotationPosInName = 0;//this is the longest annotation. It does not necessarily end in an accept state
+		while (ws.stackSize > 0) {
+			int node = ws.stack[--ws.stackSize];//each (state, position) is explored once, hence ambiguity does not cause repeated work
+			int currentState = ws.states[node];
+			int posInName = ws.positions[node];
+			if (chemAutomaton.isAccept(currentState) && posInName >= posInNameOfLastSuccessfulAnnotations){
+				anySuccessful = true;
+				posInNameOfLastSuccessfulAnnotations = posInName;
 			}
 			//record the longest annotation found so it can be reported to the user for debugging
-			if (posInName > longestAnnotation.getPosInName()){
-				longestAnnotation = as;
+			if (posInName > longestAnnotationPosInName){
+				longestAnnotationPosInName = posInName;
 			}
 
-			int currentState = as.getState();
-			for (int r = transitionRowStart[currentState], rowEnd = transitionRowStart[currentState + 1]; r < rowEnd; r++) {
+			int rowStart = transitionRowStart[currentState];
+			int rowEnd = transitionRowStart[currentState + 1];
+			if (rowStart == rowEnd) {
+				continue;
+			}
+			//one scan finds the tokens of all symbols, these are then filtered to the symbols this state has transitions for
+			int matchCount = symbolTokenUnionTrie.findMatches(chemicalWord, posInName, matchSymbols, matchEnds);
+			sortMatchesBySymbol(matchSymbols, matchEnds, matchCount);
+			int m = 0;
+			for (int r = rowStart; r < rowEnd; r++) {
 				int i = transitionSymbolIndex[r];
 				char annotationCharacter = stateSymbols[i];
 				int potentialNextState = transitionNextState[r];
-				OpsinRadixTrie possibleTokenisationsTrie = symbolTokenNamesDict[i];
-				if (possibleTokenisationsTrie != null) {
-					List<Integer> possibleTokenisations = possibleTokenisationsTrie.findMatches(chemicalWordLowerCase, posInName);
-					if (possibleTokenisations != null) {//next could be a token
-						for (int j = 0, l = possibleTokenisations.size(); j < l; j++) {//typically list size will be 1 so this is faster than an iterator
-							int tokenizationIndex = possibleTokenisations.get(j);
-							AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, false, as);
-							//System.out.println("tokened " + chemicalWordLowerCase.substring(posInName, tokenizationIndex));
-							asStack.add(newAs);
-						}
-					}
+				while (m < matchCount && matchSymbols[m] < i) {
+					m++;
+				}
+				for (; m < matchCount && matchSymbols[m] == i; m++) {//next could be a token
+					//System.out.println("tokened " + chemicalWord.substring(posInName, matchEnds[m]));
+					ws.addEdge(node, potentialNextState, matchEnds[m], annotationCharacter, false);
 				}
-				RunAutomaton possibleAutomata = symbolRegexAutomataDict[i];
+				OpsinAutomaton possibleAutomata = symbolRegexAutomataDict[i];
 				if (possibleAutomata != null) {//next could be an automaton
 					int matchLength = possibleAutomata.run(chemicalWord, posInName);
 					if (matchLength != -1){//matchLength = -1 means it did not match
-						int tokenizationIndex = posInName + matchLength;
-						AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
-						//System.out.println("neword automata " + chemicalWord.substring(posInName, tokenizationIndex));
-						asStack.add(newAs);
+						//System.out.println("neword automata " + chemicalWord.substring(posInName, posInName + matchLength));
+						ws.addEdge(node, potentialNextState, posInName + matchLength, annotationCharacter, true);
 					}
 				}
+				LookaroundMatcher possibleLookaround = symbolLookaroundsDict[i];
+				if (possibleLookaround != null && possibleLookaround.matches(chemicalWord, posInName)) {//next could be a zero width lookaround
+					ws.addEdge(node, potentialNextState, posInName, annotationCharacter, true);
+				}
 				Pattern possibleRegex = symbolRegexesDict[i];
 				if (possibleRegex != null) {//next could be a regex
-					Matcher mat = possibleRegex.matcher(chemicalWord).region(posInName, chemicalWord.length());
+					Matcher mat = ws.getMatcher(i, possibleRegex, chemicalWord).region(posInName, wordLength);
 					mat.useTransparentBounds(true);
 					if (mat.lookingAt()) {//match at start
-						int tokenizationIndex = posInName + mat.group(0).length();
-						AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
 						//System.out.println("neword regex " + mat.group(0));
-						asStack.add(newAs);
+						ws.addEdge(node, potentialNextState, mat.end(), annotationCharacter, true);
 					}
 				}
 			}
 		}
-		List<ParseTokens> outputList = new ArrayList<>();
-		String uninterpretableName = chemicalWord;
-		String unparseableName = chemicalWord.substring(longestAnnotation.getPosInName());
-		if (successfulAnnotations.size() > 0){//at least some of the name could be interpreted into a substituent/full/functionalTerm
-			int bestAcceptPosInName = -1;
-			for(AnnotatorState as : successfulAnnotations) {
-				outputList.add(convertAnnotationStateToParseTokens(as, chemicalWord, chemicalWordLowerCase));
-				bestAcceptPosInName = as.getPosInName();//all acceptable annotator states found should have the same posInName
-			}
-			uninterpretableName = chemicalWord.substring(bestAcceptPosInName);
+		String unparseableName = chemicalWord.substring(longestAnnotationPosInName);
+		if (!anySuccessful) {
+			return new ParseRulesResults(Collections.<ParseTokens>emptyList(), chemicalWord, unparseableName);
+		}
+		//at least some of the name could be interpreted into a substituent/full/functionalTerm
+		boolean[] acceptingNodes = new boolean[ws.nodeCount];
+		for (int n = 0; n < ws.nodeCount; n++) {
+			acceptingNodes[n] = chemAutomaton.isAccept(ws.states[n]);
 		}
-		return new ParseRulesResults(outputList, uninterpretableName, unparseableName);
+		ParseForest forest = new ParseForest(ws, posInNameOfLastSuccessfulAnnotations, acceptingNodes, chemicalWord);
+		//all acceptable annotations found have the same posInName
+		return new ParseRulesResults(forest, chemicalWord.substring(posInNameOfLastSuccessfulAnnotations), unparseableName);
 	}
 
-	private ParseTokens convertAnnotationStateToParseTokens(AnnotatorState as, String chemicalWord, String chemicalWordLowerCase) {
-		List<String> tokens = new ArrayList<>();
-		List<Character> annotations = new ArrayList<>();
-		AnnotatorState previousAs;
-		while ((previousAs = as.getPreviousAs()) != null) {
-			if (as.isCaseSensitive()) {
-				tokens.add(chemicalWord.substring(previousAs.getPosInName(), as.getPosInName()));
-			}
-			else{
-				tokens.add(chemicalWordLowerCase.substring(previousAs.getPosInName(), as.getPosInName()));
+	/**
+	 * Stable insertion sort of the matches by symbol, hence each symbol's matches remain in ascending order of end.
+	 * There are typically only a handful of matches
+	 * @param matchSymbols
+	 * @param matchEnds
+	 * @param matchCount
+	 */
+	private static void sortMatchesBySymbol(int[] matchSymbols, int[] matchEnds, int matchCount) {
+		for (int i = 1; i < matchCount; i++) {
+			int symbol = matchSymbols[i];
+			int end = matchEnds[i];
+			int j = i - 1;
+			while (j >= 0 && matchSymbols[j] > symbol) {
+				matchSymbols[j + 1] = matchSymbols[j];
+				matchEnds[j + 1] = matchEnds[j];
+				j--;
 			}
-			annotations.add(as.getAnnot());
-			as = previousAs;
+			matchSymbols[j + 1] = symbol;
+			matchEnds[j + 1] = end;
 		}
-		Collections.reverse(tokens);
-		Collections.reverse(annotations);
-		return new ParseTokens(tokens, annotations);
 	}
 }
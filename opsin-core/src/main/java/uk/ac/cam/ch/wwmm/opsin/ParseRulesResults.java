@@ -1,5 +1,6 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -9,12 +10,27 @@ import java.util.List;
  * @author dl387
  */
 public class ParseRulesResults {
-   private final List<ParseTokens> parseTokensList;
+   private volatile List<ParseTokens> parseTokensList;
+   /**The parses prior to expansion, null if the parses were supplied as a list*/
+   private final ParseForest parseForest;
    private final String uninterpretableName;
    private final String unparseableName;
 	
    public ParseRulesResults(List<ParseTokens> parseTokensList, String uninterpretableName, String unparseableName) {
 	  this.parseTokensList = parseTokensList;
+	  this.parseForest = null;
+	  this.uninterpretableName = uninterpretableName;
+	  this.unparseableName = unparseableName;
+   }
+
+   /**
+    * The parses are only expanded from the forest when first requested
+    * @param parseForest
+    * @param uninterpretableName
+    * @param unparseableName
+    */
+   ParseRulesResults(ParseForest parseForest, String uninterpretableName, String unparseableName) {
+	  this.parseForest = parseForest;
 	  this.uninterpretableName = uninterpretableName;
 	  this.unparseableName = unparseableName;
    }
@@ -25,7 +41,34 @@ public class ParseRulesResults {
     * @return List of possible tokenisations/annotation of tokens
     */
    public List<ParseTokens> getParseTokensList() {
-      return parseTokensList;
+      List<ParseTokens> parses = parseTokensList;
+      if (parses == null) {
+         //expansion is deterministic, hence racing threads produce equivalent lists
+         parses = Collections.unmodifiableList(parseForest.expand());
+         parseTokensList = parses;
+      }
+      return parses;
+   }
+
+   /**
+    * As {@link #getParseTokensList()}, but checks the number of interpretations before expanding them
+    * @return List of possible tokenisations/annotation of tokens
+    * @throws ParsingException If the name has more interpretations than would be considered ({@link Parser#MAX_PARSE_COMBINATIONS})
+    */
+   List<ParseTokens> getBoundedParseTokensList() throws ParsingException {
+      if (getParseCount() > Parser.MAX_PARSE_COMBINATIONS) {
+         throw Parser.tooManyCombinations();
+      }
+      return getParseTokensList();
+   }
+
+   /**
+    * The number of possible interpretations, without expanding them
+    * @return
+    */
+   int getParseCount() {
+      List<ParseTokens> parses = parseTokensList;
+      return parses != null ? parses.size() : parseForest.getParseCount();
    }
 
    /**
@@ -48,7 +91,7 @@ public class ParseRulesResults {
    }
 
    public String toString() {
-      return "(" + parseTokensList.toString() + ", " + uninterpretableName + ", " + unparseableName + ")";
+      return "(" + getParseTokensList().toString() + ", " + uninterpretableName + ", " + unparseableName + ")";
    }
 
 }
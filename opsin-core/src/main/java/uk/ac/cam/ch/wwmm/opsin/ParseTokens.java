@@ -31,6 +31,19 @@ public class ParseTokens {
 		this.annotations = Collections.unmodifiableList(new ArrayList<Character>(annotations));
 	}
 
+	/**
+	 * Creates a parseTokens whose tokens are created on demand from offsets into the word
+	 * @param tokens
+	 * @param annotations Not copied, hence must not be modified
+	 */
+	ParseTokens(TokenList tokens, List<Character> annotations) {
+		if (tokens.size() != annotations.size()){
+			throw new IllegalArgumentException("OPSIN bug: mismatch between the sizes of tokens list and annotation list");
+		}
+		this.tokens = tokens;
+		this.annotations = Collections.unmodifiableList(annotations);
+	}
+
 	public List<String> getTokens() {
 		return tokens;
 	}
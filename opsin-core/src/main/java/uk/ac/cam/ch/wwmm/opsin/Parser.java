@@ -1,10 +1,8 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,10 +27,16 @@ class Parser {
 	/**Holds the various tokens used.*/
 	private final ResourceManager resourceManager;
 	private final ParseRules parseRules;
+	/**Right to left parser used to explain parse failures. Created on first use, or by {@link #initialiseReverseParseRules()}*/
+	private volatile ReverseParseRules reverseParseRules;
 	
 	private static final Pattern matchSemiColonSpace = Pattern.compile("; ");
 	private static final Pattern matchStoichiometryIndication = Pattern.compile("[ ]?[\\{\\[\\(](\\d+|\\?)([:/](\\d+|\\?))+[\\}\\]\\)]$");
 	private static final Logger LOG = LogManager.getLogger(Parser.class);
+	/**The greatest number of combinations of word interpretations that will be considered for a name*/
+	static final int MAX_PARSE_COMBINATIONS = 128;
+
+	static final String TOO_MANY_COMBINATIONS_MESSAGE = "Too many different combinations of word interpretation are possible (>" + MAX_PARSE_COMBINATIONS + ") i.e. name contains too many terms that OPSIN finds ambiguous to interpret";
 
 	/**
 	 * No-argument constructor. Uses ResouceGetter found at
@@ -63,7 +67,7 @@ class Parser {
 	 * @param n2sConfig 
 	 *
 	 * @param name The name to parse.
-	 * @return The parse.
+	 * @return The parses, most preferred first, as ordered by {@link SortParses}
 	 * @throws ParsingException If the name is unparsable.
 	 */
 	List<Element> parse(NameToStructureConfig n2sConfig, String name) throws ParsingException {
@@ -113,24 +117,30 @@ class Parser {
 			allowSpaceRemoval = false;
 		}
 		
-		List<Parse> parses = generateParseCombinations(parse);
-		if (parses.isEmpty()) {
+		List<ParseWord> parseWords = parse.getWords();
+		int[] interpretationCounts = countInterpretations(parseWords);
+		if (interpretationCounts == null) {
 			throw new ParsingException("No parses could be found for " + name);
 		}
 		
 		List<Element> results = new ArrayList<>();
 		ParsingException preciseException = null;
-		for(Parse pp : parses) {
-			Element moleculeEl = new GroupingEl(MOLECULE_EL);
+		/* Each combination of word interpretations is built in turn, without first creating a Parse for each combination.
+		 * The interpretation of the first word is the most significant and each word's interpretations are visited from last to first */
+		int wordCount = parseWords.size();
+		int[] interpretation = new int[wordCount];
+		for (int i = 0; i < wordCount; i++) {
+			interpretation[i] = interpretationCounts[i] - 1;
+		}
+		for (boolean hasNext = true; hasNext; hasNext = nextCombination(interpretation, interpretationCounts)) {
+			GroupingEl moleculeEl = new GroupingEl(MOLECULE_EL);
+			moleculeEl.indexDescendantNames();
 			moleculeEl.addAttribute(new Attribute(NAME_ATR, name));
-			for(ParseWord pw : pp.getWords()) {
+			for (int i = 0; i < wordCount; i++) {
+				ParseWord pw = parseWords.get(i);
 				Element word = new GroupingEl(WORD_EL);
 				moleculeEl.addChild(word);
-				List<ParseTokens> parseTokens = pw.getParseTokens();
-				if (parseTokens.size() != 1){
-					throw new ParsingException("OPSIN bug: parseWord should have exactly 1 annotations after creating additional parses step");
-				}
-				ParseTokens tokensForWord = parseTokens.get(0);
+				ParseTokens tokensForWord = pw.getParseTokens().get(interpretation[i]);
 				WordType wordType = OpsinTools.determineWordType(tokensForWord.getAnnotations());
 				word.addAttribute(new Attribute(TYPE_ATR, wordType.toString()));
 				String value = pw.getWord();
@@ -175,7 +185,7 @@ class Parser {
 			throw new ParsingException(name + " could be parsed but OPSIN was unsure of the meaning of the words. This error will occur, by default, if a name is just a substituent");
 		}
 		
-		return results;
+		return SortParses.sort(results);
 	}
 
 	static Integer[] processStoichiometryIndication(String ratioString) throws ParsingException {
@@ -201,13 +211,31 @@ class Parser {
 		return componentRatios;
 	}
 
-	private void generateExactParseFailureReason(TokenizationResult tokenizationResult, String name) throws ParsingException {
-		ReverseParseRules reverseParseRules;
-		try {
-			reverseParseRules = new ReverseParseRules(resourceManager);
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to load resources for parsing names from right to left!",e);
+	/**
+	 * Returns the right to left parser, creating it if this has not already been done.
+	 * The parser is shared by all threads, hence only its creation requires synchronisation
+	 * @return
+	 */
+	ReverseParseRules initialiseReverseParseRules() {
+		ReverseParseRules rpr = reverseParseRules;
+		if (rpr == null) {
+			synchronized (this) {
+				rpr = reverseParseRules;
+				if (rpr == null) {
+					try {
+						rpr = new ReverseParseRules(resourceManager);
+					} catch (IOException e) {
+						throw new RuntimeException("Failed to load resources for parsing names from right to left!",e);
+					}
+					reverseParseRules = rpr;
+				}
+			}
 		}
+		return rpr;
+	}
+
+	private void generateExactParseFailureReason(TokenizationResult tokenizationResult, String name) throws ParsingException {
+		ReverseParseRules reverseParseRules = initialiseReverseParseRules();
 		String uninterpretableLR = tokenizationResult.getUninterpretableName();
 		String unparseableLR = tokenizationResult.getUnparsableName();
 		TokenizationResult reverseTokenizationResult = tokeniser.tokenizeRightToLeft(reverseParseRules, uninterpretableLR, true);
@@ -238,49 +266,49 @@ class Parser {
 	}
 
 	/**
-	 * For cases where any of the parse's parseWords contain multiple annotations create a
-	 * parse for each possibility. Hence after this process there may be multiple Parse objects but
-	 * the parseWords they contain will each only have one parseTokens object.
-	 * @param parse
+	 * Creates the exception thrown when a name has more than {@link #MAX_PARSE_COMBINATIONS} interpretations
 	 * @return
-	 * @throws ParsingException 
 	 */
-	private List<Parse> generateParseCombinations(Parse parse) throws ParsingException {
+	static ParsingException tooManyCombinations() {
+		return new ParsingException(TOO_MANY_COMBINATIONS_MESSAGE);
+	}
+
+	/**
+	 * Returns the number of interpretations of each of the parse's parseWords, or null if any word has no interpretations.
+	 * Each combination of these interpretations is a potential parse.
+	 * @param parseWords
+	 * @return
+	 * @throws ParsingException If there are too many combinations
+	 */
+	private int[] countInterpretations(List<ParseWord> parseWords) throws ParsingException {
 		int numberOfCombinations = 1;
-		List<ParseWord> parseWords = parse.getWords();
-		for (ParseWord pw : parseWords) {
-			int parsesForWord = pw.getParseTokens().size();
+		int[] interpretationCounts = new int[parseWords.size()];
+		for (int i = 0; i < interpretationCounts.length; i++) {
+			int parsesForWord = parseWords.get(i).getParseTokens().size();
 			numberOfCombinations *= parsesForWord;
-			if (numberOfCombinations > 128){//checked here to avoid integer overflow on inappropriate input
-				throw new ParsingException("Too many different combinations of word interpretation are possible (>128) i.e. name contains too many terms that OPSIN finds ambiguous to interpret");
+			if (numberOfCombinations > MAX_PARSE_COMBINATIONS){//checked here to avoid integer overflow on inappropriate input
+				throw tooManyCombinations();
 			}
+			interpretationCounts[i] = parsesForWord;
 		}
-		if (numberOfCombinations ==1){
-			return Arrays.asList(parse);
-		}
-		List<Parse> parses = new ArrayList<>();
-		
-		Deque<Parse> parseQueue = new ArrayDeque<>();
-		parseQueue.add(new Parse(parse.getName()));
-		while (!parseQueue.isEmpty()){
-			Parse currentParse = parseQueue.removeFirst();
-			int wordsInCurrentParse = currentParse.getWords().size();
-			if(wordsInCurrentParse == parseWords.size()) {
-				parses.add(currentParse);
-			}
-			else {
-				ParseWord referenceWord = parseWords.get(wordsInCurrentParse);
-				List<ParseTokens> referenceWordParseTokens = referenceWord.getParseTokens();
-				for (int i = referenceWordParseTokens.size()-1; i >=0; i--) {
-					ParseTokens parseTokens = referenceWordParseTokens.get(i);
-					Parse parseWithNextWord = i > 0 ? currentParse.deepCopy() : currentParse;
-					ParseWord newParseWord = new ParseWord(referenceWord.getWord(), Arrays.asList(parseTokens));
-					parseWithNextWord.addWord(newParseWord);
-					parseQueue.add(parseWithNextWord);
-				}
+		return numberOfCombinations > 0 ? interpretationCounts : null;
+	}
+
+	/**
+	 * Advances to the next combination of word interpretations, each word's interpretation counting down to 0
+	 * @param interpretation
+	 * @param interpretationCounts
+	 * @return false if all combinations have been visited
+	 */
+	private static boolean nextCombination(int[] interpretation, int[] interpretationCounts) {
+		for (int i = interpretation.length - 1; i >= 0; i--) {
+			if (interpretation[i] > 0) {
+				interpretation[i]--;
+				return true;
 			}
+			interpretation[i] = interpretationCounts[i] - 1;
 		}
-		return parses;
+		return false;
 	}
 
 	/**Write the XML corresponding to a particular word in a parse.
@@ -311,7 +339,7 @@ class Parser {
                 lastTokenElement = tokenElement;
             }
             else if (lastTokenElement!=null && token.length() > 0){
-            	if (lastTokenElement.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR) != null){
+            	if (lastTokenElement.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) != null){
             		lastTokenElement.getAttribute(SUBSEQUENTUNSEMANTICTOKEN_ATR).setValue(lastTokenElement.getAttributeValue(SUBSEQUENTUNSEMANTICTOKEN_ATR) + token);
             	}
             	else{
@@ -1,9 +1,5 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
-
 /**
  * Takes a name:
  * strips leading/trailing white space
@@ -12,145 +8,185 @@ import java.util.Map;
  *
  */
 class PreProcessor {
-	private static final Map<String, String> DOTENCLOSED_TO_DESIRED = new HashMap<>();
-	private static final Map<String, String> XMLENTITY_TO_DESIRED = new HashMap<>();
+	/* e.g. .alpha. and .a. Keys are matched case insensitively*/
+	private static final String[] DOTENCLOSED = {"a", "b", "g", "d", "e", "l", "x", "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "lambda", "xi", "omega", "fwdarw"};
+	private static final String[] DOTENCLOSED_TO_DESIRED = {"alpha", "beta", "gamma", "delta", "epsilon", "lambda", "xi", "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "lambda", "xi", "omega", "->"};
+	/* e.g. &alpha; Keys are matched case insensitively and are replaced by themselves*/
+	private static final String[] XMLENTITIES = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "lambda", "xi", "omega"};
 
-	static {
-		DOTENCLOSED_TO_DESIRED.put("a", "alpha");
-		DOTENCLOSED_TO_DESIRED.put("b", "beta");
-		DOTENCLOSED_TO_DESIRED.put("g", "gamma");
-		DOTENCLOSED_TO_DESIRED.put("d", "delta");
-		DOTENCLOSED_TO_DESIRED.put("e", "epsilon");
-		DOTENCLOSED_TO_DESIRED.put("l", "lambda");
-		DOTENCLOSED_TO_DESIRED.put("x", "xi");
-		DOTENCLOSED_TO_DESIRED.put("alpha", "alpha");
-		DOTENCLOSED_TO_DESIRED.put("beta", "beta");
-		DOTENCLOSED_TO_DESIRED.put("gamma", "gamma");
-		DOTENCLOSED_TO_DESIRED.put("delta", "delta");
-		DOTENCLOSED_TO_DESIRED.put("epsilon", "epsilon");
-		DOTENCLOSED_TO_DESIRED.put("zeta", "zeta");
-		DOTENCLOSED_TO_DESIRED.put("eta", "eta");
-		DOTENCLOSED_TO_DESIRED.put("lambda", "lambda");
-		DOTENCLOSED_TO_DESIRED.put("xi", "xi");
-		DOTENCLOSED_TO_DESIRED.put("omega", "omega");
-		DOTENCLOSED_TO_DESIRED.put("fwdarw", "->");
+	/* What to do with each ASCII character */
+	private static final byte COPY = 0;
+	private static final byte TO_SPACE = 1;
+	private static final byte REMOVE = 2;
+	private static final byte BACKTICK = 3;
+	private static final byte QUOTATION_MARK = 4;
+	private static final byte DOLLAR = 5;
+	private static final byte DOT = 6;
+	private static final byte AMPERSAND = 7;
+	private static final byte LETTER_S = 8;
+	private static final byte[] ASCII_ACTIONS = new byte[128];
 
-		XMLENTITY_TO_DESIRED.put("alpha", "alpha");
-		XMLENTITY_TO_DESIRED.put("beta", "beta");
-		XMLENTITY_TO_DESIRED.put("gamma", "gamma");
-		XMLENTITY_TO_DESIRED.put("delta", "delta");
-		XMLENTITY_TO_DESIRED.put("epsilon", "epsilon");
-		XMLENTITY_TO_DESIRED.put("zeta", "zeta");
-		XMLENTITY_TO_DESIRED.put("eta", "eta");
-		XMLENTITY_TO_DESIRED.put("lambda", "lambda");
-		XMLENTITY_TO_DESIRED.put("xi", "xi");
-		XMLENTITY_TO_DESIRED.put("omega", "omega");
+	static {
+		for (char c = 0; c < 32; c++) {
+			ASCII_ACTIONS[c] = REMOVE;//ignore control characters
+		}
+		ASCII_ACTIONS['\t'] = TO_SPACE;//normalise white space
+		ASCII_ACTIONS['\n'] = TO_SPACE;
+		ASCII_ACTIONS['\u000B'] = TO_SPACE;//vertical tab
+		ASCII_ACTIONS['\f'] = TO_SPACE;
+		ASCII_ACTIONS['\r'] = TO_SPACE;
+		ASCII_ACTIONS['`'] = BACKTICK;
+		ASCII_ACTIONS['"'] = QUOTATION_MARK;
+		ASCII_ACTIONS['$'] = DOLLAR;
+		ASCII_ACTIONS['.'] = DOT;
+		ASCII_ACTIONS['&'] = AMPERSAND;
+		ASCII_ACTIONS['s'] = LETTER_S;
+		ASCII_ACTIONS['S'] = LETTER_S;
 	}
 
 	/**
 	 * Master method for PreProcessing
 	 * @param chemicalName
 	 * @return
-	 * @throws PreProcessingException 
+	 * @throws PreProcessingException
 	 */
 	static String preProcess(String chemicalName) throws PreProcessingException {
 		chemicalName = chemicalName.trim();//remove leading and trailing whitespace
 		if (chemicalName.length() == 0){
 			throw new PreProcessingException("Input chemical name was blank!");
 		}
-		
-		chemicalName = performMultiCharacterReplacements(chemicalName);
-		chemicalName = StringTools.convertNonAsciiAndNormaliseRepresentation(chemicalName);
-		return chemicalName;
+		return normalise(chemicalName);
 	}
 
-	private static String performMultiCharacterReplacements(String chemicalName) {
-		StringBuilder sb = new StringBuilder(chemicalName.length());
+	/**
+	 * In a single pass: replaces representations of greeks e.g. $a, .alpha., &amp;alpha; with the name of the greek,
+	 * corrects British spelling (sulph to sulf), normalises white space/quotes and
+	 * converts non-ASCII characters to ASCII, unrecognised non-ASCII characters trigger an exception.
+	 * A StringBuilder is only created at the first character that needs replacing, hence
+	 * if nothing requires replacement (typical for ASCII input) the input is returned
+	 * @param chemicalName
+	 * @return
+	 * @throws PreProcessingException
+	 */
+	static String normalise(String chemicalName) throws PreProcessingException {
+		StringBuilder sb = null;
+		int copiedUpTo = 0;
 		for (int i = 0, nameLength = chemicalName.length(); i < nameLength; i++) {
 			char ch = chemicalName.charAt(i);
-			switch (ch) {
-			case '$':
-				if (i + 1 < nameLength){
-					char letter = chemicalName.charAt(i + 1);
-					String replacement = getReplacementForDollarGreek(letter);
-					if (replacement != null){
-						sb.append(replacement);
-						i++;
-						break;
+			String replacement;
+			int replacedLength = 1;
+			if (ch < 128) {
+				switch (ASCII_ACTIONS[ch]) {
+				case COPY:
+					continue;
+				case TO_SPACE:
+					replacement = " ";
+					break;
+				case REMOVE:
+					replacement = "";
+					break;
+				case BACKTICK:
+					replacement = "'";//replace back ticks with apostrophe
+					break;
+				case QUOTATION_MARK:
+					replacement = "''";//replace quotation mark with two primes
+					break;
+				case DOLLAR:
+					replacement = i + 1 < nameLength ? getReplacementForDollarGreek(chemicalName.charAt(i + 1)) : null;
+					if (replacement == null) {
+						continue;
 					}
-				}
-				sb.append(ch);
-				break;
-			case '.':
-				//e.g. .alpha.
-				String dotEnclosedString = getLowerCasedDotEnclosedString(chemicalName, i);
-				String dotEnclosedReplacement = DOTENCLOSED_TO_DESIRED.get(dotEnclosedString);
-				if (dotEnclosedReplacement != null){
-					sb.append(dotEnclosedReplacement);
-					i = i + dotEnclosedString.length() + 1;
+					replacedLength = 2;
 					break;
-				}
-				sb.append(ch);
-				break;
-			case '&':
-				{
-				//e.g. &alpha;
-				String xmlEntityString = getLowerCasedXmlEntityString(chemicalName, i);
-				String xmlEntityReplacement = XMLENTITY_TO_DESIRED.get(xmlEntityString);
-				if (xmlEntityReplacement != null){
-					sb.append(xmlEntityReplacement);
-					i = i + xmlEntityReplacement.length() + 1;
+				case DOT: {
+					//e.g. .alpha.
+					int idx = findEnclosed(chemicalName, i, '.', DOTENCLOSED);
+					if (idx < 0) {
+						continue;
+					}
+					replacement = DOTENCLOSED_TO_DESIRED[idx];
+					replacedLength = DOTENCLOSED[idx].length() + 2;
 					break;
 				}
-				sb.append(ch);
-				break;
+				case AMPERSAND: {
+					//e.g. &alpha;
+					int idx = findEnclosed(chemicalName, i, ';', XMLENTITIES);
+					if (idx < 0) {
+						continue;
+					}
+					replacement = XMLENTITIES[idx];
+					replacedLength = replacement.length() + 2;
+					break;
 				}
-			case 's':
-			case 'S'://correct British spelling to the IUPAC spelling
-				if (chemicalName.regionMatches(true, i + 1, "ulph", 0, 4)){
-					sb.append("sulf");
-					i = i + 4;
+				case LETTER_S://correct British spelling to the IUPAC spelling
+					if (!chemicalName.regionMatches(true, i + 1, "ulph", 0, 4)) {
+						continue;
+					}
+					replacement = "sulf";
+					replacedLength = 5;
 					break;
+				default:
+					throw new IllegalStateException();
 				}
-				sb.append(ch);
-				break;
-			default:
-				sb.append(ch);
 			}
+			else {
+				replacement = StringTools.getReplacementForNonASCIIChar(ch);//replace non ascii characters with hard coded ascii strings
+			}
+			if (sb == null) {
+				sb = new StringBuilder(nameLength + 16);
+			}
+			sb.append(chemicalName, copiedUpTo, i);
+			sb.append(replacement);
+			i += replacedLength - 1;
+			copiedUpTo = i + 1;
 		}
+		if (sb == null) {
+			return chemicalName;
+		}
+		sb.append(chemicalName, copiedUpTo, chemicalName.length());
 		return sb.toString();
 	}
 
-	private static String getLowerCasedDotEnclosedString(String chemicalName, int indexOfFirstDot) {
+	/**
+	 * Finds which, if any, of the keys is enclosed between the character at start and the next occurrence of the terminator.
+	 * Only a terminator within 8 characters of start is considered
+	 * @param chemicalName
+	 * @param start
+	 * @param terminator
+	 * @param keys
+	 * @return The index of the matching key, or -1
+	 */
+	private static int findEnclosed(String chemicalName, int start, char terminator, String[] keys) {
 		int end = -1;
-		int limit = Math.min(indexOfFirstDot + 9, chemicalName.length());
-		for (int j = indexOfFirstDot + 1; j < limit; j++) {
-			if (chemicalName.charAt(j) == '.'){
+		int limit = Math.min(start + 9, chemicalName.length());
+		for (int j = start + 1; j < limit; j++) {
+			if (chemicalName.charAt(j) == terminator){
 				end = j;
 				break;
 			}
 		}
-		if (end > 0){
-			return chemicalName.substring(indexOfFirstDot + 1, end).toLowerCase(Locale.ROOT);
+		if (end < 0) {
+			return -1;
 		}
-		return null;
-	}
-	
-	private static String getLowerCasedXmlEntityString(String chemicalName, int indexOfAmpersand) {
-		int end = -1;
-		int limit = Math.min(indexOfAmpersand + 9, chemicalName.length());
-		for (int j = indexOfAmpersand + 1; j < limit; j++) {
-			if (chemicalName.charAt(j) == ';'){
-				end = j;
-				break;
+		int enclosedLength = end - start - 1;
+		keyLoop: for (int k = 0; k < keys.length; k++) {
+			String key = keys[k];
+			if (key.length() == enclosedLength) {
+				for (int j = 0; j < enclosedLength; j++) {
+					char c = chemicalName.charAt(start + 1 + j);
+					if (c >= 'A' && c <= 'Z') {
+						c = (char) (c + ('a' - 'A'));
+					}
+					if (c != key.charAt(j)) {
+						continue keyLoop;
+					}
+				}
+				return k;
 			}
 		}
-		if (end > 0){
-			return chemicalName.substring(indexOfAmpersand + 1, end).toLowerCase(Locale.ROOT);
-		}
-		return null;
+		return -1;
 	}
-	
+
 	private static String getReplacementForDollarGreek(char ch) {
 		switch (ch) {
 		case 'a' :
@@ -1,4 +1,7 @@
 package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 
  * @author dl387
@@ -6,10 +9,27 @@ package uk.ac.cam.ch.wwmm.opsin;
  * @param <T>
  */
 class PropertyKey<T> {
+    /**The number of keys created, each key is given the next ordinal*/
+	private static final AtomicInteger keyCount = new AtomicInteger();
+
     private final String name;
+    private final int ordinal;
 
     public PropertyKey(String name) {
         this.name = name;
+        this.ordinal = keyCount.getAndIncrement();
+    }
+
+    /**
+     * A unique index for this key, allowing property values to be stored in an array
+     * @return
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    static int getKeyCount() {
+        return keyCount.get();
     }
 
     @Override
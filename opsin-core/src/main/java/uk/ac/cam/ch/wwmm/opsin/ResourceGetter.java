@@ -7,8 +7,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -22,6 +27,7 @@ import com.ctc.wstx.stax.WstxInputFactory;
 /**
  * Handles I/O:
  * Gets resource files from packages which is useful for including data from the JAR file.
+ * Provides memory mapped access to binary resources e.g. automata
  * Provides OutputStreams for the serialisation of automata.
  *
  * @author ptc24
@@ -100,6 +106,15 @@ class ResourceGetter {
 		}
 	}
 
+	/**
+	 * Returns whether the given file is provided by the working directory, rather than by the resourcePath
+	 * @param name The name of the file
+	 * @return
+	 */
+	boolean isInWorkingDirectory(String name) {
+		return workingDirectory != null && getFile(name) != null;
+	}
+
 	private File getFile(String name) {
 		File f = new File(getResDir(), name);
 		if(f.isFile()){
@@ -154,6 +169,46 @@ class ResourceGetter {
 		return url.openStream();
 	}
 
+	/**Fetches a data file from the working directory or resourcePath as a read-only ByteBuffer.
+	 * If the file is on the file system it is memory mapped, otherwise (e.g. in a JAR) its contents are read into the heap.
+	 *
+	 * @param name The name of the file to get a ByteBuffer of.
+	 * @return A ByteBuffer of the file's contents, positioned at the start of the file.
+	 * @throws IOException 
+	 */
+	ByteBuffer getByteBuffer(String name) throws IOException {
+		if(name == null){
+			throw new IllegalArgumentException("Input to function was null");
+		}
+		File f = null;
+		if (workingDirectory != null){
+			f = getFile(name);
+		}
+		if (f == null) {
+			ClassLoader l = getClass().getClassLoader();
+			URL url = l.getResource(resourcePath + name);
+			if (url == null){
+				throw new IOException("URL for resource: " + resourcePath + name + " is invalid");
+			}
+			if (url.getProtocol().equals("file")) {
+				try {
+					f = new File(url.toURI());
+				} catch (URISyntaxException e) {
+					f = null;
+				}
+			}
+			if (f == null) {
+				try (InputStream is = url.openStream()) {
+					return ByteBuffer.wrap(IOUtils.toByteArray(is));
+				}
+			}
+		}
+		try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			//the mapping remains valid after the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
 	/**Sets up an output stream to which a resource file can be written; this
 	 * resource file will be in a subdirectory of the resources directory in
 	 * the working directory.
@@ -1,8 +1,11 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,7 +14,6 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
-import dk.brics.automaton.RunAutomaton;
 import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
 
 /**Holds all of the tokens used in parsing of chemical names.
@@ -23,7 +25,7 @@ import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
  *
  */
 class ResourceManager {
-	private static final TokenEl IGNORE_WHEN_WRITING_PARSE_TREE = new TokenEl("");
+	static final TokenEl IGNORE_WHEN_WRITING_PARSE_TREE = new TokenEl("");
 
 	/**Used to load XML files.*/
 	private final ResourceGetter resourceGetter;
@@ -32,34 +34,40 @@ class ResourceManager {
 	private final AutomatonInitialiser automatonInitialiser;
 	
 	/**A mapping between primitive tokens, and annotation->Token object mappings.*/
-	private final HashMap<String, Map<Character, TokenEl>> tokenDict = new HashMap<>();
+	private final HashMap<String, Map<Character, TokenEl>> tokenDict;
 	/**A mapping between regex tokens, and annotation->Token object mappings.*/
-	private final HashMap<Character, TokenEl> reSymbolTokenDict = new HashMap<>();
+	private final HashMap<Character, TokenEl> reSymbolTokenDict;
+	
+	/**The resource files from which the tokens and grammar were read. Empty if read from a {@link ResourceSnapshot}*/
+	private final List<String> sourceFileNames = new ArrayList<>();
 
 
 	/**A mapping between annotation symbols and a trie of tokens.*/
 	private final OpsinRadixTrie[] symbolTokenNamesDict;
+	/**The union of the tries in symbolTokenNamesDict*/
+	private final TokenUnionTrie symbolTokenUnionTrie;
 	/**A mapping between annotation symbols and DFAs (annotation->automata mapping).*/
-	private final RunAutomaton[] symbolRegexAutomataDict;
+	private final OpsinAutomaton[] symbolRegexAutomataDict;
 	/**A mapping between annotation symbols and regex patterns (annotation->regex pattern mapping).*/
 	private final Pattern[] symbolRegexesDict;
 	
 	/**The automaton which describes the grammar of a chemical name from left to right*/
-	private final RunAutomaton chemicalAutomaton;
+	private final OpsinAutomaton chemicalAutomaton;
 	
 	
 	/**As symbolTokenNamesDict but the tokens are reversed*/
 	private OpsinRadixTrie[] symbolTokenNamesDictReversed;
 	/**As symbolRegexAutomataDict but automata are reversed */
-	private RunAutomaton[] symbolRegexAutomataDictReversed;
+	private OpsinAutomaton[] symbolRegexAutomataDictReversed;
 	/**As symbolRegexesDict but regexes match the end of string */
 	private Pattern[] symbolRegexesDictReversed;
 	
 	/**The automaton which describes the grammar of a chemical name from right to left*/
-	private RunAutomaton reverseChemicalAutomaton;
+	private OpsinAutomaton reverseChemicalAutomaton;
 
 	/**Generates the ResourceManager.
-	 * This involves reading in the token files, the regexToken file (regexTokens.xml) and the grammar file (regexes.xml).
+	 * If available and up to date, the tokens and automata are loaded from a precompiled {@link ResourceSnapshot}.
+	 * Otherwise this involves reading in the token files, the regexToken file (regexTokens.xml) and the grammar file (regexes.xml).
 	 * DFA are built or retrieved for the regexTokens and the chemical grammar.
 	 * 
 	 * Throws an exception if the XML token and regex files can't be read in properly or the grammar cannot be built.
@@ -67,15 +75,50 @@ class ResourceManager {
 	 * @throws IOException 
 	 */
 	ResourceManager(ResourceGetter resourceGetter) throws IOException {
+		this(resourceGetter, true);
+	}
+
+	/**Generates the ResourceManager.
+	 * As {@link #ResourceManager(ResourceGetter)} but allows the resource snapshot to be ignored,
+	 * such that the resources are always read from the XML files
+	 * @param resourceGetter
+	 * @param useSnapshot
+	 * @throws IOException 
+	 */
+	ResourceManager(ResourceGetter resourceGetter, boolean useSnapshot) throws IOException {
 		this.resourceGetter = resourceGetter;
 		this.automatonInitialiser = new AutomatonInitialiser(resourceGetter.getResourcePath() + "serialisedAutomata/");
-		chemicalAutomaton = processChemicalGrammar(false);
-		int grammarSymbolsSize = chemicalAutomaton.getCharIntervals().length;
-		symbolTokenNamesDict = new OpsinRadixTrie[grammarSymbolsSize];
-		symbolRegexAutomataDict = new RunAutomaton[grammarSymbolsSize];
-		symbolRegexesDict = new Pattern[grammarSymbolsSize];
-		processTokenFiles(false);
-		processRegexTokenFiles(false);
+		ResourceSnapshot snapshot = useSnapshot ? ResourceSnapshot.load(resourceGetter) : null;
+		if (snapshot != null) {
+			tokenDict = snapshot.tokenDict;
+			reSymbolTokenDict = snapshot.reSymbolTokenDict;
+			chemicalAutomaton = snapshot.chemicalAutomaton;
+			symbolTokenNamesDict = snapshot.symbolTokenNamesDict;
+			symbolTokenUnionTrie = snapshot.symbolTokenUnionTrie;
+			symbolRegexAutomataDict = snapshot.symbolRegexAutomataDict;
+			symbolRegexesDict = snapshot.symbolRegexesDict;
+		}
+		else {
+			tokenDict = new HashMap<>();
+			reSymbolTokenDict = new HashMap<>();
+			chemicalAutomaton = processChemicalGrammar(false);
+			int grammarSymbolsSize = chemicalAutomaton.getCharIntervals().length;
+			symbolTokenNamesDict = new OpsinRadixTrie[grammarSymbolsSize];
+			symbolRegexAutomataDict = new OpsinAutomaton[grammarSymbolsSize];
+			symbolRegexesDict = new Pattern[grammarSymbolsSize];
+			processTokenFiles(false);
+			compactTries(symbolTokenNamesDict);
+			symbolTokenUnionTrie = TokenUnionTrie.build(symbolTokenNamesDict);
+			processRegexTokenFiles(false);
+		}
+	}
+
+	private static void compactTries(OpsinRadixTrie[] tries) {
+		for (OpsinRadixTrie trie : tries) {
+			if (trie != null) {
+				trie.compact();
+			}
+		}
 	}
 
 	/**
@@ -84,6 +127,9 @@ class ResourceManager {
 	 * @throws IOException 
 	 */
 	private void processTokenFiles(boolean reversed) throws IOException {
+		if (!reversed) {
+			sourceFileNames.add("index.xml");
+		}
 		XMLStreamReader filesToProcessReader = resourceGetter.getXMLStreamReader("index.xml");
 		try {
 			while (filesToProcessReader.hasNext()) {
@@ -108,6 +154,9 @@ class ResourceManager {
 	}
 
 	private void processTokenFile(String fileName, boolean reversed) throws IOException {
+		if (!reversed) {
+			sourceFileNames.add(fileName);
+		}
 		XMLStreamReader reader = resourceGetter.getXMLStreamReader(fileName);
 		try {
 			while (reader.hasNext()) {
@@ -153,16 +202,16 @@ class ResourceManager {
 			String atrName = reader.getAttributeLocalName(i);
 			String atrValue = reader.getAttributeValue(i);
 			if (atrName.equals("tagname")){
-				tokenTagName  = atrValue;
+				tokenTagName  = atrValue.intern();
 			}
 			else if (atrName.equals("symbol")){
 				symbol = atrValue.charAt(0);
 			}
 			else if (atrName.equals(TYPE_ATR)){
-				type = atrValue;
+				type = atrValue.intern();
 			}
 			else if (atrName.equals(SUBTYPE_ATR)){
-				subType = atrValue;
+				subType = atrValue.intern();
 			}
 			else if (atrName.equals("ignoreWhenWritingXML")){
 				ignoreWhenWritingXML = atrValue.equals("yes");
@@ -196,9 +245,11 @@ class ResourceManager {
 						if (subType != null) {
 							el.addAttribute(SUBTYPE_ATR, subType);
 						}
+						//names and values are interned, hence are the same instances as the XmlDeclarations constants they're compared with
 						for (int i = 0, l = reader.getAttributeCount(); i < l; i++) {
-							el.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+							el.addAttribute(reader.getAttributeLocalName(i).intern(), reader.getAttributeValue(i).intern());
 						}
+						el.shareAttributes();
 					}
 					String text = reader.getElementText();
 					StringBuilder sb = new StringBuilder(text.length());
@@ -259,6 +310,9 @@ class ResourceManager {
 	}
 
 	private void processRegexTokenFiles(boolean reversed) throws IOException{
+		if (!reversed) {
+			sourceFileNames.add("regexTokens.xml");
+		}
 		XMLStreamReader reader = resourceGetter.getXMLStreamReader("regexTokens.xml");
 		Map<String, StringBuilder> tempRegexes = new HashMap<>();
 		Pattern matchRegexReplacement = Pattern.compile("%.*?%");
@@ -320,19 +374,19 @@ class ResourceManager {
 			String atrName = reader.getAttributeLocalName(i);
 			String atrValue = reader.getAttributeValue(i);
 			if (atrName.equals("tagname")){
-				tokenTagName  = atrValue;
+				tokenTagName  = atrValue.intern();
 			}
 			else if (atrName.equals("symbol")){
 				symbol = atrValue.charAt(0);
 			}
 			else if (atrName.equals(TYPE_ATR)){
-				type = atrValue;
+				type = atrValue.intern();
 			}
 			else if (atrName.equals(SUBTYPE_ATR)){
-				subType = atrValue;
+				subType = atrValue.intern();
 			}
 			else if (atrName.equals("value")){
-				value = atrValue;
+				value = atrValue.intern();
 			}
 			else if (atrName.equals("determinise")){
 				determinise = atrValue.equals("yes");
@@ -368,6 +422,7 @@ class ResourceManager {
 				if (value != null){
 					el.addAttribute(VALUE_ATR, value);
 				}
+				el.shareAttributes();
 				reSymbolTokenDict.put(symbol, el);
 			}
 		}
@@ -378,7 +433,7 @@ class ResourceManager {
 		}
 		if (!reversed){
 			if (determinise){//should the regex be compiled into a DFA for faster execution?
-				symbolRegexAutomataDict[index] = automatonInitialiser.loadAutomaton(tokenTagName + "_" + (int)symbol, regex, false, false);
+				symbolRegexAutomataDict[index] = automatonInitialiser.loadAutomaton(tokenTagName + "_" + (int)symbol, regex, false);
 			}
 			else{
 				symbolRegexesDict[index] = Pattern.compile(regex);
@@ -386,7 +441,7 @@ class ResourceManager {
 		}
 		else{
 			if (determinise){//should the regex be compiled into a DFA for faster execution?
-				symbolRegexAutomataDictReversed[index] = automatonInitialiser.loadAutomaton(tokenTagName + "_" + (int)symbol, regex, false, true);
+				symbolRegexAutomataDictReversed[index] = automatonInitialiser.loadAutomaton(tokenTagName + "_" + (int)symbol, regex, true);
 			}
 			else{
 				symbolRegexesDictReversed[index] = Pattern.compile(regex +"$");
@@ -394,7 +449,10 @@ class ResourceManager {
 		}
 	}
 
-	private RunAutomaton processChemicalGrammar(boolean reversed) throws IOException {
+	private OpsinAutomaton processChemicalGrammar(boolean reversed) throws IOException {
+		if (!reversed) {
+			sourceFileNames.add("regexes.xml");
+		}
 		XMLStreamReader reader = resourceGetter.getXMLStreamReader("regexes.xml");
 		Map<String, StringBuilder> regexDict = new HashMap<>();
 		Pattern matchRegexReplacement = Pattern.compile("%.*?%");
@@ -437,10 +495,10 @@ class ResourceManager {
 
 		String re = regexDict.get("%chemical%").toString();
 		if (!reversed){
-			return automatonInitialiser.loadAutomaton("chemical", re, true, false);
+			return automatonInitialiser.loadAutomaton("chemical", re, false);
 		}
 		else{
-			return automatonInitialiser.loadAutomaton("chemical", re, true, true);
+			return automatonInitialiser.loadAutomaton("chemical", re, true);
 		}
 	}
 
@@ -452,9 +510,10 @@ class ResourceManager {
 		if (symbolTokenNamesDictReversed == null){
 			symbolTokenNamesDictReversed = new OpsinRadixTrie[grammarSymbolsSize];
 			processTokenFiles(true);
+			compactTries(symbolTokenNamesDictReversed);
 		}
 		if (symbolRegexAutomataDictReversed == null && symbolRegexesDictReversed==null){
-			symbolRegexAutomataDictReversed = new RunAutomaton[grammarSymbolsSize];
+			symbolRegexAutomataDictReversed = new OpsinAutomaton[grammarSymbolsSize];
 			symbolRegexesDictReversed = new Pattern[grammarSymbolsSize];
 			processRegexTokenFiles(true);
 		}
@@ -489,7 +548,24 @@ class ResourceManager {
 		throw new ParsingException("Parsing Error: This is a bug in the program. A token element could not be found for token: " + tokenString +" using annotation symbol: " +symbol);
 	}
 	
-	RunAutomaton getChemicalAutomaton() {
+	Map<String, Map<Character, TokenEl>> getTokenDict() {
+		return tokenDict;
+	}
+
+	Map<Character, TokenEl> getReSymbolTokenDict() {
+		return reSymbolTokenDict;
+	}
+
+	/**
+	 * The resource files from which the tokens and grammar were read
+	 * (empty if this ResourceManager was initialised from a {@link ResourceSnapshot})
+	 * @return
+	 */
+	List<String> getSourceFileNames() {
+		return Collections.unmodifiableList(sourceFileNames);
+	}
+
+	OpsinAutomaton getChemicalAutomaton() {
 		return chemicalAutomaton;
 	}
 	
@@ -497,7 +573,11 @@ class ResourceManager {
 		return symbolTokenNamesDict;
 	}
 
-	RunAutomaton[] getSymbolRegexAutomataDict() {
+	TokenUnionTrie getSymbolTokenUnionTrie() {
+		return symbolTokenUnionTrie;
+	}
+
+	OpsinAutomaton[] getSymbolRegexAutomataDict() {
 		return symbolRegexAutomataDict;
 	}
 
@@ -505,7 +585,7 @@ class ResourceManager {
 		return symbolRegexesDict;
 	}
 
-	RunAutomaton getReverseChemicalAutomaton() {
+	OpsinAutomaton getReverseChemicalAutomaton() {
 		return reverseChemicalAutomaton;
 	}
 
@@ -513,7 +593,7 @@ class ResourceManager {
 		return symbolTokenNamesDictReversed;
 	}
 
-	RunAutomaton[] getSymbolRegexAutomataDictReversed() {
+	OpsinAutomaton[] getSymbolRegexAutomataDictReversed() {
 		return symbolRegexAutomataDictReversed;
 	}
 
@@ -0,0 +1,376 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A precompiled binary image of the fully initialised contents of a {@link ResourceManager}
+ * i.e. the token dictionaries, the token tries, the regex tokens and the chemical grammar automaton.
+ * The image is generated at build time (by {@link ResourceSnapshotWriter}) such that at runtime
+ * none of the token XML files need to be parsed and no automata need to be built.<br>
+ * The image is accompanied by a small stamp file, written at the same time, that lists the resource files the image was generated from
+ * and a checksum of their contents. The image is only used if it has the same checksum as the stamp, none of the listed
+ * resource files are overridden in the working directory and the listed resource files still have that checksum.
+ * Hence a stale image, e.g. from a build that did not regenerate it after the resource files were edited, is not used.
+ * Checksumming the resource files is far cheaper than parsing them and building automata from them.
+ */
+class ResourceSnapshot {
+
+	private static final Logger LOG = LogManager.getLogger(ResourceSnapshot.class);
+
+	static final String SNAPSHOT_FILE_NAME = "resourceSnapshot.bin";
+	static final String STAMP_FILE_NAME = "resourceSnapshot.stamp";
+
+	private static final int MAGIC_NUMBER = 0x4F50534E;//OPSN
+	/**Must be incremented whenever the layout of the snapshot changes*/
+	private static final int FORMAT_VERSION = 5;
+
+	final HashMap<String, Map<Character, TokenEl>> tokenDict;
+	final HashMap<Character, TokenEl> reSymbolTokenDict;
+	final OpsinAutomaton chemicalAutomaton;
+	final OpsinRadixTrie[] symbolTokenNamesDict;
+	final TokenUnionTrie symbolTokenUnionTrie;
+	final OpsinAutomaton[] symbolRegexAutomataDict;
+	final Pattern[] symbolRegexesDict;
+
+	private ResourceSnapshot(HashMap<String, Map<Character, TokenEl>> tokenDict, HashMap<Character, TokenEl> reSymbolTokenDict,
+			OpsinAutomaton chemicalAutomaton, OpsinRadixTrie[] symbolTokenNamesDict, TokenUnionTrie symbolTokenUnionTrie,
+			OpsinAutomaton[] symbolRegexAutomataDict, Pattern[] symbolRegexesDict) {
+		this.tokenDict = tokenDict;
+		this.reSymbolTokenDict = reSymbolTokenDict;
+		this.chemicalAutomaton = chemicalAutomaton;
+		this.symbolTokenNamesDict = symbolTokenNamesDict;
+		this.symbolTokenUnionTrie = symbolTokenUnionTrie;
+		this.symbolRegexAutomataDict = symbolRegexAutomataDict;
+		this.symbolRegexesDict = symbolRegexesDict;
+	}
+
+	/**
+	 * Loads the snapshot from the given resourceGetter's resource path.
+	 * Returns null if there is no snapshot, it was generated by an incompatible version of OPSIN
+	 * or the resource files it was generated from have been overridden.
+	 * The image is memory mapped where possible
+	 * @param resourceGetter
+	 * @return
+	 */
+	static ResourceSnapshot load(ResourceGetter resourceGetter) {
+		Long resourcesChecksum;
+		ByteBuffer image;
+		try (InputStream is = resourceGetter.getInputstreamFromFileName(STAMP_FILE_NAME)) {
+			resourcesChecksum = readStamp(is, resourceGetter);
+			if (resourcesChecksum == null) {
+				return null;
+			}
+			image = resourceGetter.getByteBuffer(SNAPSHOT_FILE_NAME);
+		}
+		catch (IOException e) {
+			LOG.debug("No resource snapshot available, resources will be read from XML");
+			return null;
+		}
+		try {
+			return read(image, resourcesChecksum);
+		}
+		catch (Exception e) {
+			LOG.warn("Error loading resource snapshot, resources will be read from XML", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a stamp that was written using {@link #write(ResourceManager, ResourceGetter, OutputStream, OutputStream)}.
+	 * Returns the checksum of the resource files the snapshot was generated from, or null if the stamp was
+	 * generated by an incompatible version of OPSIN, any of the resource files are overridden in the working directory
+	 * or the resource files no longer have that checksum
+	 * @param is
+	 * @param resourceGetter
+	 * @return
+	 * @throws IOException
+	 */
+	static Long readStamp(InputStream is, ResourceGetter resourceGetter) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+			LOG.debug("Resource snapshot was written by an incompatible version of OPSIN");
+			return null;
+		}
+		int fileCount = in.readInt();
+		List<String> fileNames = new ArrayList<>(fileCount);
+		for (int i = 0; i < fileCount; i++) {
+			String fileName = in.readUTF();
+			if (resourceGetter.isInWorkingDirectory(fileName)) {
+				LOG.debug(fileName + " is overridden in the working directory, hence the resource snapshot will not be used");
+				return null;
+			}
+			fileNames.add(fileName);
+		}
+		long resourcesChecksum = in.readLong();
+		if (checksumSourceFiles(resourceGetter, fileNames) != resourcesChecksum) {
+			LOG.debug("Resource files have changed since the resource snapshot was generated, hence the resource snapshot will not be used");
+			return null;
+		}
+		return resourcesChecksum;
+	}
+
+	/**
+	 * Reads a snapshot image that was written using {@link #write(ResourceManager, ResourceGetter, OutputStream, OutputStream)}.
+	 * Returns null if the image was generated by an incompatible version of OPSIN
+	 * or does not have the given checksum i.e. was not written with the stamp it was validated with.
+	 * @param image
+	 * @param resourcesChecksum
+	 * @return
+	 * @throws IOException
+	 */
+	static ResourceSnapshot read(ByteBuffer image, long resourcesChecksum) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(image));
+		if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+			LOG.debug("Resource snapshot was written by an incompatible version of OPSIN");
+			return null;
+		}
+		if (in.readLong() != resourcesChecksum) {
+			LOG.debug("Resource snapshot does not match its stamp");
+			return null;
+		}
+
+		int templateCount = in.readInt();
+		TokenEl[] templates = new TokenEl[templateCount];
+		for (int i = 0; i < templateCount; i++) {
+			//names and values are interned, hence are the same instances as the XmlDeclarations constants they're compared with
+			TokenEl template = new TokenEl(in.readUTF().intern());
+			int attributeCount = in.readInt();
+			for (int j = 0; j < attributeCount; j++) {
+				template.addAttribute(in.readUTF().intern(), in.readUTF().intern());
+			}
+			template.shareAttributes();
+			templates[i] = template;
+		}
+
+		int tokenCount = in.readInt();
+		HashMap<String, Map<Character, TokenEl>> tokenDict = new HashMap<>(tokenCount * 4 / 3 + 1);
+		for (int i = 0; i < tokenCount; i++) {
+			String token = in.readUTF();
+			int symbolCount = in.readInt();
+			Map<Character, TokenEl> symbolToToken = new HashMap<>();
+			for (int j = 0; j < symbolCount; j++) {
+				char symbol = in.readChar();
+				symbolToToken.put(symbol, template(templates, in.readInt()));
+			}
+			tokenDict.put(token, symbolToToken);
+		}
+
+		int regexTokenCount = in.readInt();
+		HashMap<Character, TokenEl> reSymbolTokenDict = new HashMap<>();
+		for (int i = 0; i < regexTokenCount; i++) {
+			char symbol = in.readChar();
+			reSymbolTokenDict.put(symbol, template(templates, in.readInt()));
+		}
+
+		OpsinAutomaton chemicalAutomaton = OpsinAutomaton.read(image);
+		int grammarSymbolsSize = chemicalAutomaton.getCharIntervals().length;
+		OpsinRadixTrie[] symbolTokenNamesDict = new OpsinRadixTrie[grammarSymbolsSize];
+		OpsinAutomaton[] symbolRegexAutomataDict = new OpsinAutomaton[grammarSymbolsSize];
+		Pattern[] symbolRegexesDict = new Pattern[grammarSymbolsSize];
+		for (int i = 0; i < grammarSymbolsSize; i++) {
+			if (in.readBoolean()) {
+				symbolTokenNamesDict[i] = OpsinRadixTrie.read(in);
+			}
+			if (in.readBoolean()) {
+				symbolRegexAutomataDict[i] = OpsinAutomaton.read(image);
+			}
+			if (in.readBoolean()) {
+				symbolRegexesDict[i] = Pattern.compile(new String(readByteArray(in), StandardCharsets.UTF_8));
+			}
+		}
+		TokenUnionTrie symbolTokenUnionTrie = TokenUnionTrie.read(in);
+		return new ResourceSnapshot(tokenDict, reSymbolTokenDict, chemicalAutomaton, symbolTokenNamesDict, symbolTokenUnionTrie, symbolRegexAutomataDict, symbolRegexesDict);
+	}
+
+	private static TokenEl template(TokenEl[] templates, int index) {
+		return index < 0 ? ResourceManager.IGNORE_WHEN_WRITING_PARSE_TREE : templates[index];
+	}
+
+	/**
+	 * Writes a snapshot image of the given resourceManager, which must have been initialised from the XML resource files,
+	 * and the stamp with which the image is validated
+	 * @param resourceManager
+	 * @param resourceGetter The resourceGetter used to initialise the resourceManager
+	 * @param imageOs
+	 * @param stampOs
+	 * @throws IOException
+	 */
+	static void write(ResourceManager resourceManager, ResourceGetter resourceGetter, OutputStream imageOs, OutputStream stampOs) throws IOException {
+		List<String> sourceFileNames = resourceManager.getSourceFileNames();
+		if (sourceFileNames.isEmpty()) {
+			throw new IllegalArgumentException("ResourceManager was not initialised from resource files");
+		}
+		long resourcesChecksum = checksumSourceFiles(resourceGetter, sourceFileNames);
+		DataOutputStream stampOut = new DataOutputStream(stampOs);
+		stampOut.writeInt(MAGIC_NUMBER);
+		stampOut.writeInt(FORMAT_VERSION);
+		stampOut.writeInt(sourceFileNames.size());
+		for (String fileName : sourceFileNames) {
+			stampOut.writeUTF(fileName);
+		}
+		stampOut.writeLong(resourcesChecksum);
+		stampOut.flush();
+
+		DataOutputStream out = new DataOutputStream(imageOs);
+		out.writeInt(MAGIC_NUMBER);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(resourcesChecksum);
+
+		//Many tokens share the same TokenEl, hence these are written once and then referenced by index
+		Map<String, Map<Character, TokenEl>> tokenDict = resourceManager.getTokenDict();
+		Map<Character, TokenEl> reSymbolTokenDict = resourceManager.getReSymbolTokenDict();
+		Map<TokenEl, Integer> templateToIndex = new IdentityHashMap<>();
+		List<TokenEl> templates = new ArrayList<>();
+		for (Map<Character, TokenEl> symbolToToken : tokenDict.values()) {
+			for (TokenEl template : symbolToToken.values()) {
+				indexTemplate(template, templateToIndex, templates);
+			}
+		}
+		for (TokenEl template : reSymbolTokenDict.values()) {
+			indexTemplate(template, templateToIndex, templates);
+		}
+		out.writeInt(templates.size());
+		for (TokenEl template : templates) {
+			out.writeUTF(template.getName());
+			out.writeInt(template.getAttributeCount());
+			for (int i = 0, len = template.getAttributeCount(); i < len; i++) {
+				Attribute atr = template.getAttribute(i);
+				out.writeUTF(atr.getName());
+				out.writeUTF(atr.getValue());
+			}
+		}
+
+		out.writeInt(tokenDict.size());
+		for (Entry<String, Map<Character, TokenEl>> entry : tokenDict.entrySet()) {
+			out.writeUTF(entry.getKey());
+			Map<Character, TokenEl> symbolToToken = entry.getValue();
+			out.writeInt(symbolToToken.size());
+			for (Entry<Character, TokenEl> symbolEntry : symbolToToken.entrySet()) {
+				out.writeChar(symbolEntry.getKey());
+				out.writeInt(templateIndex(symbolEntry.getValue(), templateToIndex));
+			}
+		}
+
+		out.writeInt(reSymbolTokenDict.size());
+		for (Entry<Character, TokenEl> entry : reSymbolTokenDict.entrySet()) {
+			out.writeChar(entry.getKey());
+			out.writeInt(templateIndex(entry.getValue(), templateToIndex));
+		}
+
+		resourceManager.getChemicalAutomaton().write(out);
+		OpsinRadixTrie[] symbolTokenNamesDict = resourceManager.getSymbolTokenNamesDict();
+		OpsinAutomaton[] symbolRegexAutomataDict = resourceManager.getSymbolRegexAutomataDict();
+		Pattern[] symbolRegexesDict = resourceManager.getSymbolRegexesDict();
+		for (int i = 0; i < symbolTokenNamesDict.length; i++) {
+			OpsinRadixTrie trie = symbolTokenNamesDict[i];
+			out.writeBoolean(trie != null);
+			if (trie != null) {
+				trie.write(out);
+			}
+			OpsinAutomaton automaton = symbolRegexAutomataDict[i];
+			out.writeBoolean(automaton != null);
+			if (automaton != null) {
+				automaton.write(out);
+			}
+			Pattern pattern = symbolRegexesDict[i];
+			out.writeBoolean(pattern != null);
+			if (pattern != null) {
+				writeByteArray(out, pattern.pattern().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		resourceManager.getSymbolTokenUnionTrie().write(out);
+		out.flush();
+	}
+
+	private static void indexTemplate(TokenEl template, Map<TokenEl, Integer> templateToIndex, List<TokenEl> templates) {
+		if (template != ResourceManager.IGNORE_WHEN_WRITING_PARSE_TREE && !templateToIndex.containsKey(template)) {
+			templateToIndex.put(template, templates.size());
+			templates.add(template);
+		}
+	}
+
+	private static int templateIndex(TokenEl template, Map<TokenEl, Integer> templateToIndex) {
+		return template == ResourceManager.IGNORE_WHEN_WRITING_PARSE_TREE ? -1 : templateToIndex.get(template);
+	}
+
+	private static void writeByteArray(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readByteArray(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Computes a CRC-32 checksum of the names and contents of the given resource files.
+	 * This is used to tie the image to its stamp and to detect changes to the resource files, hence a cryptographic hash is unnecessary
+	 * @param resourceGetter
+	 * @param fileNames
+	 * @return
+	 * @throws IOException
+	 */
+	private static long checksumSourceFiles(ResourceGetter resourceGetter, List<String> fileNames) throws IOException {
+		CRC32 checksum = new CRC32();
+		byte[] buffer = new byte[8192];
+		for (String fileName : fileNames) {
+			checksum.update(fileName.getBytes(StandardCharsets.UTF_8));
+			try (InputStream is = resourceGetter.getInputstreamFromFileName(fileName)) {
+				int read;
+				while ((read = is.read(buffer)) != -1) {
+					checksum.update(buffer, 0, read);
+				}
+			}
+		}
+		return checksum.getValue();
+	}
+
+	/**
+	 * Reads the image sequentially, such that automata can be read directly from the underlying buffer between reads of other data
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Build tool that generates the {@link ResourceSnapshot} and its stamp from OPSIN's XML resource files.
+ * This is invoked during the Maven build (process-classes phase) and is not part of OPSIN's API.
+ */
+final class ResourceSnapshotWriter {
+
+	private ResourceSnapshotWriter() {
+	}
+
+	/**
+	 * Writes the resource snapshot and its stamp to the given directory
+	 * @param args The directory to write the snapshot to
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			throw new IllegalArgumentException("Expected the directory to write the resource snapshot to");
+		}
+		File directory = new File(args[0]);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory: " + directory);
+		}
+		ResourceGetter resourceGetter = new ResourceGetter("uk/ac/cam/ch/wwmm/opsin/resources/");
+		//the snapshot itself must not be used, as it may be out of date
+		ResourceManager resourceManager = new ResourceManager(resourceGetter, false);
+		try (OutputStream imageOs = new BufferedOutputStream(new FileOutputStream(new File(directory, ResourceSnapshot.SNAPSHOT_FILE_NAME)));
+				OutputStream stampOs = new FileOutputStream(new File(directory, ResourceSnapshot.STAMP_FILE_NAME))) {
+			ResourceSnapshot.write(resourceManager, resourceGetter, imageOs, stampOs);
+		}
+	}
+}
@@ -7,8 +7,6 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import dk.brics.automaton.RunAutomaton;
-
 /**
  * The same as ParseRules but works from right to left
  * 
@@ -26,16 +24,25 @@ import dk.brics.automaton.RunAutomaton;
 class ReverseParseRules {
 
 	/** A DFA encompassing the grammar of a chemical word. */
-	private final RunAutomaton chemAutomaton;
+	private final OpsinAutomaton chemAutomaton;
 	/** The allowed symbols in chemAutomaton */
 	private final char[] stateSymbols;
 	
 	private final OpsinRadixTrie[] symbolTokenNamesDictReversed;
-	private final RunAutomaton[] symbolRegexAutomataDictReversed;
+	private final OpsinAutomaton[] symbolRegexAutomataDictReversed;
+	private final LookaroundMatcher[] symbolLookaroundsDictReversed;
 	private final Pattern[] symbolRegexesDictReversed;
 
+	/* Sparse (CSR) transition table of chemAutomaton, restricted to the
+	 * stateSymbols alphabet. transitionRowStart[s]..transitionRowStart[s+1] indexes
+	 * transitionSymbolIndex/transitionNextState for the live transitions of state s. */
+	private final int[] transitionRowStart;
+	private final int[] transitionSymbolIndex;
+	private final int[] transitionNextState;
+
 	/** 
-	 * Creates a right to left parser that can parse a substituent/full/functional word
+	 * Creates a right to left parser that can parse a substituent/full/functional word.
+	 * Once created, instances hold no mutable state and hence may be shared between threads
 	 * @param resourceManager
 	 * @throws IOException 
 	 */
@@ -44,8 +51,13 @@ class ReverseParseRules {
 		this.chemAutomaton = resourceManager.getReverseChemicalAutomaton();
 		this.symbolTokenNamesDictReversed = resourceManager.getSymbolTokenNamesDictReversed();
 		this.symbolRegexAutomataDictReversed = resourceManager.getSymbolRegexAutomataDictReversed();
-		this.symbolRegexesDictReversed = resourceManager.getSymbolRegexesDictReversed();
+		this.symbolRegexesDictReversed = resourceManager.getSymbolRegexesDictReversed().clone();
+		this.symbolLookaroundsDictReversed = LookaroundMatcher.compileAndRemove(symbolRegexesDictReversed, true);
 		this.stateSymbols = chemAutomaton.getCharIntervals();
+
+		this.transitionRowStart = chemAutomaton.getTransitionRowStart();
+		this.transitionSymbolIndex = chemAutomaton.getTransitionSymbolIndex();
+		this.transitionNextState = chemAutomaton.getTransitionNextState();
 	}
 
 	/**Determines the possible annotations for a chemical word
@@ -67,7 +79,7 @@ class ReverseParseRules {
 		int posInNameOfLastSuccessfulAnnotations = chemicalWord.length();
 		List<AnnotatorState> successfulAnnotations = new ArrayList<>();
 		AnnotatorState longestAnnotation = initialState;//this is the longest annotation. It does not necessarily end in an accept state
-		int stateSymbolsSize = stateSymbols.length;
+		int[] matchStarts = new int[chemicalWord.length() + 1];
 		while (!asStack.isEmpty()) {
 			AnnotatorState as = asStack.removeLast();//depth-first avoids pathological memory consumption if parsing ambiguity is encountered
 			int posInName = as.getPosInName();
@@ -88,42 +100,44 @@ class ReverseParseRules {
 				longestAnnotation = as;
 			}
 
-			for (int i = 0; i < stateSymbolsSize; i++) {
+			int currentState = as.getState();
+			for (int r = transitionRowStart[currentState], rowEnd = transitionRowStart[currentState + 1]; r < rowEnd; r++) {
+				int i = transitionSymbolIndex[r];
 				char annotationCharacter = stateSymbols[i];
-				int potentialNextState = chemAutomaton.step(as.getState(), annotationCharacter);
-				if (potentialNextState != -1) {//-1 means this state is not accessible from the previous state
-					OpsinRadixTrie possibleTokenisationsTrie = symbolTokenNamesDictReversed[i];
-					if (possibleTokenisationsTrie != null) {
-						List<Integer> possibleTokenisations = possibleTokenisationsTrie.findMatchesReadingStringRightToLeft(chemicalWordLowerCase, posInName);
-						if (possibleTokenisations != null) {//next could be a token
-							for (int j = 0, l = possibleTokenisations.size(); j < l; j++) {//typically list size will be 1 so this is faster than an iterator
-								int tokenizationIndex = possibleTokenisations.get(j);
-								AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, false, as);
-								//System.out.println("tokened " + chemicalWordLowerCase.substring(tokenizationIndex, posInName));
-								asStack.add(newAs);
-							}
-						}
+				int potentialNextState = transitionNextState[r];
+				OpsinRadixTrie possibleTokenisationsTrie = symbolTokenNamesDictReversed[i];
+				if (possibleTokenisationsTrie != null) {
+					int matchCount = possibleTokenisationsTrie.findMatchesReadingStringRightToLeft(chemicalWordLowerCase, posInName, matchStarts);
+					for (int j = 0; j < matchCount; j++) {//next could be a token
+						int tokenizationIndex = matchStarts[j];
+						AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, false, as);
+						//System.out.println("tokened " + chemicalWordLowerCase.substring(tokenizationIndex, posInName));
+						asStack.add(newAs);
 					}
-					RunAutomaton possibleAutomata = symbolRegexAutomataDictReversed[i];
-					if (possibleAutomata != null) {//next could be an automaton
-						int matchLength = runInReverse(possibleAutomata, chemicalWord, posInName);
-						if (matchLength != -1){//matchLength = -1 means it did not match
-							int tokenizationIndex = posInName - matchLength;
-							AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
-							//System.out.println("neword automata " + chemicalWord.substring(tokenizationIndex, posInName));
-							asStack.add(newAs);
-						}
+				}
+				OpsinAutomaton possibleAutomata = symbolRegexAutomataDictReversed[i];
+				if (possibleAutomata != null) {//next could be an automaton
+					int matchLength = runInReverse(possibleAutomata, chemicalWord, posInName);
+					if (matchLength != -1){//matchLength = -1 means it did not match
+						int tokenizationIndex = posInName - matchLength;
+						AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
+						//System.out.println("neword automata " + chemicalWord.substring(tokenizationIndex, posInName));
+						asStack.add(newAs);
 					}
-					Pattern possibleRegex = symbolRegexesDictReversed[i];
-					if (possibleRegex != null) {//next could be a regex
-						Matcher mat = possibleRegex.matcher(chemicalWord).region(0, posInName);
-						mat.useTransparentBounds(true);
-						if (mat.find()) {//match at end (patterns use $ anchor)
-							int tokenizationIndex = posInName - mat.group(0).length();
-							AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
-							//System.out.println("neword regex " + mat.group(0));
-							asStack.add(newAs);
-						}
+				}
+				LookaroundMatcher possibleLookaround = symbolLookaroundsDictReversed[i];
+				if (possibleLookaround != null && possibleLookaround.matches(chemicalWord, posInName)) {//next could be a zero width lookaround
+					asStack.add(new AnnotatorState(potentialNextState, annotationCharacter, posInName, true, as));
+				}
+				Pattern possibleRegex = symbolRegexesDictReversed[i];
+				if (possibleRegex != null) {//next could be a regex
+					Matcher mat = possibleRegex.matcher(chemicalWord).region(0, posInName);
+					mat.useTransparentBounds(true);
+					if (mat.find()) {//match at end (patterns use $ anchor)
+						int tokenizationIndex = posInName - mat.group(0).length();
+						AnnotatorState newAs = new AnnotatorState(potentialNextState, annotationCharacter, tokenizationIndex, true, as);
+						//System.out.println("neword regex " + mat.group(0));
+						asStack.add(newAs);
 					}
 				}
 			}
@@ -150,7 +164,7 @@ class ReverseParseRules {
 	 * @param indexAfterFirstchar pos in string to start at
 	 * @return length of the longest accepted run, -1 if no run is accepted
 	 */
-	private int runInReverse(RunAutomaton automaton, String s, int indexAfterFirstchar) {
+	private int runInReverse(OpsinAutomaton automaton, String s, int indexAfterFirstchar) {
 		int state = automaton.getInitialState();
 		int max = -1;
 		for (int pos = indexAfterFirstchar -1; ; pos--) {
@@ -9,6 +9,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import uk.ac.cam.ch.wwmm.opsin.Bond.SMILES_BOND_DIRECTION;
 import uk.ac.cam.ch.wwmm.opsin.BondStereo.BondStereoValue;
@@ -116,6 +118,12 @@ class SMILESFragmentBuilder {
 		aromaticAtoms.add("te");
 	}
 	
+	/**The maximum number of distinct SMILES for which prototypes are retained. Fragments for other SMILES are always parsed*/
+	private static final int MAX_CACHED_SMILES = 10000;
+
+	/**Prototypes of previously built fragments by SMILES and then labelMapping, shared by all builders*/
+	private static final ConcurrentMap<String, ConcurrentMap<String, FragmentPrototype>> prototypeCache = new ConcurrentHashMap<>();
+
 	private final IDManager idManager;
 	
 	SMILESFragmentBuilder(IDManager idManager) {
@@ -724,6 +732,14 @@ class SMILESFragmentBuilder {
 		if (smiles.isEmpty()){
 			return fragment;
 		}
+		ConcurrentMap<String, FragmentPrototype> prototypesForSmiles = prototypeCache.get(smiles);
+		if (prototypesForSmiles != null) {
+			FragmentPrototype prototype = prototypesForSmiles.get(labelMapping);
+			if (prototype != null) {
+				prototype.populate(fragment, idManager);
+				return fragment;
+			}
+		}
 		ParserInstance instance = new ParserInstance(smiles, fragment);
 		instance.parseSmiles();
 		
@@ -740,6 +756,18 @@ class SMILESFragmentBuilder {
 			}
 		}
 		CycleDetector.assignWhetherAtomsAreInCycles(fragment);
+
+		if (prototypesForSmiles == null) {
+			if (prototypeCache.size() >= MAX_CACHED_SMILES) {
+				return fragment;
+			}
+			prototypesForSmiles = new ConcurrentHashMap<>();
+			ConcurrentMap<String, FragmentPrototype> existing = prototypeCache.putIfAbsent(smiles, prototypesForSmiles);
+			if (existing != null) {
+				prototypesForSmiles = existing;
+			}
+		}
+		prototypesForSmiles.put(labelMapping, new FragmentPrototype(fragment));
 		return fragment;
 	}
 
@@ -1,5 +1,7 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,9 +11,7 @@ import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -19,7 +19,9 @@ import uk.ac.cam.ch.wwmm.opsin.Bond.SMILES_BOND_DIRECTION;
 import uk.ac.cam.ch.wwmm.opsin.BondStereo.BondStereoValue;
 
 /**
- * Writes an isomeric SMILES serialisation of an OPSIN fragment
+ * Writes an isomeric SMILES serialisation of an OPSIN fragment.
+ * The state used whilst writing is held in arrays indexed by the index of atoms/bonds in the fragment.
+ * A writer may be reused for successive fragments, but must only be used by one thread at a time
  * @author dl387
  *
  */
@@ -29,29 +31,74 @@ class SMILESWriter {
 	private static final Map<ChemEl,Integer[]> organicAtomsToStandardValencies = new EnumMap<>(ChemEl.class);
 
 	/**Closures 1-9, %10-99, 0 */
-	private static final  List<String> closureSymbols = new ArrayList<>();
+	private static final String[] closureSymbols = new String[100];
 
+	/**The depth of atoms that are not part of the SMILES e.g. implicit hydrogen*/
+	private static final int UNVISITED = -1;
 
-	/**The available ring closure symbols, ordered from start to end in the preferred order for use.*/
-	private final Deque<String> availableClosureSymbols = new ArrayDeque<>(closureSymbols);
+	/**Special values of the atom on the traversal stack that indicate the start/end of a branch*/
+	private static final int START_BRANCH = -2;
+	private static final int END_BRANCH = -3;
 
-	/**Maps between bonds and the ring closure to use when the atom that ends the bond is encountered.*/
-	private final HashMap<Bond, String> bondToClosureSymbolMap = new HashMap<>();
+	/**State larger than this (in atoms, bonds or characters of SMILES) is discarded after use, rather than being retained for the next fragment*/
+	private static final int MAX_RETAINED_CAPACITY = 1024;
 
-	/**Maps between bonds and the atom that this bond will go to in the SMILES. Populated in the order the bonds are to be made */
-	private final HashMap<Bond, Atom> bondToNextAtomMap = new LinkedHashMap<>();
+	private static final int INITIAL_STACK_CAPACITY = 16;
 
-	/**The structure to be converted to SMILES*/
-	private final Fragment structure;
+	private static final int[] NO_INDICES = new int[0];
+
+	private static final SMILES_BOND_DIRECTION[] NO_BOND_DIRECTIONS = new SMILES_BOND_DIRECTION[0];
+
+	/**The available ring closure symbols (as indices of closureSymbols), the last being the preferred symbol for use next.*/
+	private final int[] availableClosureSymbols = new int[closureSymbols.length];
+
+	private int availableClosureSymbolCount;
+
+	/**The ring closures that become available after the current atom has been written*/
+	private int[] newlyAvailableClosureSymbols = new int[4];
 
 	/**Holds the SMILES string which is under construction*/
-	private final StringBuilder smilesBuilder = new StringBuilder();
+	private StringBuilder smilesBuilder = new StringBuilder();
+
+	/**Used when copying the SMILES to a Writer*/
+	private char[] charBuffer;
+
+	/**The structure to be converted to SMILES*/
+	private Fragment structure;
 
 	/**Should extended SMILES be output*/
 	private int options;
 
+	/**For each atom, how many bonds it is from the start of the walk of its component, or UNVISITED*/
+	private int[] atomDepths = NO_INDICES;
+
+	/**For each atom, its position in the SMILES, or -1 if it is not in the SMILES*/
+	private int[] atomOutputPositions = NO_INDICES;
+
 	/**The order atoms were traversed when creating the SMILES*/
-	private List<Atom> smilesOutputOrder;
+	private int[] smilesOutputOrder = NO_INDICES;
+
+	private int smilesOutputCount;
+
+	/**For each bond, the atom that this bond will go to in the SMILES, or -1 if the bond is not in the SMILES*/
+	private int[] bondToNextAtom = NO_INDICES;
+
+	/**For each bond, the ring closure (index of closureSymbols) to use when the atom that ends the bond is encountered*/
+	private int[] bondToClosureSymbol = NO_INDICES;
+
+	/**The bonds in the order they are to be made*/
+	private int[] bondsInOrder = NO_INDICES;
+
+	/**For each bond, the slash to use to represent double bond stereochemistry, or null if none*/
+	private SMILES_BOND_DIRECTION[] bondDirections = NO_BOND_DIRECTIONS;
+
+	private int bondsInOrderCount;
+
+	/**The atoms, bonds taken to reach them and their depths, for the atoms yet to be traversed*/
+	private int[] stackAtoms = new int[INITIAL_STACK_CAPACITY];
+	private int[] stackBonds = new int[INITIAL_STACK_CAPACITY];
+	private int[] stackDepths = new int[INITIAL_STACK_CAPACITY];
+	private int stackSize;
 
 	static {
 		organicAtomsToStandardValencies.put(ChemEl.B, new Integer[]{3});
@@ -68,22 +115,15 @@ class SMILESWriter {
 		organicAtomsToStandardValencies.put(ChemEl.R, new Integer[]{1,2,3,4,5,6,7,8,9});
 
 		for (int i = 1; i <=9; i++) {
-			closureSymbols.add(String.valueOf(i));
+			closureSymbols[i - 1] = String.valueOf(i);
 		}
 		for (int i = 10; i <=99; i++) {
-			closureSymbols.add("%"+i);
+			closureSymbols[i - 1] = "%"+i;
 		}
-		closureSymbols.add("0");
+		closureSymbols[99] = "0";
 	}
 
-	/**
-	 * Creates a SMILES writer for the given fragment
-	 * @param structure
-	 * @param options
-	 */
-	private SMILESWriter(Fragment structure, int options) {
-		this.structure = structure;
-		this.options = options;
+	SMILESWriter() {
 	}
 
 	/**
@@ -96,7 +136,7 @@ class SMILESWriter {
 	 * @return SMILES String
 	 */
 	static String generateSmiles(Fragment structure, int options) {
-		return new SMILESWriter(structure, options).writeSmiles();
+		return new SMILESWriter().write(structure, options);
 	}
 
 	/**
@@ -108,7 +148,7 @@ class SMILESWriter {
 	 * @return SMILES String
 	 */
 	static String generateSmiles(Fragment structure) {
-		return new SMILESWriter(structure, SmilesOptions.DEFAULT).writeSmiles();
+		return generateSmiles(structure, SmilesOptions.DEFAULT);
 	}
 
 	/**
@@ -120,15 +160,140 @@ class SMILESWriter {
 	 * @return Extended SMILES String
 	 */
 	static String generateExtendedSmiles(Fragment structure) {
-		return new SMILESWriter(structure, SmilesOptions.CXSMILES).writeSmiles();
+		return generateSmiles(structure, SmilesOptions.CXSMILES);
+	}
+
+	/**
+	 * Generates SMILES for the given fragment, appending it to the given Appendable.
+	 * Nothing is appended if SMILES generation fails
+	 * The same assumptions are made as for {@link #generateSmiles(Fragment, int)}
+	 * @param structure
+	 * @param options the set of {@link SmilesOptions} to use
+	 * @param out
+	 * @throws IOException If the Appendable throws
+	 */
+	static void generateSmiles(Fragment structure, int options, Appendable out) throws IOException {
+		new SMILESWriter().write(structure, options, out);
+	}
+
+	/**
+	 * As {@link #generateSmiles(Fragment, int)}, but reusing the state of this writer.
+	 * This avoids reallocating the state for each fragment when many fragments are to be written
+	 * @param structure
+	 * @param options the set of {@link SmilesOptions} to use
+	 * @return SMILES String
+	 */
+	String write(Fragment structure, int options) {
+		try {
+			writeSmiles(structure, options);
+			return smilesBuilder.toString();
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * As {@link #generateSmiles(Fragment, int, Appendable)}, but reusing the state of this writer
+	 * @param structure
+	 * @param options the set of {@link SmilesOptions} to use
+	 * @param out
+	 * @throws IOException If the Appendable throws
+	 */
+	void write(Fragment structure, int options, Appendable out) throws IOException {
+		try {
+			writeSmiles(structure, options);
+			appendSmilesTo(out);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * Drops the reference to the structure, and any state that was grown for an unusually large structure
+	 */
+	private void release() {
+		structure = null;
+		if (atomDepths.length > MAX_RETAINED_CAPACITY) {
+			atomDepths = NO_INDICES;
+			atomOutputPositions = NO_INDICES;
+			smilesOutputOrder = NO_INDICES;
+		}
+		if (bondToNextAtom.length > MAX_RETAINED_CAPACITY) {
+			bondToNextAtom = NO_INDICES;
+			bondToClosureSymbol = NO_INDICES;
+			bondsInOrder = NO_INDICES;
+			bondDirections = NO_BOND_DIRECTIONS;
+		}
+		if (stackAtoms.length > MAX_RETAINED_CAPACITY) {
+			stackAtoms = new int[INITIAL_STACK_CAPACITY];
+			stackBonds = new int[INITIAL_STACK_CAPACITY];
+			stackDepths = new int[INITIAL_STACK_CAPACITY];
+		}
+		if (smilesBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+			smilesBuilder = new StringBuilder();
+		}
+	}
+
+	private void appendSmilesTo(Appendable out) throws IOException {
+		if (out instanceof Writer) {
+			//Writer.append would copy the SMILES to a String
+			int length = smilesBuilder.length();
+			if (charBuffer == null) {
+				charBuffer = new char[1024];
+			}
+			for (int i = 0; i < length; i += charBuffer.length) {
+				int end = Math.min(length, i + charBuffer.length);
+				smilesBuilder.getChars(i, end, charBuffer, 0);
+				((Writer) out).write(charBuffer, 0, end - i);
+			}
+		}
+		else {
+			out.append(smilesBuilder);
+		}
+	}
+
+	/**
+	 * Prepares the arrays for the given structure, growing them if necessary
+	 * @param structure
+	 * @param options
+	 */
+	private void reset(Fragment structure, int options) {
+		this.structure = structure;
+		this.options = options;
+		smilesBuilder.setLength(0);
+		int atomCount = structure.getAtomCount();
+		if (atomDepths.length < atomCount) {
+			atomDepths = new int[atomCount];
+			atomOutputPositions = new int[atomCount];
+			smilesOutputOrder = new int[atomCount];
+		}
+		Arrays.fill(atomDepths, 0, atomCount, UNVISITED);
+		Arrays.fill(atomOutputPositions, 0, atomCount, -1);
+		smilesOutputCount = 0;
+		int bondCount = structure.getBondCount();
+		if (bondToNextAtom.length < bondCount) {
+			bondToNextAtom = new int[bondCount];
+			bondToClosureSymbol = new int[bondCount];
+			bondsInOrder = new int[bondCount];
+			bondDirections = new SMILES_BOND_DIRECTION[bondCount];
+		}
+		Arrays.fill(bondToNextAtom, 0, bondCount, -1);
+		Arrays.fill(bondDirections, 0, bondCount, null);
+		bondsInOrderCount = 0;
+		for (int i = 0; i < closureSymbols.length; i++) {
+			availableClosureSymbols[i] = closureSymbols.length - 1 - i;
+		}
+		availableClosureSymbolCount = closureSymbols.length;
+		stackSize = 0;
 	}
 
-	String writeSmiles() {
+	private void writeSmiles(Fragment structure, int options) {
+		reset(structure, options);
 		List<Atom> roots = assignSmilesOrder();
 		assignDoubleBondStereochemistrySlashes();
 
-		smilesOutputOrder = new ArrayList<>(structure.getAtomCount());
-
 		for (Atom currentAtom : roots) {
 			if (smilesBuilder.length() != 0) {
 				smilesBuilder.append('.');
@@ -139,8 +304,62 @@ class SMILESWriter {
 		if ((options & SmilesOptions.CXSMILES) != 0) {
 			writeExtendedSmilesLayer(options);
 		}
+	}
+
+	/**
+	 * Returns the depth of the given atom, or UNVISITED if it is not part of the SMILES, including if it is not in the structure
+	 * @param atom
+	 * @return
+	 */
+	private int getDepth(Atom atom) {
+		int index = structure.getAtomIndex(atom);
+		return index >= 0 ? atomDepths[index] : UNVISITED;
+	}
+
+	/**
+	 * Returns the atom that the given bond will go to in the SMILES, or null if the bond is not part of the SMILES
+	 * @param bond
+	 * @return
+	 */
+	private Atom getNextAtom(Bond bond) {
+		int index = structure.getBondIndex(bond);
+		if (index < 0 || bondToNextAtom[index] < 0) {
+			return null;
+		}
+		return structure.getAtom(bondToNextAtom[index]);
+	}
+
+	/**
+	 * Returns the direction assigned to the given bond, or null if it has none or is not in the structure being written
+	 * @param bond
+	 * @return
+	 */
+	private SMILES_BOND_DIRECTION getBondDirection(Bond bond) {
+		int index = structure.getBondIndex(bond);
+		return index >= 0 ? bondDirections[index] : null;
+	}
+
+	/**
+	 * Assigns a direction to the given bond. Bonds that are not in the structure are ignored
+	 * @param bond
+	 * @param direction
+	 */
+	private void setBondDirection(Bond bond, SMILES_BOND_DIRECTION direction) {
+		int index = structure.getBondIndex(bond);
+		if (index >= 0) {
+			bondDirections[index] = direction;
+		}
+	}
 
-		return smilesBuilder.toString();
+	private void push(int atom, int bond, int depth) {
+		if (stackSize == stackAtoms.length) {
+			stackAtoms = Arrays.copyOf(stackAtoms, stackSize * 2);
+			stackBonds = Arrays.copyOf(stackBonds, stackSize * 2);
+			stackDepths = Arrays.copyOf(stackDepths, stackSize * 2);
+		}
+		stackAtoms[stackSize] = atom;
+		stackBonds[stackSize] = bond;
+		stackDepths[stackSize++] = depth;
 	}
 
 	private void writeExtendedSmilesLayer(int options) {
@@ -154,8 +373,8 @@ class SMILESWriter {
 		Set<Integer> seenAttachmentpoints = new HashSet<>();
 		List<Atom> polymerAttachPoints = structure.getPolymerAttachmentPoints();
 		boolean isPolymer = polymerAttachPoints != null && polymerAttachPoints.size() > 0;
-		for (int i = 0, l = smilesOutputOrder.size(); i < l; i++) {
-			Atom a = smilesOutputOrder.get(i);
+		for (int i = 0; i < smilesOutputCount; i++) {
+			Atom a = structure.getAtom(smilesOutputOrder[i]);
 			String homologyGroup = a.getProperty(Atom.HOMOLOGY_GROUP);
 			if (homologyGroup != null) {
 				homologyGroup = escapeExtendedSmilesLabel(homologyGroup);
@@ -206,7 +425,7 @@ class SMILESWriter {
 				for (int j = 0; j < atomsInPositionVariationBond.size(); j++) {
 					sb.append(j==0 ? ':' : '.');
 					Atom referencedAtom = atomsInPositionVariationBond.get(j);
-					int referencedAtomIndex = smilesOutputOrder.indexOf(referencedAtom);
+					int referencedAtomIndex = getOutputPosition(referencedAtom);
 					if (referencedAtomIndex == -1){
 						throw new RuntimeException("OPSIN Bug: Failed to resolve position variation bond atom");
 					}
@@ -224,7 +443,7 @@ class SMILESWriter {
 				if (grps == null) {
 					enhancedStereo.put(stereoGroup, grps = new ArrayList<>());
 				}
-				grps.add(smilesOutputOrder.indexOf(a));
+				grps.add(i);
 			}
 		}
 		List<String> extendedSmiles = new ArrayList<>(2);
@@ -307,8 +526,8 @@ class SMILESWriter {
 			StringBuilder sruContents = new StringBuilder();
 			sruContents.append("Sg:n:");
 			boolean appendDelimiter = false;
-			for (int i = 0, l = smilesOutputOrder.size(); i < l; i++) {
-				if (smilesOutputOrder.get(i).getElement() != ChemEl.R) {
+			for (int i = 0; i < smilesOutputCount; i++) {
+				if (structure.getAtom(smilesOutputOrder[i]).getElement() != ChemEl.R) {
 					if (appendDelimiter) {
 						sruContents.append(',');
 					}
@@ -326,6 +545,11 @@ class SMILESWriter {
 		}
 	}
 
+	private int getOutputPosition(Atom atom) {
+		int index = structure.getAtomIndex(atom);
+		return index >= 0 ? atomOutputPositions[index] : -1;
+	}
+
 	private String escapeExtendedSmilesLabel(String str) {
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0, len = str.length(); i < len; i++) {
@@ -345,26 +569,23 @@ class SMILESWriter {
 	}
 
 	/**
-	 * Walks through the fragment populating the Atom.VISITED property indicating how many bonds
+	 * Walks through the fragment populating the atomDepths indicating how many bonds
 	 * an atom is from the start of the fragment walk. A new walk will be started for each disconnected component of the fragment
 	 */
 	private List<Atom> assignSmilesOrder() {
-		List<Atom> atomList = structure.getAtomList();
-		for (Atom atom : atomList) {
-			atom.setProperty(Atom.VISITED, null);
-		}
-
+		int atomCount = structure.getAtomCount();
 		List<Atom> roots = new ArrayList<>();
 
 		// start from * atoms first to shorten the CXSMILES label ($;;;$) layer
 		// and generally emit nicer smiles
 		boolean more = false;
-		for (Atom a : atomList) {
-			if (a.getProperty(Atom.VISITED) != null) {
+		for (int i = 0; i < atomCount; i++) {
+			if (atomDepths[i] != UNVISITED) {
 				continue;
 			}
+			Atom a = structure.getAtom(i);
 			if (a.getElement() == ChemEl.R) {
-				traverseMolecule(a);
+				traverseMolecule(i);
 				roots.add(a);
 			} else {
 				more = true;
@@ -372,10 +593,11 @@ class SMILESWriter {
 		}
 
 		if (more) {
-			for (Atom a : atomList) {
-				if (a.getProperty(Atom.VISITED) == null && !isSmilesImplicitProton(a)) {
+			for (int i = 0; i < atomCount; i++) {
+				Atom a = structure.getAtom(i);
+				if (atomDepths[i] == UNVISITED && !isSmilesImplicitProton(a)) {
 					//true for only the first atom in a fully connected molecule
-					traverseMolecule(a);
+					traverseMolecule(i);
 					roots.add(a);
 				}
 			}
@@ -383,55 +605,53 @@ class SMILESWriter {
 		return roots;
 	}
 
-	private static class TraversalState {
-		private final Atom atom;
-		private final Bond bondTaken;
-		private final int depth;
-
-		private TraversalState(Atom atom, Bond bondTaken, int depth) {
-			this.atom = atom;
-			this.bondTaken = bondTaken;
-			this.depth = depth;
-		}
-	}
-
 	/**
-	 * Iterative function for populating the Atom.VISITED property
-	 * Also populates the bondToNextAtom Map
+	 * Iterative function for populating the atomDepths
+	 * Also populates bondToNextAtom and bondsInOrder
 	 * @param startingAtom
 	 * @return
 	 */
-	private void traverseMolecule(Atom startingAtom){
-		Deque<TraversalState> stack = new ArrayDeque<TraversalState>();
-		stack.add(new TraversalState(startingAtom, null, 0));
-		while (!stack.isEmpty()){
-			TraversalState currentstate = stack.removeLast();
-			Atom currentAtom = currentstate.atom;
-			Bond bondtaken = currentstate.bondTaken;
-			if (bondtaken != null) {
-				bondToNextAtomMap.put(bondtaken, currentAtom);
-			}
-			if(currentAtom.getProperty(Atom.VISITED) != null){
+	private void traverseMolecule(int startingAtom){
+		push(startingAtom, -1, 0);
+		while (stackSize > 0){
+			stackSize--;
+			int currentAtomIndex = stackAtoms[stackSize];
+			int bondTaken = stackBonds[stackSize];
+			int depth = stackDepths[stackSize];
+			if (bondTaken >= 0) {
+				if (bondToNextAtom[bondTaken] < 0) {
+					bondsInOrder[bondsInOrderCount++] = bondTaken;
+				}
+				bondToNextAtom[bondTaken] = currentAtomIndex;
+			}
+			if (atomDepths[currentAtomIndex] != UNVISITED){
 				continue;
 			}
-			int depth = currentstate.depth;
-			currentAtom.setProperty(Atom.VISITED, depth);
+			atomDepths[currentAtomIndex] = depth;
+			Atom currentAtom = structure.getAtom(currentAtomIndex);
 			List<Bond> bonds = currentAtom.getBonds();
 			for (int i = bonds.size() - 1; i >=0; i--) {
 				Bond bond = bonds.get(i);
-				if (bond.equals(bondtaken)){
+				int bondIndex = structure.getBondIndex(bond);
+				if (bondTaken >= 0 && bondIndex == bondTaken){
 					continue;
 				}
 				Atom neighbour = bond.getOtherAtom(currentAtom);
+				int neighbourIndex = structure.getAtomIndex(neighbour);
 				// don't traverse interfragment bond
 				if (neighbour.getFrag() != currentAtom.getFrag()) {
-					neighbour.setProperty(Atom.VISITED, null);//Ensure this isn't visited by traverseSmiles
+					if (neighbourIndex >= 0) {
+						atomDepths[neighbourIndex] = UNVISITED;//Ensure this isn't visited by traverseSmiles
+					}
 					continue;
 				}
 				if (isSmilesImplicitProton(neighbour)){
 					continue;
 				}
-				stack.add(new TraversalState(neighbour, bond, depth + 1));
+				if (neighbourIndex < 0 || bondIndex < 0) {
+					throw new RuntimeException("OPSIN Bug: Atom/bond was not in the fragment being converted to SMILES");
+				}
+				push(neighbourIndex, bondIndex, depth + 1);
 			}
 		}
 	}
@@ -445,8 +665,7 @@ class SMILESWriter {
 			//deuterium/tritium
 			return false;
 		}
-		List<Atom> neighbours = atom.getAtomNeighbours();
-		int neighbourCount = neighbours.size();
+		int neighbourCount = atom.getBondCount();
 		if (neighbourCount > 1){
 			//bridging hydrogen
 			return false;
@@ -456,7 +675,7 @@ class SMILESWriter {
 			return false;
 		}
 
-		Atom neighbour = neighbours.get(0);
+		Atom neighbour = atom.getFirstBond().getOtherAtom(atom);
 		ChemEl chemEl = neighbour.getElement();
 		if (chemEl == ChemEl.H || chemEl == ChemEl.R) {
 			//only connects to hydrogen or an R-group
@@ -517,10 +736,9 @@ class SMILESWriter {
 	 * create a contradictory double bond stereochemistry definition.
 	 */
 	private void assignDoubleBondStereochemistrySlashes() {
-		Set<Bond> bonds = bondToNextAtomMap.keySet();
 		Deque<Bond> bondsToVisit = new ArrayDeque<Bond>();
-		for (Bond bond : bonds) {
-			bond.setSmilesStereochemistry(null);
+		for (int i = 0; i < bondsInOrderCount; i++) {
+			Bond bond = structure.getBond(bondsInOrder[i]);
 			if (bond.getBondStereo() != null) {
 				bondsToVisit.add(bond);
 			}
@@ -551,10 +769,10 @@ class SMILESWriter {
 		if (bond1 == null || bond2 == null) {
 			throw new RuntimeException("OPSIN Bug: Bondstereo described atoms that are not bonded");
 		}
-		Atom bond1ToAtom = bondToNextAtomMap.get(bond1);
-		Atom bond2ToAtom = bondToNextAtomMap.get(bond2);
-		SMILES_BOND_DIRECTION bond1Slash = bond1.getSmilesStereochemistry();//null except in conjugated systems
-		SMILES_BOND_DIRECTION bond2Slash = bond2.getSmilesStereochemistry();
+		Atom bond1ToAtom = getNextAtom(bond1);
+		Atom bond2ToAtom = getNextAtom(bond2);
+		SMILES_BOND_DIRECTION bond1Slash = getBondDirection(bond1);//null except in conjugated systems
+		SMILES_BOND_DIRECTION bond2Slash = getBondDirection(bond2);
 
 		SMILES_BOND_DIRECTION bond1Direction = SMILES_BOND_DIRECTION.LSLASH;
 		SMILES_BOND_DIRECTION bond2Direction = SMILES_BOND_DIRECTION.LSLASH;
@@ -588,13 +806,13 @@ class SMILESWriter {
 		bondsFrom2ndAtom.remove(bond1);
 		bondsFrom2ndAtom.remove(bond);
 		if (bondsFrom2ndAtom.size() == 1) {//can be 0 for imines
-			if (bondToNextAtomMap.containsKey(bondsFrom2ndAtom.get(0))) {//ignore bonds to implicit hydrogen
+			if (getNextAtom(bondsFrom2ndAtom.get(0)) != null) {//ignore bonds to implicit hydrogen
 				bond1Other = bondsFrom2ndAtom.get(0);
 				bond1OtherDirection = bond1Direction.flipDirection();
 				if (!bond1ToAtom.equals(atomRefs4[1])) {
 					bond1OtherDirection = bond1OtherDirection.flipDirection();
 				}
-				if (!bondToNextAtomMap.get(bond1Other).equals(atomRefs4[1])) {
+				if (!getNextAtom(bond1Other).equals(atomRefs4[1])) {
 					bond1OtherDirection = bond1OtherDirection.flipDirection();
 				}
 			}
@@ -604,20 +822,20 @@ class SMILESWriter {
 		bondsFrom3rdAtom.remove(bond2);
 		bondsFrom3rdAtom.remove(bond);
 		if (bondsFrom3rdAtom.size() == 1) {
-			if (bondToNextAtomMap.containsKey(bondsFrom3rdAtom.get(0))) {
+			if (getNextAtom(bondsFrom3rdAtom.get(0)) != null) {
 				bond2Other = bondsFrom3rdAtom.get(0);
 				bond2OtherDirection = bond2Direction.flipDirection();
 				if (!bond2ToAtom.equals(atomRefs4[3])) {
 					bond2OtherDirection = bond2OtherDirection.flipDirection();
 				}
-				if (!bondToNextAtomMap.get(bond2Other).equals(bond2Other.getOtherAtom(atomRefs4[2]))) {
+				if (!getNextAtom(bond2Other).equals(bond2Other.getOtherAtom(atomRefs4[2]))) {
 					bond2OtherDirection = bond2OtherDirection.flipDirection();
 				}
 			}
 		}
 
 		//One of the bonds may have already have a defined slash from a previous bond stereo. If so make sure that we don't change it.
-		if (bond1Other != null && bond1Other.getSmilesStereochemistry() != null && bond1Other.getSmilesStereochemistry() != bond1OtherDirection) {
+		if (bond1Other != null && getBondDirection(bond1Other) != null && getBondDirection(bond1Other) != bond1OtherDirection) {
 			bond1Direction = bond1Direction.flipDirection();
 			bond2Direction = bond2Direction.flipDirection();
 			bond1OtherDirection = bond1OtherDirection.flipDirection();
@@ -625,7 +843,7 @@ class SMILESWriter {
 				bond2OtherDirection = bond2OtherDirection.flipDirection();
 			}
 		}
-		else if (bond2Other != null && bond2Other.getSmilesStereochemistry() != null && bond2Other.getSmilesStereochemistry() != bond2OtherDirection) {
+		else if (bond2Other != null && getBondDirection(bond2Other) != null && getBondDirection(bond2Other) != bond2OtherDirection) {
 			bond1Direction = bond1Direction.flipDirection();
 			bond2Direction = bond2Direction.flipDirection();
 			bond2OtherDirection = bond2OtherDirection.flipDirection();
@@ -638,8 +856,8 @@ class SMILESWriter {
 
 		//Set slashes for all bonds that are not to implicit hydrogen
 		//In non conjugated systems this will yield redundant, but consistent, information
-		bond1.setSmilesStereochemistry(bond1Direction);
-		bond2.setSmilesStereochemistry(bond2Direction);
+		setBondDirection(bond1, bond1Direction);
+		setBondDirection(bond2, bond2Direction);
 		for (Bond b : bond1.getOtherAtom(atomRefs4[1]).getBonds()) {
 			if (b.getBondStereo() != null) {
 				bondsToProcessNext.add(b);
@@ -653,7 +871,7 @@ class SMILESWriter {
 		
 
 		if (bond1Other != null) {
-			bond1Other.setSmilesStereochemistry(bond1OtherDirection);
+			setBondDirection(bond1Other, bond1OtherDirection);
 			for (Bond b : bond1Other.getOtherAtom(atomRefs4[1]).getBonds()) {
 				if (b.getBondStereo() != null) {
 					bondsToProcessNext.add(b);
@@ -661,7 +879,7 @@ class SMILESWriter {
 			}
 		}
 		if (bond2Other != null) {
-			bond2Other.setSmilesStereochemistry(bond2OtherDirection);
+			setBondDirection(bond2Other, bond2OtherDirection);
 			for (Bond b : bond2Other.getOtherAtom(atomRefs4[2]).getBonds()) {
 				if (b.getBondStereo() != null) {
 					bondsToProcessNext.add(b);
@@ -672,71 +890,70 @@ class SMILESWriter {
 	}
 
 
-	private static final TraversalState startBranch = new TraversalState(null, null, -1);
-	private static final TraversalState endBranch = new TraversalState(null, null, -1);
-
 	/**
 	 * Generates the SMILES starting from the currentAtom, iteratively exploring
-	 * in the same order as {@link SMILESWriter#traverseMolecule(Atom)}
+	 * in the same order as {@link SMILESWriter#traverseMolecule(int)}
 	 * @param startingAtom
 	 */
 	private void traverseSmiles(Atom startingAtom){
-		Deque<TraversalState> stack = new ArrayDeque<>();
-		stack.add(new TraversalState(startingAtom, null, 0));
-		while (!stack.isEmpty()){
-			TraversalState currentstate = stack.removeLast();
-			if (currentstate == startBranch){
+		push(structure.getAtomIndex(startingAtom), -1, 0);
+		while (stackSize > 0){
+			stackSize--;
+			int currentAtomIndex = stackAtoms[stackSize];
+			if (currentAtomIndex == START_BRANCH){
 				smilesBuilder.append('(');
 				continue;
 			}
-			if (currentstate == endBranch){
+			if (currentAtomIndex == END_BRANCH){
 				smilesBuilder.append(')');
 				continue;
 			}
-			Atom currentAtom = currentstate.atom;
-			Bond bondtaken = currentstate.bondTaken;
+			Atom currentAtom = structure.getAtom(currentAtomIndex);
+			Bond bondtaken = stackBonds[stackSize] >= 0 ? structure.getBond(stackBonds[stackSize]) : null;
 			if (bondtaken != null){
-				smilesBuilder.append(bondToSmiles(bondtaken));
+				appendBondSmiles(bondtaken);
 			}
-			int depth = currentstate.depth;
+			int depth = stackDepths[stackSize];
 
-			smilesBuilder.append(atomToSmiles(currentAtom, depth, bondtaken));
-			smilesOutputOrder.add(currentAtom);
+			appendAtomSmiles(currentAtom, depth, bondtaken);
+			atomOutputPositions[currentAtomIndex] = smilesOutputCount;
+			smilesOutputOrder[smilesOutputCount++] = currentAtomIndex;
 			List<Bond> bonds = currentAtom.getBonds();
-			List<String> newlyAvailableClosureSymbols = null;
+			int newlyAvailableClosureSymbolCount = 0;
 			for (Bond bond : bonds) {//ring closures
-				if (bond.equals(bondtaken)) {
+				if (bond == bondtaken) {
 					continue;
 				}
 				Atom neighbour = bond.getOtherAtom(currentAtom);
 
-				Integer nDepth = neighbour.getProperty(Atom.VISITED);//null if outside fragment
-				if (nDepth != null && nDepth <= depth){
-					String closure = bondToClosureSymbolMap.get(bond);
-					smilesBuilder.append(closure);
-					if (newlyAvailableClosureSymbols == null){
-						newlyAvailableClosureSymbols = new ArrayList<>();
+				int nDepth = getDepth(neighbour);//UNVISITED if outside fragment
+				if (nDepth != UNVISITED && nDepth <= depth){
+					int closure = bondToClosureSymbol[structure.getBondIndex(bond)];
+					smilesBuilder.append(closureSymbols[closure]);
+					if (newlyAvailableClosureSymbolCount == newlyAvailableClosureSymbols.length){
+						newlyAvailableClosureSymbols = Arrays.copyOf(newlyAvailableClosureSymbols, newlyAvailableClosureSymbolCount * 2);
 					}
-					newlyAvailableClosureSymbols.add(closure);
+					newlyAvailableClosureSymbols[newlyAvailableClosureSymbolCount++] = closure;
 				}
 			}
 			for (Bond bond : bonds) {//ring openings
 				Atom neighbour = bond.getOtherAtom(currentAtom);
-				Integer nDepth = neighbour.getProperty(Atom.VISITED);//null if outside fragment
-				if (nDepth != null && nDepth > (depth +1)){
-					String closure = availableClosureSymbols.removeFirst();
-					bondToClosureSymbolMap.put(bond, closure);
-					smilesBuilder.append(bondToSmiles(bond));
-					smilesBuilder.append(closure);
+				int nDepth = getDepth(neighbour);//UNVISITED if outside fragment
+				if (nDepth != UNVISITED && nDepth > (depth +1)){
+					if (availableClosureSymbolCount == 0) {
+						throw new RuntimeException("OPSIN Bug: Ran out of ring closure symbols");
+					}
+					int closure = availableClosureSymbols[--availableClosureSymbolCount];
+					bondToClosureSymbol[structure.getBondIndex(bond)] = closure;
+					appendBondSmiles(bond);
+					smilesBuilder.append(closureSymbols[closure]);
 				}
 			}
 
-			if (newlyAvailableClosureSymbols != null) {
-				//By not immediately adding to availableClosureSymbols we avoid using the same digit 
-				//to both close and open on the same atom
-				for (int i = newlyAvailableClosureSymbols.size() -1; i >=0; i--) {
-					availableClosureSymbols.addFirst(newlyAvailableClosureSymbols.get(i));
-				}
+			//By not immediately adding to availableClosureSymbols we avoid using the same digit 
+			//to both close and open on the same atom
+			for (int i = newlyAvailableClosureSymbolCount - 1; i >= 0; i--) {
+				availableClosureSymbols[availableClosureSymbolCount++] = newlyAvailableClosureSymbols[i];
 			}
 
 			boolean seenFirstBranch = false;
@@ -744,16 +961,18 @@ class SMILESWriter {
 				//adjacent atoms which have not been previously written
 				Bond bond = bonds.get(i);
 				Atom neighbour = bond.getOtherAtom(currentAtom);
-				Integer nDepth = neighbour.getProperty(Atom.VISITED);//null if outside fragment
-				if (nDepth != null && nDepth == depth + 1){
+				int nDepth = getDepth(neighbour);//UNVISITED if outside fragment
+				if (nDepth != UNVISITED && nDepth == depth + 1){
+					int neighbourIndex = structure.getAtomIndex(neighbour);
+					int bondIndex = structure.getBondIndex(bond);
 					if (!seenFirstBranch){
-						stack.add(new TraversalState(neighbour, bond, depth + 1));
+						push(neighbourIndex, bondIndex, depth + 1);
 						seenFirstBranch = true;
 					}
 					else {
-						stack.add(endBranch);
-						stack.add(new TraversalState(neighbour, bond, depth + 1));
-						stack.add(startBranch);
+						push(END_BRANCH, -1, -1);
+						push(neighbourIndex, bondIndex, depth + 1);
+						push(START_BRANCH, -1, -1);
 					}
 				}
 			}
@@ -761,75 +980,74 @@ class SMILESWriter {
 	}
 
 	/**
-	 * Returns the SMILES describing the given atom.
+	 * Appends the SMILES describing the given atom.
 	 * Where possible square brackets are not included to give more readable SMILES
 	 * @param atom
 	 * @param depth
 	 * @param bondtaken
-	 * @return
 	 */
-	private String atomToSmiles(Atom atom, int depth, Bond bondtaken) {
-		StringBuilder atomSmiles = new StringBuilder();
+	private void appendAtomSmiles(Atom atom, int depth, Bond bondtaken) {
 		int hydrogenCount = calculateNumberOfBondedExplicitHydrogen(atom);
 		boolean needsSquareBrackets = determineWhetherAtomNeedsSquareBrackets(atom, hydrogenCount);
 		if (needsSquareBrackets) {
-			atomSmiles.append('[');
+			smilesBuilder.append('[');
 		}
 		if (atom.getIsotope() != null) {
-			atomSmiles.append(atom.getIsotope());
+			smilesBuilder.append(atom.getIsotope().intValue());
 		}
 		ChemEl chemEl = atom.getElement();
 		if (chemEl == ChemEl.R) {//used for polymers
-			atomSmiles.append('*');
+			smilesBuilder.append('*');
 		}
 		else{
 			if (atom.hasSpareValency()) {//spare valency corresponds directly to lower case SMILES in OPSIN's SMILES reader
-				atomSmiles.append(chemEl.toString().toLowerCase(Locale.ROOT));
+				String symbol = chemEl.toString();
+				smilesBuilder.append(Character.toLowerCase(symbol.charAt(0)));
+				smilesBuilder.append(symbol, 1, symbol.length());
 			}
 			else{
-				atomSmiles.append(chemEl.toString());
+				smilesBuilder.append(chemEl.toString());
 			}
 		}
 		if (hasStereo(atom))
-			atomSmiles.append(atomParityToSmiles(atom, depth, bondtaken));
+			smilesBuilder.append(atomParityToSmiles(atom, depth, bondtaken));
 
 		if (hydrogenCount != 0 && needsSquareBrackets && chemEl != ChemEl.H){
-			atomSmiles.append('H');
+			smilesBuilder.append('H');
 			if (hydrogenCount != 1){
-				atomSmiles.append(String.valueOf(hydrogenCount));
+				smilesBuilder.append(hydrogenCount);
 			}
 		}
 		int charge = atom.getCharge();
 	    if (charge != 0){
 	    	if (charge == 1){
-	    		atomSmiles.append('+');
+	    		smilesBuilder.append('+');
 	    	}
 	    	else if (charge == -1){
-	    		atomSmiles.append('-');
+	    		smilesBuilder.append('-');
 	    	}
 	    	else{
 	    		if (charge > 0){
-	    			atomSmiles.append('+');
+	    			smilesBuilder.append('+');
 	    		}
-	    		atomSmiles.append(charge);
+	    		smilesBuilder.append(charge);
 	    	}
 	    }
 	    if (needsSquareBrackets) {
 	    	Integer atomClass = atom.getProperty(Atom.ATOM_CLASS);
 			if (atomClass != null) {
-				atomSmiles.append(':');
-				atomSmiles.append(String.valueOf(atomClass));
+				smilesBuilder.append(':');
+				smilesBuilder.append(atomClass.intValue());
 			}
-	    	atomSmiles.append(']');
+	    	smilesBuilder.append(']');
 	    }
-		return atomSmiles.toString();
 	}
 
 	private int calculateNumberOfBondedExplicitHydrogen(Atom atom) {
-		List<Atom> neighbours = atom.getAtomNeighbours();
+		List<Bond> bonds = atom.getBonds();
 		int count = 0;
-		for (Atom neighbour : neighbours) {
-			if (neighbour.getProperty(Atom.VISITED) == null){
+		for (int i = 0, len = bonds.size(); i < len; i++) {
+			if (getDepth(bonds.get(i).getOtherAtom(atom)) == UNVISITED){
 				count++;
 			}
 		}
@@ -881,63 +1099,50 @@ class SMILESWriter {
 		AtomParity atomParity = currentAtom.getAtomParity();
 		Atom[] atomRefs4 = atomParity.getAtomRefs4().clone();
 
-		List<Atom> atomrefs4Current = new ArrayList<>();
+		Atom[] atomrefs4CurrentArr = new Atom[4];
+		int refCount = 0;
 
 		if (bondtaken != null) {//previous atom
 			Atom neighbour = bondtaken.getOtherAtom(currentAtom);
-			atomrefs4Current.add(neighbour);
+			atomrefs4CurrentArr[refCount++] = neighbour;
 		}
 
 		for (Atom atom : atomRefs4) {//lone pair as in tetrahedral sulfones
 			if (atom.equals(currentAtom)){
-				atomrefs4Current.add(currentAtom);
+				atomrefs4CurrentArr[refCount++] = currentAtom;
 			}
 		}
 
 		List<Bond> bonds = currentAtom.getBonds();
-		for (Bond bond : bonds) {//implicit hydrogen
-			Atom neighbour = bond.getOtherAtom(currentAtom);
-			if (neighbour.getProperty(Atom.VISITED) == null){
-				atomrefs4Current.add(currentAtom);
+		int bondCount = bonds.size();
+		int[] neighbourDepths = new int[bondCount];
+		for (int i = 0; i < bondCount; i++) {//implicit hydrogen
+			neighbourDepths[i] = getDepth(bonds.get(i).getOtherAtom(currentAtom));
+			if (neighbourDepths[i] == UNVISITED){
+				atomrefs4CurrentArr[refCount++] = currentAtom;
 			}
 		}
-		for (Bond bond : bonds) {//ring closures
-			if (bond.equals(bondtaken)){
-				continue;
-			}
-			Atom neighbour = bond.getOtherAtom(currentAtom);
-			if (neighbour.getProperty(Atom.VISITED) == null){
+		for (int i = 0; i < bondCount; i++) {//ring closures
+			Bond bond = bonds.get(i);
+			if (bond.equals(bondtaken) || neighbourDepths[i] == UNVISITED){
 				continue;
 			}
-			if (neighbour.getProperty(Atom.VISITED) <= depth){
-				atomrefs4Current.add(neighbour);
+			if (neighbourDepths[i] <= depth){
+				atomrefs4CurrentArr[refCount++] = bond.getOtherAtom(currentAtom);
 			}
 		}
-		for (Bond bond : bonds) {//ring openings
-			Atom neighbour = bond.getOtherAtom(currentAtom);
-			if (neighbour.getProperty(Atom.VISITED) == null){
-				continue;
+		for (int i = 0; i < bondCount; i++) {//ring openings
+			if (neighbourDepths[i] != UNVISITED && neighbourDepths[i] > (depth +1)){
+				atomrefs4CurrentArr[refCount++] = bonds.get(i).getOtherAtom(currentAtom);
 			}
-			if (neighbour.getProperty(Atom.VISITED) > (depth +1)){
-				atomrefs4Current.add(neighbour);
-			}
-
 		}
-		for (Bond bond : bonds) {//next atom/s
-			Atom neighbour = bond.getOtherAtom(currentAtom);
-			if (neighbour.getProperty(Atom.VISITED) == null){
-				continue;
-			}
-			if (neighbour.getProperty(Atom.VISITED) == depth + 1){
-				atomrefs4Current.add(neighbour);
+		for (int i = 0; i < bondCount; i++) {//next atom/s
+			if (neighbourDepths[i] != UNVISITED && neighbourDepths[i] == depth + 1){
+				atomrefs4CurrentArr[refCount++] = bonds.get(i).getOtherAtom(currentAtom);
 			}
 		}
-		Atom[] atomrefs4CurrentArr = new Atom[4];
-		for (int i = 0; i < atomrefs4Current.size(); i++) {
-			atomrefs4CurrentArr[i] = atomrefs4Current.get(i);
-		}
 		for (int i = 0; i < atomRefs4.length; i++) {//replace mentions of explicit hydrogen with the central atom the hydrogens are attached to, to be consistent with the SMILES representation
-			if (atomRefs4[i].getProperty(Atom.VISITED) == null){
+			if (getDepth(atomRefs4[i]) == UNVISITED){
 				atomRefs4[i] = currentAtom;
 			}
 		}
@@ -952,25 +1157,22 @@ class SMILESWriter {
 	}
 
 	/**
-	 * Generates the SMILES description of the bond
+	 * Appends the SMILES description of the bond
 	 * In the case of cis/trans stereochemistry this relies on the {@link SMILESWriter#assignDoubleBondStereochemistrySlashes}
-	 * having been run to setup the smilesBondDirection attribute
+	 * having been run to setup the bondDirections
 	 * @param bond
-	 * @return
 	 */
-	private String bondToSmiles(Bond bond){
-		String bondSmiles = "";
+	private void appendBondSmiles(Bond bond){
 		int bondOrder = bond.getOrder();
 		if (bondOrder == 2){
-			bondSmiles = "=";
+			smilesBuilder.append('=');
 		}
 		else if (bondOrder == 3){
-			bondSmiles = "#";
+			smilesBuilder.append('#');
 		}
-		else if (bond.getSmilesStereochemistry() != null){
-			bondSmiles = bond.getSmilesStereochemistry() == SMILES_BOND_DIRECTION.RSLASH ? "/" : "\\";
+		else if (getBondDirection(bond) != null){
+			smilesBuilder.append(getBondDirection(bond) == SMILES_BOND_DIRECTION.RSLASH ? '/' : '\\');
 		}
-		return bondSmiles;
 	}
 
 }
@@ -3,7 +3,10 @@ package uk.ac.cam.ch.wwmm.opsin;
 import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.WORDRULE_ATR;
 import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.WORDRULE_EL;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Prefer non-substituent word rules to substituent word rule e.g. ethylene is C=C not -CC-
@@ -12,36 +15,56 @@ import java.util.Comparator;
  */
 class SortParses implements Comparator<Element> {
 	public int compare(Element el1, Element el2){
-		boolean isSubstituent1 = WordRule.substituent.toString().equals(el1.getFirstChildElement(WORDRULE_EL).getAttributeValue(WORDRULE_ATR));
-		boolean isSubstituent2 = WordRule.substituent.toString().equals(el2.getFirstChildElement(WORDRULE_EL).getAttributeValue(WORDRULE_ATR));
-		if (isSubstituent1 && !isSubstituent2){
-			return 1;
-		}
-		if (!isSubstituent1 && isSubstituent2){
-			return -1;
+		return new ParseRank(el1).compareTo(new ParseRank(el2));
+	}
+
+	/**
+	 * Sorts the parses into order of preference. Each parse is ranked once, rather than on every comparison.
+	 * The sort is stable
+	 * @param parses
+	 * @return The sorted parses
+	 */
+	static List<Element> sort(List<Element> parses) {
+		if (parses.size() < 2) {
+			return parses;
 		}
-		
-		int[] counts1 = OpsinTools.countNumberOfElementsAndNumberOfChildLessElements(el1);
-		int[] counts2 = OpsinTools.countNumberOfElementsAndNumberOfChildLessElements(el2);
-		int childLessElementsInEl1 = counts1[1];
-		int childLessElementsInEl2 = counts2[1];
-		if ( childLessElementsInEl1> childLessElementsInEl2){
-			return 1;
+		List<ParseRank> ranks = new ArrayList<>(parses.size());
+		for (Element parse : parses) {
+			ranks.add(new ParseRank(parse));
 		}
-		else if (childLessElementsInEl1 < childLessElementsInEl2){
-			return -1;
+		Collections.sort(ranks);
+		List<Element> sortedParses = new ArrayList<>(parses.size());
+		for (ParseRank rank : ranks) {
+			sortedParses.add(rank.parse);
 		}
+		return sortedParses;
+	}
 
-		int elementsInEl1 = counts1[0];
-		int elementsInEl2  = counts2[0];
-		if ( elementsInEl1> elementsInEl2){
-			return 1;
-		}
-		else if (elementsInEl1 < elementsInEl2){
-			return -1;
+	private static class ParseRank implements Comparable<ParseRank> {
+		private final Element parse;
+		private final boolean isSubstituent;
+		private final int childLessElements;
+		private final int elements;
+
+		ParseRank(Element parse) {
+			this.parse = parse;
+			isSubstituent = WordRule.substituent.toString().equals(parse.getFirstChildElement(WORDRULE_EL).getAttributeValue(WORDRULE_ATR));
+			int[] counts = OpsinTools.countNumberOfElementsAndNumberOfChildLessElements(parse);
+			elements = counts[0];
+			childLessElements = counts[1];
 		}
-		else{
+
+		public int compareTo(ParseRank other) {
+			if (isSubstituent != other.isSubstituent) {
+				return isSubstituent ? 1 : -1;
+			}
+			if (childLessElements != other.childLessElements) {
+				return childLessElements > other.childLessElements ? 1 : -1;
+			}
+			if (elements != other.elements) {
+				return elements > other.elements ? 1 : -1;
+			}
 			return 0;
 		}
 	}
-}
\ No newline at end of file
+}
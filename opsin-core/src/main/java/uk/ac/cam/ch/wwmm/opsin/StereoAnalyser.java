@@ -3,7 +3,6 @@ package uk.ac.cam.ch.wwmm.opsin;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,15 +20,19 @@ class StereoAnalyser {
 	/** The atoms/bonds upon which this StereoAnalyser is operating */
 	private final Collection<Atom> atoms;
 	private final Collection<Bond> bonds;
-	
-	/** Maps each atom to its currently assigned colour. Eventually all atoms in non identical environments will have different colours. Higher is higher priority*/
-	private final Map<Atom, Integer> mappingToColour;
 
-	/** Maps each atom to an array of the colours of its neighbours*/
-	private final Map<Atom, int[]> atomNeighbourColours;
+	/** The atoms, the position of an atom in this array is its index. Ghost atoms are not included*/
+	private final Atom[] analysedAtoms;
+
+	/** The fragment that the atoms were taken from, if any, used to find the index of an atom*/
+	private final Fragment molecule;
 
-	private final AtomNeighbouringColoursComparator atomNeighbouringColoursComparator = new AtomNeighbouringColoursComparator();
-	private static final AtomicNumberThenAtomicMassComparator atomicNumberThenAtomicMassComparator = new AtomicNumberThenAtomicMassComparator();
+	/** Maps each atom to its index, created when an atom's index cannot be found from the molecule*/
+	private Map<Atom, Integer> atomToIndex;
+
+	/** The currently assigned colour of each atom (by index), followed by the colours of the ghost atoms.
+	 * Eventually all atoms in non identical environments will have different colours. Higher is higher priority*/
+	private final int[] colours;
 	
 	/**
 	 * Holds information about a tetrahedral stereocentre
@@ -109,14 +112,20 @@ class StereoAnalyser {
 	}
 	
 	/**
-	 * Sorts atoms by their atomic number, low to high
+	 * Sorts atoms, given by index, by their atomic number, low to high
 	 * In the case of a tie sorts by atomic mass
 	 * @author dl387
 	 *
 	 */
-	private static class AtomicNumberThenAtomicMassComparator implements Comparator<Atom> {
-	    public int compare(Atom a, Atom b){
-	    	return compareAtomicNumberThenAtomicMass(a, b);
+	private static class AtomicNumberThenAtomicMassComparator implements Comparator<Integer> {
+		private final Atom[] atomsAndGhosts;
+
+		AtomicNumberThenAtomicMassComparator(Atom[] atomsAndGhosts) {
+			this.atomsAndGhosts = atomsAndGhosts;
+		}
+
+	    public int compare(Integer a, Integer b){
+	    	return compareAtomicNumberThenAtomicMass(atomsAndGhosts[a], atomsAndGhosts[b]);
 	    }
 	}
 	
@@ -149,15 +158,22 @@ class StereoAnalyser {
 	}
 	
 	/**
-	 * Sorts based on the list of colours for neighbouring atoms 
+	 * Sorts atoms, given by index, based on the list of colours for neighbouring atoms 
 	 * e.g. [1,2] > [1,1]  [1,1,3] > [2,2,2]  [1,1,3] > [3]  
 	 * @author dl387
 	 *
 	 */
-	private class AtomNeighbouringColoursComparator implements Comparator<Atom> {
-	    public int compare(Atom a, Atom b){
-	    	int[] colours1 = atomNeighbourColours.get(a);
-	    	int[] colours2 = atomNeighbourColours.get(b);
+	private static class AtomNeighbouringColoursComparator implements Comparator<Integer> {
+		/** The sorted colours of the neighbours of each atom*/
+		private final int[][] neighbourColours;
+
+		AtomNeighbouringColoursComparator(int[][] neighbourColours) {
+			this.neighbourColours = neighbourColours;
+		}
+
+	    public int compare(Integer a, Integer b){
+	    	int[] colours1 = neighbourColours[a];
+	    	int[] colours2 = neighbourColours[b];
 	    	
 	    	int colours1Size = colours1.length;
 	    	int colours2Size = colours2.length;
@@ -190,7 +206,7 @@ class StereoAnalyser {
 	 * @param molecule
 	 */
 	StereoAnalyser(Fragment molecule) {
-		this (molecule.getAtomList(), molecule.getBondSet());
+		this(molecule, molecule.getAtomList(), molecule.getBondSet());
 	}
 
 	/**
@@ -202,165 +218,205 @@ class StereoAnalyser {
 	 * @param bonds
 	 */
 	StereoAnalyser(Collection<Atom> atoms, Collection<Bond> bonds) {
+		this(null, atoms, bonds);
+	}
+
+	private StereoAnalyser(Fragment molecule, Collection<Atom> atoms, Collection<Bond> bonds) {
+		this.molecule = molecule;
 		this.atoms = atoms;
 		this.bonds = bonds;
-		List<Atom> ghostAtoms = addGhostAtoms();
-		List<Atom> atomsToSort = new ArrayList<>(atoms);
-		atomsToSort.addAll(ghostAtoms);
-		mappingToColour = new HashMap<>(atomsToSort.size());
-		atomNeighbourColours = new HashMap<>(atomsToSort.size());
-		Collections.sort(atomsToSort, atomicNumberThenAtomicMassComparator);
-		List<List<Atom>> groupsByColour = populateColoursByAtomicNumberAndMass(atomsToSort);
+		this.analysedAtoms = atoms.toArray(new Atom[atoms.size()]);
+		int atomCount = analysedAtoms.length;
+		int[][] neighbours = new int[atomCount][];
+		for (int i = 0; i < atomCount; i++) {
+			Atom atom = analysedAtoms[i];
+			List<Bond> bondsOfAtom = atom.getBonds();
+			int[] neighboursOfAtom = new int[bondsOfAtom.size()];
+			for (int j = 0; j < neighboursOfAtom.length; j++) {
+				neighboursOfAtom[j] = getIndex(bondsOfAtom.get(j).getOtherAtom(atom));
+			}
+			neighbours[i] = neighboursOfAtom;
+		}
+		List<Atom> ghostAtoms = new ArrayList<>();
+		neighbours = addGhostAtoms(neighbours, ghostAtoms);
+		Atom[] atomsAndGhosts = Arrays.copyOf(analysedAtoms, neighbours.length);
+		for (int i = 0; i < ghostAtoms.size(); i++) {
+			atomsAndGhosts[atomCount + i] = ghostAtoms.get(i);
+		}
+		int totalCount = atomsAndGhosts.length;
+
+		colours = new int[totalCount];
+		Integer[] atomsSortedByColour = new Integer[totalCount];
+		for (int i = 0; i < totalCount; i++) {
+			atomsSortedByColour[i] = i;
+		}
+		Arrays.sort(atomsSortedByColour, new AtomicNumberThenAtomicMassComparator(atomsAndGhosts));
+		boolean[] startsColourGroup = new boolean[totalCount + 1];
+		populateColoursByAtomicNumberAndMass(atomsSortedByColour, atomsAndGhosts, startsColourGroup);
+
+		int[][] neighbourColours = new int[totalCount][];
+		AtomNeighbouringColoursComparator atomNeighbouringColoursComparator = new AtomNeighbouringColoursComparator(neighbourColours);
 		boolean changeFound = true;
 		while(changeFound){
-			for (List<Atom> groupWithAColour : groupsByColour) {
-				for (Atom atom : groupWithAColour) {
-					int[] neighbourColours = findColourOfNeighbours(atom);
-					atomNeighbourColours.put(atom, neighbourColours);
-				}
+			for (int i = 0; i < totalCount; i++) {
+				neighbourColours[i] = findColourOfNeighbours(neighbours[i]);
 			}
-			List<List<Atom>> updatedGroupsByColour = new ArrayList<>();
-			changeFound = populateColoursAndReportIfColoursWereChanged(groupsByColour, updatedGroupsByColour);
-			groupsByColour = updatedGroupsByColour;
+			changeFound = populateColoursAndReportIfColoursWereChanged(atomsSortedByColour, startsColourGroup, atomNeighbouringColoursComparator);
 		}
-		removeGhostAtoms(ghostAtoms);
 	}
 
 	/**
-	 * Adds "ghost" atoms in the same way as the CIP rules for handling double bonds
-	 * e.g. C=C --> C(G)=C(G) where ghost is a carbon with no hydrogen bonded to it
-	 * @return The ghost atoms created
+	 * Returns the index of the given atom, or -1 if it is not one of the atoms being analysed
+	 * @param atom
+	 * @return
 	 */
-	private List<Atom> addGhostAtoms() {
-		List<Atom> ghostAtoms = new ArrayList<>();
+	private int getIndex(Atom atom) {
+		if (molecule != null) {
+			int index = molecule.getAtomIndex(atom);
+			if (index >= 0 && index < analysedAtoms.length && analysedAtoms[index] == atom) {
+				return index;
+			}
+		}
+		if (atomToIndex == null) {
+			atomToIndex = new HashMap<>(analysedAtoms.length);
+			for (int i = 0; i < analysedAtoms.length; i++) {
+				atomToIndex.put(analysedAtoms[i], i);
+			}
+		}
+		Integer index = atomToIndex.get(atom);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Creates "ghost" atoms in the same way as the CIP rules for handling double bonds
+	 * e.g. C=C --> C(G)=C(G) where ghost is a carbon with no hydrogen bonded to it.
+	 * The ghost atoms are not bonded to the real atoms, instead they are given the indices following the real atoms
+	 * and the neighbours of each atom are extended to include its ghost atoms
+	 * @param neighbours The neighbours of each atom, by index
+	 * @param ghostAtoms The ghost atoms are added to this list in the order of their indices
+	 * @return The neighbours of each atom and ghost atom, by index
+	 */
+	private int[][] addGhostAtoms(int[][] neighbours, List<Atom> ghostAtoms) {
+		int atomCount = neighbours.length;
+		List<int[]> ghostNeighbours = new ArrayList<>();
 		for (Bond bond : bonds) {
 			int bondOrder = bond.getOrder();
 			for (int i = bondOrder; i > 1; i--) {
 				Atom fromAtom = bond.getFromAtom();
 				Atom toAtom = bond.getToAtom();
+				int fromIndex = getIndex(fromAtom);
+				int toIndex = getIndex(toAtom);
+
+				neighbours[toIndex] = appendNeighbour(neighbours[toIndex], atomCount + ghostAtoms.size());
+				ghostAtoms.add(new Atom(fromAtom.getElement()));
+				ghostNeighbours.add(new int[]{toIndex});
 
-				Atom ghost1 = new Atom(fromAtom.getElement());
-				Bond b1 = new Bond(ghost1, toAtom, 1);
-				toAtom.addBond(b1);
-				ghost1.addBond(b1);
-				ghostAtoms.add(ghost1);
-				
-				Atom ghost2 = new Atom(toAtom.getElement());
-				Bond b2 = new Bond(ghost2, fromAtom, 1);
-				fromAtom.addBond(b2);
-				ghost2.addBond(b2);
-				ghostAtoms.add(ghost2);
+				neighbours[fromIndex] = appendNeighbour(neighbours[fromIndex], atomCount + ghostAtoms.size());
+				ghostAtoms.add(new Atom(toAtom.getElement()));
+				ghostNeighbours.add(new int[]{fromIndex});
 			}
 		}
-		return ghostAtoms;
-	}
-
-	/**
-	 * Removes the ghost atoms added by addGhostAtoms
-	 * @param ghostAtoms 
-	 */
-	private void removeGhostAtoms(List<Atom> ghostAtoms) {
-		for (Atom atom : ghostAtoms) {
-			Bond b = atom.getFirstBond();
-			b.getOtherAtom(atom).removeBond(b);
+		if (ghostAtoms.isEmpty()) {
+			return neighbours;
 		}
+		int[][] neighboursIncludingGhosts = Arrays.copyOf(neighbours, atomCount + ghostAtoms.size());
+		for (int i = 0; i < ghostNeighbours.size(); i++) {
+			neighboursIncludingGhosts[atomCount + i] = ghostNeighbours.get(i);
+		}
+		return neighboursIncludingGhosts;
 	}
 
+	private static int[] appendNeighbour(int[] neighboursOfAtom, int neighbour) {
+		int[] extendedNeighbours = Arrays.copyOf(neighboursOfAtom, neighboursOfAtom.length + 1);
+		extendedNeighbours[neighboursOfAtom.length] = neighbour;
+		return extendedNeighbours;
+	}
 
 	/**
 	 * Takes a list of atoms sorted by atomic number/mass
-	 * and populates the mappingToColour map
-	 * @param atomList
-	 * @return 
+	 * and populates the colours array, marking where each group of atoms with the same colour starts
+	 * @param atomsSortedByColour
+	 * @param atomsAndGhosts
+	 * @param startsColourGroup 
 	 */
-	private List<List<Atom>> populateColoursByAtomicNumberAndMass(List<Atom> atomList) {
-		List<List<Atom>> groupsByColour = new ArrayList<>();
-		Atom previousAtom = null;
-		List<Atom> atomsOfThisColour = new ArrayList<>();
-		int atomsSeen = 0;
-		for (Atom atom : atomList) {
-			if (previousAtom != null && compareAtomicNumberThenAtomicMass(previousAtom, atom) != 0){
-				for (Atom atomOfthisColour : atomsOfThisColour) {
-					mappingToColour.put(atomOfthisColour, atomsSeen);
+	private void populateColoursByAtomicNumberAndMass(Integer[] atomsSortedByColour, Atom[] atomsAndGhosts, boolean[] startsColourGroup) {
+		int atomCount = atomsSortedByColour.length;
+		int groupStart = 0;
+		for (int i = 1; i <= atomCount; i++) {
+			if (i == atomCount || compareAtomicNumberThenAtomicMass(atomsAndGhosts[atomsSortedByColour[i - 1]], atomsAndGhosts[atomsSortedByColour[i]]) != 0){
+				for (int j = groupStart; j < i; j++) {
+					colours[atomsSortedByColour[j]] = i;
 				}
-				groupsByColour.add(atomsOfThisColour);
-				atomsOfThisColour = new ArrayList<>();
+				startsColourGroup[groupStart] = true;
+				groupStart = i;
 			}
-			previousAtom = atom;
-			atomsOfThisColour.add(atom);
-			atomsSeen++;
 		}
-		if (!atomsOfThisColour.isEmpty()){
-			for (Atom atomOfThisColour : atomsOfThisColour) {
-				mappingToColour.put(atomOfThisColour, atomsSeen);
-			}
-			groupsByColour.add(atomsOfThisColour);
-		}
-		return groupsByColour;
+		startsColourGroup[atomCount] = true;
 	}
 
 	/**
-	 * Takes the lists of atoms pre-grouped by colour and sorts each by its neighbours colours
-	 * The updatedGroupsByColour is populated with those for which this process caused a change
-	 * and populates the mappingToColour map
-	 * Returns whether mappingToColour was changed 
-	 * @param groupsByColour 
-	 * @param updatedGroupsByColour 
-	 * @return boolean Whether mappingToColour was changed
+	 * Takes the atoms pre-grouped by colour and sorts each group by its neighbours colours
+	 * Groups are split where this process distinguishes between atoms
+	 * and the colours array is populated
+	 * Returns whether the colours were changed 
+	 * @param atomsSortedByColour 
+	 * @param startsColourGroup 
+	 * @param atomNeighbouringColoursComparator
+	 * @return boolean Whether the colours were changed
 	 */
-	private boolean populateColoursAndReportIfColoursWereChanged(List<List<Atom>> groupsByColour, List<List<Atom>> updatedGroupsByColour) {
+	private boolean populateColoursAndReportIfColoursWereChanged(Integer[] atomsSortedByColour, boolean[] startsColourGroup, AtomNeighbouringColoursComparator atomNeighbouringColoursComparator) {
 		boolean changeFound = false;
-		int atomsSeen = 0;
-		for (List<Atom> groupWithAColour : groupsByColour) {
-			Collections.sort(groupWithAColour, atomNeighbouringColoursComparator);
-			Atom previousAtom = null;
-			List<Atom> atomsOfThisColour = new ArrayList<>();
-			for (Atom atom : groupWithAColour) {
-				if (previousAtom != null && atomNeighbouringColoursComparator.compare(previousAtom, atom) != 0){
-					for (Atom atomOfThisColour : atomsOfThisColour) {
-						if (!changeFound && atomsSeen != mappingToColour.get(atomOfThisColour)){
+		int atomCount = atomsSortedByColour.length;
+		int groupStart = 0;
+		while (groupStart < atomCount) {
+			int groupEnd = groupStart + 1;
+			while (!startsColourGroup[groupEnd]) {
+				groupEnd++;
+			}
+			Arrays.sort(atomsSortedByColour, groupStart, groupEnd, atomNeighbouringColoursComparator);
+			int subGroupStart = groupStart;
+			for (int i = groupStart + 1; i <= groupEnd; i++) {
+				if (i == groupEnd || atomNeighbouringColoursComparator.compare(atomsSortedByColour[i - 1], atomsSortedByColour[i]) != 0){
+					for (int j = subGroupStart; j < i; j++) {
+						int atom = atomsSortedByColour[j];
+						if (colours[atom] != i) {
 							changeFound = true;
+							colours[atom] = i;
 						}
-						mappingToColour.put(atomOfThisColour, atomsSeen);
-					}
-					updatedGroupsByColour.add(atomsOfThisColour);
-					atomsOfThisColour = new ArrayList<>();
-				}
-				previousAtom = atom;
-				atomsOfThisColour.add(atom);
-				atomsSeen++;
-			}
-			if (!atomsOfThisColour.isEmpty()){
-				for (Atom atomOfThisColour : atomsOfThisColour) {
-					if (!changeFound && atomsSeen != mappingToColour.get(atomOfThisColour)){
-						changeFound = true;
 					}
-					mappingToColour.put(atomOfThisColour, atomsSeen);
+					startsColourGroup[subGroupStart] = true;
+					subGroupStart = i;
 				}
-				updatedGroupsByColour.add(atomsOfThisColour);
 			}
+			groupStart = groupEnd;
 		}
 		return changeFound;
 	}
 
 	/**
 	 * Produces a sorted (low to high) array of the colour of the atoms surrounding a given atom
-	 * @param atom
+	 * @param neighbours The indices of the atom's neighbours
 	 * @return int[] colourOfAdjacentAtoms
 	 */
-	private int[] findColourOfNeighbours(Atom atom) {	
-		List<Bond> bonds = atom.getBonds();
-		int bondCount = bonds.size();
-		int[] colourOfAdjacentAtoms = new int[bondCount];
-		for (int i = 0; i < bondCount; i++) {
-			Bond bond = bonds.get(i);
-			Atom otherAtom = bond.getOtherAtom(atom);
-			colourOfAdjacentAtoms[i] = mappingToColour.get(otherAtom);
+	private int[] findColourOfNeighbours(int[] neighbours) {	
+		int[] colourOfAdjacentAtoms = new int[neighbours.length];
+		for (int i = 0; i < neighbours.length; i++) {
+			colourOfAdjacentAtoms[i] = colours[neighbours[i]];
 		} 
 		Arrays.sort(colourOfAdjacentAtoms);//sort such that this goes from low to high
 		return colourOfAdjacentAtoms;
 	}
 
+	/**
+	 * Returns the colour of the given atom, or null if the atom was not part of this analysis
+	 * @param atom
+	 * @return
+	 */
+	private Integer getColour(Atom atom) {
+		int index = getIndex(atom);
+		return index >= 0 ? colours[index] : null;
+	}
+
 	/**
 	 * Retrieves a list of any tetrahedral stereoCentres
 	 * Internally this is done by checking whether the "colour" of all neighbouring atoms of the tetrahedral atom are different
@@ -413,7 +469,7 @@ class StereoAnalyser {
 		}
 		int[] colours = new int[4];
 		for (int i = neighbours.size() - 1 ; i >=0; i--) {
-			colours[i] = mappingToColour.get(neighbours.get(i));
+			colours[i] = getColour(neighbours.get(i));
 		}
 		
 		boolean foundIdenticalNeighbour =false;
@@ -442,7 +498,7 @@ class StereoAnalyser {
 			if (neighbours.size() == 4){
 				int[] colours = new int[4];
 				for (int i = neighbours.size() - 1 ; i >=0; i--) {
-					colours[i] = mappingToColour.get(neighbours.get(i));
+					colours[i] = getColour(neighbours.get(i));
 				}
 				//find pairs of constitutionally identical substituents
 				Map<Integer, Integer> foundPairs = new HashMap<>();
@@ -620,14 +676,14 @@ class StereoAnalyser {
 				List<Atom> neighbours1 =  a1.getAtomNeighbours();
 				neighbours1.remove(bond.getToAtom());
 				if (neighbours1.size()==2 || (neighbours1.size()==1 && a1.getElement() == ChemEl.N && a1.getIncomingValency()==3 && a1.getCharge()==0)){
-					if (neighbours1.size()==2 && mappingToColour.get(neighbours1.get(0)).equals(mappingToColour.get(neighbours1.get(1)))){
+					if (neighbours1.size()==2 && getColour(neighbours1.get(0)).equals(getColour(neighbours1.get(1)))){
 						continue;
 					}
 					Atom a2 = bond.getToAtom();
 					List<Atom> neighbours2 = a2.getAtomNeighbours();
 					neighbours2.remove(bond.getFromAtom());
 					if (neighbours2.size()==2 || (neighbours2.size()==1 && a2.getElement() == ChemEl.N && a2.getIncomingValency()==3 && a2.getCharge()==0)){
-						if (neighbours2.size()==2 && mappingToColour.get(neighbours2.get(0)).equals(mappingToColour.get(neighbours2.get(1)))){
+						if (neighbours2.size()==2 && getColour(neighbours2.get(0)).equals(getColour(neighbours2.get(1)))){
 							continue;
 						}
 						stereoBonds.add(new StereoBond(bond));
@@ -645,6 +701,6 @@ class StereoAnalyser {
 	 * @return
 	 */
 	Integer getAtomEnvironmentNumber(Atom a) {
-		return mappingToColour.get(a);
+		return getColour(a);
 	}
 }
@@ -565,7 +565,7 @@ class StereochemistryHandler {
 	 * @throws StructureBuildingException
 	 */
 	private boolean assignCisTransOnRing(Element stereoChemistryEl) throws StructureBuildingException {
-		if (stereoChemistryEl.getAttribute(LOCANT_ATR) != null) {
+		if (stereoChemistryEl.getAttributeValue(LOCANT_ATR) != null) {
 			return false;
 		}
 		Element parentSubBracketOrRoot = stereoChemistryEl.getParent();
@@ -65,46 +65,15 @@ class StringTools {
 		return sb.toString();
 	}
 
-	/**Converts a unicode string into ASCII
+	/**Converts a non-ASCII character into ASCII
 	 * e.g. converting Greek letters to their names (e.g. alpha)
 	 * Unrecognised non-ASCII characters trigger an exception
 	 *
-	 * @param s The string to convert
-	 * @return The converted string
+	 * @param c The character to convert
+	 * @return The replacement string
 	 * @throws PreProcessingException
 	 */
-	static String convertNonAsciiAndNormaliseRepresentation(String s) throws PreProcessingException {
-		StringBuilder sb = new StringBuilder(s.length());
-		for (int i = 0, l = s.length(); i < l; i++) {
-			char c = s.charAt(i);
-			switch (c) {
-			case '\t':
-			case '\n':
-			case '\u000B'://vertical tab
-			case '\f':
-			case '\r':
-				//normalise white space
-				sb.append(" ");
-				break;
-			case '`':
-				sb.append("'");//replace back ticks with apostrophe
-				break;
-			case '"':
-				sb.append("''");//replace quotation mark with two primes
-				break;
-			default:
-				if(c >= 128) {
-					sb.append(getReplacementForNonASCIIChar(c));//replace non ascii characters with hard coded ascii strings
-				}
-				else if (c > 31){//ignore control characters
-					sb.append(c);
-				}
-			}
-		}
-		return sb.toString();
-	}
-
-    private static String getReplacementForNonASCIIChar(char c) throws PreProcessingException {
+    static String getReplacementForNonASCIIChar(char c) throws PreProcessingException {
         switch (c) {
             case '\u03b1': return "alpha";//greeks
             case '\u03b2': return "beta";
@@ -381,14 +350,36 @@ class StringTools {
 	* @param str
 	*/
 	static String lowerCaseAsciiString(String str) {
-		StringBuilder sb = new StringBuilder(str.length());
-		for (int i = 0, l = str.length(); i < l; i++) {
+		return lowerCaseAsciiString(str, 0, str.length());
+	}
+
+	/**
+	* Lower cases the given region of a string (only converts A-Z to a-z)
+	* The region is only copied once, when it contains no A-Z this is by substring
+	* @param str
+	* @param start
+	* @param end
+	*/
+	static String lowerCaseAsciiString(String str, int start, int end) {
+		int i = start;
+		while (i < end) {
 			char c = str.charAt(i);
 			if (c >= 'A' && c <= 'Z') {
-				c = (char) (c + 32);
+				break;
 			}
-			sb.append(c);
+			i++;
 		}
-		return sb.toString();
+		if (i == end) {
+			return str.substring(start, end);
+		}
+		char[] chars = new char[end - start];
+		str.getChars(start, end, chars, 0);
+		for (i -= start; i < chars.length; i++) {
+			char c = chars[i];
+			if (c >= 'A' && c <= 'Z') {
+				chars[i] = (char) (c + 32);
+			}
+		}
+		return new String(chars);
 	}
 }
@@ -681,10 +681,10 @@ class StructureBuilder {
 				Fragment frag = findRightMostGroupInWordOrWordRule(word).getFrag();
 				replacementFragments.add(frag);
 				int childCount = word.getChildCount();
-				if (childCount == 1 && word.getChild(0).getName().equals(BRACKET_EL) && word.getChild(0).getAttribute(LOCANT_ATR)!=null){
+				if (childCount == 1 && word.getChild(0).getName().equals(BRACKET_EL) && word.getChild(0).getAttributeValue(LOCANT_ATR)!=null){
 					locantForFunctionalTerm.add(word.getChild(0).getAttributeValue(LOCANT_ATR));
 				}
-				else if (childCount == 2 && word.getChild(0).getAttribute(LOCANT_ATR) != null ){
+				else if (childCount == 2 && word.getChild(0).getAttributeValue(LOCANT_ATR) != null ){
 					Element firstChild = word.getChild(0);
 					String locant = firstChild.getAttributeValue(LOCANT_ATR);
 					if (word.getChild(1).getName().equals(ROOT_EL) && !frag.hasLocant(locant) && MATCH_NUMERIC_LOCANT.matcher(locant).matches()){ //e.g. 1,3-benzothiazole-2-carbaldehyde 2-phenylhydrazone
@@ -739,7 +739,7 @@ class StructureBuilder {
 		Element parent = rightMostGroup.getParent();
 		boolean multiplied =false;
 		while (!parent.equals(words.get(0))){
-			if (parent.getAttribute(MULTIPLIER_ATR)!=null){
+			if (parent.getAttributeValue(MULTIPLIER_ATR)!=null){
 				multiplied =true;
 			}
 			parent = parent.getParent();
@@ -1141,7 +1141,7 @@ class StructureBuilder {
 						expectedValency = elementaryAtom.getProperty(Atom.OXIDATION_NUMBER);
 					}
 					else{
-						if (elementaryAtomEl.getAttribute(COMMONOXIDATIONSTATESANDMAX_ATR) != null) {
+						if (elementaryAtomEl.getAttributeValue(COMMONOXIDATIONSTATESANDMAX_ATR) != null) {
 							String[] typicalOxidationStates = elementaryAtomEl.getAttributeValue(COMMONOXIDATIONSTATESANDMAX_ATR).split(":")[0].split(",");
 							expectedValency = Integer.parseInt(typicalOxidationStates[0]);
 						}
@@ -1484,7 +1484,7 @@ class StructureBuilder {
 			BuildResults br = ateBuildResults.get(i);
 			Element ateWord = words.get(i + 1);
 			Element ateGroup = findRightMostGroupInWordOrWordRule(ateWord);
-			if (ateGroup.getAttribute(NUMBEROFFUNCTIONALATOMSTOREMOVE_ATR) == null && numberOfWordRules == 1) {
+			if (ateGroup.getAttributeValue(NUMBEROFFUNCTIONALATOMSTOREMOVE_ATR) == null && numberOfWordRules == 1) {
 				//by convention [O-] are implicitly converted to [OH] when phosphates/sulfates are attached
 				//If word rules is > 1 this will be done or not done as part of charge balancing
 				for (int j = br.getFunctionalAtomCount() -1; j >= 1; j--) {
@@ -1844,7 +1844,7 @@ class StructureBuilder {
 				}
 			}
 		}
-		boolean saltExpected = molecule.getAttribute(ISSALT_ATR) != null;
+		boolean saltExpected = molecule.getAttributeValue(ISSALT_ATR) != null;
 		if (saltExpected) {
 			deprotonateAcidIfSaltWithMetal(molecule);
 		}
@@ -1867,7 +1867,7 @@ class StructureBuilder {
 	private boolean applyExplicitStoichiometryIfProvided(List<Element> wordRules) throws StructureBuildingException {
 		boolean explicitStoichiometryPresent =false;
 		for (Element wordRule : wordRules) {
-			if (wordRule.getAttribute(STOICHIOMETRY_ATR)!=null){
+			if (wordRule.getAttributeValue(STOICHIOMETRY_ATR)!=null){
 				int stoichiometry = Integer.parseInt(wordRule.getAttributeValue(STOICHIOMETRY_ATR));
 				wordRule.removeAttribute(wordRule.getAttribute(STOICHIOMETRY_ATR));
 				for (int j = 1; j < stoichiometry; j++) {
@@ -2019,7 +2019,7 @@ class StructureBuilder {
 		List<Element> cationicElements = new ArrayList<>();
 		List<Element> elementaryAtoms = OpsinTools.getDescendantElementsWithTagNameAndAttribute(molecule, GROUP_EL, TYPE_ATR, ELEMENTARYATOM_TYPE_VAL);
 		for (Element elementaryAtom : elementaryAtoms) {
-			if (elementaryAtom.getAttribute(COMMONOXIDATIONSTATESANDMAX_ATR)!=null){
+			if (elementaryAtom.getAttributeValue(COMMONOXIDATIONSTATESANDMAX_ATR)!=null){
 				Atom metalAtom = elementaryAtom.getFrag().getFirstAtom();
 				if (metalAtom.getCharge() == 0 && metalAtom.getProperty(Atom.OXIDATION_NUMBER) == null) {//if not 0 charge cannot be implicitly modified
 					String[] typicalOxidationStates = elementaryAtom.getAttributeValue(COMMONOXIDATIONSTATESANDMAX_ATR).split(":")[0].split(",");
@@ -60,14 +60,14 @@ class StructureBuildingMethods {
 		//TOOD think whether you can avoid the need to have a cansubstitute function by only using appropriate group
 		List<Element> subsBracketsAndRoots = OpsinTools.getDescendantElementsWithTagNames(word, new String[]{BRACKET_EL, SUBSTITUENT_EL, ROOT_EL});
 		for (Element subsBracketsAndRoot : subsBracketsAndRoots) {
-			if (subsBracketsAndRoot.getAttribute(MULTIPLIER_ATR) != null) {
+			if (subsBracketsAndRoot.getAttributeValue(MULTIPLIER_ATR) != null) {
 				throw new StructureBuildingException("Structure building problem: multiplier on :" + subsBracketsAndRoot.getName() + " was never used");
 			}
 		}
 		List<Element> groups = OpsinTools.getDescendantElementsWithTagName(word, GROUP_EL);
 		for (int i = 0; i < groups.size(); i++) {
 			Element group = groups.get(i);
-			if (group.getAttribute(RESOLVED_ATR)==null && i != groups.size()-1){
+			if (group.getAttributeValue(RESOLVED_ATR)==null && i != groups.size()-1){
 				throw new StructureBuildingException("Structure building problem: Bond was not made from :" +group.getValue() + " but one should of been");
 			}
 		}
@@ -166,16 +166,16 @@ class StructureBuildingMethods {
 		else{
 			group = subBracketOrRoot.getFirstChildElement(GROUP_EL);
 		}
-		if (group.getAttribute(RESOLVED_ATR) != null) {
+		if (group.getAttributeValue(RESOLVED_ATR) != null) {
 			return;
 		}
 		Fragment frag = group.getFrag();
-		if (frag.getOutAtomCount() >=1 && subBracketOrRoot.getAttribute(LOCANT_ATR) != null){
+		if (frag.getOutAtomCount() >=1 && subBracketOrRoot.getAttributeValue(LOCANT_ATR) != null){
 			String locantString = subBracketOrRoot.getAttributeValue(LOCANT_ATR);
 			if (frag.getOutAtomCount() >1){
 				checkAndApplySpecialCaseWhereOutAtomsCanBeCombinedOrThrow(frag, group);
 			}
-			if (subBracketOrRoot.getAttribute(MULTIPLIER_ATR) != null) {//e.g. 1,2-diethyl
+			if (subBracketOrRoot.getAttributeValue(MULTIPLIER_ATR) != null) {//e.g. 1,2-diethyl
 				multiplyOutAndSubstitute(state, subBracketOrRoot);
 			}
 			else{
@@ -194,9 +194,9 @@ class StructureBuildingMethods {
 				}
 				group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
 				Element groupToAttachTo = parentFrag.getTokenEl();
-				if (groupToAttachTo.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null &&
+				if (groupToAttachTo.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null &&
 						parentFrag.getOutAtomCount() > 0 &&
-						groupToAttachTo.getAttribute(ISAMULTIRADICAL_ATR) != null &&
+						groupToAttachTo.getAttributeValue(ISAMULTIRADICAL_ATR) != null &&
 						parentFrag.getAtomByLocantOrThrow(locantString).getOutValency() > 0 &&
 						frag.getOutAtom(0).getValency() == 1 &&
 						parentFrag.getFirstAtom().equals(parentFrag.getAtomByLocantOrThrow(locantString))) {
@@ -234,18 +234,18 @@ class StructureBuildingMethods {
 		else{
 			group = subBracketOrRoot.getFirstChildElement(GROUP_EL);
 		}
-		if (group.getAttribute(RESOLVED_ATR) != null){
+		if (group.getAttributeValue(RESOLVED_ATR) != null){
 			return;
 		}
 		Fragment frag = group.getFrag();
 		if (frag.getOutAtomCount() >= 1){
-			if (subBracketOrRoot.getAttribute(LOCANT_ATR) != null){
+			if (subBracketOrRoot.getAttributeValue(LOCANT_ATR) != null){
 				throw new RuntimeException("Substituent has an unused outAtom and has a locant but locanted substitution should already have been performed!");
 			}
 			if (frag.getOutAtomCount() > 1){
 				checkAndApplySpecialCaseWhereOutAtomsCanBeCombinedOrThrow(frag, group);
 			}
-			if (subBracketOrRoot.getAttribute(MULTIPLIER_ATR) != null) {//e.g. diethyl
+			if (subBracketOrRoot.getAttributeValue(MULTIPLIER_ATR) != null) {//e.g. diethyl
 				multiplyOutAndSubstitute(state, subBracketOrRoot);
 			}
 			else{
@@ -400,7 +400,7 @@ class StructureBuildingMethods {
 		}
 		Fragment frag = group.getFrag();
 		if (frag.getOutAtomCount() >= 1){
-			if (subBracketOrRoot.getAttribute(LOCANT_ATR) != null){
+			if (subBracketOrRoot.getAttributeValue(LOCANT_ATR) != null){
 				throw new RuntimeException("Substituent has an unused outAtom and has a locant but locanted substitution should already been been performed!");
 			}
 			if (PERHALOGENO_SUBTYPE_VAL.equals(group.getAttributeValue(SUBTYPE_ATR))) {
@@ -664,7 +664,7 @@ class StructureBuildingMethods {
 					throw new StructureBuildingException("The replacement term " +heteroatomEl.getValue() +" was used on an atom that already is a " + heteroatom.getElement());
 				}
 				state.fragManager.replaceAtomWithAtom(thisFrag.getAtomByLocantOrThrow(locant), heteroatom, true);
-				if (heteroatomEl.getAttribute(LAMBDA_ATR) != null){
+				if (heteroatomEl.getAttributeValue(LAMBDA_ATR) != null){
 					thisFrag.getAtomByLocantOrThrow(locant).setLambdaConventionValency(Integer.parseInt(heteroatomEl.getAttributeValue(LAMBDA_ATR)));
 				}
 				heteroatoms.remove(heteroatomEl);
@@ -1427,7 +1427,7 @@ class StructureBuildingMethods {
 	}
 
 	private static void performAdditiveOperations(BuildState state, Element subBracketOrRoot) throws StructureBuildingException {
-		if (subBracketOrRoot.getAttribute(LOCANT_ATR) != null){//additive nomenclature does not employ locants
+		if (subBracketOrRoot.getAttributeValue(LOCANT_ATR) != null){//additive nomenclature does not employ locants
 			return;
 		}
 		Element group;
@@ -1437,15 +1437,15 @@ class StructureBuildingMethods {
 		else{
 			group =subBracketOrRoot.getFirstChildElement(GROUP_EL);
 		}
-		if (group.getAttribute(RESOLVED_ATR) != null){
+		if (group.getAttributeValue(RESOLVED_ATR) != null){
 			return;
 		}
 		Fragment frag = group.getFrag();
 		int outAtomCount = frag.getOutAtomCount();
 		if (outAtomCount >=1){
-			if (subBracketOrRoot.getAttribute(MULTIPLIER_ATR) ==null){
+			if (subBracketOrRoot.getAttributeValue(MULTIPLIER_ATR) ==null){
 				Element nextSiblingEl = OpsinTools.getNextSibling(subBracketOrRoot);
-				if (nextSiblingEl.getAttribute(MULTIPLIER_ATR) != null &&
+				if (nextSiblingEl.getAttributeValue(MULTIPLIER_ATR) != null &&
 						(outAtomCount >= Integer.parseInt(nextSiblingEl.getAttributeValue(MULTIPLIER_ATR)) || //probably multiplicative nomenclature, should be as many outAtoms as the multiplier
 						outAtomCount==1 && frag.getOutAtom(0).getValency()==Integer.parseInt(nextSiblingEl.getAttributeValue(MULTIPLIER_ATR))) &&
 						hasRootLikeOrMultiRadicalGroup(nextSiblingEl)){
@@ -1456,13 +1456,13 @@ class StructureBuildingMethods {
 					}
 					performMultiplicativeOperations(state, group, nextSiblingEl);
 				}
-				else if (group.getAttribute(ISAMULTIRADICAL_ATR) != null){//additive nomenclature e.g. ethyleneoxy
+				else if (group.getAttributeValue(ISAMULTIRADICAL_ATR) != null){//additive nomenclature e.g. ethyleneoxy
 					Fragment nextFrag = getNextInScopeMultiValentFragment(subBracketOrRoot);
 					if (nextFrag != null){
 						Element nextMultiRadicalGroup = nextFrag.getTokenEl();
 						Element parentSubOrRoot = nextMultiRadicalGroup.getParent();
 						if (state.currentWordRule != WordRule.polymer){//imino does not behave like a substituent in polymers only as a linker
-							if (nextMultiRadicalGroup.getAttribute(IMINOLIKE_ATR) != null){//imino/methylene can just act as normal substituents, should an additive bond really be made???
+							if (nextMultiRadicalGroup.getAttributeValue(IMINOLIKE_ATR) != null){//imino/methylene can just act as normal substituents, should an additive bond really be made???
 								Fragment adjacentFrag = OpsinTools.getNextGroup(subBracketOrRoot).getFrag();
 								
 								if (nextFrag != adjacentFrag){//imino is not the absolute next frag
@@ -1471,11 +1471,11 @@ class StructureBuildingMethods {
 									}
 								}
 							}
-							if (group.getAttribute(IMINOLIKE_ATR) != null && levelsToWordEl(group) > levelsToWordEl(nextMultiRadicalGroup)){
+							if (group.getAttributeValue(IMINOLIKE_ATR) != null && levelsToWordEl(group) > levelsToWordEl(nextMultiRadicalGroup)){
 								return;//e.g. imino substitutes ((chloroimino)ethylene)dibenzene
 							}
 						}
-						if (parentSubOrRoot.getAttribute(MULTIPLIER_ATR) != null){
+						if (parentSubOrRoot.getAttributeValue(MULTIPLIER_ATR) != null){
 							throw new StructureBuildingException("Attempted to form additive bond to a multiplied component");
 						}
 						group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
@@ -1487,18 +1487,18 @@ class StructureBuildingMethods {
 					if (siblingFragments.size()>0){
 						Fragment nextFrag = siblingFragments.get(siblingFragments.size()-1);
 						Element nextGroup = nextFrag.getTokenEl();
-						if (nextGroup.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null && nextGroup.getAttribute(ISAMULTIRADICAL_ATR) != null && (nextFrag.getOutAtomCount()>1|| nextGroup.getAttribute(RESOLVED_ATR) != null && nextFrag.getOutAtomCount()>=1 )){
+						if (nextGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null && nextGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null && (nextFrag.getOutAtomCount()>1|| nextGroup.getAttributeValue(RESOLVED_ATR) != null && nextFrag.getOutAtomCount()>=1 )){
 							Atom toAtom = nextFrag.getOutAtom(0).getAtom();
 							if (calculateSubstitutableHydrogenAtoms(toAtom) ==0){
 								group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
 								joinFragmentsAdditively(state, frag, nextFrag);//e.g. aminocarbonyl or aminothio
 							}
 						}
-						if (group.getAttribute(RESOLVED_ATR)==null && siblingFragments.size()>1){
+						if (group.getAttributeValue(RESOLVED_ATR)==null && siblingFragments.size()>1){
 							for (int i = 0; i< siblingFragments.size()-1; i++) {
 								Fragment lastFrag = siblingFragments.get(i);
 								Element lastGroup = lastFrag.getTokenEl();
-								if (lastGroup.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null && lastGroup.getAttribute(ISAMULTIRADICAL_ATR) != null && (lastFrag.getOutAtomCount()>1|| lastGroup.getAttribute(RESOLVED_ATR) != null && lastFrag.getOutAtomCount()>=1 )){
+								if (lastGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null && lastGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null && (lastFrag.getOutAtomCount()>1|| lastGroup.getAttributeValue(RESOLVED_ATR) != null && lastFrag.getOutAtomCount()>=1 )){
 									Atom toAtom = lastFrag.getOutAtom(0).getAtom();
 									if (calculateSubstitutableHydrogenAtoms(toAtom) ==0){
 										group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
@@ -1522,18 +1522,18 @@ class StructureBuildingMethods {
 					int multiplier = Integer.parseInt(subBracketOrRoot.getAttributeValue(MULTIPLIER_ATR));
 					Fragment nextFrag = siblingFragments.get(siblingFragments.size()-1);
 					Element nextGroup = nextFrag.getTokenEl();
-					if (nextGroup.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null && nextGroup.getAttribute(ISAMULTIRADICAL_ATR) != null && (nextFrag.getOutAtomCount()>=multiplier|| nextGroup.getAttribute(RESOLVED_ATR) != null && nextFrag.getOutAtomCount()>=multiplier +1 )){
+					if (nextGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null && nextGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null && (nextFrag.getOutAtomCount()>=multiplier|| nextGroup.getAttributeValue(RESOLVED_ATR) != null && nextFrag.getOutAtomCount()>=multiplier +1 )){
 						Atom toAtom = nextFrag.getOutAtom(0).getAtom();
 						if (calculateSubstitutableHydrogenAtoms(toAtom) ==0){
 							group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
 							multiplyOutAndAdditivelyBond(state, subBracketOrRoot, nextFrag);//e.g.dihydroxyphosphoryl
 						}
 					}
-					if (group.getAttribute(RESOLVED_ATR)==null && siblingFragments.size()>1){
+					if (group.getAttributeValue(RESOLVED_ATR)==null && siblingFragments.size()>1){
 						for (int i = 0; i< siblingFragments.size()-1; i++) {
 							Fragment lastFrag = siblingFragments.get(i);
 							Element lastGroup = lastFrag.getTokenEl();
-							if (lastGroup.getAttribute(ACCEPTSADDITIVEBONDS_ATR) != null && lastGroup.getAttribute(ISAMULTIRADICAL_ATR) != null && (lastFrag.getOutAtomCount()>=multiplier|| lastGroup.getAttribute(RESOLVED_ATR) != null && lastFrag.getOutAtomCount()>=multiplier +1 )){
+							if (lastGroup.getAttributeValue(ACCEPTSADDITIVEBONDS_ATR) != null && lastGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null && (lastFrag.getOutAtomCount()>=multiplier|| lastGroup.getAttributeValue(RESOLVED_ATR) != null && lastFrag.getOutAtomCount()>=multiplier +1 )){
 								Atom toAtom = lastFrag.getOutAtom(0).getAtom();
 								if (calculateSubstitutableHydrogenAtoms(toAtom) ==0){
 									group.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
@@ -1560,18 +1560,18 @@ class StructureBuildingMethods {
 	 */
 	private static boolean hasRootLikeOrMultiRadicalGroup(Element subBracketOrRoot) {
 		List<Element> groups = OpsinTools.getDescendantElementsWithTagName(subBracketOrRoot, GROUP_EL);
-		if (subBracketOrRoot.getAttribute(INLOCANTS_ATR) != null){
+		if (subBracketOrRoot.getAttributeValue(INLOCANTS_ATR) != null){
 			return true;// a terminus with specified inLocants
 		}
 		for (Element group : groups) {
 			Fragment frag = group.getFrag();
 			int outAtomCount =frag.getOutAtomCount();
-			if (group.getAttribute(ISAMULTIRADICAL_ATR) != null){
+			if (group.getAttributeValue(ISAMULTIRADICAL_ATR) != null){
 				if (outAtomCount >=1 ){
 					return true;//a multi radical
 				}
 			}
-			else if (outAtomCount ==0 && group.getAttribute(RESOLVED_ATR)==null){
+			else if (outAtomCount ==0 && group.getAttributeValue(RESOLVED_ATR)==null){
 				return true;// a terminus
 			}
 		}
@@ -1722,7 +1722,7 @@ class StructureBuildingMethods {
 			OutAtom multiRadicalOutAtom = multiRadicalBR.getOutAtom(i);
 			Fragment multiRadicalFrag = multiRadicalOutAtom.getAtom().getFrag();
 			Element multiRadicalGroup = multiRadicalFrag.getTokenEl();
-			if (multiRadicalGroup.getAttribute(RESOLVED_ATR) == null){
+			if (multiRadicalGroup.getAttributeValue(RESOLVED_ATR) == null){
 				resolveUnLocantedFeatures(state, multiRadicalGroup.getParent());//the addition of unlocanted unsaturators can effect the position of radicals e.g. diazenyl
 				multiRadicalGroup.addAttribute(new Attribute(RESOLVED_ATR, "yes"));
 			}
@@ -1737,7 +1737,7 @@ class StructureBuildingMethods {
 					rightMostGroup = multipliedElement.getFirstChildElement(GROUP_EL);
 				}
 				rightMostGroup.addAttribute(new Attribute(RESOLVED_ATR, "yes"));//this group will not be used further within this word but can in principle be a substituent e.g. methylenedisulfonyl dichloride
-				if (multipliedGroup.getAttribute(ISAMULTIRADICAL_ATR) != null) {//e.g. methylenedisulfonyl dichloride
+				if (multipliedGroup.getAttributeValue(ISAMULTIRADICAL_ATR) != null) {//e.g. methylenedisulfonyl dichloride
 					if (!multipliedParent.getAttributeValue(INLOCANTS_ATR).equals(INLOCANTS_DEFAULT)) {
 						throw new StructureBuildingException("inLocants should not be specified for a multiradical parent in multiplicative nomenclature");
 					}
@@ -1809,7 +1809,7 @@ class StructureBuildingMethods {
 				Element parentOfMultipliedEl = multipliedParent.getParent();
 				if (parentOfMultipliedEl.getName().equals(BRACKET_EL)) {//brackets are allowed
 					siblings = OpsinTools.getNextSiblingsOfTypes(parentOfMultipliedEl, new String[]{SUBSTITUENT_EL, BRACKET_EL, ROOT_EL});
-					if (siblings.get(0).getAttribute(MULTIPLIER_ATR) == null) {
+					if (siblings.get(0).getAttributeValue(MULTIPLIER_ATR) == null) {
 						throw new StructureBuildingException("Multiplier not found where multiplier was expected for successful multiplicative nomenclature");
 					}
 					performMultiplicativeOperations(state, newBr, siblings.get(0));
@@ -1819,7 +1819,7 @@ class StructureBuildingMethods {
 				}
 			}
 			else{
-				if (siblings.get(0).getAttribute(MULTIPLIER_ATR) == null) {
+				if (siblings.get(0).getAttributeValue(MULTIPLIER_ATR) == null) {
 					throw new StructureBuildingException("Multiplier not found where multiplier was expected for successful multiplicative nomenclature");
 				}
 				performMultiplicativeOperations(state, newBr, siblings.get(0));
@@ -1903,7 +1903,7 @@ class StructureBuildingMethods {
 			if (parent.indexOf(child) <=indexOfSubstituent){//only want things after the input
 				continue;
 			}
-			if (child.getAttribute(MULTIPLIER_ATR) != null){
+			if (child.getAttributeValue(MULTIPLIER_ATR) != null){
 				continue;
 			}
 			List<Element> childDescendants;
@@ -1920,8 +1920,8 @@ class StructureBuildingMethods {
 					throw new StructureBuildingException("substituent/root is missing its group");
 				}
 				Fragment possibleFrag = group.getFrag();
-				if (group.getAttribute(ISAMULTIRADICAL_ATR) != null &&
-						(possibleFrag.getOutAtomCount() >=2 || (possibleFrag.getOutAtomCount() >=1 && group.getAttribute(RESOLVED_ATR) != null ))){
+				if (group.getAttributeValue(ISAMULTIRADICAL_ATR) != null &&
+						(possibleFrag.getOutAtomCount() >=2 || (possibleFrag.getOutAtomCount() >=1 && group.getAttributeValue(RESOLVED_ATR) != null ))){
 					return possibleFrag;
 				}
 			}
@@ -1943,8 +1943,8 @@ class StructureBuildingMethods {
 		List<Element> groups = OpsinTools.getDescendantElementsWithTagName(bracket, GROUP_EL);//will be returned in index order
 		for (Element group : groups) {
 			Fragment possibleFrag = group.getFrag();
-			if (group.getAttribute(ISAMULTIRADICAL_ATR) != null &&
-					(possibleFrag.getOutAtomCount() >=2 || (possibleFrag.getOutAtomCount() >=1 && group.getAttribute(RESOLVED_ATR) != null ))){
+			if (group.getAttributeValue(ISAMULTIRADICAL_ATR) != null &&
+					(possibleFrag.getOutAtomCount() >=2 || (possibleFrag.getOutAtomCount() >=1 && group.getAttributeValue(RESOLVED_ATR) != null ))){
 				return group;
 			}
 		}
@@ -2096,7 +2096,7 @@ class StructureBuildingMethods {
 		if (outAtomCount ==0 ){
 			throw new StructureBuildingException("Substitutive bond formation failure: Fragment expected to have one OutAtom but had none");
 		}
-		if (elOfFragToBeJoined.getAttribute(IMINOLIKE_ATR) != null){//special case for methylene/imino
+		if (elOfFragToBeJoined.getAttributeValue(IMINOLIKE_ATR) != null){//special case for methylene/imino
 			if (fragToBeJoined.getOutAtomCount()==1 && fragToBeJoined.getOutAtom(0).getValency()==1 ){
 				fragToBeJoined.getOutAtom(0).setValency(2);
 			}
@@ -2296,7 +2296,7 @@ class StructureBuildingMethods {
 				if (!doneFirstIteration && currentElement.indexOf(bracketOrSubOrRoot) <= currentElement.indexOf(startingElement)){
 					continue;
 				}
-				if (bracketOrSubOrRoot.getAttribute(MULTIPLIER_ATR) != null){
+				if (bracketOrSubOrRoot.getAttributeValue(MULTIPLIER_ATR) != null){
 					continue;
 				}
 				boolean substitutionUnlikelyForThisEl = substitutionUnlikely;
@@ -2307,7 +2307,7 @@ class StructureBuildingMethods {
 					stack.add(new AlternativeGroupFinderState(bracketOrSubOrRoot, substitutionUnlikelyForThisEl));
 				}
 				else{
-					if (bracketOrSubOrRoot.getAttribute(LOCANT_ATR) != null) {
+					if (bracketOrSubOrRoot.getAttributeValue(LOCANT_ATR) != null) {
 						substitutionUnlikelyForThisEl = true;
 					}
 					Element group = bracketOrSubOrRoot.getFirstChildElement(GROUP_EL);
@@ -2356,7 +2356,7 @@ class StructureBuildingMethods {
 			Element currentElement = stack.removeLast();
 			if (currentElement.getName().equals(SUBSTITUENT_EL) || currentElement.getName().equals(ROOT_EL)) {
 				Fragment groupFrag = currentElement.getFirstChildElement(GROUP_EL).getFrag();
-				if (monoNuclearHydride != null && currentElement.getAttribute(LOCANT_ATR) != null) {//It looks like all groups are locanting onto the monoNuclearHydride e.g. 1-oxo-1-phenyl-sulfanylidene
+				if (monoNuclearHydride != null && currentElement.getAttributeValue(LOCANT_ATR) != null) {//It looks like all groups are locanting onto the monoNuclearHydride e.g. 1-oxo-1-phenyl-sulfanylidene
 					return monoNuclearHydride;
 				}
 				if (groupFrag.hasLocant(locant)) {
@@ -2385,19 +2385,19 @@ class StructureBuildingMethods {
 					if (indexOfCurrentEl <= indexOfStartingEl) {
 						continue;
 					}
-					if (bracketOrSubOrRoot.getAttribute(MULTIPLIER_ATR) != null) {
+					if (bracketOrSubOrRoot.getAttributeValue(MULTIPLIER_ATR) != null) {
 						continue;
 					}
 					
 					if (bracketOrSubOrRoot.getName().equals(BRACKET_EL)) {
-						if (IMPLICIT_TYPE_VAL.equals(bracketOrSubOrRoot.getAttributeValue(TYPE_ATR)) && bracketOrSubOrRoot.getAttribute(LOCANT_EL) == null) {
+						if (IMPLICIT_TYPE_VAL.equals(bracketOrSubOrRoot.getAttributeValue(TYPE_ATR)) && bracketOrSubOrRoot.getAttributeValue(LOCANT_EL) == null) {
 							//treat implicit brackets without locants as if they are not there
 							for (Element descendent : getChildrenIgnoringLocantlessImplicitBrackets(bracketOrSubOrRoot)) {
 								if (descendent.getName().equals(BRACKET_EL)) {
 									bracketted.add(descendent);
 								}
 								else {
-									if (substituentToTryFirst == null && descendent.getAttribute(LOCANT_EL) == null && MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
+									if (substituentToTryFirst == null && descendent.getAttributeValue(LOCANT_EL) == null && MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
 										substituentToTryFirst = descendent;
 									}
 									else {
@@ -2411,7 +2411,7 @@ class StructureBuildingMethods {
 						}
 					}
 					else {
-						if (substituentToTryFirst == null && bracketOrSubOrRoot.getAttribute(LOCANT_EL) == null && MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
+						if (substituentToTryFirst == null && bracketOrSubOrRoot.getAttributeValue(LOCANT_EL) == null && MATCH_NUMERIC_LOCANT.matcher(locant).matches()) {
 							substituentToTryFirst = bracketOrSubOrRoot;
 						}
 						else {
@@ -2426,11 +2426,11 @@ class StructureBuildingMethods {
 			}
 			else {
 				for (Element bracketOrSubOrRoot : siblings) {
-					if (bracketOrSubOrRoot.getAttribute(MULTIPLIER_ATR) != null) {
+					if (bracketOrSubOrRoot.getAttributeValue(MULTIPLIER_ATR) != null) {
 						continue;
 					}
 					if (bracketOrSubOrRoot.getName().equals(BRACKET_EL)) {
-						if (IMPLICIT_TYPE_VAL.equals(bracketOrSubOrRoot.getAttributeValue(TYPE_ATR)) && bracketOrSubOrRoot.getAttribute(LOCANT_EL) == null) {
+						if (IMPLICIT_TYPE_VAL.equals(bracketOrSubOrRoot.getAttributeValue(TYPE_ATR)) && bracketOrSubOrRoot.getAttributeValue(LOCANT_EL) == null) {
 							//treat implicit brackets without locants as if they are not there
 							for (Element descendent : getChildrenIgnoringLocantlessImplicitBrackets(bracketOrSubOrRoot)) {
 								if (descendent.getName().equals(BRACKET_EL)) {
@@ -2461,7 +2461,7 @@ class StructureBuildingMethods {
 	private static List<Element> getChildrenIgnoringLocantlessImplicitBrackets(Element implicitBracket) {
 		List<Element> childrenAndImplicitBracketChildren = new ArrayList<>();
 		for (Element child : implicitBracket.getChildElements()) {
-			if (child.getName().equals(BRACKET_EL) && IMPLICIT_TYPE_VAL.equals(child.getAttributeValue(TYPE_ATR)) && child.getAttribute(LOCANT_EL) == null) {
+			if (child.getName().equals(BRACKET_EL) && IMPLICIT_TYPE_VAL.equals(child.getAttributeValue(TYPE_ATR)) && child.getAttributeValue(LOCANT_EL) == null) {
 				childrenAndImplicitBracketChildren.addAll(getChildrenIgnoringLocantlessImplicitBrackets(child));
 			}
 			else {
@@ -2591,7 +2591,7 @@ class StructureBuildingMethods {
 	private static void addPrimesToLocantedStereochemistryElements(Element subOrBracket, String primesString) {
 		List<Element> stereoChemistryElements =OpsinTools.getDescendantElementsWithTagName(subOrBracket, STEREOCHEMISTRY_EL);
 		for (Element stereoChemistryElement : stereoChemistryElements) {
-			if (stereoChemistryElement.getAttribute(LOCANT_ATR) != null){
+			if (stereoChemistryElement.getAttributeValue(LOCANT_ATR) != null){
 				stereoChemistryElement.getAttribute(LOCANT_ATR).setValue(stereoChemistryElement.getAttributeValue(LOCANT_ATR) + primesString);
 			}
 		}
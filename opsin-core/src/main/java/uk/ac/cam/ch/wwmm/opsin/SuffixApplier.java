@@ -166,7 +166,7 @@ class SuffixApplier {
 					case changecharge:
 						int chargeChange = Integer.parseInt(suffixRule.getAttributeValue(SUFFIXRULES_CHARGE_ATR));
 						int protonChange = Integer.parseInt(suffixRule.getAttributeValue(SUFFIXRULES_PROTONS_ATR));
-						if (suffix.getAttribute(SUFFIXPREFIX_ATR) == null) {
+						if (suffix.getAttributeValue(SUFFIXPREFIX_ATR) == null) {
 							Atom fragAtomToUse = getFragAtomToUse(frag, suffix, suffixTypeToUse);
 							if (fragAtomToUse != null) {
 								fragAtomToUse.addChargeAndProtons(chargeChange, protonChange);
@@ -195,7 +195,7 @@ class SuffixApplier {
 					case setOutAtom:
 						String outValencyAtr = suffixRule.getAttributeValue(SUFFIXRULES_OUTVALENCY_ATR);
 						int outValency = outValencyAtr != null ? Integer.parseInt(outValencyAtr) : 1;
-						if (suffix.getAttribute(SUFFIXPREFIX_ATR) == null) {
+						if (suffix.getAttributeValue(SUFFIXPREFIX_ATR) == null) {
 							if (!fragsToMerge.isEmpty()) {
 								//ensure suffix fragments that were just added can be referenced e.g. glucitol-O1-yl
 								mergeSuffixFrags(frag, fragsToMerge);
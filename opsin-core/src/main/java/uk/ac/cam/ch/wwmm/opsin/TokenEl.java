@@ -18,6 +18,11 @@ class TokenEl extends Element {
 		this.value = value;
 	}
 
+	private TokenEl(TokenEl original, String value) {
+		super(original);
+		this.value = value;
+	}
+
 	@Override
 	void addChild(Element child) {
 		throw new UnsupportedOperationException("Tokens do not have children");
@@ -25,27 +30,18 @@ class TokenEl extends Element {
 	
 	@Override
 	Element copy() {
-		TokenEl copy = new TokenEl(this.name, this.value);
-		for (int i = 0, len = this.attributes.size(); i < len; i++) {
-			Attribute atr = this.attributes.get(i);
-			copy.addAttribute(new Attribute(atr));
-		}
-		return copy;
+		return copy(this.value);
 	}
 	
 	/**
 	 * Creates a copy with no parent
-	 * The provided value is used instead of the Element to be copied's value
+	 * The provided value is used instead of the Element to be copied's value.
+	 * The attributes are shared by the copy and this element until either modifies them
 	 * @param value
 	 * @return
 	 */
 	TokenEl copy(String value) {
-		TokenEl copy = new TokenEl(this.name, value);
-		for (int i = 0, len = this.attributes.size(); i < len; i++) {
-			Attribute atr = this.attributes.get(i);
-			copy.addAttribute(new Attribute(atr));
-		}
-		return copy;
+		return new TokenEl(this, value);
 	}
 	
 	@Override
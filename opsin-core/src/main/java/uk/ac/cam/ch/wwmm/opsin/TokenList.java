@@ -0,0 +1,53 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The tokens of one parse of a chemical word, held as offsets into the word.
+ * The String of a token is only created when it is first requested, and is then retained.
+ * Tokens that are not case sensitive are lower cased (A-Z only) when created.
+ */
+class TokenList extends AbstractList<String> implements RandomAccess {
+
+	private final String chemicalWord;
+	private final int start;
+	/**The end offset in chemicalWord of each token, each token starts where the previous token ended*/
+	private final int[] ends;
+	private final boolean[] caseSensitive;
+	/**Tokens that have been created, racing threads create equal Strings*/
+	private final String[] tokens;
+
+	/**
+	 * @param chemicalWord
+	 * @param start The offset of the first token
+	 * @param ends The end offset of each token
+	 * @param caseSensitive Whether each token should retain the case of chemicalWord
+	 */
+	TokenList(String chemicalWord, int start, int[] ends, boolean[] caseSensitive) {
+		if (ends.length != caseSensitive.length) {
+			throw new IllegalArgumentException("OPSIN bug: mismatch between the number of token ends and case sensitivities");
+		}
+		this.chemicalWord = chemicalWord;
+		this.start = start;
+		this.ends = ends;
+		this.caseSensitive = caseSensitive;
+		this.tokens = new String[ends.length];
+	}
+
+	@Override
+	public String get(int index) {
+		String token = tokens[index];
+		if (token == null) {
+			int tokenStart = index == 0 ? start : ends[index - 1];
+			token = caseSensitive[index] ? chemicalWord.substring(tokenStart, ends[index]) : StringTools.lowerCaseAsciiString(chemicalWord, tokenStart, ends[index]);
+			tokens[index] = token;
+		}
+		return token;
+	}
+
+	@Override
+	public int size() {
+		return ends.length;
+	}
+}
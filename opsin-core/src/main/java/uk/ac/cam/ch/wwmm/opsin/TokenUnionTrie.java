@@ -0,0 +1,238 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The union of the per grammar symbol token tries, as a single double-array trie whose end points are
+ * labelled with the grammar symbols (indices into the chemical automaton's character intervals) that have a token ending there.
+ * Hence one scan of a name from a given position finds the tokens of every symbol, rather than one scan per symbol.
+ */
+class TokenUnionTrie {
+
+	private static final int ALPHABET_SIZE = DoubleArrayBuilder.ALPHABET_SIZE;
+
+	private final int[] base;
+	private final int[] check;
+	/* labelStart[n]..labelStart[n+1] indexes the symbols in labelSymbols, in ascending order, that have a token ending at node n */
+	private final int[] labelStart;
+	private final int[] labelSymbols;
+	/**The greatest number of matches one scan can produce*/
+	private final int maxMatches;
+
+	private TokenUnionTrie(int[] base, int[] check, int[] labelStart, int[] labelSymbols, int maxMatches) {
+		this.base = base;
+		this.check = check;
+		this.labelStart = labelStart;
+		this.labelSymbols = labelSymbols;
+		this.maxMatches = maxMatches;
+	}
+
+	/**
+	 * Builds the union of the given tries, null entries are ignored
+	 * @param symbolTries The token trie of each grammar symbol
+	 * @return
+	 */
+	static TokenUnionTrie build(OpsinRadixTrie[] symbolTries) {
+		DoubleArrayBuilder builder = new DoubleArrayBuilder();
+		List<PendingNode> placed = new ArrayList<>();
+		char[] childChars = new char[ALPHABET_SIZE];
+
+		int symbolCount = 0;
+		for (OpsinRadixTrie trie : symbolTries) {
+			if (trie != null) {
+				symbolCount++;
+			}
+		}
+		int[] rootSymbols = new int[symbolCount];
+		for (int i = 0, j = 0; i < symbolTries.length; i++) {
+			if (symbolTries[i] != null) {
+				rootSymbols[j++] = i;
+			}
+		}
+		ArrayDeque<PendingNode> queue = new ArrayDeque<>();
+		queue.add(new PendingNode(0, rootSymbols, new int[symbolCount], 0));
+		int totalLabels = 0;
+		int maxMatches = 0;
+		char[] trieChildChars = new char[ALPHABET_SIZE];
+		int[] trieChildNodes = new int[ALPHABET_SIZE];
+		int[] bucketSize = new int[ALPHABET_SIZE];
+		int[][] bucketSymbols = new int[ALPHABET_SIZE][symbolCount];
+		int[][] bucketNodes = new int[ALPHABET_SIZE][symbolCount];
+		while (!queue.isEmpty()) {
+			PendingNode pending = queue.removeFirst();
+			placed.add(pending);
+			int labelCount = 0;
+			for (int i = 0; i < pending.symbols.length; i++) {
+				if (symbolTries[pending.symbols[i]].isEndPoint(pending.nodes[i])) {
+					labelCount++;
+				}
+			}
+			int[] labels = new int[labelCount];
+			for (int i = 0, j = 0; i < pending.symbols.length; i++) {
+				if (symbolTries[pending.symbols[i]].isEndPoint(pending.nodes[i])) {
+					labels[j++] = pending.symbols[i];
+				}
+			}
+			pending.labels = labels;
+			totalLabels += labelCount;
+			int matchesOnPath = pending.matchesOnPath + labelCount;
+			maxMatches = Math.max(maxMatches, matchesOnPath);
+
+			//group the children of each symbol's node by character
+			for (int i = 0; i < pending.symbols.length; i++) {
+				int count = symbolTries[pending.symbols[i]].getChildren(pending.nodes[i], trieChildChars, trieChildNodes);
+				for (int j = 0; j < count; j++) {
+					char c = trieChildChars[j];
+					int k = bucketSize[c]++;
+					bucketSymbols[c][k] = pending.symbols[i];
+					bucketNodes[c][k] = trieChildNodes[j];
+				}
+			}
+			List<PendingNode> children = new ArrayList<>();
+			int childCount = 0;
+			for (char c = 0; c < ALPHABET_SIZE; c++) {
+				int count = bucketSize[c];
+				if (count > 0) {
+					childChars[childCount++] = c;
+					children.add(new PendingNode(-1, Arrays.copyOf(bucketSymbols[c], count), Arrays.copyOf(bucketNodes[c], count), matchesOnPath));
+					bucketSize[c] = 0;
+				}
+			}
+			int b = builder.placeChildren(pending.index, childChars, childCount);
+			for (int i = 0; i < childCount; i++) {
+				PendingNode child = children.get(i);
+				child.index = b + childChars[i];
+				queue.add(child);
+			}
+		}
+
+		int size = builder.size();
+		int[][] labelsByNode = new int[size][];
+		for (PendingNode node : placed) {
+			labelsByNode[node.index] = node.labels;
+		}
+		int[] labelStart = new int[size + 1];
+		int[] labelSymbols = new int[totalLabels];
+		int p = 0;
+		for (int n = 0; n < size; n++) {
+			labelStart[n] = p;
+			int[] labels = labelsByNode[n];
+			if (labels != null) {
+				System.arraycopy(labels, 0, labelSymbols, p, labels.length);
+				p += labels.length;
+			}
+		}
+		labelStart[size] = p;
+		return new TokenUnionTrie(builder.getBase(), builder.getCheck(), labelStart, labelSymbols, maxMatches);
+	}
+
+	/**
+	 * Writes the trie such that {@link #read(DataInput)} can recreate it without rebuilding it
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(maxMatches);
+		out.writeInt(base.length);
+		out.writeInt(labelSymbols.length);
+		ByteBuffer buffer = ByteBuffer.allocate((base.length * 3 + 1 + labelSymbols.length) * 4);
+		buffer.asIntBuffer().put(base).put(check).put(labelStart).put(labelSymbols);
+		out.write(buffer.array());
+	}
+
+	/**
+	 * Recreates a trie that was written using {@link #write(DataOutput)}
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static TokenUnionTrie read(DataInput in) throws IOException {
+		int maxMatches = in.readInt();
+		int size = in.readInt();
+		int labelCount = in.readInt();
+		byte[] bytes = new byte[(size * 3 + 1 + labelCount) * 4];
+		in.readFully(bytes);
+		int[] base = new int[size];
+		int[] check = new int[size];
+		int[] labelStart = new int[size + 1];
+		int[] labelSymbols = new int[labelCount];
+		ByteBuffer.wrap(bytes).asIntBuffer().get(base).get(check).get(labelStart).get(labelSymbols);
+		return new TokenUnionTrie(base, check, labelStart, labelSymbols, maxMatches);
+	}
+
+	/**
+	 * The greatest number of matches that {@link #findMatches(String, int, int[], int[])} can report
+	 * @return
+	 */
+	int getMaxMatches() {
+		return maxMatches;
+	}
+
+	/**
+	 * Finds every token of every symbol that matches the name starting from posInName.
+	 * The name is matched case insensitively (A-Z are read as a-z), hence no lower cased copy of the name is required.
+	 * Matches are reported in ascending order of end index, then ascending order of symbol.
+	 * The arrays must have a length of at least {@link #getMaxMatches()}
+	 * @param chemicalName
+	 * @param posInName The point at which to start matching
+	 * @param matchSymbols Array to which the symbol of each match is written
+	 * @param matchEnds Array to which the end index of each match is written
+	 * @return the number of matches
+	 */
+	int findMatches(String chemicalName, int posInName, int[] matchSymbols, int[] matchEnds) {
+		int[] base = this.base;
+		int[] check = this.check;
+		int[] labelStart = this.labelStart;
+		int[] labelSymbols = this.labelSymbols;
+		int matchCount = 0;
+		int node = 0;
+		for (int i = labelStart[0], end = labelStart[1]; i < end; i++) {
+			matchSymbols[matchCount] = labelSymbols[i];
+			matchEnds[matchCount++] = posInName;
+		}
+		for (int pos = posInName, len = chemicalName.length(); pos < len; pos++) {
+			char c = chemicalName.charAt(pos);
+			if (c >= 'A' && c <= 'Z') {
+				c = (char) (c + 32);
+			}
+			else if (c >= ALPHABET_SIZE) {
+				break;
+			}
+			int child = base[node] + c;
+			if (child >= check.length || check[child] != node) {
+				break;
+			}
+			node = child;
+			for (int i = labelStart[node], end = labelStart[node + 1]; i < end; i++) {
+				matchSymbols[matchCount] = labelSymbols[i];
+				matchEnds[matchCount++] = pos + 1;
+			}
+		}
+		return matchCount;
+	}
+
+	/**
+	 * A node of the union awaiting placement: the corresponding node in each symbol's trie
+	 */
+	private static class PendingNode {
+		int index;
+		final int[] symbols;
+		final int[] nodes;
+		final int matchesOnPath;
+		int[] labels;
+
+		PendingNode(int index, int[] symbols, int[] nodes, int matchesOnPath) {
+			this.index = index;
+			this.symbols = symbols;
+			this.nodes = nodes;
+			this.matchesOnPath = matchesOnPath;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reusable scratch space for {@link ParseRules#getParses(String)}.
+ * The grammar is explored as a graph whose nodes are (DFA state, position in name) pairs, each node being explored once.
+ * Nodes and the edges (tokens) between them are held in primitive arrays, so no objects
+ * are allocated whilst exploring the grammar. The arrays grow as required and are retained for reuse.<br>
+ * Instances are not thread safe, ParseRules holds one per thread.
+ */
+class TokenisationWorkspace {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/* Nodes of the graph */
+	int[] states = new int[INITIAL_CAPACITY];
+	int[] positions = new int[INITIAL_CAPACITY];
+	/* edgeStart[n]..edgeStart[n] + edgeCount[n] indexes the edges out of node n, in the order they were found */
+	int[] edgeStart = new int[INITIAL_CAPACITY];
+	int[] edgeCount = new int[INITIAL_CAPACITY];
+	int nodeCount;
+
+	/* Edges of the graph, each corresponds to a token */
+	int[] edgeTargets = new int[INITIAL_CAPACITY];
+	char[] edgeAnnotations = new char[INITIAL_CAPACITY];
+	boolean[] edgeCaseSensitive = new boolean[INITIAL_CAPACITY];
+	int totalEdges;
+
+	/**Nodes that are yet to be explored*/
+	int[] stack = new int[INITIAL_CAPACITY];
+	int stackSize;
+
+	/* Open addressing hash table from (state, position) to node. Entries are only valid if their generation is the current generation */
+	private long[] nodeKeys = new long[INITIAL_CAPACITY * 2];
+	private int[] nodeValues = new int[INITIAL_CAPACITY * 2];
+	private int[] nodeGenerations = new int[INITIAL_CAPACITY * 2];
+	private int generation;
+
+	/**Scratch space for the symbol and end of each token match*/
+	final int[] matchSymbols;
+	final int[] matchEnds;
+
+	/**A matcher per grammar symbol, created on first use and then reset with each input*/
+	private final Matcher[] matchers;
+
+	/**True whilst in use by a parse; a re-entrant parse on the same thread uses a new workspace*/
+	boolean inUse;
+
+	/**
+	 * @param grammarSymbolsSize
+	 * @param maxMatches The greatest number of token matches that can be found from one position
+	 */
+	TokenisationWorkspace(int grammarSymbolsSize, int maxMatches) {
+		matchers = new Matcher[grammarSymbolsSize];
+		matchSymbols = new int[maxMatches];
+		matchEnds = new int[maxMatches];
+	}
+
+	/**
+	 * Clears the workspace in preparation for parsing a word
+	 */
+	void reset() {
+		nodeCount = 0;
+		totalEdges = 0;
+		stackSize = 0;
+		generation++;
+		if (generation == 0) {//wrapped around, hence stale entries could appear valid
+			Arrays.fill(nodeGenerations, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Returns the node for the given state and position, creating it and pushing it on to the stack of nodes to explore
+	 * if it has not been encountered before
+	 * @param state
+	 * @param position
+	 * @return
+	 */
+	int getOrAddNode(int state, int position) {
+		long key = ((long) state << 32) | position;
+		int mask = nodeKeys.length - 1;
+		int slot = hash(key) & mask;
+		while (nodeGenerations[slot] == generation) {
+			if (nodeKeys[slot] == key) {
+				return nodeValues[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		int node = nodeCount++;
+		if (node == states.length) {
+			int newCapacity = node * 2;
+			states = Arrays.copyOf(states, newCapacity);
+			positions = Arrays.copyOf(positions, newCapacity);
+			edgeStart = Arrays.copyOf(edgeStart, newCapacity);
+			edgeCount = Arrays.copyOf(edgeCount, newCapacity);
+		}
+		states[node] = state;
+		positions[node] = position;
+		edgeCount[node] = 0;
+		nodeGenerations[slot] = generation;
+		nodeKeys[slot] = key;
+		nodeValues[slot] = node;
+		if (nodeCount * 2 > nodeKeys.length) {
+			rehash();
+		}
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		}
+		stack[stackSize++] = node;
+		return node;
+	}
+
+	/**
+	 * Adds an edge from the given node, which must be the node currently being explored
+	 * @param from
+	 * @param state The state reached by the token
+	 * @param position The position in the name after the token
+	 * @param annotation
+	 * @param isCaseSensitive
+	 */
+	void addEdge(int from, int state, int position, char annotation, boolean isCaseSensitive) {
+		int target = getOrAddNode(state, position);
+		int idx = totalEdges;
+		if (idx == edgeTargets.length) {
+			int newCapacity = idx * 2;
+			edgeTargets = Arrays.copyOf(edgeTargets, newCapacity);
+			edgeAnnotations = Arrays.copyOf(edgeAnnotations, newCapacity);
+			edgeCaseSensitive = Arrays.copyOf(edgeCaseSensitive, newCapacity);
+		}
+		if (edgeCount[from] == 0) {
+			edgeStart[from] = idx;
+		}
+		edgeTargets[idx] = target;
+		edgeAnnotations[idx] = annotation;
+		edgeCaseSensitive[idx] = isCaseSensitive;
+		edgeCount[from]++;
+		totalEdges++;
+	}
+
+	private void rehash() {
+		long[] oldKeys = nodeKeys;
+		int[] oldValues = nodeValues;
+		int[] oldGenerations = nodeGenerations;
+		int newCapacity = oldKeys.length * 2;
+		nodeKeys = new long[newCapacity];
+		nodeValues = new int[newCapacity];
+		nodeGenerations = new int[newCapacity];
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldGenerations[i] == generation) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (nodeGenerations[slot] == generation) {
+					slot = (slot + 1) & mask;
+				}
+				nodeGenerations[slot] = generation;
+				nodeKeys[slot] = oldKeys[i];
+				nodeValues[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Returns a matcher for the given symbol's pattern, reset to match against the given input
+	 * @param symbolIndex
+	 * @param pattern
+	 * @param input
+	 * @return
+	 */
+	Matcher getMatcher(int symbolIndex, Pattern pattern, String input) {
+		Matcher matcher = matchers[symbolIndex];
+		if (matcher == null) {
+			matcher = pattern.matcher(input);
+			matchers[symbolIndex] = matcher;
+			return matcher;
+		}
+		return matcher.reset(input);
+	}
+}
@@ -36,13 +36,12 @@ class Tokeniser {
 
 		while (!result.isSuccessfullyTokenized()){
 			ParseRulesResults results = parseRules.getParses(result.getUnparsedName());
-			List<ParseTokens> parseTokens = results.getParseTokensList();
 			result.setWorkingName(results.getUninterpretableName());
 
 			String parsedName = result.getUnparsedName().substring(0, result.getUnparsedName().length() - result.getWorkingName().length());
 
-			if (isWordParsable(parseTokens, result)) {
-				parseWord(result, parseTokens, parsedName, false);
+			if (isWordParsable(results.getParseCount(), result)) {
+				parseWord(result, results.getBoundedParseTokensList(), parsedName, false);
 				resultFromBeforeWhitespaceRemoval =null;
 			} else {
 				if (resultFromBeforeWhitespaceRemoval == null) {
@@ -76,7 +75,7 @@ class Tokeniser {
 
 		while (!result.isSuccessfullyTokenized()){
 			ParseRulesResults results = reverseParseRules.getParses(result.getUnparsedName());
-			List<ParseTokens> parseTokens =results.getParseTokensList();
+			List<ParseTokens> parseTokens =results.getBoundedParseTokensList();
 			result.setWorkingName(results.getUninterpretableName());
 
 			String parsedName = result.getUnparsedName().substring(result.getWorkingName().length());
@@ -106,8 +105,8 @@ class Tokeniser {
 		return parseTokens.size()>0 && (result.isFullyInterpretable() || result.getWorkingName().charAt(result.getWorkingName().length()-1)==' ' || result.getWorkingName().charAt(result.getWorkingName().length()-1) =='-');
 	}
 
-	private boolean isWordParsable(List<ParseTokens> parseTokens, TokenizationResult result) {
-		return parseTokens.size()>0 && (result.isFullyInterpretable() || result.getWorkingName().charAt(0) ==' ' || result.getWorkingName().charAt(0) =='-');
+	private boolean isWordParsable(int parseCount, TokenizationResult result) {
+		return parseCount>0 && (result.isFullyInterpretable() || result.getWorkingName().charAt(0) ==' ' || result.getWorkingName().charAt(0) =='-');
 	}
 	
 	private void parseWord(TokenizationResult result, List<ParseTokens> parseTokens, String parsedName, boolean reverse) {
@@ -222,12 +221,11 @@ class Tokeniser {
 			ParseWord pw = parsedWords.get(parsedWords.size() - 1);
 			String lastWordAndUnparsed = pw.getWord() + result.getUnparsedName();
 			ParseRulesResults backResults = parseRules.getParses(lastWordAndUnparsed);
-			List<ParseTokens> backParseTokens = backResults.getParseTokensList();
 			String backUninterpretableName = backResults.getUninterpretableName();
 			String backParsedName = lastWordAndUnparsed.substring(0, lastWordAndUnparsed.length() - backUninterpretableName.length());
-			if (backParsedName.length() > pw.getWord().length() && backParseTokens.size() > 0 && (backUninterpretableName.isEmpty() || backUninterpretableName.charAt(0) == ' ' || backUninterpretableName.charAt(0) == '-')) {//a word was interpretable
+			if (backParsedName.length() > pw.getWord().length() && backResults.getParseCount() > 0 && (backUninterpretableName.isEmpty() || backUninterpretableName.charAt(0) == ' ' || backUninterpretableName.charAt(0) == '-')) {//a word was interpretable
 				result.getParse().removeWord(pw);
-				List<ParseWord> parseWords = WordTools.splitIntoParseWords(backParseTokens, backParsedName);
+				List<ParseWord> parseWords = WordTools.splitIntoParseWords(backResults.getBoundedParseTokensList(), backParsedName);
 				for (ParseWord parseWord : parseWords) {
 					result.getParse().addWord(parseWord);
 				}
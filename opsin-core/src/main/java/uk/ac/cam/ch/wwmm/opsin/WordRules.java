@@ -476,7 +476,7 @@ class WordRules {
 							continue wordRuleLoop;
 						}
 						int lastWordIndex = indexOfFirstWord + wordsInWordRule - 1;
-						if (wordEls.get(lastWordIndex).getAttribute(ISSALT_ATR) != null) {
+						if (wordEls.get(lastWordIndex).getAttributeValue(ISSALT_ATR) != null) {
 							//explicitly stated to be a salt, so shouldn't be bonded!
 							continue wordRuleLoop;
 						}
@@ -539,13 +539,13 @@ class WordRules {
 					throw new ParsingException("The word salt appeared in an unexpected location");
 				}
 				Element previousWord = wordEls.get(indexOfFirstWord - 1);
-				if (previousWord.getAttribute(ISSALT_ATR) == null) {
+				if (previousWord.getAttributeValue(ISSALT_ATR) == null) {
 					previousWord.addAttribute(ISSALT_ATR, "yes");
 				}
 				
 				wordEls.remove(indexOfFirstWord);
 				firstWord.detach();
-				if (moleculeEl.getAttribute(ISSALT_ATR) == null) {
+				if (moleculeEl.getAttributeValue(ISSALT_ATR) == null) {
 					moleculeEl.addAttribute(ISSALT_ATR, "yes");
 				}
 				return true;
@@ -587,7 +587,7 @@ class WordRules {
 					}
 				}
 				else if (elName.equals(GROUP_EL)) {
-					if (lastEl.getAttribute(FUNCTIONALIDS_ATR) != null && 
+					if (lastEl.getAttributeValue(FUNCTIONALIDS_ATR) != null && 
 							(icOrOusAcid.matcher(lastEl.getValue()).find() || AMINOACID_TYPE_VAL.equals(lastEl.getAttributeValue(TYPE_ATR)))) {
 						return true;
 					}
@@ -595,7 +595,7 @@ class WordRules {
 			}
 			else if (endsWithGroupPredicate == EndsWithGroup.ateGroup) {
 				if (elName.equals(GROUP_EL)) {
-					if (lastEl.getAttribute(FUNCTIONALIDS_ATR) != null && ateOrIteOrAmide.matcher(lastEl.getValue()).find()) {
+					if (lastEl.getAttributeValue(FUNCTIONALIDS_ATR) != null && ateOrIteOrAmide.matcher(lastEl.getValue()).find()) {
 						return true;
 					}
 				}
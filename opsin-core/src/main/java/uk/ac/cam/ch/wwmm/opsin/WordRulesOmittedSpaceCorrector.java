@@ -45,7 +45,7 @@ class WordRulesOmittedSpaceCorrector {
 			if (children.size() == 2) {
 				Element firstSubOrbracket = children.get(0);
 				//rule out correct usage e.g. diethyl ether and locanted substituents e.g. 2-methylpropyl ether
-				if (firstSubOrbracket.getAttribute(LOCANT_ATR) == null && firstSubOrbracket.getAttribute(MULTIPLIER_ATR) == null) {
+				if (firstSubOrbracket.getAttributeValue(LOCANT_ATR) == null && firstSubOrbracket.getAttributeValue(MULTIPLIER_ATR) == null) {
 					Element firstGroup = findRightMostGroupInSubBracketOrRoot(firstSubOrbracket);
 					Fragment firstFrag = firstGroup.getFrag();
 					if (hasSingleMonoValentCarbonOrSiliconRadical(firstFrag)) {
@@ -94,12 +94,12 @@ class WordRulesOmittedSpaceCorrector {
 					}
 					Element firstChild = substituents.get(0);
 					if (!checkSuitabilityOfSubstituentForEsterFormation(firstChild, functionalAtomsCount)){
-						if (firstChild.getAttribute(LOCANT_ATR) != null) {
+						if (firstChild.getAttributeValue(LOCANT_ATR) != null) {
 							//Check for cases like 4-chlorophenyl-3-aminobenzoate i.e. 4-chlorophenyl is the substituent
 							Integer lastSubOrBracketWithoutLocantIdx = null;
 							for (int i = 1; i < substituents.size(); i++) {
 								Element subOrBracket = substituents.get(i);
-								if (subOrBracket.getAttribute(LOCANT_ATR) == null) {
+								if (subOrBracket.getAttributeValue(LOCANT_ATR) == null) {
 									if (!checkSuitabilityOfSubstituentForEsterFormation(subOrBracket, 1)) {
 										//shouldn't have a multiplier as preceding substituent needs to connect to this via locanted substitution
 										return;
@@ -140,7 +140,7 @@ class WordRulesOmittedSpaceCorrector {
 			return false;
 		}
 		for (int i = 1; i < substituentsAndBrackets.size(); i++) {
-			if (substituentsAndBrackets.get(i).getAttribute(LOCANT_ATR)==null){
+			if (substituentsAndBrackets.get(i).getAttributeValue(LOCANT_ATR)==null){
 				return false;
 			}
 		}
@@ -240,7 +240,7 @@ class WordRulesOmittedSpaceCorrector {
 	}
 
 	private boolean checkSuitabilityOfSubstituentForEsterFormation(Element subOrBracket, int rootFunctionalAtomsCount) {
-		if (subOrBracket.getAttribute(LOCANT_ATR) != null){
+		if (subOrBracket.getAttributeValue(LOCANT_ATR) != null){
 			return false;
 		}
 		Fragment rightMostGroup = findRightMostGroupInSubBracketOrRoot(subOrBracket).getFrag();
@@ -0,0 +1,83 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns an ordinal to each element name (its kind) and each attribute name (its slot) declared in {@link XmlDeclarations}.
+ * Elements use these to hold their attributes and the names of their descendants in arrays and bit sets rather than String keyed collections.
+ * Names that are not declared have no ordinal and are compared as Strings
+ */
+final class XmlSymbols {
+
+	/**The ordinal of a name that is not declared in {@link XmlDeclarations}*/
+	static final int UNDECLARED = -1;
+
+	/**The number of attribute slots is limited such that the slots an element uses can be held in a long*/
+	private static final int MAX_ATTRIBUTE_SLOTS = 64;
+
+	private static final Map<String, Integer> elementKinds = new HashMap<>();
+	private static final Map<String, Integer> attributeSlots = new HashMap<>();
+
+	static {
+		try {
+			for (Field field : XmlDeclarations.class.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) {
+					continue;
+				}
+				String fieldName = field.getName();
+				if (fieldName.endsWith("_EL")) {
+					assignOrdinal(elementKinds, (String) field.get(null));
+				}
+				else if (fieldName.endsWith("_ATR")) {
+					assignOrdinal(attributeSlots, (String) field.get(null));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("OPSIN Bug: Unable to read the names in XmlDeclarations", e);
+		}
+		if (attributeSlots.size() > MAX_ATTRIBUTE_SLOTS) {
+			throw new RuntimeException("OPSIN Bug: More than " + MAX_ATTRIBUTE_SLOTS + " attribute names are declared in XmlDeclarations");
+		}
+	}
+
+	private XmlSymbols() {
+	}
+
+	private static void assignOrdinal(Map<String, Integer> ordinals, String name) {
+		if (!ordinals.containsKey(name)) {
+			ordinals.put(name, ordinals.size());
+		}
+	}
+
+	/**
+	 * Returns the kind of elements with the given name, or {@link #UNDECLARED}
+	 * @param elementName
+	 * @return
+	 */
+	static int getElementKind(String elementName) {
+		Integer kind = elementKinds.get(elementName);
+		return kind != null ? kind : UNDECLARED;
+	}
+
+	/**
+	 * The number of element kinds. Kinds are numbered from 0
+	 * @return
+	 */
+	static int getElementKindCount() {
+		return elementKinds.size();
+	}
+
+	/**
+	 * Returns the slot of attributes with the given name, or {@link #UNDECLARED}.
+	 * Slots are numbered from 0 and are less than 64
+	 * @param attributeName
+	 * @return
+	 */
+	static int getAttributeSlot(String attributeName) {
+		Integer slot = attributeSlots.get(attributeName);
+		return slot != null ? slot : UNDECLARED;
+	}
+}
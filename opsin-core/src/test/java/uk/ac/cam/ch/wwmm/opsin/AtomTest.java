@@ -3,9 +3,14 @@ package uk.ac.cam.ch.wwmm.opsin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -38,6 +43,29 @@ public class AtomTest {
 		assertTrue(atom.hasLocant("C"), "Atom now has locant 'C'");
 	}
 	
+	@Test
+	public void testLocantClassificationIsMaintained() {
+		Atom atom = new Atom(10, ChemEl.N, frag);
+		assertFalse(atom.hasNumericLocant());
+		assertFalse(atom.hasNonElementSymbolLocant());
+		atom.addLocant("N'");
+		assertFalse(atom.hasNumericLocant());
+		assertFalse(atom.hasNonElementSymbolLocant());
+		atom.addLocant("2a");
+		assertTrue(atom.hasNumericLocant());
+		assertTrue(atom.hasNonElementSymbolLocant());
+		atom.removeLocant("2a");
+		assertFalse(atom.hasNumericLocant());
+		assertFalse(atom.hasNonElementSymbolLocant());
+		atom.addLocant("alpha");
+		assertFalse(atom.hasNumericLocant());
+		assertTrue(atom.hasNonElementSymbolLocant());
+		atom.removeElementSymbolLocants();
+		assertTrue(atom.hasNonElementSymbolLocant());
+		atom.clearLocants();
+		assertFalse(atom.hasNonElementSymbolLocant());
+	}
+	
 	@Test
 	public void testGetIncomingValency() throws StructureBuildingException {
 		assertEquals(0, sBuilder.build("C").getFirstAtom().getIncomingValency(), "No bonds");
@@ -47,5 +75,20 @@ public class AtomTest {
 		assertEquals(3, sBuilder.build("C#C").getFirstAtom().getIncomingValency(), "Triple bond");
 		assertEquals(1, sBuilder.build("CC=CC#N").getFirstAtom().getIncomingValency(), "One bond");
 	}
+
+	@Test
+	public void testBondsViewIsLiveAndFailFast() throws StructureBuildingException {
+		Fragment propane = sBuilder.build("CCC");
+		Atom middle = propane.getAtomList().get(1);
+		List<Bond> bonds = middle.getBonds();
+		assertEquals(2, bonds.size());
+		Bond removed = bonds.get(0);
+		Iterator<Bond> it = bonds.iterator();
+		it.next();
+		middle.removeBond(removed);
+		assertEquals(1, bonds.size(), "The view should reflect the removal");
+		assertThrows(ConcurrentModificationException.class, it::next);
+		assertThrows(UnsupportedOperationException.class, () -> bonds.remove(0));
+	}
 	
 }
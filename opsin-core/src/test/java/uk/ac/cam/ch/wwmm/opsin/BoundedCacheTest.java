@@ -0,0 +1,40 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		BoundedCache<String, String> cache = new BoundedCache<>(2);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		assertEquals("1", cache.get("a"));
+		cache.put("c", "3");
+		assertNull(cache.get("b"));
+		assertEquals("1", cache.get("a"));
+		assertEquals("3", cache.get("c"));
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals(3, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(1, stats.getEvictionCount());
+		assertEquals(2, stats.getSize());
+	}
+
+	@Test
+	public void testSegmentedCacheIsBounded() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(1000);
+		for (int i = 0; i < 10000; i++) {
+			cache.put(i, i);
+		}
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals(10000, stats.getSize() + stats.getEvictionCount());
+		assertTrue(stats.getSize() <= 1000 + 16);
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+}
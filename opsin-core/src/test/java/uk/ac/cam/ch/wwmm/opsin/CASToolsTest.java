@@ -2,6 +2,10 @@ package uk.ac.cam.ch.wwmm.opsin;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 
@@ -204,4 +208,14 @@ public class CASToolsTest {
 		CASTools.uninvertCASName("benzoic acid, ester", parseRules);
 		});
 	}
+
+	@Test
+	public void testWordWithTooManyParses() throws ParsingException {
+		ParseRules ambiguousParseRules = mock(ParseRules.class);
+		when(ambiguousParseRules.getParses(anyString())).thenReturn(new ParseRulesResults(ParseForestTest.buildAmbiguousForest(8), "", ""));
+		ParsingException e = assertThrows(ParsingException.class, () -> CASTools.uninvertCASName("Ethanol, abababababababab", ambiguousParseRules));
+		assertTrue(e.getMessage().startsWith("Too many"));
+		e = assertThrows(ParsingException.class, () -> CASTools.uninvertCASName("Ethanol abababababababab, 2-chloro-", ambiguousParseRules));
+		assertTrue(e.getMessage().startsWith("Too many"));
+	}
 }
@@ -0,0 +1,84 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FragmentPrototypeTest {
+
+	@Test
+	public void testPopulatedFragmentIsIdenticalToBuiltFragment() throws StructureBuildingException {
+		String[][] smilesAndLabels = {
+				{"CCC(=O)O-", NUMERIC_LABELS_VAL},
+				{"=C", NONE_LABELS_VAL},
+				{"c1ccc2ccccc2c1", FUSEDRING_LABELS_VAL},
+				{"N[C@@H](C)C(=O)O", "N/2/3/1/O/O"},
+				{"C/C=C\\1/NC1", NONE_LABELS_VAL},
+				{"F/C=C/F", NONE_LABELS_VAL},
+				{"[13CH3][N+](C)(C)C", NONE_LABELS_VAL},
+				{"[nH]1cccc1", NUMERIC_LABELS_VAL},
+				{"[SnH3]", NONE_LABELS_VAL},
+				{"[P|5]", NONE_LABELS_VAL},
+				{"[SeH?]", NONE_LABELS_VAL},
+				{"N[C@@H]1C.F1", NONE_LABELS_VAL}
+		};
+		for (String[] smilesAndLabel : smilesAndLabels) {
+			IDManager idManager = new IDManager();
+			Fragment built = new SMILESFragmentBuilder(idManager).build(smilesAndLabel[0], GROUP_TYPE_VAL, smilesAndLabel[1]);
+			FragmentPrototype prototype = new FragmentPrototype(built);
+			Fragment populated = new Fragment(GROUP_TYPE_VAL);
+			IDManager idManager2 = new IDManager();
+			idManager2.getNextID();
+			prototype.populate(populated, idManager2);
+			assertEquals(describe(built, 0), describe(populated, 1), smilesAndLabel[0]);
+		}
+	}
+
+	private String describe(Fragment frag, int idOffset) {
+		StringBuilder sb = new StringBuilder();
+		for (Atom atom : frag) {
+			sb.append(atom.getID() - idOffset).append(' ').append(atom.getElement()).append(atom.getLocants())
+			.append(' ').append(atom.getCharge()).append(' ').append(atom.getIsotope())
+			.append(' ').append(atom.hasSpareValency()).append(' ').append(atom.getProtonsExplicitlyAddedOrRemoved())
+			.append(' ').append(atom.getLambdaConventionValency()).append(' ').append(atom.getMinimumValency())
+			.append(' ').append(atom.getAtomIsInACycle()).append(' ').append(atom.getOutValency())
+			.append(' ').append(atom.getType()).append(' ').append(atom.getProperty(Atom.SMILES_HYDROGEN_COUNT));
+			AtomParity atomParity = atom.getAtomParity();
+			if (atomParity != null) {
+				sb.append(" parity ").append(atomParity.getParity()).append(ids(Arrays.asList(atomParity.getAtomRefs4()), idOffset));
+			}
+			sb.append(" bonds").append(ids(atom.getAtomNeighbours(), idOffset)).append('\n');
+		}
+		for (Bond bond : frag.getBondSet()) {
+			sb.append(bond.getFrom() - idOffset).append('-').append(bond.getTo() - idOffset).append(' ').append(bond.getOrder());
+			BondStereo bondStereo = bond.getBondStereo();
+			if (bondStereo != null) {
+				sb.append(' ').append(bondStereo.getBondStereoValue()).append(ids(Arrays.asList(bondStereo.getAtomRefs4()), idOffset));
+			}
+			sb.append('\n');
+		}
+		for (int i = 0; i < frag.getOutAtomCount(); i++) {
+			OutAtom outAtom = frag.getOutAtom(i);
+			sb.append("outAtom ").append(outAtom.getAtom().getID() - idOffset).append(' ').append(outAtom.getValency()).append(' ').append(outAtom.isSetExplicitly()).append('\n');
+		}
+		sb.append("indicatedHydrogen").append(ids(frag.getIndicatedHydrogen(), idOffset));
+		for (Atom atom : frag) {
+			for (String locant : atom.getLocants()) {
+				sb.append(' ').append(locant).append('=').append(frag.getAtomByLocant(locant).getID() - idOffset);
+			}
+		}
+		return sb.toString();
+	}
+
+	private String ids(List<Atom> atoms, int idOffset) {
+		StringBuilder sb = new StringBuilder("[");
+		for (Atom atom : atoms) {
+			sb.append(atom == AtomParity.hydrogen ? "H" : atom == AtomParity.deoxyHydrogen ? "dH" : String.valueOf(atom.getID() - idOffset)).append(' ');
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -42,6 +42,25 @@ public class FragmentTest {
 		assertEquals(1, frag.getAtomCount(), "Now has one atom");
 	}
 
+	@Test
+	public void testAddAtomWithExistingIdReplacesAtom() {
+		Atom first = new Atom(1, ChemEl.C, frag);
+		Atom replaced = new Atom(2, ChemEl.C, frag);
+		Atom last = new Atom(3, ChemEl.C, frag);
+		frag.addAtom(first);
+		frag.addAtom(replaced);
+		frag.addAtom(last);
+		Atom replacement = new Atom(2, ChemEl.N, frag);
+		frag.addAtom(replacement);
+		assertEquals(3, frag.getAtomCount());
+		assertEquals(replacement, frag.getAtomByID(2));
+		assertEquals(1, frag.getAtomIndex(replacement), "The replacement should take the place of the atom it replaces");
+		assertEquals(-1, frag.getAtomIndex(replaced));
+		assertEquals(2, frag.getAtomIndex(last));
+		frag.addAtom(replacement);
+		assertEquals(3, frag.getAtomCount(), "Adding an atom that is already in the fragment has no effect");
+	}
+
 	@Test
 	public void testAddBond() {
 		frag.addAtom(new Atom(1, ChemEl.C, frag));
@@ -476,6 +495,27 @@ public class FragmentTest {
 		assertTrue(FragmentTools.isCharacteristicAtom(parentAtoms.get(parentAtoms.size() - 1)));
 	}
 	
+	@Test
+	public void testAtomAndBondIndicesAreMaintained() throws StructureBuildingException{
+		Fragment parent = fm.buildSMILES("CCCO");
+		Fragment child = fm.buildSMILES("N");
+		Atom removedAtom = parent.getAtom(1);
+		fm.removeAtomAndAssociatedBonds(removedAtom);
+		fm.incorporateFragment(child, parent);
+		assertEquals(-1, parent.getAtomIndex(removedAtom));
+		assertEquals(parent.getAtomCount(), parent.getAtomList().size());
+		for (int i = 0; i < parent.getAtomCount(); i++) {
+			Atom atom = parent.getAtom(i);
+			assertEquals(parent.getAtomList().get(i), atom);
+			assertEquals(i, parent.getAtomIndex(atom));
+		}
+		assertEquals(ChemEl.N, parent.getAtom(parent.getAtomCount() - 1).getElement());
+		assertEquals(parent.getBondSet().size(), parent.getBondCount());
+		for (int i = 0; i < parent.getBondCount(); i++) {
+			assertTrue(parent.getBondSet().contains(parent.getBond(i)));
+		}
+	}
+
 	@Test
 	public void testIsCharacteristicAtomHydroxy() throws StructureBuildingException{
 		List<Atom> phenolAtoms = fm.buildSMILES("Oc1ccccc1").getAtomList();
@@ -0,0 +1,84 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class GroupingElTest {
+
+	@Test
+	public void testIndexIsMaintainedAsChildrenChange() {
+		GroupingEl molecule = new GroupingEl(MOLECULE_EL);
+		molecule.indexDescendantNames();
+		GroupingEl word = new GroupingEl(WORD_EL);
+		GroupingEl substituent = new GroupingEl(SUBSTITUENT_EL);
+		Element group = new TokenEl(GROUP_EL, "meth");
+		substituent.addChild(group);
+		word.addChild(substituent);
+		assertTrue(word.mayHaveDescendantWithName(GROUP_EL));
+		molecule.addChild(word);
+		assertTrue(molecule.mayHaveDescendantWithName(GROUP_EL));
+		assertFalse(molecule.mayHaveDescendantWithName(ROOT_EL));
+
+		substituent.setName(ROOT_EL);
+		assertTrue(molecule.mayHaveDescendantWithName(ROOT_EL));
+		assertFalse(molecule.mayHaveDescendantWithName(SUBSTITUENT_EL));
+
+		group.detach();
+		assertFalse(molecule.mayHaveDescendantWithName(GROUP_EL));
+		assertFalse(word.mayHaveDescendantWithName(GROUP_EL));
+
+		word.detach();
+		assertFalse(molecule.mayHaveDescendantWithName(WORD_EL));
+		assertFalse(molecule.mayHaveDescendantWithName(ROOT_EL));
+	}
+
+	@Test
+	public void testIndexedSearchIsInDocumentOrder() {
+		GroupingEl word = new GroupingEl(WORD_EL);
+		GroupingEl substituent = new GroupingEl(SUBSTITUENT_EL);
+		Element meth = new TokenEl(GROUP_EL, "meth");
+		Element yl = new TokenEl(SUFFIX_EL, "yl");
+		substituent.addChild(meth);
+		substituent.addChild(yl);
+		GroupingEl root = new GroupingEl(ROOT_EL);
+		Element benzene = new TokenEl(GROUP_EL, "benzene");
+		root.addChild(benzene);
+		word.addChild(substituent);
+		word.addChild(root);
+		word.indexDescendantNames();
+		Element eth = new TokenEl(GROUP_EL, "eth");
+		substituent.insertChild(eth, 0);
+
+		List<Element> expected = Arrays.asList(eth, meth, benzene);
+		assertEquals(expected, OpsinTools.getDescendantElementsWithTagName(word, GROUP_EL));
+		assertEquals(Arrays.asList(eth, meth, yl, benzene), OpsinTools.getDescendantElementsWithTagNames(word, new String[]{GROUP_EL, SUFFIX_EL}));
+		assertEquals(0, OpsinTools.getDescendantElementsWithTagName(root, SUFFIX_EL).size());
+	}
+
+	@Test
+	public void testUndeclaredNamesAreNotExcludedBySearches() {
+		GroupingEl word = new GroupingEl(WORD_EL);
+		word.indexDescendantNames();
+		GroupingEl undeclared = new GroupingEl("undeclaredElement");
+		Element group = new TokenEl(GROUP_EL, "meth");
+		undeclared.addChild(group);
+		word.addChild(undeclared);
+		assertTrue(word.mayHaveDescendantWithName("undeclaredElement"));
+		assertEquals(Arrays.asList(undeclared), OpsinTools.getDescendantElementsWithTagName(word, "undeclaredElement"));
+		assertEquals(Arrays.asList(group), OpsinTools.getDescendantElementsWithTagName(word, GROUP_EL));
+
+		undeclared.setName(SUBSTITUENT_EL);
+		assertTrue(word.mayHaveDescendantWithName(SUBSTITUENT_EL));
+		undeclared.setName("anotherUndeclaredElement");
+		assertFalse(word.mayHaveDescendantWithName(SUBSTITUENT_EL));
+		assertTrue(word.mayHaveDescendantWithName(GROUP_EL));
+	}
+}
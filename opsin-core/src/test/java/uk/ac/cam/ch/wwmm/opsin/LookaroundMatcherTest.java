@@ -0,0 +1,53 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+public class LookaroundMatcherTest {
+
+	private static final String[] INPUTS = {"", "a", "1", "ethyl", "2-ethyl", "Ab-", "a b", "[1,2]", "-", "x^y"};
+
+	@Test
+	public void testAgreesWithJavaRegex() {
+		String[] regexes = {"(?<![A-Za-z])", "(?![A-Za-z])", "(?<=[A-Za-z])", "(?=[0-9])", "(?![^a-z])", "(?<=-)", "(?!\\-)", "(?=[-\\]])", "(?<![ab\\^])"};
+		for (String regex : regexes) {
+			LookaroundMatcher lookaround = LookaroundMatcher.compile(regex);
+			assertNotNull(lookaround, regex);
+			Pattern pattern = Pattern.compile(regex);
+			for (String input : INPUTS) {
+				for (int i = 0; i <= input.length(); i++) {
+					Matcher m = pattern.matcher(input).region(i, input.length());
+					m.useTransparentBounds(true);
+					assertEquals(m.lookingAt(), lookaround.matches(input, i), regex + " at " + i + " of " + input);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnsupportedRegexesAreNotCompiled() {
+		assertNull(LookaroundMatcher.compile("[A-Za-z]"));
+		assertNull(LookaroundMatcher.compile("(?![A-Za-z]+)"));
+		assertNull(LookaroundMatcher.compile("(?!ab)"));
+		assertNull(LookaroundMatcher.compile("(?!\\d)"));
+		assertNull(LookaroundMatcher.compile("(?![a-z&&[^e]])"));
+		assertNull(LookaroundMatcher.compile("(?!)"));
+	}
+
+	@Test
+	public void testPatternsAnchoredAtEnd() {
+		Pattern[] patterns = {Pattern.compile("(?<![A-Za-z])$"), null, Pattern.compile("[0-9]+$")};
+		LookaroundMatcher[] lookarounds = LookaroundMatcher.compileAndRemove(patterns, true);
+		assertNotNull(lookarounds[0]);
+		assertNull(patterns[0]);
+		assertNull(lookarounds[1]);
+		assertNull(lookarounds[2]);
+		assertNotNull(patterns[2]);
+	}
+}
@@ -3,8 +3,18 @@ package uk.ac.cam.ch.wwmm.opsin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
 import uk.ac.cam.ch.wwmm.opsin.OpsinResult.OPSIN_RESULT_STATUS;
@@ -69,4 +79,134 @@ public class NameToStructureTest {
 		assertTrue(result.getMessage().startsWith("Unable to combine ring components"),
 				"Expected a diagnosable failure but was: " + result.getMessage());
 	}
+
+	@Test
+	public void testDetailedFailureAnalysisFromManyThreads() {
+		NameToStructure nts = NameToStructure.getInstance();
+		nts.initialiseDetailedFailureAnalysis();
+		NameToStructureConfig config = new NameToStructureConfig();
+		config.setDetailedFailureAnalysis(true);
+		String expectedMessage = nts.parseChemicalName("2-methylhelloworldane", config).getMessage();
+		assertTrue(expectedMessage.contains("uninterpretable"), expectedMessage);
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			names.add("2-methylhelloworldane");
+		}
+		for (OpsinResult result : nts.parseChemicalNames(names, config)) {
+			assertEquals(OPSIN_RESULT_STATUS.FAILURE, result.getStatus());
+			assertEquals(expectedMessage, result.getMessage());
+		}
+	}
+
+	@Test
+	public void testParseChemicalNamesRetainsInputOrder() {
+		NameToStructure nts = NameToStructure.getInstance();
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			names.addAll(Arrays.asList("ethane", "helloworld", "benzene", "acetic acid", "phenol"));
+		}
+		List<OpsinResult> results = nts.parseChemicalNames(names, NameToStructureConfig.getDefaultConfigInstance());
+		assertEquals(names.size(), results.size());
+		for (int i = 0; i < names.size(); i++) {
+			OpsinResult result = results.get(i);
+			assertEquals(names.get(i), result.getChemicalName());
+			assertEquals(nts.parseChemicalName(names.get(i)).getSmiles(), result.getSmiles());
+		}
+		assertEquals(OPSIN_RESULT_STATUS.FAILURE, results.get(1).getStatus());
+	}
+
+	@Test
+	public void testParseChemicalNamesStream() {
+		NameToStructure nts = NameToStructure.getInstance();
+		List<String> names = Arrays.asList("ethane", "benzene", "helloworld", "propane");
+		List<String> smiles = nts.parseChemicalNames(names.stream(), NameToStructureConfig.getDefaultConfigInstance())
+				.map(OpsinResult::getSmiles)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList("CC", "C1=CC=CC=C1", null, "CCC"), smiles);
+	}
+
+	@Test
+	public void testResultCache() {
+		NameToStructure nts = NameToStructure.getInstance();
+		nts.setResultCacheSize(100);
+		try {
+			OpsinResult first = nts.parseChemicalName("benzene");
+			OpsinResult second = nts.parseChemicalName(" benzene ");
+			assertEquals(" benzene ", second.getChemicalName());
+			assertEquals(first.getSmiles(), second.getSmiles());
+			NameToStructureConfig radicalConfig = new NameToStructureConfig();
+			radicalConfig.setAllowRadicals(true);
+			assertEquals(OPSIN_RESULT_STATUS.FAILURE, nts.parseChemicalName("phenyl").getStatus());
+			assertEquals(OPSIN_RESULT_STATUS.SUCCESS, nts.parseChemicalName("phenyl", radicalConfig).getStatus());
+			CacheStatistics stats = nts.getResultCacheStatistics();
+			assertEquals(1, stats.getHitCount());
+			assertEquals(3, stats.getMissCount());
+			assertEquals(3, stats.getSize());
+		}
+		finally {
+			nts.setResultCacheSize(0);
+		}
+		assertNull(nts.getResultCacheStatistics());
+	}
+
+	@Test
+	public void testSpeculativeParsesGiveSameResultAsSequential() {
+		NameToStructure nts = NameToStructure.getInstance();
+		NameToStructureConfig sequentialConfig = new NameToStructureConfig();
+		NameToStructureConfig speculativeConfig = new NameToStructureConfig();
+		speculativeConfig.setSpeculativeParseCount(4);
+		for (String name : new String[]{"4a-oxo-4alambda5-phosphadecalin", "5lambda^5-arsaspiro[4.4]nonan-5-ylium", "ethylene", "benzene", "chunky bacon"}) {
+			OpsinResult sequential = nts.parseChemicalName(name, sequentialConfig);
+			OpsinResult speculative = nts.parseChemicalName(name, speculativeConfig);
+			assertEquals(sequential.getStatus(), speculative.getStatus(), name);
+			assertEquals(sequential.getSmiles(), speculative.getSmiles(), name);
+			assertEquals(sequential.getMessage(), speculative.getMessage(), name);
+		}
+		assertThrows(IllegalArgumentException.class, () -> speculativeConfig.setSpeculativeParseCount(0));
+	}
+
+	@Test
+	public void testParseChemicalNameAsync() throws Exception {
+		NameToStructure nts = NameToStructure.getInstance();
+		NameToStructureConfig config = NameToStructureConfig.getDefaultConfigInstance();
+		CompletableFuture<OpsinResult> ethane = nts.parseChemicalNameAsync("ethane", config);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CompletableFuture<OpsinResult> propane = nts.parseChemicalNameAsync("propane", config, executor);
+			assertEquals("CC", ethane.get().getSmiles());
+			assertEquals("CCC", propane.get().getSmiles());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testOutputCanBeGeneratedConcurrentlyFromOneResult() throws Exception {
+		NameToStructure nts = NameToStructure.getInstance();
+		OpsinResult result = nts.parseChemicalName("(2E,4Z)-5-[(1R)-2,2-dimethylcyclohexyl]penta-2,4-dienoic acid");
+		String smiles = result.getSmiles();
+		String extendedSmiles = result.getExtendedSmiles();
+		String cml = result.getCml();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 100; j++) {
+						if (!smiles.equals(result.getSmiles()) || !extendedSmiles.equals(result.getExtendedSmiles()) || !cml.equals(result.getCml())) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
 }
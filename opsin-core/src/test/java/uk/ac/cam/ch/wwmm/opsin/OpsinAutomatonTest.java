@@ -0,0 +1,69 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.RunAutomaton;
+
+public class OpsinAutomatonTest {
+
+	private static final String REGEX = "(chloro|bromo)?(meth|eth|prop)(ane|ene|yne)";
+
+	@Test
+	public void testMatchesRunAutomaton() {
+		RunAutomaton runAutomaton = new RunAutomaton(new RegExp(REGEX).toAutomaton());
+		OpsinAutomaton automaton = OpsinAutomaton.fromRunAutomaton(runAutomaton);
+		assertEquals(runAutomaton.getSize(), automaton.getSize());
+		assertArrayEquals(runAutomaton.getCharIntervals(), automaton.getCharIntervals());
+		for (String s : new String[]{"methane", "chloroethene", "bromopropyne", "ethanol", "propan", "", "éthane", "bromo"}) {
+			assertEquals(runAutomaton.run(s, 0), automaton.run(s, 0), s);
+		}
+		for (int state = 0; state < runAutomaton.getSize(); state++) {
+			assertEquals(runAutomaton.isAccept(state), automaton.isAccept(state));
+			for (char c = 0; c < 256; c++) {
+				assertEquals(runAutomaton.step(state, c), automaton.step(state, c));
+			}
+		}
+	}
+
+	@Test
+	public void testWideRowsMatchRunAutomaton() {
+		//the initial state has more live transitions than are held sparsely
+		RunAutomaton runAutomaton = new RunAutomaton(new RegExp("(a|c|e|g|i|k|m|o|q|s|u|w|y|é)(b|d)+").toAutomaton());
+		OpsinAutomaton automaton = OpsinAutomaton.fromRunAutomaton(runAutomaton);
+		for (String s : new String[]{"ab", "ydbd", "ébb", "zb", "a", "bb"}) {
+			assertEquals(runAutomaton.run(s, 0), automaton.run(s, 0), s);
+		}
+		for (int state = 0; state < runAutomaton.getSize(); state++) {
+			for (char c = 0; c < 256; c++) {
+				assertEquals(runAutomaton.step(state, c), automaton.step(state, c));
+			}
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		OpsinAutomaton automaton = OpsinAutomaton.fromRunAutomaton(new RunAutomaton(new RegExp(REGEX).toAutomaton()));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		automaton.write(new DataOutputStream(baos));
+		byte[] bytes = baos.toByteArray();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		OpsinAutomaton readAutomaton = OpsinAutomaton.read(buffer);
+		assertEquals(bytes.length, buffer.position());
+		assertEquals(automaton.getSize(), readAutomaton.getSize());
+		assertEquals(automaton.getInitialState(), readAutomaton.getInitialState());
+		assertArrayEquals(automaton.getCharIntervals(), readAutomaton.getCharIntervals());
+		assertArrayEquals(automaton.getTransitionRowStart(), readAutomaton.getTransitionRowStart());
+		assertArrayEquals(automaton.getTransitionSymbolIndex(), readAutomaton.getTransitionSymbolIndex());
+		assertArrayEquals(automaton.getTransitionNextState(), readAutomaton.getTransitionNextState());
+		assertEquals(7, readAutomaton.run("propyne", 0));
+	}
+}
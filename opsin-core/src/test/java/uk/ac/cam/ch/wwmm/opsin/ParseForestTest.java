@@ -0,0 +1,78 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ParseForestTest {
+
+	/**
+	 * Builds the graph of a word consisting of repeatsOfAb repeats of "ab", each of which
+	 * can be interpreted as the single token "ab" or as the tokens "a" and "b"
+	 * @param repeatsOfAb
+	 * @return
+	 */
+	static ParseForest buildAmbiguousForest(int repeatsOfAb) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < repeatsOfAb; i++) {
+			sb.append("ab");
+		}
+		String word = sb.toString();
+		TokenisationWorkspace ws = new TokenisationWorkspace(0, 0);
+		ws.reset();
+		ws.getOrAddNode(0, 0);
+		while (ws.stackSize > 0) {
+			int node = ws.stack[--ws.stackSize];
+			int pos = ws.positions[node];
+			if (pos == word.length()) {
+				continue;
+			}
+			if (ws.states[node] == 0) {
+				ws.addEdge(node, 1, pos + 1, 'a', false);
+				ws.addEdge(node, 0, pos + 2, 'x', false);
+			}
+			else {
+				ws.addEdge(node, 0, pos + 1, 'b', false);
+			}
+		}
+		boolean[] accepting = new boolean[ws.nodeCount];
+		for (int n = 0; n < ws.nodeCount; n++) {
+			accepting[n] = ws.states[n] == 0;
+		}
+		return new ParseForest(ws, word.length(), accepting, word);
+	}
+
+	@Test
+	public void testParsesAreExpandedDepthFirst() {
+		ParseForest forest = buildAmbiguousForest(2);
+		assertEquals(4, forest.getParseCount());
+		List<ParseTokens> parses = forest.expand();
+		assertEquals(4, parses.size());
+		assertEquals(Arrays.asList("ab", "ab"), parses.get(0).getTokens());
+		assertEquals(Arrays.asList('x', 'x'), parses.get(0).getAnnotations());
+		assertEquals(Arrays.asList("ab", "a", "b"), parses.get(1).getTokens());
+		assertEquals(Arrays.asList("a", "b", "ab"), parses.get(2).getTokens());
+		assertEquals(Arrays.asList("a", "b", "a", "b"), parses.get(3).getTokens());
+		assertEquals(Arrays.asList('a', 'b', 'a', 'b'), parses.get(3).getAnnotations());
+	}
+
+	@Test
+	public void testExponentialAmbiguityIsCountedWithoutExpansion() {
+		ParseForest forest = buildAmbiguousForest(40);
+		assertEquals(Integer.MAX_VALUE, forest.getParseCount());
+		assertEquals(1 << 20, buildAmbiguousForest(20).getParseCount());
+	}
+
+	@Test
+	public void testOnlyUpTo128ParsesAreExpanded() {
+		assertEquals(128, buildAmbiguousForest(7).expand().size());
+		ParseForest forest = buildAmbiguousForest(8);
+		assertEquals(256, forest.getParseCount());
+		assertThrows(IllegalStateException.class, forest::expand);
+		assertThrows(IllegalStateException.class, () -> buildAmbiguousForest(40).expand());
+	}
+}
@@ -4,6 +4,7 @@ package uk.ac.cam.ch.wwmm.opsin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.util.List;
@@ -50,6 +51,17 @@ public class ParserTest {
 		assertEquals(2, parse.get(0).getChildElements(XmlDeclarations.WORDRULE_EL).size());
 	}
 
+	@Test
+	public void testParsesAreInOrderOfPreference() throws ParsingException {
+		List<Element> parses = parser.parse(config, "4a-oxo-4alambda5-phosphadecalin");
+
+		assertEquals(4, parses.size());
+		SortParses sortParses = new SortParses();
+		for (int i = 1; i < parses.size(); i++) {
+			assertTrue(sortParses.compare(parses.get(i - 1), parses.get(i)) <= 0);
+		}
+	}
+
 	@Test()
 	public void testParseThrowsWhenNameIsSubstituentOnly() {
 		assertThrows(ParsingException.class, () -> {
@@ -1,6 +1,7 @@
 package uk.ac.cam.ch.wwmm.opsin;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.Test;
@@ -69,4 +70,22 @@ public class PreProcessorTest {
 		assertEquals("alpha-methyl-toluene", PreProcessor.preProcess("&alpha;-methyl-toluene"));
 		assertEquals("beta-methyl-styrene", PreProcessor.preProcess("&BETA;-methyl-styrene"));
 	}
+
+	@Test
+	public void testNameNeedingNoNormalisationIsReturnedUnchanged() throws PreProcessingException {
+		String name = "2-(4-chlorophenyl)-N,N-dimethylethan-1-amine";
+		assertSame(name, PreProcessor.preProcess(name));
+	}
+
+	@Test
+	public void testMixedNormalisationInOnePass() throws PreProcessingException {
+		assertEquals("alpha-sulfanyl 2'-'' betaalphax", PreProcessor.preProcess("\u03b1-sulphanyl\t2`-\" .beta.$a\u0001x"));
+	}
+
+	@Test
+	public void testUnrecognisedNonAsciiThrows() {
+		assertThrows(PreProcessingException.class, () -> {
+		PreProcessor.preProcess("methyl\u4e00");
+		});
+	}
 }
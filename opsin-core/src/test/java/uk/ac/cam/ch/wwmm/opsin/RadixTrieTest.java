@@ -2,7 +2,14 @@ package uk.ac.cam.ch.wwmm.opsin;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -62,6 +69,21 @@ public class RadixTrieTest {
 		assertEquals(11, matches.get(1).intValue());
 	}
 	
+	@Test
+	public void testMultipleHitsIntoArray(){
+		OpsinRadixTrie trie = new OpsinRadixTrie();
+		trie.addToken("methyl");
+		trie.addToken("methylidene");
+		trie.addToken("");
+		int[] matchEnds = new int[14];
+		int matchCount = trie.findMatches("dimethylidene", 2, matchEnds);
+		assertEquals(3, matchCount);
+		assertEquals(2, matchEnds[0]);
+		assertEquals(8, matchEnds[1]);
+		assertEquals(13, matchEnds[2]);
+		assertEquals(0, new OpsinRadixTrie().findMatches("dimethylidene", 2, matchEnds));
+	}
+	
 	@Test
 	public void testMultipleHits2(){
 		OpsinRadixTrie trie = new OpsinRadixTrie();
@@ -96,5 +118,54 @@ public class RadixTrieTest {
 		assertEquals(3, matches.get(1).intValue());
 		assertEquals(0, matches.get(2).intValue());
 	}
+
+	@Test
+	public void testCompactedTrieRoundTrip() throws IOException {
+		OpsinRadixTrie trie = new OpsinRadixTrie();
+		trie.addToken("methyl");
+		trie.addToken("methylidene");
+		trie.addToken("ethyl");
+		trie.addToken("e");
+		trie.compact();
+		assertThrows(IllegalStateException.class, () -> trie.addToken("propyl"));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		trie.write(new DataOutputStream(baos));
+		OpsinRadixTrie readTrie = OpsinRadixTrie.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		for (String s : new String[]{"methylidene", "ethylidene", "ene", "propyl", "méthyl"}) {
+			assertEquals(trie.findMatches(s, 0), readTrie.findMatches(s, 0));
+		}
+		assertEquals(2, readTrie.findMatches("methylidene", 0).size());
+		assertNull(readTrie.findMatches("propyl", 0));
+	}
+
+	@Test
+	public void testUnionOfTries() {
+		OpsinRadixTrie[] tries = new OpsinRadixTrie[4];
+		tries[0] = new OpsinRadixTrie();
+		tries[0].addToken("meth");
+		tries[0].addToken("eth");
+		tries[2] = new OpsinRadixTrie();
+		tries[2].addToken("methyl");
+		tries[2].addToken("meth");
+		tries[2].addToken("");
+		tries[3] = new OpsinRadixTrie();
+		tries[3].addToken("ylidene");
+		TokenUnionTrie union = TokenUnionTrie.build(tries);
+		assertEquals(4, union.getMaxMatches());
+		int[] matchSymbols = new int[union.getMaxMatches()];
+		int[] matchEnds = new int[union.getMaxMatches()];
+		int matchCount = union.findMatches("dimethylidene", 2, matchSymbols, matchEnds);
+		assertEquals(4, matchCount);
+		assertEquals(2, matchSymbols[0]);
+		assertEquals(2, matchEnds[0]);
+		assertEquals(0, matchSymbols[1]);
+		assertEquals(6, matchEnds[1]);
+		assertEquals(2, matchSymbols[2]);
+		assertEquals(6, matchEnds[2]);
+		assertEquals(2, matchSymbols[3]);
+		assertEquals(8, matchEnds[3]);
+		assertEquals(2, union.findMatches("dimethylidene", 6, matchSymbols, matchEnds));
+		assertEquals(3, matchSymbols[1]);
+		assertEquals(13, matchEnds[1]);
+	}
 }
-	
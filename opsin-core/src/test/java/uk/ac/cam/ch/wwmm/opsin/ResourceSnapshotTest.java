@@ -0,0 +1,134 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ResourceSnapshotTest {
+
+	private static ResourceGetter resourceGetter;
+	private static ResourceManager xmlResourceManager;
+	private static byte[] image;
+	private static byte[] stamp;
+
+	@BeforeAll
+	public static void setup() throws Exception {
+		resourceGetter = new ResourceGetter("uk/ac/cam/ch/wwmm/opsin/resources/");
+		xmlResourceManager = new ResourceManager(resourceGetter, false);
+		ByteArrayOutputStream imageOs = new ByteArrayOutputStream();
+		ByteArrayOutputStream stampOs = new ByteArrayOutputStream();
+		ResourceSnapshot.write(xmlResourceManager, resourceGetter, imageOs, stampOs);
+		image = imageOs.toByteArray();
+		stamp = stampOs.toByteArray();
+	}
+
+	private static ResourceSnapshot readSnapshot() throws Exception {
+		Long resourcesChecksum = ResourceSnapshot.readStamp(new ByteArrayInputStream(stamp), resourceGetter);
+		assertNotNull(resourcesChecksum);
+		return ResourceSnapshot.read(ByteBuffer.wrap(image), resourcesChecksum);
+	}
+
+	@Test
+	public void testTokenDictionaryRoundTrip() throws Exception {
+		ResourceSnapshot snapshot = readSnapshot();
+		assertNotNull(snapshot);
+		Map<String, Map<Character, TokenEl>> expectedTokenDict = xmlResourceManager.getTokenDict();
+		assertEquals(expectedTokenDict.keySet(), snapshot.tokenDict.keySet());
+		for (Entry<String, Map<Character, TokenEl>> entry : expectedTokenDict.entrySet()) {
+			Map<Character, TokenEl> actual = snapshot.tokenDict.get(entry.getKey());
+			assertEquals(entry.getValue().keySet(), actual.keySet());
+			for (Entry<Character, TokenEl> symbolEntry : entry.getValue().entrySet()) {
+				TokenEl expectedToken = symbolEntry.getValue();
+				TokenEl actualToken = actual.get(symbolEntry.getKey());
+				if (expectedToken == ResourceManager.IGNORE_WHEN_WRITING_PARSE_TREE) {
+					assertSame(ResourceManager.IGNORE_WHEN_WRITING_PARSE_TREE, actualToken);
+				}
+				else {
+					assertEquals(expectedToken.toXML(), actualToken.toXML());
+				}
+			}
+		}
+		assertEquals(xmlResourceManager.getReSymbolTokenDict().keySet(), snapshot.reSymbolTokenDict.keySet());
+	}
+
+	@Test
+	public void testTokenNamesAreInterned() throws Exception {
+		ResourceSnapshot snapshot = readSnapshot();
+		TokenEl[] methyls = {xmlResourceManager.getTokenDict().get("meth").get('a'), snapshot.tokenDict.get("meth").get('a')};
+		for (TokenEl methyl : methyls) {
+			assertSame(XmlDeclarations.GROUP_EL, methyl.getName());
+			assertSame(XmlDeclarations.CHAIN_TYPE_VAL, methyl.getAttributeValue(XmlDeclarations.TYPE_ATR));
+			assertSame("C", methyl.getAttributeValue(XmlDeclarations.VALUE_ATR));
+		}
+	}
+
+	@Test
+	public void testTriesAndAutomataRoundTrip() throws Exception {
+		ResourceSnapshot snapshot = readSnapshot();
+		assertEquals(xmlResourceManager.getChemicalAutomaton().getSize(), snapshot.chemicalAutomaton.getSize());
+		OpsinRadixTrie[] expectedTries = xmlResourceManager.getSymbolTokenNamesDict();
+		String[] testStrings = {"ethyl", "benzene", "ylidene", "oxo", "2-chloro", "hydrochloride"};
+		for (int i = 0; i < expectedTries.length; i++) {
+			if (expectedTries[i] == null) {
+				assertNull(snapshot.symbolTokenNamesDict[i]);
+				continue;
+			}
+			for (String testString : testStrings) {
+				assertEquals(expectedTries[i].findMatches(testString, 0), snapshot.symbolTokenNamesDict[i].findMatches(testString, 0));
+			}
+			assertEquals(xmlResourceManager.getSymbolRegexAutomataDict()[i] != null, snapshot.symbolRegexAutomataDict[i] != null);
+			if (xmlResourceManager.getSymbolRegexesDict()[i] != null) {
+				assertEquals(xmlResourceManager.getSymbolRegexesDict()[i].pattern(), snapshot.symbolRegexesDict[i].pattern());
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshotGeneratedByBuildIsLoaded() {
+		assertNotNull(ResourceSnapshot.load(resourceGetter));
+	}
+
+	@Test
+	public void testOverriddenResourcesRejectSnapshot() throws Exception {
+		ResourceGetter overriddenResources = new ResourceGetter("uk/ac/cam/ch/wwmm/opsin/resources/") {
+			@Override
+			boolean isInWorkingDirectory(String name) {
+				return name.equals("regexTokens.xml");
+			}
+		};
+		assertNull(ResourceSnapshot.readStamp(new ByteArrayInputStream(stamp), overriddenResources));
+	}
+
+	@Test
+	public void testChangedResourcesRejectSnapshot() throws Exception {
+		ResourceGetter changedResources = new ResourceGetter("uk/ac/cam/ch/wwmm/opsin/resources/") {
+			@Override
+			InputStream getInputstreamFromFileName(String name) throws IOException {
+				if (name.equals("regexTokens.xml")) {
+					return new ByteArrayInputStream("<regexTokenList/>".getBytes(StandardCharsets.UTF_8));
+				}
+				return super.getInputstreamFromFileName(name);
+			}
+		};
+		assertNull(ResourceSnapshot.readStamp(new ByteArrayInputStream(stamp), changedResources));
+	}
+
+	@Test
+	public void testImageNotMatchingStampIsRejected() throws Exception {
+		Long resourcesChecksum = ResourceSnapshot.readStamp(new ByteArrayInputStream(stamp), resourceGetter);
+		assertNull(ResourceSnapshot.read(ByteBuffer.wrap(image), resourcesChecksum + 1));
+	}
+}
@@ -3,6 +3,8 @@ package uk.ac.cam.ch.wwmm.opsin;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collections;
 import java.util.List;
 
@@ -473,4 +475,37 @@ public class SMILESWriterTest {
 		}
 		assertEquals("[CH3:1][CH2:2][OH:3]", SMILESWriter.generateSmiles(f));
 	}
+
+	@Test
+	public void testWriteToAppendable() throws StructureBuildingException, IOException {
+		Fragment ring = fm.buildSMILES("C1CC2CCC2CC1");
+		fm.makeHydrogensExplicit();
+		StringWriter writer = new StringWriter();
+		writer.write("x ");
+		SMILESWriter.generateSmiles(ring, SmilesOptions.DEFAULT, writer);
+		assertEquals("x C1CC2CCC2CC1", writer.toString());
+	}
+
+	@Test
+	public void testReusedWriter() throws StructureBuildingException, IOException {
+		SMILESWriter smilesWriter = new SMILESWriter();
+		Fragment ring = fm.buildSMILES("C1CC2CCC2CC1");
+		Fragment chain = fm.buildSMILES("CC");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1500; i++) {
+			sb.append('C');
+		}
+		String longChainSmiles = sb.toString();
+		Fragment longChain = fm.buildSMILES(longChainSmiles);
+		fm.makeHydrogensExplicit();
+		assertEquals("C1CC2CCC2CC1", smilesWriter.write(ring, SmilesOptions.DEFAULT));
+		//the state from the larger structure must not be used
+		sb.setLength(0);
+		smilesWriter.write(chain, SmilesOptions.DEFAULT, sb);
+		assertEquals("CC", sb.toString());
+		//the state for this structure is too large to be retained, hence is regrown for each use
+		assertEquals(longChainSmiles, smilesWriter.write(longChain, SmilesOptions.DEFAULT));
+		assertEquals("C1CC2CCC2CC1", smilesWriter.write(ring, SmilesOptions.DEFAULT));
+		assertEquals(longChainSmiles, smilesWriter.write(longChain, SmilesOptions.DEFAULT));
+	}
 }
@@ -0,0 +1,79 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import static uk.ac.cam.ch.wwmm.opsin.XmlDeclarations.*;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenElTest {
+
+	private TokenEl makeTemplate() {
+		TokenEl template = new TokenEl(GROUP_EL);
+		template.addAttribute(TYPE_ATR, CHAIN_TYPE_VAL);
+		template.addAttribute(VALUE_ATR, "CC");
+		template.shareAttributes();
+		return template;
+	}
+
+	@Test
+	public void testModifyingCopyDoesNotModifyTemplate() {
+		TokenEl template = makeTemplate();
+		TokenEl copy = template.copy("eth");
+		assertEquals("eth", copy.getValue());
+		assertEquals("CC", copy.getAttributeValue(VALUE_ATR));
+		copy.getAttribute(VALUE_ATR).setValue("CCC");
+		copy.addAttribute(LOCANT_ATR, "1");
+		copy.removeAttribute(copy.getAttribute(TYPE_ATR));
+		assertEquals("CCC", copy.getAttributeValue(VALUE_ATR));
+		assertEquals("CC", template.getAttributeValue(VALUE_ATR));
+		assertEquals(CHAIN_TYPE_VAL, template.getAttributeValue(TYPE_ATR));
+		assertNull(template.getAttributeValue(LOCANT_ATR));
+		assertEquals(2, template.getAttributeCount());
+	}
+
+	@Test
+	public void testModifyingTemplateDoesNotModifyCopy() {
+		TokenEl template = makeTemplate();
+		TokenEl copy = template.copy("eth");
+		template.getAttribute(VALUE_ATR).setValue("CCC");
+		assertEquals("CC", copy.getAttributeValue(VALUE_ATR));
+	}
+
+	@Test
+	public void testPreviouslyReturnedAttributeDoesNotModifyCopy() {
+		TokenEl token = makeTemplate().copy("eth");
+		Attribute valueAtr = token.getAttribute(VALUE_ATR);
+		TokenEl copy = (TokenEl) token.copy();
+		valueAtr.setValue("CCC");
+		assertEquals("CCC", token.getAttributeValue(VALUE_ATR));
+		assertEquals("CC", copy.getAttributeValue(VALUE_ATR));
+	}
+
+	@Test
+	public void testCopyOfUnsharedElementIsIndependent() {
+		TokenEl token = new TokenEl(GROUP_EL);
+		token.addAttribute(VALUE_ATR, "CC");
+		TokenEl copy = token.copy("eth");
+		copy.getAttribute(VALUE_ATR).setValue("CCC");
+		assertEquals("CC", token.getAttributeValue(VALUE_ATR));
+		TokenEl copyOfCopy = copy.copy("prop");
+		assertEquals("CCC", copyOfCopy.getAttributeValue(VALUE_ATR));
+	}
+
+	@Test
+	public void testDeclaredAndUndeclaredAttributesAreFound() {
+		TokenEl token = makeTemplate().copy("eth");
+		token.addAttribute("undeclaredAttribute", "1");
+		assertEquals("1", token.getAttributeValue("undeclaredAttribute"));
+		assertEquals("CC", token.getAttributeValue(new String(VALUE_ATR)));
+		assertNull(token.getAttributeValue(LOCANT_ATR));
+		token.removeAttribute(token.getAttribute(VALUE_ATR));
+		assertNull(token.getAttributeValue(VALUE_ATR));
+		assertEquals(CHAIN_TYPE_VAL, token.getAttributeValue(TYPE_ATR));
+		token.addAttribute(VALUE_ATR, "CCC");
+		assertEquals("CCC", token.getAttributeValue(VALUE_ATR));
+		assertEquals("CC", makeTemplate().getAttributeValue(VALUE_ATR));
+	}
+}
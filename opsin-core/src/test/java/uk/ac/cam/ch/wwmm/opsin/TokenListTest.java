@@ -0,0 +1,35 @@
+package uk.ac.cam.ch.wwmm.opsin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenListTest {
+
+	@Test
+	public void testTokensAreCreatedFromOffsets() {
+		TokenList tokens = new TokenList("2-ChloroEthyl", 2, new int[]{8, 11, 13}, new boolean[]{false, true, false});
+		assertEquals(3, tokens.size());
+		assertEquals("chloro", tokens.get(0));
+		assertEquals("Eth", tokens.get(1));
+		assertEquals("yl", tokens.get(2));
+		assertEquals(Arrays.asList("chloro", "Eth", "yl"), tokens);
+	}
+
+	@Test
+	public void testTokenIsOnlyCreatedOnce() {
+		TokenList tokens = new TokenList("methyl", 0, new int[]{4, 6}, new boolean[]{false, false});
+		assertSame(tokens.get(1), tokens.get(1));
+	}
+
+	@Test
+	public void testParseTokensEqualityIsIndependentOfRepresentation() {
+		ParseTokens lazy = new ParseTokens(new TokenList("Methyl", 0, new int[]{4, 6}, new boolean[]{false, false}), Arrays.asList('a', 'b'));
+		ParseTokens eager = new ParseTokens(Arrays.asList("meth", "yl"), Arrays.asList('a', 'b'));
+		assertEquals(eager, lazy);
+		assertEquals(eager.hashCode(), lazy.hashCode());
+	}
+}
@@ -2,7 +2,11 @@ package uk.ac.cam.ch.wwmm.opsin;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.List;
@@ -381,4 +385,12 @@ public class TokenizerTest {
 		TokenizationResult result =tokenizer.tokenizeRightToLeft(reverseParseRules, "ethyl foo|yl tolu ene", true);
 		assertEquals("ethyl foo|yl", result.getUnparsedName());
 	}
+
+	@Test
+	public void tooManyParsesRL() throws ParsingException{
+		ReverseParseRules ambiguousParseRules = mock(ReverseParseRules.class);
+		when(ambiguousParseRules.getParses(anyString())).thenReturn(new ParseRulesResults(ParseForestTest.buildAmbiguousForest(8), "", ""));
+		ParsingException e = assertThrows(ParsingException.class, () -> tokenizer.tokenizeRightToLeft(ambiguousParseRules, "abababababababab", true));
+		assertTrue(e.getMessage().startsWith("Too many"));
+	}
 }